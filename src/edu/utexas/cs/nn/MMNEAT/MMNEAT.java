@@ -10,13 +10,17 @@ import java.util.logging.Logger;
 import org.rlcommunity.rlglue.codec.taskspec.TaskSpec;
 
 import edu.utexas.cs.nn.breve2D.dynamics.Breve2DDynamics;
+import edu.utexas.cs.nn.data.BackgroundWriter;
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.data.ResultSummaryUtilities;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.GenerationalEA;
 import edu.utexas.cs.nn.evolution.crossover.Crossover;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.HyperNEATCPPNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.SubstrateNetworkCache;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.pool.SubnetworkCache;
 import edu.utexas.cs.nn.evolution.lineage.Offspring;
 import edu.utexas.cs.nn.evolution.metaheuristics.AntiMaxModuleUsageFitness;
 import edu.utexas.cs.nn.evolution.metaheuristics.FavorXModulesFitness;
@@ -78,12 +82,12 @@ import edu.utexas.cs.nn.tasks.testmatch.MatchDataTask;
 import edu.utexas.cs.nn.tasks.ut2004.UT2004Task;
 import edu.utexas.cs.nn.tasks.vizdoom.VizDoomTask;
 import edu.utexas.cs.nn.util.ClassCreation;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 import edu.utexas.cs.nn.util.random.RandomGenerator;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
 import edu.utexas.cs.nn.util.stats.Statistic;
 import pacman.Executor;
-import wox.serial.Easy;
 
 /**
  * Modular Multiobjective Neuro-Evolution of Augmenting Topologies.
@@ -393,7 +397,7 @@ public class MMNEAT {
 				if (multitaskNet != null && !multitaskNet.isEmpty()) {
 					// Preference networks are being evolved to pick outputs of
 					// fixed multitask network
-					MMNEAT.sharedMultitaskNetwork = (TWEANNGenotype) Easy.load(multitaskNet);
+					MMNEAT.sharedMultitaskNetwork = (TWEANNGenotype) GenotypeFiles.load(multitaskNet);
 					if (CommonConstants.showNetworks) {
 						DrawingPanel panel = new DrawingPanel(TWEANN.NETWORK_VIEW_DIM, TWEANN.NETWORK_VIEW_DIM, "Fixed Multitask Network");
 						MMNEAT.sharedMultitaskNetwork.getPhenotype().draw(panel);
@@ -401,7 +405,7 @@ public class MMNEAT {
 					// One preference neuron per multitask mode
 					setNNInputParameters(pacmanInputOutputMediator.numIn(), MMNEAT.sharedMultitaskNetwork.numModules);
 				} else if (preferenceNet != null && !preferenceNet.isEmpty()) {
-					MMNEAT.sharedPreferenceNetwork = (TWEANNGenotype) Easy.load(preferenceNet);
+					MMNEAT.sharedPreferenceNetwork = (TWEANNGenotype) GenotypeFiles.load(preferenceNet);
 					if (CommonConstants.showNetworks) {
 						DrawingPanel panel = new DrawingPanel(TWEANN.NETWORK_VIEW_DIM, TWEANN.NETWORK_VIEW_DIM, "Fixed Preference Network");
 						MMNEAT.sharedPreferenceNetwork.getPhenotype().draw(panel);
@@ -635,7 +639,7 @@ public class MMNEAT {
 			} else {
 				// Copy assures a fresh genotype id
 				System.out.println("Loading seed genotype: " + seedGenotype);
-				genotype = ((Genotype) Easy.load(seedGenotype)).copy();
+				genotype = ((Genotype) GenotypeFiles.load(seedGenotype)).copy();
 				// System.out.println(genotype);
 				seedExample = true;
 			}
@@ -726,6 +730,9 @@ public class MMNEAT {
 		experiment = null;
 		performanceLog = null;
 		EvolutionaryHistory.archetypes = null;
+		SubstrateNetworkCache.clear();
+		SubnetworkCache.clear();
+		EvaluationExecutor.shutdown();
 		Executor.close();
 	}
 
@@ -736,6 +743,7 @@ public class MMNEAT {
 		System.out.println("Run:");
 		clearClasses();
 		loadClasses();
+		CommonConstants.checkSnapshot();
 
 		if (Parameters.parameters.booleanParameter("io")) {
 			Parameters.parameters.saveParameters();
@@ -768,7 +776,7 @@ public class MMNEAT {
 			// because an archetype is required. There will be one
 			// archetype file for each population, so checking for the
 			// existence of the files verifies the number of populations.
-			while(new File(runDir + "archetype"+i+".xml").exists()) {
+			while(GenotypeFiles.exists(runDir + "archetype"+i+".xml")) {
 				ResultSummaryUtilities.processExperiment(
 						base + "/" + saveTo,
 						Parameters.parameters.stringParameter("log"), runs, Parameters.parameters.integerParameter("maxGens"),
@@ -918,6 +926,15 @@ public class MMNEAT {
 	 * Checks for logs that aren't null, closes them and sets them to null.
 	 */
 	public static void closeLogs() {
+		if (EvolutionaryHistory.lineageEvents != null) {
+			EvolutionaryHistory.lineageEvents.close();
+			EvolutionaryHistory.lineageEvents = null;
+		}
+		// Saves still being written are finished first
+		BackgroundWriter.close();
+		if (SubnetworkCache.misses() > 0) {
+			System.out.println(SubnetworkCache.report());
+		}
 		if (performanceLog != null) {
 			performanceLog.close();
 		}
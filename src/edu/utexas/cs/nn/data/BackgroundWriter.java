@@ -0,0 +1,300 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.log.LineageEventLog;
+import edu.utexas.cs.nn.log.MMNEATLog;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.file.FileUtilities;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Writes saved genotypes, archetypes, champions and parameter files on a
+ * background thread when backgroundSaves is set, so that evolution can go on
+ * to evaluate the next generation while the last one is written. Otherwise
+ * every write is simply done immediately by the calling thread.
+ *
+ * Whatever is saved is captured when the write is submitted (see
+ * GenotypeFiles.snapshot), so later changes do not affect it. Writes are done
+ * one at a time, in the order they were submitted, so for example a
+ * parameter file that points at a saved generation is only written once the
+ * whole generation is on disk, and a directory is only deleted once the
+ * generation replacing it is saved. At most saveQueueSize writes can be
+ * waiting at once: submitting another one blocks until the writer catches
+ * up, so a slow file system slows evolution down instead of filling up
+ * memory.
+ *
+ * flush waits for every write submitted so far, and close also stops the
+ * writer. Writes that are still waiting when the program exits are finished
+ * first. If a write fails, the program exits, just as if the write had
+ * failed in the evolutionary loop.
+ */
+public class BackgroundWriter {
+
+	/**
+	 * A write to be done later. Anything that might change before then must
+	 * be captured when the write is created.
+	 */
+	public interface Write {
+		void write() throws Exception;
+	}
+
+	// Tells the writer thread to stop
+	private static final Write STOP = new Write() {
+		@Override
+		public void write() {
+		}
+	};
+
+	private static Writer writer = null;
+
+	private static class Writer extends Thread {
+		private final ArrayBlockingQueue<Write> queue;
+		// Writes submitted and finished so far, guarded by this
+		private long submitted = 0;
+		private long finished = 0;
+		private volatile boolean failed = false;
+		// Finishes pending writes if the program exits without closing
+		private final Thread hook = new Thread() {
+			@Override
+			public void run() {
+				// Nothing more can be written after a write failed
+				if (!failed) {
+					try {
+						flush();
+					} catch (InterruptedException ex) {
+						// Exiting anyway
+					}
+				}
+			}
+		};
+
+		Writer(int capacity) {
+			super("BackgroundWriter");
+			queue = new ArrayBlockingQueue<Write>(Math.max(1, capacity));
+			// Pending writes are finished by a shutdown hook, so the
+			// writer never keeps the program running
+			setDaemon(true);
+		}
+
+		void submit(Write write) throws InterruptedException {
+			synchronized (this) {
+				submitted++;
+			}
+			queue.put(write);
+		}
+
+		@Override
+		public void run() {
+			while (true) {
+				Write write;
+				try {
+					write = queue.take();
+				} catch (InterruptedException ex) {
+					return;
+				}
+				if (write == STOP) {
+					return;
+				}
+				try {
+					write.write();
+				} catch (Exception ex) {
+					ex.printStackTrace();
+					System.out.println("Failure in background save");
+					failed = true;
+					System.exit(1);
+				}
+				synchronized (this) {
+					finished++;
+					notifyAll();
+				}
+			}
+		}
+
+		synchronized void flush() throws InterruptedException {
+			long target = submitted;
+			while (finished < target && !failed) {
+				wait();
+			}
+		}
+	}
+
+	/**
+	 * @return whether writes are done in the background
+	 */
+	public static boolean enabled() {
+		return Parameters.parameters != null && Parameters.parameters.booleanParameter("backgroundSaves");
+	}
+
+	private static synchronized Writer writer() {
+		if (writer == null) {
+			writer = new Writer(Parameters.parameters.integerParameter("saveQueueSize"));
+			writer.start();
+			Runtime.getRuntime().addShutdownHook(writer.hook);
+		}
+		return writer;
+	}
+
+	/**
+	 * Write in the background if backgroundSaves is set, and immediately
+	 * otherwise. Blocks while saveQueueSize writes are already waiting.
+	 *
+	 * @param write
+	 *            write whose data has already been captured
+	 */
+	public static void submit(Write write) {
+		try {
+			if (enabled()) {
+				writer().submit(write);
+			} else {
+				write.write();
+			}
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			System.out.println("Failure saving");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Save a genotype or archetype in the background (see GenotypeFiles.save)
+	 */
+	public static void save(Object object, String filename) {
+		submit(GenotypeFiles.snapshot(object, filename));
+	}
+
+	/**
+	 * Save a whole population in the background as one write, so that it is
+	 * completely saved before anything submitted after it is written
+	 *
+	 * @param objects
+	 *            genotypes to save
+	 * @param filePrefix
+	 *            path that each file name starts with, followed by the index
+	 *            of the genotype and ".xml"
+	 */
+	public static void saveAll(List<?> objects, String filePrefix) {
+		final ArrayList<Write> writes = new ArrayList<Write>(objects.size());
+		for (int i = 0; i < objects.size(); i++) {
+			writes.add(GenotypeFiles.snapshot(objects.get(i), filePrefix + i + ".xml"));
+		}
+		submit(new Write() {
+			@Override
+			public void write() throws Exception {
+				for (Write w : writes) {
+					w.write();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Create a directory in the background, or empty it if it already
+	 * exists, before new champions are saved to it
+	 *
+	 * @param directory
+	 *            directory of champions
+	 * @param clear
+	 *            whether the old contents of the directory are deleted
+	 */
+	public static void prepareDirectory(final String directory, final boolean clear) {
+		submit(new Write() {
+			@Override
+			public void write() {
+				File dir = new File(directory);
+				if (dir.exists() && clear) {
+					FileUtilities.deleteDirectoryContents(dir);
+				} else {
+					dir.mkdir();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Write a string to a file in the background (see
+	 * FileUtilities.simpleFileWrite)
+	 */
+	public static void write(final String filename, final String contents) {
+		submit(new Write() {
+			@Override
+			public void write() {
+				FileUtilities.simpleFileWrite(filename, contents);
+			}
+		});
+	}
+
+	/**
+	 * Save the current parameters to the parameter file of the experiment in
+	 * the background, after writing any buffered log lines
+	 */
+	public static void saveParameters() {
+		// Never resume from a generation whose log lines are not on disk
+		MMNEATLog.flushAll();
+		LineageEventLog.flushAll();
+		if (!enabled()) {
+			Parameters.parameters.saveParameters();
+			return;
+		}
+		final String filename = Parameters.parameters.parametersFile();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		PrintStream stream = new PrintStream(bytes);
+		Parameters.parameters.saveParameters(stream);
+		stream.close();
+		final byte[] contents = bytes.toByteArray();
+		submit(new Write() {
+			@Override
+			public void write() throws Exception {
+				try (FileOutputStream out = new FileOutputStream(filename)) {
+					out.write(contents);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Wait until everything submitted so far is written
+	 */
+	public static void flush() {
+		Writer w;
+		synchronized (BackgroundWriter.class) {
+			w = writer;
+		}
+		if (w != null) {
+			try {
+				w.flush();
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * Write everything that was submitted, then stop the writer thread. Using
+	 * the writer again after that starts a new one.
+	 */
+	public static void close() {
+		Writer w;
+		synchronized (BackgroundWriter.class) {
+			w = writer;
+			writer = null;
+		}
+		if (w != null) {
+			try {
+				// Not counted as a submitted write, so flush never waits for it
+				w.queue.put(STOP);
+				w.join();
+				Runtime.getRuntime().removeShutdownHook(w.hook);
+			} catch (InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			} catch (IllegalStateException ex) {
+				// Already exiting, and the hook has nothing left to do
+			}
+		}
+	}
+}
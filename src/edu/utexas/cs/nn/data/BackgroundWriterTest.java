@@ -0,0 +1,183 @@
+package edu.utexas.cs.nn.data;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.BinaryGenotypeFormat;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class BackgroundWriterTest {
+
+	private File dir = null;
+
+	@After
+	public void tearDown() throws Exception {
+		BackgroundWriter.close();
+		if (dir != null) {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+		MMNEAT.clearClasses();
+		RandomNumbers.reset(0);
+	}
+
+	private static void setup(String... extra) {
+		String[] args = new String[extra.length + 3];
+		args[0] = "io:false";
+		args[1] = "netio:false";
+		args[2] = "recurrency:false";
+		System.arraycopy(extra, 0, args, 3, extra.length);
+		Parameters.initializeParameterCollections(args);
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.loadClasses();
+		RandomNumbers.reset(3);
+	}
+
+	/**
+	 * Write that records its number and the thread it ran on
+	 */
+	private static BackgroundWriter.Write record(final List<Integer> order, final List<Thread> threads, final int i) {
+		return new BackgroundWriter.Write() {
+			@Override
+			public void write() {
+				order.add(i);
+				threads.add(Thread.currentThread());
+			}
+		};
+	}
+
+	@Test
+	public void testDisabledWritesImmediately() {
+		setup();
+		assertFalse(BackgroundWriter.enabled());
+		List<Integer> order = new ArrayList<Integer>();
+		List<Thread> threads = new ArrayList<Thread>();
+		BackgroundWriter.submit(record(order, threads, 0));
+		assertEquals(Arrays.asList(0), order);
+		assertSame(Thread.currentThread(), threads.get(0));
+	}
+
+	@Test
+	public void testOrderAndFlush() {
+		setup("backgroundSaves:true", "saveQueueSize:2");
+		List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+		List<Integer> expected = new ArrayList<Integer>();
+		for (int i = 0; i < 100; i++) {
+			BackgroundWriter.submit(record(order, threads, i));
+			expected.add(i);
+		}
+		BackgroundWriter.flush();
+		assertEquals(expected, order);
+		assertNotSame(Thread.currentThread(), threads.get(0));
+
+		// Writes submitted after closing start a new writer
+		BackgroundWriter.close();
+		BackgroundWriter.submit(record(order, threads, 100));
+		BackgroundWriter.close();
+		assertEquals(101, order.size());
+		assertEquals(100, (int) order.get(100));
+	}
+
+	@Test
+	public void testBackPressure() throws InterruptedException {
+		setup("backgroundSaves:true", "saveQueueSize:1");
+		final CountDownLatch started = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		BackgroundWriter.submit(new BackgroundWriter.Write() {
+			@Override
+			public void write() throws InterruptedException {
+				started.countDown();
+				release.await();
+			}
+		});
+		started.await();
+		final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<Thread>());
+		// Fills the queue
+		BackgroundWriter.submit(record(order, threads, 0));
+		final CountDownLatch submitted = new CountDownLatch(1);
+		Thread producer = new Thread() {
+			@Override
+			public void run() {
+				BackgroundWriter.submit(record(order, threads, 1));
+				submitted.countDown();
+			}
+		};
+		producer.start();
+		// The producer waits while the writer is stuck
+		assertFalse(submitted.await(200, TimeUnit.MILLISECONDS));
+		release.countDown();
+		assertTrue(submitted.await(10, TimeUnit.SECONDS));
+		producer.join();
+		BackgroundWriter.close();
+		assertEquals(Arrays.asList(0, 1), order);
+	}
+
+	@Test
+	public void testSnapshotOfGenotype() throws IOException {
+		setup("backgroundSaves:true", "binaryGenotypes:true");
+		dir = Files.createTempDirectory("background").toFile();
+		TWEANNGenotype tg = new TWEANNGenotype(3, 2, 0);
+		MMNEAT.genotype = tg.copy();
+		EvolutionaryHistory.initArchetype(0);
+		ByteArrayOutputStream expected = new ByteArrayOutputStream();
+		BinaryGenotypeFormat.write(tg, expected);
+
+		final CountDownLatch release = new CountDownLatch(1);
+		BackgroundWriter.submit(new BackgroundWriter.Write() {
+			@Override
+			public void write() throws InterruptedException {
+				release.await();
+			}
+		});
+		String name = dir.getPath() + "/net.xml";
+		BackgroundWriter.save(tg, name);
+		// Changes after the save is submitted are not saved
+		for (int i = 0; i < 10; i++) {
+			tg.mutate();
+		}
+		assertFalse(GenotypeFiles.exists(name));
+		release.countDown();
+		BackgroundWriter.flush();
+
+		ByteArrayOutputStream saved = new ByteArrayOutputStream();
+		BinaryGenotypeFormat.write(GenotypeFiles.load(name), saved);
+		assertArrayEquals(expected.toByteArray(), saved.toByteArray());
+	}
+
+	@Test
+	public void testDirectoryCleanedAfterSave() throws IOException {
+		setup("backgroundSaves:true");
+		dir = Files.createTempDirectory("background").toFile();
+		String champions = dir.getPath() + "/best";
+		BackgroundWriter.prepareDirectory(champions, true);
+		BackgroundWriter.write(champions + "/score.txt", "1");
+		BackgroundWriter.prepareDirectory(champions, true);
+		BackgroundWriter.write(champions + "/other.txt", "2");
+		BackgroundWriter.close();
+		assertArrayEquals(new String[] { "other.txt" }, new File(champions).list());
+		new File(champions + "/other.txt").delete();
+		new File(champions).delete();
+	}
+}
@@ -0,0 +1,500 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.BinaryGenotypeFormat;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.PrintStream;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Saves every generation of a population to one file, instead of one file
+ * per genotype in a new directory per generation. Along with the population,
+ * each generation stores the archetype, the innovation number and genotype ID
+ * counters, the state of RandomNumbers.randomGenerator and a snapshot of the
+ * parameters, so that a run can be resumed exactly where it left off.
+ *
+ * The file is a header followed by records, each of which has a type, a
+ * length and a checksum. A genotype record holds one genotype in the format
+ * of BinaryGenotypeFormat, and a generation record lists the genotype records
+ * of its population. Saving a generation only appends the genotypes that are
+ * new or changed since the previous save, followed by the generation record,
+ * so survivors are written once. A crash while appending leaves an
+ * incomplete record at the end of the file, which is ignored, so the file
+ * always holds the last generation that was completely saved.
+ *
+ * Once most of the file is taken up by genotypes and generations that are no
+ * longer needed, or the first time a file is saved in a run, the whole
+ * checkpoint is written to a temporary file that then atomically replaces
+ * the old one.
+ *
+ * @param <T>
+ *            phenotype
+ */
+public class GenerationCheckpoint<T> {
+
+	// "MMGC"
+	public static final int MAGIC = 0x4D4D4743;
+	public static final int VERSION = 1;
+	// Magic number and two versions
+	private static final int HEADER_LENGTH = 8;
+
+	private static final int GENOTYPE = 1;
+	private static final int GENERATION = 2;
+
+	// Unused bytes allowed in the file before it is rewritten, in addition to
+	// as many bytes as the last generation uses
+	private static final long MINIMUM_WASTE = 1 << 20;
+
+	/**
+	 * A saved genotype record
+	 */
+	private static class Record {
+		final long key;
+		// Encoded genotype, to recognize unchanged survivors
+		final byte[] genotype;
+		// Whole record, as written to the file
+		final byte[] bytes;
+
+		Record(long key, byte[] genotype) throws IOException {
+			this.key = key;
+			this.genotype = genotype;
+			ByteArrayOutputStream payload = new ByteArrayOutputStream(genotype.length + 4);
+			BinaryGenotypeFormat.writeVarLong(new DataOutputStream(payload), key);
+			payload.write(genotype);
+			this.bytes = record(GENOTYPE, payload.toByteArray());
+		}
+	}
+
+	private final String filename;
+	private final long minimumWaste;
+	// Genotype records of the last saved generation by genotype ID, or null
+	// if nothing has been saved to the file by this object yet
+	private HashMap<Long, Record> saved = null;
+	private long nextKey = 0;
+	// Length of the file after the last saved generation
+	private long length = 0;
+
+	/**
+	 * @param filename
+	 *            file to save generations to
+	 */
+	public GenerationCheckpoint(String filename) {
+		this(filename, MINIMUM_WASTE);
+	}
+
+	GenerationCheckpoint(String filename, long minimumWaste) {
+		this.filename = filename;
+		this.minimumWaste = minimumWaste;
+	}
+
+	public String getFilename() {
+		return filename;
+	}
+
+	/**
+	 * @return whether every member of the population can be saved in a
+	 *         checkpoint
+	 */
+	public static boolean supports(List<? extends Genotype<?>> population) {
+		for (Genotype<?> g : population) {
+			if (!BinaryGenotypeFormat.supports(g)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Save a generation. Sets lastSavedDirectory to the checkpoint file and
+	 * lastSavedGeneration to the generation, so that the saved parameters
+	 * resume from this checkpoint.
+	 *
+	 * @param generation
+	 *            number of the generation
+	 * @param population
+	 *            genotypes that all satisfy supports
+	 * @throws IOException
+	 *             if the file could not be written
+	 */
+	public void save(int generation, ArrayList<Genotype<T>> population) throws IOException {
+		prepare(generation, population).write();
+	}
+
+	/**
+	 * Encode a generation now, as save would, but write it to the file
+	 * later. The writes of successive snapshots must be done in order.
+	 *
+	 * @param generation
+	 *            number of the generation
+	 * @param population
+	 *            genotypes that all satisfy supports
+	 * @return write that saves the generation
+	 * @throws IOException
+	 *             if the generation could not be encoded
+	 */
+	public BackgroundWriter.Write snapshot(int generation, ArrayList<Genotype<T>> population) throws IOException {
+		return prepare(generation, population);
+	}
+
+	/**
+	 * An encoded generation that is ready to be written
+	 */
+	private class Pending implements BackgroundWriter.Write {
+		// Genotype records to write if the file is rewritten
+		final LinkedHashMap<Long, Record> live;
+		// New genotype records to append otherwise
+		final ByteArrayOutputStream appended;
+		final byte[] generationRecord;
+		final boolean rewrite;
+
+		Pending(LinkedHashMap<Long, Record> live, ByteArrayOutputStream appended, byte[] generationRecord, boolean rewrite) {
+			this.live = live;
+			this.appended = appended;
+			this.generationRecord = generationRecord;
+			this.rewrite = rewrite;
+		}
+
+		@Override
+		public void write() throws IOException {
+			if (rewrite) {
+				rewrite(live, generationRecord);
+			} else {
+				FileOutputStream out = new FileOutputStream(filename, true);
+				try {
+					appended.write(generationRecord);
+					appended.writeTo(out);
+					out.getFD().sync();
+				} finally {
+					out.close();
+				}
+			}
+		}
+	}
+
+	private Pending prepare(int generation, ArrayList<Genotype<T>> population) throws IOException {
+		Parameters.parameters.setString("lastSavedDirectory", filename);
+		Parameters.parameters.setInteger("lastSavedGeneration", generation);
+
+		HashMap<Long, Record> current = new HashMap<Long, Record>();
+		// Distinct records of the population, by key
+		LinkedHashMap<Long, Record> live = new LinkedHashMap<Long, Record>();
+		ByteArrayOutputStream appended = new ByteArrayOutputStream();
+		long[] keys = new long[population.size()];
+		for (int i = 0; i < keys.length; i++) {
+			Genotype<T> g = population.get(i);
+			byte[] genotype = encode(g);
+			Record r = current.get(g.getId());
+			if ((r == null || !Arrays.equals(r.genotype, genotype)) && saved != null) {
+				r = saved.get(g.getId());
+			}
+			if (r == null || !Arrays.equals(r.genotype, genotype)) {
+				r = new Record(nextKey++, genotype);
+				appended.write(r.bytes);
+			}
+			current.put(g.getId(), r);
+			live.put(r.key, r);
+			keys[i] = r.key;
+		}
+		byte[] generationRecord = record(GENERATION, describe(generation, keys));
+
+		long liveLength = HEADER_LENGTH + generationRecord.length;
+		for (Record r : live.values()) {
+			liveLength += r.bytes.length;
+		}
+		long appendedLength = length + appended.size() + generationRecord.length;
+		boolean rewrite = saved == null || appendedLength > 2 * liveLength + minimumWaste;
+		// The file will have this length once this generation is written
+		length = rewrite ? liveLength : appendedLength;
+		saved = current;
+		return new Pending(live, appended, generationRecord, rewrite);
+	}
+
+	/**
+	 * Write the whole checkpoint to a temporary file, and then replace the
+	 * checkpoint with it
+	 */
+	private void rewrite(LinkedHashMap<Long, Record> live, byte[] generationRecord) throws IOException {
+		File file = new File(filename);
+		File temp = new File(filename + ".tmp");
+		FileOutputStream out = new FileOutputStream(temp);
+		try {
+			DataOutputStream data = new DataOutputStream(out);
+			writeHeader(data);
+			for (Record r : live.values()) {
+				data.write(r.bytes);
+			}
+			data.write(generationRecord);
+			data.flush();
+			out.getFD().sync();
+		} finally {
+			out.close();
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		} catch (AtomicMoveNotSupportedException ex) {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+	private static void writeHeader(DataOutputStream out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+		out.writeShort(BinaryGenotypeFormat.VERSION);
+	}
+
+	private static byte[] encode(Object o) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		BinaryGenotypeFormat.writeObject(new DataOutputStream(bytes), o);
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Contents of a generation record
+	 */
+	private static byte[] describe(int generation, long[] keys) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		BinaryGenotypeFormat.writeVarLong(out, generation);
+		BinaryGenotypeFormat.writeVarLong(out, keys.length);
+		for (long key : keys) {
+			BinaryGenotypeFormat.writeVarLong(out, key);
+		}
+		boolean archetype = EvolutionaryHistory.archetypes != null && EvolutionaryHistory.archetypes[0] != null;
+		out.writeBoolean(archetype);
+		if (archetype) {
+			BinaryGenotypeFormat.writeObject(out, EvolutionaryHistory.archetypes[0].toArrayList());
+		}
+		BinaryGenotypeFormat.writeVarLong(out, EvolutionaryHistory.largestUnusedInnovationNumber);
+		BinaryGenotypeFormat.writeVarLong(out, EvolutionaryHistory.largestUnusedGenotypeId);
+		// java.util.Random serializes its whole state
+		ByteArrayOutputStream random = new ByteArrayOutputStream();
+		ObjectOutputStream objects = new ObjectOutputStream(random);
+		objects.writeObject(RandomNumbers.randomGenerator);
+		objects.close();
+		writeBytes(out, random.toByteArray());
+		// Parameters are compressed, since they are most of the record
+		ByteArrayOutputStream parameters = new ByteArrayOutputStream();
+		PrintStream stream = new PrintStream(new DeflaterOutputStream(parameters), false, "UTF-8");
+		Parameters.parameters.saveParameters(stream);
+		stream.close();
+		writeBytes(out, parameters.toByteArray());
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		BinaryGenotypeFormat.writeVarLong(out, bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[(int) BinaryGenotypeFormat.readVarLong(in)];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Type, length, payload and CRC32 of the payload
+	 */
+	private static byte[] record(int type, byte[] payload) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(payload.length + 9);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeByte(type);
+		out.writeInt(payload.length);
+		out.write(payload);
+		out.writeInt(checksum(payload));
+		out.flush();
+		return bytes.toByteArray();
+	}
+
+	private static int checksum(byte[] payload) {
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * @return whether the file is a checkpoint
+	 */
+	public static boolean isCheckpoint(String filename) {
+		File file = new File(filename);
+		if (!file.isFile()) {
+			return false;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new FileInputStream(file));
+			try {
+				return in.readInt() == MAGIC;
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+
+	/**
+	 * The last generation saved in a checkpoint
+	 *
+	 * @param <T>
+	 *            phenotype
+	 */
+	public static class Generation<T> {
+		public final int generation;
+		public final ArrayList<Genotype<T>> population;
+		// Archetype of the population, or null if there was none
+		public final ArrayList<NodeGene> archetype;
+		public final long largestUnusedInnovationNumber;
+		public final long largestUnusedGenotypeId;
+		public final Random random;
+		// Contents of a parameter file
+		public final String parameters;
+
+		private Generation(int generation, ArrayList<Genotype<T>> population, ArrayList<NodeGene> archetype,
+				long largestUnusedInnovationNumber, long largestUnusedGenotypeId, Random random, String parameters) {
+			this.generation = generation;
+			this.population = population;
+			this.archetype = archetype;
+			this.largestUnusedInnovationNumber = largestUnusedInnovationNumber;
+			this.largestUnusedGenotypeId = largestUnusedGenotypeId;
+			this.random = random;
+			this.parameters = parameters;
+		}
+
+		/**
+		 * Continue evolution from this generation: restore the archetype and
+		 * the random generator, and make sure that no innovation number or
+		 * genotype ID used before the checkpoint is used again. The
+		 * parameters themselves are already loaded from the parameter file.
+		 */
+		public void restore() {
+			if (archetype != null) {
+				EvolutionaryHistory.restoreArchetype(0, archetype);
+			}
+			if (largestUnusedInnovationNumber > EvolutionaryHistory.largestUnusedInnovationNumber) {
+				EvolutionaryHistory.setInnovation(largestUnusedInnovationNumber);
+			}
+			if (largestUnusedGenotypeId > EvolutionaryHistory.largestUnusedGenotypeId) {
+				EvolutionaryHistory.setHighestGenotypeId(largestUnusedGenotypeId);
+			}
+			RandomNumbers.randomGenerator = random;
+		}
+	}
+
+	/**
+	 * Load the last complete generation of a checkpoint. Anything after it,
+	 * such as a record that was only partly written before a crash, is
+	 * ignored.
+	 *
+	 * @param <T>
+	 *            phenotype
+	 * @param filename
+	 *            checkpoint file
+	 * @return saved generation
+	 * @throws IOException
+	 *             if the file is not a checkpoint or has no complete
+	 *             generation
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> Generation<T> load(String filename) throws IOException {
+		byte[] file = Files.readAllBytes(new File(filename).toPath());
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(file));
+		if (file.length < HEADER_LENGTH || in.readInt() != MAGIC) {
+			throw new IOException(filename + " is not a checkpoint");
+		}
+		int version = in.readShort();
+		int genotypeVersion = in.readShort();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported checkpoint version " + version);
+		}
+
+		HashMap<Long, byte[]> genotypes = new HashMap<Long, byte[]>();
+		byte[] generation = null;
+		int position = HEADER_LENGTH;
+		try {
+			while (position < file.length) {
+				int type = in.readByte();
+				int size = in.readInt();
+				if (size < 0 || size > file.length - position) {
+					break;
+				}
+				byte[] payload = new byte[size];
+				in.readFully(payload);
+				if (in.readInt() != checksum(payload)) {
+					break;
+				}
+				if (type == GENOTYPE) {
+					long key = BinaryGenotypeFormat.readVarLong(new DataInputStream(new ByteArrayInputStream(payload)));
+					genotypes.put(key, payload);
+				} else if (type == GENERATION) {
+					generation = payload;
+				} else {
+					break;
+				}
+				position += 9 + size;
+			}
+		} catch (EOFException ex) {
+			// Incomplete last record
+		}
+		if (generation == null) {
+			throw new IOException("No complete generation in " + filename);
+		}
+
+		in = new DataInputStream(new ByteArrayInputStream(generation));
+		int number = (int) BinaryGenotypeFormat.readVarLong(in);
+		int size = (int) BinaryGenotypeFormat.readVarLong(in);
+		ArrayList<Genotype<T>> population = new ArrayList<Genotype<T>>(size);
+		for (int i = 0; i < size; i++) {
+			byte[] payload = genotypes.get(BinaryGenotypeFormat.readVarLong(in));
+			if (payload == null) {
+				throw new IOException("Missing genotype in " + filename);
+			}
+			DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+			BinaryGenotypeFormat.readVarLong(record);
+			population.add((Genotype<T>) BinaryGenotypeFormat.readObject(record, genotypeVersion));
+		}
+		ArrayList<NodeGene> archetype = in.readBoolean()
+				? (ArrayList<NodeGene>) BinaryGenotypeFormat.readObject(in, genotypeVersion) : null;
+		long innovation = BinaryGenotypeFormat.readVarLong(in);
+		long genotypeId = BinaryGenotypeFormat.readVarLong(in);
+		Random random;
+		try {
+			random = (Random) new ObjectInputStream(new ByteArrayInputStream(readBytes(in))).readObject();
+		} catch (ClassNotFoundException ex) {
+			throw new IOException(ex);
+		}
+		InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(readBytes(in)));
+		ByteArrayOutputStream parameters = new ByteArrayOutputStream();
+		byte[] buffer = new byte[4096];
+		for (int n = inflater.read(buffer); n != -1; n = inflater.read(buffer)) {
+			parameters.write(buffer, 0, n);
+		}
+		return new Generation<T>(number, population, archetype, innovation, genotypeId, random, parameters.toString("UTF-8"));
+	}
+}
@@ -0,0 +1,167 @@
+package edu.utexas.cs.nn.data;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.BinaryGenotypeFormat;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.PopulationUtil;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class GenerationCheckpointTest {
+
+	private static final int POPULATION = 10;
+
+	private File dir;
+	private String filename;
+
+	@Before
+	public void setUp() throws IOException {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "recurrency:false" });
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.loadClasses();
+		MMNEAT.genotype = new TWEANNGenotype(4, 2, 0);
+		EvolutionaryHistory.initArchetype(0);
+		RandomNumbers.reset(1);
+		dir = Files.createTempDirectory("checkpoint").toFile();
+		filename = dir.getPath() + "/checkpoint.bin";
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		for (File f : dir.listFiles()) {
+			f.delete();
+		}
+		dir.delete();
+		MMNEAT.clearClasses();
+		RandomNumbers.reset(0);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static ArrayList<Genotype<TWEANN>> initialPopulation() {
+		ArrayList<Genotype<TWEANN>> population = new ArrayList<Genotype<TWEANN>>();
+		for (int i = 0; i < POPULATION; i++) {
+			population.add((Genotype<TWEANN>) MMNEAT.genotype.newInstance());
+		}
+		return population;
+	}
+
+	/**
+	 * Replace some members of the population with mutated copies
+	 */
+	private static void nextGeneration(ArrayList<Genotype<TWEANN>> population, int replaced) {
+		for (int i = 0; i < replaced; i++) {
+			Genotype<TWEANN> child = population.get(POPULATION - 1 - i).copy();
+			child.mutate();
+			population.set(i, child);
+		}
+	}
+
+	private static String encode(ArrayList<Genotype<TWEANN>> population) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		for (Genotype<TWEANN> g : population) {
+			BinaryGenotypeFormat.write(g, bytes);
+		}
+		return Arrays.toString(bytes.toByteArray());
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		GenerationCheckpoint<TWEANN> checkpoint = new GenerationCheckpoint<TWEANN>(filename);
+		ArrayList<Genotype<TWEANN>> population = initialPopulation();
+		checkpoint.save(0, population);
+		long initialLength = new File(filename).length();
+		assertEquals(filename, Parameters.parameters.stringParameter("lastSavedDirectory"));
+
+		nextGeneration(population, 2);
+		checkpoint.save(1, population);
+		// Only the two new genotypes and a generation record were appended
+		assertTrue(new File(filename).length() < 2 * initialLength);
+		String archetype = EvolutionaryHistory.archetypes[0].toArrayList().toString();
+		long innovation = EvolutionaryHistory.largestUnusedInnovationNumber;
+		long id = EvolutionaryHistory.largestUnusedGenotypeId;
+		int next = RandomNumbers.randomGenerator.nextInt();
+		RandomNumbers.randomGenerator.nextInt();
+
+		assertTrue(GenerationCheckpoint.isCheckpoint(filename));
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		GenerationCheckpoint.Generation<TWEANN> saved = GenerationCheckpoint.load(filename);
+		assertEquals(1, saved.generation);
+		assertEquals(encode(population), encode(saved.population));
+		assertEquals(archetype, saved.archetype.toString());
+		assertTrue(saved.parameters.contains("lastSavedGeneration:1\n"));
+		saved.restore();
+		assertEquals(innovation, EvolutionaryHistory.largestUnusedInnovationNumber);
+		assertEquals(id, EvolutionaryHistory.largestUnusedGenotypeId);
+		// The random generator continues from where it was saved
+		assertEquals(next, RandomNumbers.randomGenerator.nextInt());
+
+		assertEquals(encode(population), encode(PopulationUtil.<TWEANN> load(filename)));
+	}
+
+	@Test
+	public void testIncompleteRecordIgnored() throws IOException {
+		GenerationCheckpoint<TWEANN> checkpoint = new GenerationCheckpoint<TWEANN>(filename);
+		ArrayList<Genotype<TWEANN>> population = initialPopulation();
+		checkpoint.save(0, population);
+		nextGeneration(population, 3);
+		checkpoint.save(1, population);
+		String expected = encode(population);
+		long length = new File(filename).length();
+		nextGeneration(population, 3);
+		checkpoint.save(2, population);
+
+		// Crash part way through appending the last generation
+		for (long cut : new long[] { length + 1, length + 20, new File(filename).length() - 1 }) {
+			RandomAccessFile file = new RandomAccessFile(filename, "rw");
+			file.setLength(cut);
+			file.close();
+			GenerationCheckpoint.Generation<TWEANN> saved = GenerationCheckpoint.load(filename);
+			assertEquals(1, saved.generation);
+			assertEquals(expected, encode(saved.population));
+		}
+
+		// A new run rewrites the whole file
+		checkpoint = new GenerationCheckpoint<TWEANN>(filename);
+		checkpoint.save(2, population);
+		assertEquals(encode(population), encode(GenerationCheckpoint.<TWEANN> load(filename).population));
+	}
+
+	@Test
+	public void testFileSizeBounded() throws IOException {
+		GenerationCheckpoint<TWEANN> checkpoint = new GenerationCheckpoint<TWEANN>(filename, 0);
+		ArrayList<Genotype<TWEANN>> population = initialPopulation();
+		checkpoint.save(0, population);
+		for (int gen = 1; gen <= 30; gen++) {
+			nextGeneration(population, POPULATION / 2);
+			checkpoint.save(gen, population);
+			// Space used by old genotypes is reclaimed, so the file is never
+			// much more than twice the size of the last generation
+			ByteArrayOutputStream live = new ByteArrayOutputStream();
+			for (Genotype<TWEANN> g : population) {
+				BinaryGenotypeFormat.write(g, live);
+			}
+			assertTrue(new File(filename).length() < 2 * (live.size() + 20000));
+			assertEquals(encode(population), encode(GenerationCheckpoint.<TWEANN> load(filename).population));
+		}
+		assertFalse(new File(filename + ".tmp").exists());
+	}
+}
@@ -0,0 +1,91 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.evolution.genotypes.BinaryGenotypeFormat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import wox.serial.Easy;
+
+/**
+ * Converts saved xml genotypes and archetypes of earlier experiments to the
+ * binary format of BinaryGenotypeFormat. Every argument is either a file or a
+ * directory, whose xml files are converted recursively. Each converted object
+ * is decoded again and checked against the original before the xml file is
+ * replaced by the bin file. Files holding objects that the binary format does
+ * not support are left as they are.
+ *
+ * Usage: java edu.utexas.cs.nn.data.GenotypeConverter [-keep] path ...
+ * where -keep keeps the xml files instead of deleting them.
+ */
+public class GenotypeConverter {
+
+	private int converted = 0;
+	private int skipped = 0;
+	private long xmlBytes = 0;
+	private long binaryBytes = 0;
+	private final boolean keep;
+
+	public GenotypeConverter(boolean keep) {
+		this.keep = keep;
+	}
+
+	/**
+	 * Convert a file, or every xml file within a directory
+	 */
+	public void convert(File path) throws IOException {
+		if (path.isDirectory()) {
+			File[] children = path.listFiles();
+			Arrays.sort(children);
+			for (File child : children) {
+				if (child.isDirectory() || child.getName().endsWith(GenotypeFiles.XML_EXTENSION)) {
+					convert(child);
+				}
+			}
+		} else if (!GenotypeFiles.isBinary(path.getPath())) {
+			Object o = Easy.load(path.getPath());
+			if (!BinaryGenotypeFormat.supports(o)) {
+				System.out.println("Skipped " + path + ": " + (o == null ? null : o.getClass().getName()));
+				skipped++;
+				return;
+			}
+			byte[] bytes = encode(o);
+			// The decoded object must encode to exactly the same bytes
+			if (!Arrays.equals(bytes, encode(BinaryGenotypeFormat.read(new ByteArrayInputStream(bytes))))) {
+				throw new IOException("Binary encoding of " + path + " does not match the original");
+			}
+			String file = GenotypeFiles.withExtension(path.getPath(), GenotypeFiles.BINARY_EXTENSION);
+			FileOutputStream out = new FileOutputStream(file);
+			try {
+				out.write(bytes);
+			} finally {
+				out.close();
+			}
+			converted++;
+			xmlBytes += path.length();
+			binaryBytes += bytes.length;
+			if (!keep) {
+				path.delete();
+			}
+		}
+	}
+
+	private static byte[] encode(Object o) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryGenotypeFormat.write(o, out);
+		return out.toByteArray();
+	}
+
+	public static void main(String[] args) throws IOException {
+		boolean keep = args.length > 0 && args[0].equals("-keep");
+		GenotypeConverter converter = new GenotypeConverter(keep);
+		for (int i = keep ? 1 : 0; i < args.length; i++) {
+			converter.convert(new File(args[i]));
+		}
+		System.out.println("Converted " + converter.converted + " files (" + converter.xmlBytes + " bytes of xml to "
+				+ converter.binaryBytes + " bytes), skipped " + converter.skipped);
+	}
+}
@@ -0,0 +1,214 @@
+package edu.utexas.cs.nn.data;
+
+import edu.utexas.cs.nn.evolution.genotypes.BinaryGenotypeFormat;
+import edu.utexas.cs.nn.parameters.Parameters;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import wox.serial.Easy;
+
+/**
+ * Saves and loads genotypes and archetypes in either WOX XML or the compact
+ * binary format of BinaryGenotypeFormat. The rest of the code keeps using
+ * ".xml" file names: when binaryGenotypes is set, a supported object is saved
+ * to the same name with a ".bin" extension instead. Loading accepts either
+ * name, and tells the formats apart by the contents of the file, so
+ * experiments saved in either format (or a mix of both) can be resumed and
+ * post-processed whatever binaryGenotypes is set to.
+ */
+public class GenotypeFiles {
+
+	public static final String XML_EXTENSION = ".xml";
+	public static final String BINARY_EXTENSION = ".bin";
+
+	/**
+	 * @return whether new files should be binary
+	 */
+	public static boolean binary() {
+		return Parameters.parameters != null && Parameters.parameters.booleanParameter("binaryGenotypes");
+	}
+
+	/**
+	 * Name of a file with the extension swapped to the given one, or with the
+	 * extension appended if the file has neither extension
+	 */
+	public static String withExtension(String filename, String extension) {
+		if (filename.endsWith(XML_EXTENSION) || filename.endsWith(BINARY_EXTENSION)) {
+			filename = filename.substring(0, filename.length() - XML_EXTENSION.length());
+		}
+		return filename + extension;
+	}
+
+	/**
+	 * Name of the file that an object saved under a given name is actually
+	 * in, or null if there is none. The name itself is preferred, followed by
+	 * the same name in the other format.
+	 */
+	public static String existing(String filename) {
+		if (new File(filename).exists()) {
+			return filename;
+		}
+		String other = withExtension(filename, filename.endsWith(BINARY_EXTENSION) ? XML_EXTENSION : BINARY_EXTENSION);
+		return new File(other).exists() ? other : null;
+	}
+
+	/**
+	 * @return whether an object was saved under the given name in either
+	 *         format
+	 */
+	public static boolean exists(String filename) {
+		return existing(filename) != null;
+	}
+
+	/**
+	 * Name of the file that save writes an object to
+	 */
+	private static String target(Object object, String filename) {
+		if (binary() && BinaryGenotypeFormat.supports(object)) {
+			return withExtension(filename, BINARY_EXTENSION);
+		} else {
+			return filename.endsWith(BINARY_EXTENSION) ? withExtension(filename, XML_EXTENSION) : filename;
+		}
+	}
+
+	/**
+	 * Save an object in the format chosen by binaryGenotypes. Objects that
+	 * the binary format does not support are always saved as XML. The file
+	 * with the same name in the other format is removed, so that a directory
+	 * never holds two copies of the same object.
+	 *
+	 * @param object
+	 *            genotype or archetype to save
+	 * @param filename
+	 *            name of the file, usually ending in ".xml"
+	 * @return name of the file actually written
+	 */
+	public static String save(Object object, String filename) {
+		String file = target(object, filename);
+		try {
+			snapshot(object, filename).write();
+		} catch (Exception ex) {
+			ex.printStackTrace();
+			System.out.println("Could not save to " + file);
+			System.exit(1);
+		}
+		return file;
+	}
+
+	/**
+	 * Prepare to save an object later, as save would now. A binary object is
+	 * encoded immediately, so it can change before the file is written. An
+	 * object saved as XML is only serialized when the file is written, so it
+	 * must not change in the meantime, which holds for genotypes in a
+	 * population since offspring are always copies.
+	 *
+	 * @param object
+	 *            genotype or archetype to save
+	 * @param filename
+	 *            name of the file, usually ending in ".xml"
+	 * @return write that saves the object
+	 */
+	public static BackgroundWriter.Write snapshot(final Object object, final String filename) {
+		final String file = target(object, filename);
+		if (binary() && BinaryGenotypeFormat.supports(object)) {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try {
+				BinaryGenotypeFormat.write(object, bytes);
+			} catch (IOException ex) {
+				// Only happens for unsupported objects, which were excluded
+				throw new IllegalArgumentException(ex);
+			}
+			final byte[] encoded = bytes.toByteArray();
+			return new BackgroundWriter.Write() {
+				@Override
+				public void write() throws IOException {
+					OutputStream out = new FileOutputStream(file);
+					try {
+						out.write(encoded);
+					} finally {
+						out.close();
+					}
+					new File(withExtension(filename, XML_EXTENSION)).delete();
+				}
+			};
+		} else {
+			return new BackgroundWriter.Write() {
+				@Override
+				public void write() {
+					Easy.save(object, file);
+					new File(withExtension(filename, BINARY_EXTENSION)).delete();
+				}
+			};
+		}
+	}
+
+	/**
+	 * Load an object saved by save, or by Easy.save
+	 *
+	 * @param filename
+	 *            name the object was saved under, in either format
+	 * @return the object, or null if there is no such file
+	 */
+	public static Object load(String filename) {
+		String file = existing(filename);
+		if (file == null) {
+			System.out.println("No file " + filename);
+			return null;
+		}
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(file));
+			try {
+				if (isBinary(in)) {
+					return BinaryGenotypeFormat.read(in);
+				}
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not load " + file);
+			System.exit(1);
+		}
+		return Easy.load(file);
+	}
+
+	/**
+	 * Checks for the binary header without consuming any input
+	 */
+	private static boolean isBinary(InputStream in) throws IOException {
+		in.mark(4);
+		int magic = 0;
+		for (int i = 0; i < 4; i++) {
+			int b = in.read();
+			if (b == -1) {
+				in.reset();
+				return false;
+			}
+			magic = (magic << 8) | b;
+		}
+		in.reset();
+		return magic == BinaryGenotypeFormat.MAGIC;
+	}
+
+	/**
+	 * @return whether the file holds a binary genotype
+	 */
+	public static boolean isBinary(String filename) {
+		try {
+			InputStream in = new BufferedInputStream(new FileInputStream(filename));
+			try {
+				return isBinary(in);
+			} finally {
+				in.close();
+			}
+		} catch (IOException ex) {
+			return false;
+		}
+	}
+}
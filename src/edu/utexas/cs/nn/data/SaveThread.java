@@ -1,7 +1,6 @@
 package edu.utexas.cs.nn.data;
 
 import java.util.concurrent.Callable;
-import wox.serial.Easy;
 
 /**
  * Save file in a thread, so that the file system operations can be distributed.
@@ -23,7 +22,7 @@ public class SaveThread<T> implements Callable<Boolean> {
 	@Override
 	public Boolean call() {
 		try {
-			Easy.save(object, filename);
+			GenotypeFiles.save(object, filename);
 			return true;
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -0,0 +1,390 @@
+package edu.utexas.cs.nn.evolution;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+
+/**
+ * Ordered list of every node gene in a population, used to align genotypes
+ * during crossover (see EvolutionaryHistory). Nodes are kept in a treap
+ * ordered by position (an order-statistic tree), and a hash map from
+ * innovation number to tree node gives the position of an innovation number
+ * by walking up from its tree node. Looking up an innovation number,
+ * inserting or removing at any position and getting the node at a position
+ * all take O(log N) expected time instead of the O(N) of an ArrayList, and
+ * checking whether an innovation number is present takes constant time.
+ * Iterating over the nodes in order takes O(N) time.
+ *
+ * Archetype files still contain a plain ArrayList of node genes (see
+ * toArrayList), so they can be loaded by older versions and vice versa.
+ */
+public class Archetype extends AbstractList<NodeGene> {
+
+	/**
+	 * Tree node holding one node gene
+	 */
+	private static class Node {
+		NodeGene gene;
+		final int priority;
+		Node left = null;
+		Node right = null;
+		Node parent = null;
+		int size = 1;
+
+		Node(NodeGene gene, int priority) {
+			this.gene = gene;
+			this.priority = priority;
+		}
+	}
+
+	private Node root = null;
+	// Tree node of the first occurrence of each innovation number
+	private final HashMap<Long, Node> byInnovation;
+	// Number of nodes sharing their innovation number with an earlier node
+	private int duplicates = 0;
+	// State of the xorshift generator for priorities. Only affects the shape
+	// of the tree, so it has nothing to do with the random seed of the
+	// experiment
+	private int priorities = 0x2545F491;
+
+	/**
+	 * Empty archetype
+	 */
+	public Archetype() {
+		byInnovation = new HashMap<Long, Node>();
+	}
+
+	/**
+	 * Archetype containing given nodes in the same order
+	 *
+	 * @param nodes
+	 *            node genes, e.g. from a loaded archetype file
+	 */
+	public Archetype(Collection<NodeGene> nodes) {
+		byInnovation = new HashMap<Long, Node>(2 * nodes.size());
+		for (NodeGene ng : nodes) {
+			add(ng);
+		}
+	}
+
+	/**
+	 * Copy of another archetype, which shares its node genes but can be
+	 * changed independently. Takes O(N) time.
+	 *
+	 * @param other
+	 *            archetype to copy
+	 */
+	public Archetype(Archetype other) {
+		byInnovation = new HashMap<Long, Node>(2 * other.size());
+		duplicates = other.duplicates;
+		priorities = other.priorities;
+		root = copy(other.root, null);
+	}
+
+	private Node copy(Node n, Node parent) {
+		if (n == null) {
+			return null;
+		}
+		Node result = new Node(n.gene, n.priority);
+		result.parent = parent;
+		result.size = n.size;
+		// Left subtree first, so the first occurrence of each innovation
+		// number is the one in the map
+		result.left = copy(n.left, result);
+		if (!byInnovation.containsKey(n.gene.innovation)) {
+			byInnovation.put(n.gene.innovation, result);
+		}
+		result.right = copy(n.right, result);
+		return result;
+	}
+
+	/**
+	 * @return the nodes in order in a plain list, which is what archetype
+	 *         files contain
+	 */
+	public ArrayList<NodeGene> toArrayList() {
+		return new ArrayList<NodeGene>(this);
+	}
+
+	@Override
+	public int size() {
+		return size(root);
+	}
+
+	private static int size(Node n) {
+		return n == null ? 0 : n.size;
+	}
+
+	@Override
+	public NodeGene get(int index) {
+		return nodeAt(index).gene;
+	}
+
+	@Override
+	public NodeGene set(int index, NodeGene gene) {
+		Node n = nodeAt(index);
+		NodeGene old = n.gene;
+		forget(n);
+		n.gene = gene;
+		remember(n);
+		return old;
+	}
+
+	@Override
+	public void add(int index, NodeGene gene) {
+		if (index < 0 || index > size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+		Node n = new Node(gene, nextPriority());
+		Node[] parts = split(root, index);
+		root = merge(merge(parts[0], n), parts[1]);
+		root.parent = null;
+		remember(n);
+		modCount++;
+	}
+
+	@Override
+	public NodeGene remove(int index) {
+		checkIndex(index);
+		Node[] parts = split(root, index);
+		Node[] rest = split(parts[1], 1);
+		root = merge(parts[0], rest[1]);
+		if (root != null) {
+			root.parent = null;
+		}
+		Node n = rest[0];
+		forget(n);
+		modCount++;
+		return n.gene;
+	}
+
+	@Override
+	public void clear() {
+		root = null;
+		byInnovation.clear();
+		duplicates = 0;
+		modCount++;
+	}
+
+	/**
+	 * @param innovation
+	 *            innovation number of a node
+	 * @return whether a node with that innovation number is present
+	 */
+	public boolean containsInnovation(long innovation) {
+		return byInnovation.containsKey(innovation);
+	}
+
+	/**
+	 * @param innovation
+	 *            innovation number of a node
+	 * @return position of the first node with that innovation number, or -1
+	 *         if there is none
+	 */
+	public int indexOfInnovation(long innovation) {
+		Node n = byInnovation.get(innovation);
+		return n == null ? -1 : rank(n);
+	}
+
+	@Override
+	public Iterator<NodeGene> iterator() {
+		return new Iterator<NodeGene>() {
+			private Node next = first(root);
+			private Node last = null;
+
+			@Override
+			public boolean hasNext() {
+				return next != null;
+			}
+
+			@Override
+			public NodeGene next() {
+				if (next == null) {
+					throw new NoSuchElementException();
+				}
+				last = next;
+				next = successor(next);
+				return last.gene;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				// Tree nodes survive splits and merges, so next stays valid
+				Archetype.this.remove(rank(last));
+				last = null;
+			}
+		};
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size());
+		}
+	}
+
+	private Node nodeAt(int index) {
+		checkIndex(index);
+		Node n = root;
+		while (true) {
+			int leftSize = size(n.left);
+			if (index < leftSize) {
+				n = n.left;
+			} else if (index == leftSize) {
+				return n;
+			} else {
+				index -= leftSize + 1;
+				n = n.right;
+			}
+		}
+	}
+
+	/**
+	 * Position of a tree node, found by walking up to the root
+	 */
+	private int rank(Node n) {
+		int result = size(n.left);
+		while (n.parent != null) {
+			if (n == n.parent.right) {
+				result += size(n.parent.left) + 1;
+			}
+			n = n.parent;
+		}
+		return result;
+	}
+
+	private static Node first(Node n) {
+		if (n != null) {
+			while (n.left != null) {
+				n = n.left;
+			}
+		}
+		return n;
+	}
+
+	private static Node successor(Node n) {
+		if (n.right != null) {
+			return first(n.right);
+		}
+		while (n.parent != null && n == n.parent.right) {
+			n = n.parent;
+		}
+		return n.parent;
+	}
+
+	/**
+	 * Recompute the size of a tree node, and point its children to it
+	 */
+	private static void update(Node n) {
+		n.size = 1 + size(n.left) + size(n.right);
+		if (n.left != null) {
+			n.left.parent = n;
+		}
+		if (n.right != null) {
+			n.right.parent = n;
+		}
+	}
+
+	/**
+	 * Split a tree into the first count nodes and the rest
+	 */
+	private static Node[] split(Node n, int count) {
+		if (n == null) {
+			return new Node[2];
+		}
+		Node[] result;
+		if (size(n.left) >= count) {
+			result = split(n.left, count);
+			n.left = result[1];
+			update(n);
+			result[1] = n;
+		} else {
+			result = split(n.right, count - size(n.left) - 1);
+			n.right = result[0];
+			update(n);
+			result[0] = n;
+		}
+		if (result[0] != null) {
+			result[0].parent = null;
+		}
+		if (result[1] != null) {
+			result[1].parent = null;
+		}
+		return result;
+	}
+
+	/**
+	 * Join two trees, with all nodes of a before all nodes of b
+	 */
+	private static Node merge(Node a, Node b) {
+		if (a == null) {
+			return b;
+		}
+		if (b == null) {
+			return a;
+		}
+		if (a.priority > b.priority) {
+			a.right = merge(a.right, b);
+			update(a);
+			return a;
+		} else {
+			b.left = merge(a, b.left);
+			update(b);
+			return b;
+		}
+	}
+
+	private int nextPriority() {
+		priorities ^= priorities << 13;
+		priorities ^= priorities >>> 17;
+		priorities ^= priorities << 5;
+		return priorities;
+	}
+
+	/**
+	 * Add a tree node to the index of innovation numbers. It is already in
+	 * the tree, so its position can be compared to a node with the same
+	 * innovation number.
+	 */
+	private void remember(Node n) {
+		Node existing = byInnovation.get(n.gene.innovation);
+		if (existing == null) {
+			byInnovation.put(n.gene.innovation, n);
+		} else {
+			duplicates++;
+			if (rank(n) < rank(existing)) {
+				byInnovation.put(n.gene.innovation, n);
+			}
+		}
+	}
+
+	/**
+	 * Remove a tree node from the index of innovation numbers
+	 */
+	private void forget(Node n) {
+		long innovation = n.gene.innovation;
+		if (byInnovation.get(innovation) != n) {
+			// Not the first occurrence
+			duplicates--;
+		} else {
+			byInnovation.remove(innovation);
+			if (duplicates > 0) {
+				// Rare: the next occurrence, if any, becomes the first
+				for (Node m = first(root); m != null; m = successor(m)) {
+					if (m != n && m.gene.innovation == innovation) {
+						byInnovation.put(innovation, m);
+						duplicates--;
+						break;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,108 @@
+package edu.utexas.cs.nn.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.networks.TWEANN;
+
+public class ArchetypeTest {
+
+	private static NodeGene node(long innovation) {
+		return TWEANNGenotype.newNodeGene(0, TWEANN.Node.NTYPE_HIDDEN, innovation);
+	}
+
+	/**
+	 * Positions of innovations are the same as in the equivalent ArrayList
+	 */
+	private static void assertMatches(ArrayList<NodeGene> expected, Archetype actual, int maxInnovation) {
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertTrue(expected.get(i) == actual.get(i));
+		}
+		int i = 0;
+		for (NodeGene ng : actual) {
+			assertTrue(expected.get(i++) == ng);
+		}
+		for (long innovation = 0; innovation <= maxInnovation; innovation++) {
+			int index = -1;
+			for (int j = 0; j < expected.size(); j++) {
+				if (expected.get(j).innovation == innovation) {
+					index = j;
+					break;
+				}
+			}
+			assertEquals(index, actual.indexOfInnovation(innovation));
+			assertEquals(index != -1, actual.containsInnovation(innovation));
+		}
+	}
+
+	@Test
+	public void testMatchesArrayList() {
+		Random r = new Random(0);
+		ArrayList<NodeGene> expected = new ArrayList<NodeGene>();
+		Archetype actual = new Archetype();
+		// Few innovation numbers, so there are duplicates
+		int maxInnovation = 40;
+		for (int step = 0; step < 2000; step++) {
+			int op = r.nextInt(6);
+			if (op <= 1 || expected.isEmpty()) {
+				NodeGene ng = node(r.nextInt(maxInnovation));
+				int pos = r.nextInt(expected.size() + 1);
+				expected.add(pos, ng);
+				actual.add(pos, ng);
+			} else if (op == 2) {
+				NodeGene ng = node(r.nextInt(maxInnovation));
+				expected.add(ng);
+				actual.add(ng);
+			} else if (op == 3) {
+				int pos = r.nextInt(expected.size());
+				assertTrue(expected.remove(pos) == actual.remove(pos));
+			} else if (op == 4) {
+				int pos = r.nextInt(expected.size());
+				NodeGene ng = node(r.nextInt(maxInnovation));
+				assertTrue(expected.set(pos, ng) == actual.set(pos, ng));
+			} else {
+				// Remove every node with a random innovation number while
+				// iterating
+				long innovation = r.nextInt(maxInnovation);
+				Iterator<NodeGene> itr = actual.iterator();
+				while (itr.hasNext()) {
+					if (itr.next().innovation == innovation) {
+						itr.remove();
+					}
+				}
+				expected.removeIf(ng -> ng.innovation == innovation);
+			}
+			assertMatches(expected, actual, maxInnovation);
+		}
+	}
+
+	@Test
+	public void testCopy() {
+		ArrayList<NodeGene> nodes = new ArrayList<NodeGene>();
+		for (int i = 0; i < 100; i++) {
+			nodes.add(node(i % 70));
+		}
+		Archetype original = new Archetype(nodes);
+		Archetype copy = new Archetype(original);
+		assertMatches(nodes, copy, 100);
+
+		// Changing the copy does not change the original
+		copy.add(50, node(200));
+		copy.remove(0);
+		assertMatches(nodes, original, 200);
+		ArrayList<NodeGene> changed = new ArrayList<NodeGene>(nodes);
+		changed.add(50, copy.get(49));
+		changed.remove(0);
+		assertMatches(changed, copy, 200);
+		assertEquals(changed, copy.toArrayList());
+		assertEquals(ArrayList.class, copy.toArrayList().getClass());
+	}
+}
@@ -1,9 +1,13 @@
 package edu.utexas.cs.nn.evolution;
 
+import edu.utexas.cs.nn.data.BackgroundWriter;
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.evolution.crossover.network.CombiningTWEANNCrossover;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.evolution.genotypes.pool.SubnetworkCache;
+import edu.utexas.cs.nn.log.LineageEventLog;
 import edu.utexas.cs.nn.log.MMNEATLog;
 import edu.utexas.cs.nn.log.TWEANNLog;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
@@ -16,11 +20,9 @@ import edu.utexas.cs.nn.util.file.FileUtilities;
 
 import java.io.File;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 
-import wox.serial.Easy;
 
 /**
  * Stores and tracks information about a population of networks. Uses an
@@ -35,27 +37,22 @@ public class EvolutionaryHistory {
 	public static int minModes;
 
 	// keeps track of which id to use next
-	public static long largestUnusedInnovationNumber = 0;
-	public static long largestUnusedGenotypeId = 0;
+	public static volatile long largestUnusedInnovationNumber = 0;
+	public static volatile long largestUnusedGenotypeId = 0;
 	// keeps track of archetype of every genotype from each generation of every
-	// member of population in an array list
-	public static ArrayList<NodeGene>[] archetypes = null;
+	// member of population, indexed by innovation number
+	public static Archetype[] archetypes = null;
 	public static int[] archetypeOut = null;
 	// logs that keep track of history of genotype
 	public static TWEANNLog tweannLog = null;
 	public static MMNEATLog mutationLog = null;
 	public static MMNEATLog lineageLog = null;
+	// replaces the mutation and lineage logs when binaryLineage is set
+	public static LineageEventLog lineageEvents = null;
 
 	/**
-	 * Commonly used/shared networks (hierarchical architectures). Raw types are
-	 * allowed for greater flexibility (different types of phenotypes may be
-	 * generated)
-	 */
-	@SuppressWarnings("rawtypes")
-	public static HashMap<String, Genotype> loadedNetworks = new HashMap<String, Genotype>();
-
-	/**
-	 * Assure that each repeatedly used subnetwork is only loaded once
+	 * Assure that each repeatedly used subnetwork (hierarchical architectures)
+	 * is only loaded once, while it stays in the SubnetworkCache
 	 *
 	 * @param <T>
 	 *            Phenotype that the genotype encodes
@@ -63,19 +60,12 @@ public class EvolutionaryHistory {
 	 *            File path of xml genotype file
 	 * @return the decoded genotype instance
 	 */
-	@SuppressWarnings("unchecked")
 	public static <T extends Network> Genotype<T> getSubnetwork(String xml) {
 		if (xml.isEmpty()) {
 			// Return a dummy genotype to be ignored later
 			return null;
 		}
-		// makes sure it's not a commonly shared architecture already found in
-		// loadedNetworks hashmap
-		if (!loadedNetworks.containsKey(xml)) {
-			System.out.println("Added to subnetworks: " + xml);
-			loadedNetworks.put(xml, (Genotype<T>) Easy.load(xml));
-		}
-		return loadedNetworks.get(xml).copy();
+		return SubnetworkCache.<T> genotype(xml).copy();
 	}
 
 	/**
@@ -114,11 +104,18 @@ public class EvolutionaryHistory {
 	}
 
 	/**
-	 * Returns the next innovation number and increases the counter
+	 * Returns the next innovation number and increases the counter. Safe to
+	 * call from several threads. During parallel reproduction, the number
+	 * comes from the slot of the current mating instead.
 	 *
 	 * @return next innovation number
 	 */
 	public static long nextInnovation() {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		return slot == null ? allocateInnovation() : slot.nextInnovation();
+	}
+
+	private static synchronized long allocateInnovation() {
 		long result = largestUnusedInnovationNumber;
 		largestUnusedInnovationNumber++;
 		Parameters.parameters.setLong("lastInnovation", largestUnusedInnovationNumber);
@@ -126,11 +123,18 @@ public class EvolutionaryHistory {
 	}
 
 	/**
-	 * Returns the next GenotypeID and increases the counter
+	 * Returns the next GenotypeID and increases the counter. Safe to call
+	 * from several threads. During parallel reproduction, the ID comes from
+	 * the slot of the current mating instead.
 	 * 
 	 * @return next Genotype ID
 	 */
 	public static long nextGenotypeId() {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		return slot == null ? allocateGenotypeId() : slot.nextGenotypeId();
+	}
+
+	private static synchronized long allocateGenotypeId() {
 		long result = largestUnusedGenotypeId;
 		largestUnusedGenotypeId++;
 		Parameters.parameters.setLong("lastGenotypeId", largestUnusedGenotypeId);
@@ -169,7 +173,7 @@ public class EvolutionaryHistory {
 		String base = Parameters.parameters.stringParameter("base");
 		String xml = Parameters.parameters.stringParameter("archetype");
 		String file = xml + populationIndex + ".xml";
-		if (base.equals("") || !(new File(file).exists())) {
+		if (base.equals("") || !GenotypeFiles.exists(file)) {
 			file = null;
 		}
 		initArchetype(populationIndex, file);
@@ -192,20 +196,20 @@ public class EvolutionaryHistory {
 	public static void initArchetype(int populationIndex, String loadedArchetype) {
 		int size = MMNEAT.genotypeExamples == null ? 1 : MMNEAT.genotypeExamples.size();
 		if (archetypes == null) {// checks to see if an archetype has been created yet for this genotype
-			archetypes = new ArrayList[size];
+			archetypes = new Archetype[size];
 		} // this if statement happens if the current experiment hasn't yet been run or is a resume
-		if (loadedArchetype == null || loadedArchetype.equals("") || !(new File(loadedArchetype).exists())) {
+		if (loadedArchetype == null || loadedArchetype.equals("") || !GenotypeFiles.exists(loadedArchetype)) {
 			// ternary operator allows for coevolution to be implemented
 			TWEANNGenotype tg = (TWEANNGenotype) (MMNEAT.genotypeExamples == null ? MMNEAT.genotype.copy() : MMNEAT.genotypeExamples.get(populationIndex).copy());
 			// saves the genotype of the current generation
-			archetypes[populationIndex] = tg.nodes;
+			archetypes[populationIndex] = new Archetype(tg.nodes);
 			saveArchetype(populationIndex);
 		} else {
 			// this else statement runs in a next run with a new seed
 			// The loaded archetype might not simply be from a resume, the seed
 			// could be from elsewhere
 			System.out.println("Loading archetype: " + loadedArchetype);
-			archetypes[populationIndex] = (ArrayList<NodeGene>) Easy.load(loadedArchetype);
+			archetypes[populationIndex] = new Archetype((ArrayList<NodeGene>) GenotypeFiles.load(loadedArchetype));
 			String combiningCrossoverFile = Parameters.parameters.stringParameter("combiningCrossoverMapping");
 			// implement for multimodal behavior. Allows for combining of two separate subpopulations to create a multimodal network
 			if (!combiningCrossoverFile.isEmpty()) {
@@ -232,6 +236,27 @@ public class EvolutionaryHistory {
 				saveArchetype(populationIndex);
 			}
 		}
+		countArchetypeOutputs(populationIndex, size);
+	}
+
+	/**
+	 * Replace the archetype of a population with one saved along with the
+	 * population, such as in a GenerationCheckpoint. Does nothing if the
+	 * population has no archetype.
+	 *
+	 * @param populationIndex
+	 *            index of the population
+	 * @param nodes
+	 *            saved archetype
+	 */
+	public static void restoreArchetype(int populationIndex, ArrayList<NodeGene> nodes) {
+		if (archetypes != null && archetypes[populationIndex] != null) {
+			archetypes[populationIndex] = new Archetype(nodes);
+			countArchetypeOutputs(populationIndex, archetypes.length);
+		}
+	}
+
+	private static void countArchetypeOutputs(int populationIndex, int size) {
 		if (archetypeOut == null) {
 			archetypeOut = new int[size];
 		}
@@ -258,8 +283,8 @@ public class EvolutionaryHistory {
 			String file = FileUtilities.getSaveDirectory() + "/" + "archetype";
 			Parameters.parameters.setString("archetype", file);
 			file += populationIndex + ".xml";
-			Easy.save(archetypes[populationIndex], file);
-			System.out.println("Done saving " + file);
+			// Saved as a plain list, which is the format of archetype files
+			BackgroundWriter.save(archetypes[populationIndex].toArrayList(), file);
 			// Could make more explicit using
 			// CommonConstants.trackCombiningCrossover
 			// Only happens if there is information to save
@@ -271,11 +296,41 @@ public class EvolutionaryHistory {
 	 * Initializes the mutation and lineage logs of an archetype
 	 */
 	public static void initLineageAndMutationLogs() {
+		if (binaryLineageLogs()) {
+			mutationLog = null;
+			lineageLog = null;
+			lineageEvents = new LineageEventLog("Lineage");
+			return;
+		}
+		lineageEvents = null;
                 // Seective breeding allows for an unusual number of log lines per generation
 		mutationLog = new MMNEATLog("Mutations", true, false, MMNEAT.ea instanceof SelectiveBreedingEA);
 		lineageLog = new MMNEATLog("Lineage", true, false, MMNEAT.ea instanceof SelectiveBreedingEA);
 	}
 
+	/**
+	 * Whether lineage and mutations are logged as binary events. A resumed
+	 * run keeps the format of the logs already in the save directory, since
+	 * the lineage is only ever loaded from one of them.
+	 * 
+	 * @return true if the binary lineage log is used
+	 */
+	private static boolean binaryLineageLogs() {
+		boolean binary = Parameters.parameters.booleanParameter("binaryLineage");
+		String prefix = FileUtilities.getSaveDirectory() + "/" + Parameters.parameters.stringParameter("log")
+				+ Parameters.parameters.integerParameter("runNumber") + "_";
+		if (new File(prefix + "Lineage_log.txt").exists()) {
+			if (binary) {
+				System.out.println("Continuing the existing text lineage logs instead of a binary lineage log");
+			}
+			return false;
+		} else if (!binary && new File(prefix + "Lineage_log.bin").exists()) {
+			System.out.println("Continuing the existing binary lineage log instead of text lineage logs");
+			return true;
+		}
+		return binary;
+	}
+
 	/**
 	 * Initializes the innovation number history and initializes the TWEANN log
 	 */
@@ -309,7 +364,12 @@ public class EvolutionaryHistory {
 	 *            to be added to mutationLog
 	 */
 	public static void logMutationData(String data) {
-		if (mutationLog != null) {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		if (slot != null) {
+			slot.logMutation(data);
+		} else if (lineageEvents != null) {
+			lineageEvents.mutationLine(data);
+		} else if (mutationLog != null) {
 			mutationLog.log(data);
 		}
 	}
@@ -321,11 +381,53 @@ public class EvolutionaryHistory {
 	 *            to be added to lineage log
 	 */
 	public static void logLineageData(String data) {
-		if (lineageLog != null) {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		if (slot != null) {
+			slot.logLineage(data);
+		} else if (lineageEvents != null) {
+			lineageEvents.lineageLine(data);
+		} else if (lineageLog != null) {
 			lineageLog.log(data);
 		}
 	}
 
+	/**
+	 * logs the parents of an offspring to the lineage log
+	 * 
+	 * @param parentId1
+	 *            id of the first parent
+	 * @param parentId2
+	 *            id of the second parent, or -1 if there was no crossover
+	 * @param offspringId
+	 *            id of the offspring
+	 */
+	public static void logLineage(long parentId1, long parentId2, long offspringId) {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		if (slot != null) {
+			slot.logLineage(parentId1, parentId2, offspringId);
+		} else if (lineageEvents != null) {
+			lineageEvents.child(parentId1, parentId2, offspringId);
+		} else if (lineageLog != null) {
+			lineageLog.log(LineageEventLog.childLine(parentId1, parentId2, offspringId));
+		}
+	}
+
+	/**
+	 * Marks the end of a generation in the mutation and lineage logs, which
+	 * also writes the binary lineage events of the generation
+	 * 
+	 * @param generation
+	 *            generation that ended
+	 */
+	public static void logGenerationOver(int generation) {
+		if (lineageEvents != null) {
+			lineageEvents.generation(generation);
+		} else {
+			logMutationData(LineageEventLog.generationLine(generation));
+			logLineageData(LineageEventLog.generationLine(generation));
+		}
+	}
+
 	/**
 	 * 
 	 * @param populationIndex
@@ -336,14 +438,26 @@ public class EvolutionaryHistory {
 	 * @return the index of the innovation number from the archetypes array
 	 */
 	public static int indexOfArchetypeInnovation(int populationIndex, long sourceInnovation) {
-		if (archetypes[populationIndex] != null) {
-			for (int i = 0; i < archetypes[populationIndex].size(); i++) {
-				if (archetypes[populationIndex].get(i).innovation == sourceInnovation) {
-					return i;
-				}
-			}
+		Archetype archetype = archetype(populationIndex);
+		// returns -1 if innovation number not found
+		return archetype == null ? -1 : archetype.indexOfInnovation(sourceInnovation);
+	}
+
+	/**
+	 * The archetype of a population as seen by the current thread. During
+	 * parallel reproduction, this includes the nodes added by the current
+	 * mating, but not those added by other matings.
+	 *
+	 * @param populationIndex
+	 *            index of population in question
+	 * @return archetype, or null if there is none
+	 */
+	public static Archetype archetype(int populationIndex) {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		if (slot != null) {
+			return slot.archetype(populationIndex);
 		}
-		return -1;// returns if innovation number not found
+		return archetypes == null ? null : archetypes[populationIndex];
 	}
 
 	/**
@@ -410,15 +524,24 @@ public class EvolutionaryHistory {
 	 *            indicates from where in the code the node came from, for
 	 *            debugging purposes only
 	 */
-	public static void archetypeAdd(int populationIndex, NodeGene node, String origin) {
+	public static void archetypeAdd(final int populationIndex, final NodeGene node, final String origin) {
 		// Make sure that the archetype exists, and does not already contain the
 		// innovation number
-		if (archetypes != null && archetypes[populationIndex] != null
-				&& indexOfArchetypeInnovation(populationIndex, node.innovation) == -1) {
-			// adds the new innovation number
-			archetypes[populationIndex].add(node);
-			if (node.ntype == TWEANN.Node.NTYPE_OUTPUT) {
-				archetypeOut[populationIndex]++;
+		Archetype archetype = archetype(populationIndex);
+		if (archetype != null && !archetype.containsInnovation(node.innovation)) {
+			ParallelReproduction.Slot slot = ParallelReproduction.slot();
+			if (slot == null) {
+				// adds the new innovation number
+				archetypes[populationIndex].add(node);
+				if (node.ntype == TWEANN.Node.NTYPE_OUTPUT) {
+					archetypeOut[populationIndex]++;
+				}
+			} else {
+				slot.changeArchetype(populationIndex).add(node);
+				if (node.ntype == TWEANN.Node.NTYPE_OUTPUT) {
+					slot.changeArchetypeOut()[populationIndex]++;
+				}
+				slot.replay(() -> archetypeAdd(populationIndex, node, origin));
 			}
 		}
 	}
@@ -441,8 +564,19 @@ public class EvolutionaryHistory {
 	 *            indicates from where in the code the node came from, for
 	 *            debugging purposes only
 	 */
-	public static void archetypeAdd(int populationIndex, int pos, NodeGene node, boolean combineCopy, String origin) {
-		if (archetypes != null && archetypes[populationIndex] != null) {
+	public static void archetypeAdd(final int populationIndex, int pos, final NodeGene node, final boolean combineCopy, final String origin) {
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		if (slot != null) {
+			Archetype archetype = slot.changeArchetype(populationIndex);
+			if (archetype != null) {
+				// Other matings may add nodes to the real archetype first, so
+				// the node goes after the same node rather than at the same
+				// position
+				final NodeGene previous = pos == 0 ? null : archetype.get(pos - 1);
+				archetype.add(pos, node);
+				slot.replay(() -> archetypeAdd(populationIndex, previous == null ? 0 : indexOfArchetypeInnovation(populationIndex, previous.innovation) + 1, node, combineCopy, origin));
+			}
+		} else if (archetypes != null && archetypes[populationIndex] != null) {
 			// node.origin = origin + " (" + (order++) + ")";
 			// System.out.println("Archetype " + populationIndex + " Add
 			// "+pos+": " + node.innovation + ":" + node);
@@ -496,11 +630,12 @@ public class EvolutionaryHistory {
 	 * @return index of first node in archetype from combined node to add
 	 */
 	public static int indexOfFirstArchetypeNodeFromCombiningCrossover(int populationIndex, int ntype) {
-		for (int i = 0; i < archetypes[populationIndex].size(); i++) {
-			if (archetypes[populationIndex].get(i).fromCombiningCrossover()
-					&& archetypes[populationIndex].get(i).ntype == ntype) {
+		int i = 0;
+		for (NodeGene ng : archetypes[populationIndex]) {
+			if (ng.fromCombiningCrossover() && ng.ntype == ntype) {
 				return i;
 			}
+			i++;
 		}
 		return -1;
 	}
@@ -514,8 +649,9 @@ public class EvolutionaryHistory {
 	 * @return index of first output node in archetype
 	 */
 	public static int firstArchetypeOutputIndex(int archetypeIndex) {
-		int result = archetypeSize(archetypeIndex) - archetypeOut[archetypeIndex];
-		assert archetypes[archetypeIndex]
+		ParallelReproduction.Slot slot = ParallelReproduction.slot();
+		int result = archetypeSize(archetypeIndex) - (slot == null ? archetypeOut : slot.archetypeOut())[archetypeIndex];
+		assert archetype(archetypeIndex)
 				.get(result).ntype == TWEANN.Node.NTYPE_OUTPUT : "First output is not an output! pos " + result + " in "
 						+ archetypes[archetypeIndex];
 		return result;
@@ -551,7 +687,8 @@ public class EvolutionaryHistory {
 	 * @return size of archetype
 	 */
 	public static int archetypeSize(int populationIndex) {
-		return archetypes[populationIndex] == null ? 0 : archetypes[populationIndex].size();
+		Archetype archetype = archetype(populationIndex);
+		return archetype == null ? 0 : archetype.size();
 	}
 
 	/**
@@ -591,8 +728,7 @@ public class EvolutionaryHistory {
 	 */
 	private static boolean orderedArchetype(int populationIndex) {
 		int sectionType = TWEANN.Node.NTYPE_INPUT;
-		for (int i = 0; i < archetypes[populationIndex].size(); i++) {
-			NodeGene node = archetypes[populationIndex].get(i);
+		for (NodeGene node : archetype(populationIndex)) {
 			if (node.ntype != sectionType) {
 				switch (sectionType) {
 				case TWEANN.Node.NTYPE_INPUT:
@@ -0,0 +1,288 @@
+package edu.utexas.cs.nn.evolution;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.RandomStream;
+
+/**
+ * Generates offspring in parallel on the EvaluationExecutor
+ * (parallelReproduction). Selection still happens on the calling thread, and
+ * produces a list of matings. Each mating is then turned into offspring
+ * (copy, crossover and mutation) in its own slot, which may run on any
+ * thread. For a given seed the offspring are the same no matter how many
+ * threads are used, because nothing a slot does depends on the other slots:
+ *
+ * - Each slot has its own random stream, split in order from the generator
+ * of the calling thread.
+ *
+ * - Innovation numbers and genotype IDs are interleaved: slot i of n gets
+ * the numbers i, n + i, 2n + i, ... after the largest number used before
+ * reproduction started. Some numbers are never used, but all of them are
+ * unique.
+ *
+ * - Nodes added to the archetype only go into the slot's own copy of it.
+ * Once all slots finish, the additions are replayed on the real archetype
+ * in slot order. A spliced node is placed after the same node that preceded
+ * it in the slot's copy.
+ *
+ * - Mutation and lineage log lines are also kept until all slots finish, and
+ * then logged in slot order.
+ *
+ * Culling crossovers evaluates offspring, and combining crossover keeps
+ * extra archetype information, so neither is supported in parallel.
+ */
+public class ParallelReproduction {
+
+	private static final ThreadLocal<Slot> currentSlot = new ThreadLocal<Slot>();
+
+	/**
+	 * Parents chosen by selection for one mating
+	 *
+	 * @param <T>
+	 *            phenotype
+	 */
+	public static class Mating<T> {
+		final Genotype<T> parent;
+		final Genotype<T> otherParent;
+		final boolean keepOther;
+		final boolean mutate;
+
+		/**
+		 * @param parent
+		 *            parent that is copied to make an offspring
+		 * @param otherParent
+		 *            parent to cross with, or null if there is no crossover
+		 * @param keepOther
+		 *            whether the second offspring of crossover is kept
+		 * @param mutate
+		 *            whether the offspring of parent is mutated
+		 */
+		public Mating(Genotype<T> parent, Genotype<T> otherParent, boolean keepOther, boolean mutate) {
+			this.parent = parent;
+			this.otherParent = otherParent;
+			this.keepOther = keepOther;
+			this.mutate = mutate;
+		}
+	}
+
+	/**
+	 * Everything one mating changes outside of its own offspring
+	 */
+	static class Slot {
+		private final int index;
+		private final int count;
+		private final long firstInnovation;
+		private final long firstGenotypeId;
+		private int innovations = 0;
+		private int genotypeIds = 0;
+		private Archetype[] archetypes = null;
+		private int[] archetypeOut = null;
+		private final ArrayList<Runnable> archetypeChanges = new ArrayList<Runnable>();
+		private final ArrayList<String> mutationLines = new ArrayList<String>();
+		private final ArrayList<String> lineageLines = new ArrayList<String>();
+		private final ArrayList<long[]> offspringIds = new ArrayList<long[]>();
+
+		Slot(int index, int count, long firstInnovation, long firstGenotypeId) {
+			this.index = index;
+			this.count = count;
+			this.firstInnovation = firstInnovation;
+			this.firstGenotypeId = firstGenotypeId;
+		}
+
+		long nextInnovation() {
+			return firstInnovation + (long) (innovations++) * count + index;
+		}
+
+		long nextGenotypeId() {
+			return firstGenotypeId + (long) (genotypeIds++) * count + index;
+		}
+
+		/**
+		 * @return the slot's copy of the archetype if it changed it, and the
+		 *         real archetype otherwise
+		 */
+		Archetype archetype(int populationIndex) {
+			if (archetypes != null && archetypes[populationIndex] != null) {
+				return archetypes[populationIndex];
+			}
+			return EvolutionaryHistory.archetypes == null ? null : EvolutionaryHistory.archetypes[populationIndex];
+		}
+
+		/**
+		 * @return the slot's copy of the archetype, which is made if needed
+		 */
+		Archetype changeArchetype(int populationIndex) {
+			if (EvolutionaryHistory.archetypes == null || EvolutionaryHistory.archetypes[populationIndex] == null) {
+				return null;
+			}
+			if (archetypes == null) {
+				archetypes = new Archetype[EvolutionaryHistory.archetypes.length];
+			}
+			if (archetypes[populationIndex] == null) {
+				archetypes[populationIndex] = new Archetype(EvolutionaryHistory.archetypes[populationIndex]);
+			}
+			return archetypes[populationIndex];
+		}
+
+		int[] archetypeOut() {
+			return archetypeOut == null ? EvolutionaryHistory.archetypeOut : archetypeOut;
+		}
+
+		int[] changeArchetypeOut() {
+			if (archetypeOut == null) {
+				archetypeOut = Arrays.copyOf(EvolutionaryHistory.archetypeOut, EvolutionaryHistory.archetypeOut.length);
+			}
+			return archetypeOut;
+		}
+
+		/**
+		 * @param change
+		 *            applies a change of the slot's archetype to the real one
+		 */
+		void replay(Runnable change) {
+			archetypeChanges.add(change);
+		}
+
+		void logMutation(String data) {
+			mutationLines.add(data);
+		}
+
+		void logLineage(String data) {
+			lineageLines.add(data);
+		}
+
+		void logLineage(long parentId1, long parentId2, long offspringId) {
+			offspringIds.add(new long[] { parentId1, parentId2, offspringId });
+		}
+	}
+
+	/**
+	 * @return slot of the mating being performed by this thread, if any
+	 */
+	static Slot slot() {
+		return currentSlot.get();
+	}
+
+	/**
+	 * @return whether offspring should be generated in parallel
+	 */
+	public static boolean enabled() {
+		return CommonConstants.parallelReproduction && !CommonConstants.cullCrossovers && !CommonConstants.trackCombiningCrossover;
+	}
+
+	/**
+	 * Perform matings in parallel. Must only be called while no other
+	 * thread is changing the evolutionary history.
+	 *
+	 * @param <T>
+	 *            phenotype
+	 * @param matings
+	 *            parents chosen by selection
+	 * @return offspring of each mating in order, with the second offspring of
+	 *         a crossover before the first
+	 */
+	public static <T> ArrayList<Genotype<T>> offspring(ArrayList<Mating<T>> matings) {
+		long firstInnovation = EvolutionaryHistory.largestUnusedInnovationNumber;
+		long firstGenotypeId = EvolutionaryHistory.largestUnusedGenotypeId;
+		ArrayList<Slot> slots = new ArrayList<Slot>(matings.size());
+		ArrayList<Future<ArrayList<Genotype<T>>>> futures = new ArrayList<Future<ArrayList<Genotype<T>>>>(matings.size());
+		for (int i = 0; i < matings.size(); i++) {
+			Slot slot = new Slot(i, matings.size(), firstInnovation, firstGenotypeId);
+			slots.add(slot);
+			futures.add(EvaluationExecutor.submit(new Reproduction<T>(matings.get(i), slot, RandomNumbers.newStream())));
+		}
+
+		ArrayList<Genotype<T>> offspring = new ArrayList<Genotype<T>>(2 * matings.size());
+		for (Future<ArrayList<Genotype<T>>> future : futures) {
+			try {
+				offspring.addAll(future.get());
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.exit(1);
+			}
+		}
+		// Running slots read the real archetype, so it only changes once all
+		// of them are done
+		int innovations = 0;
+		int genotypeIds = 0;
+		for (Slot slot : slots) {
+			for (Runnable change : slot.archetypeChanges) {
+				change.run();
+			}
+			for (String line : slot.mutationLines) {
+				EvolutionaryHistory.logMutationData(line);
+			}
+			for (String line : slot.lineageLines) {
+				EvolutionaryHistory.logLineageData(line);
+			}
+			for (long[] ids : slot.offspringIds) {
+				EvolutionaryHistory.logLineage(ids[0], ids[1], ids[2]);
+			}
+			innovations = Math.max(innovations, slot.innovations);
+			genotypeIds = Math.max(genotypeIds, slot.genotypeIds);
+		}
+		EvolutionaryHistory.setInnovation(firstInnovation + (long) innovations * matings.size());
+		EvolutionaryHistory.setHighestGenotypeId(firstGenotypeId + (long) genotypeIds * matings.size());
+		Parameters.parameters.setLong("lastInnovation", EvolutionaryHistory.largestUnusedInnovationNumber);
+		Parameters.parameters.setLong("lastGenotypeId", EvolutionaryHistory.largestUnusedGenotypeId);
+		return offspring;
+	}
+
+	/**
+	 * One mating, run by the evaluation threads
+	 */
+	private static class Reproduction<T> implements Callable<ArrayList<Genotype<T>>> {
+		private final Mating<T> mating;
+		private final Slot slot;
+		private final RandomStream random;
+
+		Reproduction(Mating<T> mating, Slot slot, RandomStream random) {
+			this.mating = mating;
+			this.slot = slot;
+			this.random = random;
+		}
+
+		@Override
+		public ArrayList<Genotype<T>> call() {
+			currentSlot.set(slot);
+			Random previous = RandomNumbers.setThreadGenerator(random);
+			try {
+				ArrayList<Genotype<T>> result = new ArrayList<Genotype<T>>(2);
+				long parentId1 = mating.parent.getId();
+				Genotype<T> e = mating.parent.copy();
+				if (mating.otherParent != null) {
+					long parentId2 = mating.otherParent.getId();
+					Genotype<T> otherOffspring = e.crossover(mating.otherParent.copy());
+					if (mating.keepOther) {
+						otherOffspring.mutate();
+						result.add(otherOffspring);
+						EvolutionaryHistory.logLineage(parentId1, parentId2, otherOffspring.getId());
+					}
+					e.mutate();
+					result.add(e);
+					EvolutionaryHistory.logLineage(parentId1, parentId2, e.getId());
+				} else {
+					if (mating.mutate) {
+						e.mutate();
+					}
+					result.add(e);
+					EvolutionaryHistory.logLineage(parentId1, -1, e.getId());
+				}
+				return result;
+			} finally {
+				RandomNumbers.setThreadGenerator(previous);
+				currentSlot.remove();
+			}
+		}
+	}
+}
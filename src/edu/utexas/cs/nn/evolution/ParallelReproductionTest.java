@@ -0,0 +1,125 @@
+package edu.utexas.cs.nn.evolution;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.evolution.nsga2.NSGA2;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class ParallelReproductionTest {
+
+	private static final int POPULATION = 20;
+	private static final int GENERATIONS = 3;
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+		RandomNumbers.reset(0);
+	}
+
+	/**
+	 * A few generations of NSGA2 offspring with random scores, starting from
+	 * the same seed
+	 *
+	 * @param threads
+	 *            number of threads to generate offspring with
+	 * @return description of every genotype, the archetype and the id
+	 *         counters, which should only depend on the seed
+	 */
+	@SuppressWarnings("unchecked")
+	private ArrayList<String> evolve(int threads) {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "mating:true",
+				"crossoverRate:0.5", "netSpliceRate:0.5", "netLinkRate:0.5", "threads:" + threads, "parallelReproduction:true" });
+		EvolutionaryHistory.setInnovation(0);
+		// New pool with the given number of threads
+		EvaluationExecutor.shutdown();
+		MMNEAT.loadClasses();
+		RandomNumbers.reset(3);
+
+		ArrayList<Genotype<TWEANN>> population = new ArrayList<Genotype<TWEANN>>(POPULATION);
+		for (int i = 0; i < POPULATION; i++) {
+			population.add(((Genotype<TWEANN>) MMNEAT.genotype).newInstance());
+		}
+		ArrayList<String> result = new ArrayList<String>();
+		for (int g = 0; g < GENERATIONS; g++) {
+			ArrayList<Score<TWEANN>> scores = new ArrayList<Score<TWEANN>>(POPULATION);
+			for (Genotype<TWEANN> individual : population) {
+				double[] s = new double[] { RandomNumbers.randomGenerator.nextInt(5), RandomNumbers.randomGenerator.nextInt(5) };
+				scores.add(new Score<TWEANN>(individual, s, null));
+			}
+			population = NSGA2.generateNSGA2Children(POPULATION, NSGA2.staticNSGA2Scores(scores), g, true, 0.5);
+			assertEquals(POPULATION, population.size());
+			for (Genotype<TWEANN> individual : population) {
+				result.add(describe((TWEANNGenotype) individual));
+			}
+		}
+		StringBuilder archetype = new StringBuilder();
+		for (NodeGene ng : EvolutionaryHistory.archetypes[0]) {
+			archetype.append(ng.innovation).append(" ");
+		}
+		result.add(archetype.toString());
+		result.add(EvolutionaryHistory.largestUnusedInnovationNumber + " " + EvolutionaryHistory.largestUnusedGenotypeId);
+		checkArchetype(population);
+		return result;
+	}
+
+	private static String describe(TWEANNGenotype tg) {
+		StringBuilder sb = new StringBuilder();
+		sb.append(tg.getId()).append(":");
+		for (NodeGene ng : tg.nodes) {
+			sb.append(" n").append(ng.innovation).append("/").append(ng.ftype);
+		}
+		for (LinkGene lg : tg.links) {
+			sb.append(" l").append(lg.innovation).append("/").append(lg.sourceInnovation).append(">").append(lg.targetInnovation).append("/").append(lg.weight);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Every node of every offspring is in the archetype, in the same order
+	 */
+	private static void checkArchetype(ArrayList<Genotype<TWEANN>> population) {
+		for (Genotype<TWEANN> individual : population) {
+			int pos = -1;
+			for (NodeGene ng : ((TWEANNGenotype) individual).nodes) {
+				int index = EvolutionaryHistory.indexOfArchetypeInnovation(0, ng.innovation);
+				assertTrue("Node " + ng.innovation + " out of order", index > pos);
+				pos = index;
+			}
+		}
+	}
+
+	@Test
+	public void testSameOffspringForAnyNumberOfThreads() {
+		ArrayList<String> one = evolve(1);
+		ArrayList<String> four = evolve(4);
+		assertEquals(one, four);
+	}
+
+	@Test
+	public void testUniqueIds() {
+		ArrayList<String> result = evolve(3);
+		HashSet<String> ids = new HashSet<String>();
+		HashSet<String> innovations = new HashSet<String>();
+		for (String genotype : result.subList(0, GENERATIONS * POPULATION)) {
+			assertTrue(ids.add(genotype.substring(0, genotype.indexOf(':'))));
+		}
+		for (String innovation : result.get(GENERATIONS * POPULATION).split(" ")) {
+			assertTrue(innovations.add(innovation));
+		}
+	}
+}
@@ -32,7 +32,7 @@ public class ArrayCrossover<T> extends Crossover<ArrayList<T>> {
 	public Genotype<ArrayList<T>> crossover(Genotype<ArrayList<T>> toModify, Genotype<ArrayList<T>> toReturn) {
 		// the random seeded number that corresponds to the single-point at
 		// which the crossover occurs
-		int point = RandomNumbers.randomGenerator.nextInt(toModify.getPhenotype().size());
+		int point = RandomNumbers.generator().nextInt(toModify.getPhenotype().size());
 		// the for loop that swaps the following values.
 		for (int i = point; i < toModify.getPhenotype().size(); i++) {
 			Pair<T, T> p = newIndexContents(toReturn.getPhenotype().get(i), toModify.getPhenotype().get(i), i);
@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.evolution.crossover.network;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.Archetype;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.crossover.Crossover;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
@@ -14,11 +15,14 @@ import edu.utexas.cs.nn.evolution.mutation.tweann.MeltThenFreezePreferenceMutati
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.datastructures.LongIntHashMap;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
 
 /**
  * This class crosses over two TWEANN networks with a command line parameter
@@ -29,7 +33,6 @@ import java.util.Arrays;
 public class TWEANNCrossover extends Crossover<TWEANN> {
 	// this is the rate at which disjoint/excess nodes are included in children of crossover
 	private final double includeExcessRate;
-	private boolean includeExcess = false;
 
 	/**
 	 * Default constructor for a TWEANN crossover. Calls on another constructor
@@ -66,7 +69,8 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 */
         @Override
 	public Genotype<TWEANN> crossover(Genotype<TWEANN> toModify, Genotype<TWEANN> toReturn) {
-		includeExcess = RandomNumbers.randomGenerator.nextFloat() < includeExcessRate;
+		// Local rather than a field, since offspring can be generated in parallel
+		boolean includeExcess = RandomNumbers.generator().nextFloat() < includeExcessRate;
 
 		TWEANNGenotype tr = (TWEANNGenotype) toReturn;
 		TWEANNGenotype tm = (TWEANNGenotype) toModify;
@@ -78,11 +82,11 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 		// makes sure to check the number of nodes match the archetype of the network
 		alignedNodes.add(alignNodesToArchetype(tr.nodes, tr.archetypeIndex));
 		// crosses nodes// crosses nodes
-		ArrayList<ArrayList<NodeGene>> crossedNodes = cross(alignedNodes.get(0), alignedNodes.get(1));
+		ArrayList<ArrayList<NodeGene>> crossedNodes = cross(alignedNodes.get(0), alignedNodes.get(1), includeExcess);
 		// Align and cross links. Links are aligned based on innovation order
 		// aligns links to faciliate crossover
 		ArrayList<ArrayList<LinkGene>> alignedLinks = alignLinkGenes(((TWEANNGenotype) toModify).links, tr.links);
-		ArrayList<ArrayList<LinkGene>> crossedLinks = cross(alignedLinks.get(0), alignedLinks.get(1));// crosses links
+		ArrayList<ArrayList<LinkGene>> crossedLinks = cross(alignedLinks.get(0), alignedLinks.get(1), includeExcess);// crosses links
 
 		// Assign new lists
 		int[] originalAssociations = Arrays.copyOf(tm.moduleAssociations, tm.moduleAssociations.length);
@@ -150,11 +154,14 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 *            One list of parent Genes
 	 * @param right
 	 *            Other list of parent Genes
+	 * @param includeExcess
+	 *            whether excess/disjoint genes of each parent are also given
+	 *            to the other offspring
 	 * @return ArrayList containing both lists of offspring Genes (with no
 	 *         nulls)
 	 */
 	@SuppressWarnings("unchecked")
-	public <G extends Gene> ArrayList<ArrayList<G>> cross(ArrayList<G> left, ArrayList<G> right) {
+	public <G extends Gene> ArrayList<ArrayList<G>> cross(ArrayList<G> left, ArrayList<G> right, boolean includeExcess) {
 		assert(left.size() == right.size()) : "Can't cross lists of different size!\n" + left.size() + ":" + left + "\n" + right.size() + ":" + right;
 
 		ArrayList<G> crossedLeft = new ArrayList<G>(left.size());
@@ -208,7 +215,7 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 *            partially finished list of genes for offspring 2
 	 */
 	public <G extends Gene> void crossIndex(G leftGene, G rightGene, ArrayList<G> crossedLeft, ArrayList<G> crossedRight) {
-		boolean swap = RandomNumbers.randomGenerator.nextBoolean();
+		boolean swap = RandomNumbers.generator().nextBoolean();
 		if (swap) {
 			Pair<G, G> p = swap(leftGene, rightGene);
 			leftGene = p.t1;
@@ -229,24 +236,27 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 *         archetype.
 	 */
 	private static ArrayList<NodeGene> alignNodesToArchetype(ArrayList<NodeGene> list, int archetypeIndex) {
-		ArrayList<NodeGene> archetype = EvolutionaryHistory.archetypes[archetypeIndex];
+		Archetype archetype = EvolutionaryHistory.archetype(archetypeIndex);
 		ArrayList<NodeGene> aligned = new ArrayList<NodeGene>(archetype.size());
+		// The archetype is walked with an iterator since getting a node by
+		// position is not constant time
+		Iterator<NodeGene> archetypeNodes = archetype.iterator();
 
 		// Deal with matching and disjoint genes
 		int listPos = 0, archetypePos = 0;
 		while (listPos < list.size() && archetypePos < archetype.size()) {
 			long leftInnovation = list.get(listPos).innovation;
-			long rightInnovation = archetype.get(archetypePos).innovation;
+			long rightInnovation = archetypeNodes.next().innovation;
 			if (leftInnovation == rightInnovation) {
 				aligned.add(list.get(listPos++));
 				archetypePos++;
 			} else {// checks if misaligned
-				assert (containsInnovationAt(archetype, leftInnovation) != null) :
+				assert (archetype.containsInnovation(leftInnovation)) :
 					"archetypeIndex: " + archetypeIndex + "\n" +
 					"How can archetype not have innovation? " + leftInnovation + "\n" +
 					"Archetype:" + archetype + "\n" +
 					"List:" + list;
-				assert (containsInnovationAt(archetype, leftInnovation) > archetypePos) :
+				assert (archetype.indexOfInnovation(leftInnovation) > archetypePos) :
 					"Mappings:" + CombiningTWEANNCrossover.oldToNew + "\n" +
 					"archetypeIndex: " + archetypeIndex + "\n" +
 					"Already passed the innovation! " + leftInnovation + "\n" +
@@ -279,7 +289,7 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 *            generation from the evolutionary history
 	 */
 	public static void printNodeAlignmentColumns(ArrayList<NodeGene> list, int archetypeIndex) {
-		ArrayList<NodeGene> archetype = EvolutionaryHistory.archetypes[archetypeIndex];
+		Archetype archetype = EvolutionaryHistory.archetype(archetypeIndex);
 		// Deal with matching and disjoint genes
 		int listPos = 0, archetypePos = 0;
 		while (listPos < list.size() && archetypePos < archetype.size()) {
@@ -293,8 +303,8 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 				listPos++;
 				archetypePos++;
 			} else {
-				Integer pos = containsInnovationAt(archetype, leftInnovation);
-				if (pos == null) {
+				int pos = archetype.indexOfInnovation(leftInnovation);
+				if (pos == -1) {
 					System.out.println("ERROR:" + leftInnovation + " not present");
 					throw new IllegalArgumentException();
 				} else if (pos <= archetypePos) {
@@ -316,30 +326,13 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 		}
 	}
 
-	/**
-	 * Index in list of genes where innovation number is found
-	 *
-	 * @param <G>
-	 *            LinkGene or NodeGene
-	 * @param genes
-	 *            = list of genes
-	 * @param innovation
-	 *            = innovation number to search for
-	 * @return index in "list" where gene with innovation was found
-	 */
-	private static <G extends Gene> Integer containsInnovationAt(ArrayList<G> genes, long innovation) {
-		for (int i = 0; i < genes.size(); i++) {
-			if (genes.get(i).innovation == innovation) {
-				return i;
-			}
-		}
-		return null;
-	}
-
 	/**
 	 * Aligns link genes by innovation numbers. Easier to do in the LinkGene
 	 * case because no ordering is required for correct network execution.
-	 * Therefore, links are simply sorted by their innovation numbers.
+	 * Therefore, links are simply sorted by their innovation numbers. Whether
+	 * one parent has an innovation of the other is answered by hashed
+	 * innovation indexes, so alignment takes O(L log L) time for L links,
+	 * dominated by the sorting.
 	 *
 	 * @param left
 	 *            = list of parent link genes
@@ -348,10 +341,12 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 * @return ArrayList of two lists: the aligned link genes of each offspring,
 	 *         with nulls where genes don't align.
 	 */
-	private static ArrayList<ArrayList<LinkGene>> alignLinkGenes(ArrayList<LinkGene> left, ArrayList<LinkGene> right) {
+	static ArrayList<ArrayList<LinkGene>> alignLinkGenes(ArrayList<LinkGene> left, ArrayList<LinkGene> right) {
 		mergeDuplicates(left, right);
 		TWEANNGenotype.sortLinkGenes(left);
 		TWEANNGenotype.sortLinkGenes(right);
+		LongIntHashMap leftIndex = innovationIndex(left);
+		LongIntHashMap rightIndex = innovationIndex(right);
 
 		int maxSize = Math.max(left.size(), right.size());
 		ArrayList<LinkGene> alignedLeft = new ArrayList<LinkGene>(maxSize);
@@ -372,17 +367,17 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 			} else {
 				// System.out.println("Diff innovation: " + leftInnovation + ",
 				// " + rightInnovation);
-				Integer leftHasRightAt = containsInnovationAt(left, rightInnovation);
-				Integer rightHasLeftAt = containsInnovationAt(right, leftInnovation);
+				boolean leftHasRight = leftIndex.containsKey(rightInnovation);
+				boolean rightHasLeft = rightIndex.containsKey(leftInnovation);
 				// System.out.println("Innovation: leftHasRight: " +
-				// leftHasRightAt + ", rightHasLeft: " + rightHasLeftAt);
+				// leftHasRight + ", rightHasLeft: " + rightHasLeft);
 
-				if (leftHasRightAt == null) {
-					// System.out.println("leftHasRight is null");
+				if (!leftHasRight) {
+					// System.out.println("leftHasRight is false");
 					alignedLeft.add(null);
 					alignedRight.add(right.get(rightPos++));
-				} else if (rightHasLeftAt == null) {
-					// System.out.println("rightHasLeftAt is null");
+				} else if (!rightHasLeft) {
+					// System.out.println("rightHasLeft is false");
 					alignedLeft.add(left.get(leftPos++));
 					alignedRight.add(null);
 				}
@@ -416,10 +411,29 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 		return pair;
 	}
 
+	/**
+	 * Maps the innovation number of each link to the position of the first
+	 * link with that innovation number.
+	 *
+	 * @param links
+	 *            list of link genes
+	 * @return index from innovation numbers to positions in links
+	 */
+	private static LongIntHashMap innovationIndex(ArrayList<LinkGene> links) {
+		LongIntHashMap index = new LongIntHashMap(links.size());
+		for (int i = links.size() - 1; i >= 0; i--) {
+			index.put(links.get(i).innovation, i);
+		}
+		return index;
+	}
+
 	/**
 	 * When crossing excess genes, networks can have multiple links connecting
 	 * the same two nodes. This method merges those links into one by changing
-	 * innovation numbers
+	 * innovation numbers: each link of the right parent takes the innovation
+	 * number of the last link of the left parent with the same source and
+	 * target. The left links are indexed by source and target first, so each
+	 * right link is handled with a single lookup.
 	 *
 	 * @param left
 	 *            link genes of parent 1
@@ -427,12 +441,15 @@ public class TWEANNCrossover extends Crossover<TWEANN> {
 	 *            link genes of parent 2
 	 */
 	private static void mergeDuplicates(ArrayList<LinkGene> left, ArrayList<LinkGene> right) {
+		HashMap<Pair<Long, Long>, Long> innovations = new HashMap<Pair<Long, Long>, Long>(2 * left.size());
 		for (LinkGene lg : left) {
-			for (LinkGene rg : right) {
-				if (lg.sourceInnovation == rg.sourceInnovation && lg.targetInnovation == rg.targetInnovation
-						&& lg.innovation != rg.innovation) {
-					rg.innovation = lg.innovation;
-				}
+			// Later links replace earlier ones
+			innovations.put(new Pair<Long, Long>(lg.sourceInnovation, lg.targetInnovation), lg.innovation);
+		}
+		for (LinkGene rg : right) {
+			Long innovation = innovations.get(new Pair<Long, Long>(rg.sourceInnovation, rg.targetInnovation));
+			if (innovation != null) {
+				rg.innovation = innovation;
 			}
 		}
 	}
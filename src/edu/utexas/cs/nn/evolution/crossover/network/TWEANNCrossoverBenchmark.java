@@ -0,0 +1,237 @@
+package edu.utexas.cs.nn.evolution.crossover.network;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.parameters.Parameters;
+
+/**
+ * Measures how link alignment in TWEANNCrossover scales with the number of
+ * links. For each genome size, two parents that share most of their links
+ * are aligned both with the indexed alignLinkGenes (as crossover now does)
+ * and with the original version that scans the link lists. The scanning
+ * version is skipped for genomes larger than maxScanning, since it takes
+ * quadratic time. Both versions must produce the same alignment.
+ *
+ * Usage: java edu.utexas.cs.nn.evolution.crossover.network.TWEANNCrossoverBenchmark [maxLinks] [maxScanning]
+ */
+public class TWEANNCrossoverBenchmark {
+
+	public static void main(String[] args) {
+		int maxLinks = args.length > 0 ? Integer.parseInt(args[0]) : 256000;
+		int maxScanning = args.length > 1 ? Integer.parseInt(args[1]) : 16000;
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		Random random = new Random(0);
+
+		System.out.println("links\taligned\tindexed(ms)\tscanning(ms)");
+		for (int n = 250; n <= maxLinks; n *= 2) {
+			ArrayList<LinkGene> left = parentLinks(random, n, 0);
+			ArrayList<LinkGene> right = parentLinks(random, n, 1);
+			// Warm up
+			TWEANNCrossover.alignLinkGenes(copy(left), copy(right));
+
+			int reps = Math.max(1, 64000 / n);
+			ArrayList<ArrayList<LinkGene>> aligned = null;
+			long time = 0;
+			for (int i = 0; i < reps; i++) {
+				ArrayList<LinkGene> l = copy(left), r = copy(right);
+				long start = System.nanoTime();
+				aligned = TWEANNCrossover.alignLinkGenes(l, r);
+				time += System.nanoTime() - start;
+			}
+			double indexed = time / (reps * 1000000.0);
+
+			String scanning = "-";
+			if (n <= maxScanning) {
+				ArrayList<LinkGene> l = copy(left), r = copy(right);
+				long start = System.nanoTime();
+				ArrayList<ArrayList<LinkGene>> scanned = scanningAlignLinkGenes(l, r);
+				scanning = String.valueOf((System.nanoTime() - start) / 1000000.0);
+				if (!sameAlignment(aligned, scanned)) {
+					System.out.println("Different alignments for " + n + " links");
+					System.exit(1);
+				}
+			}
+			System.out.println(n + "\t" + aligned.get(0).size() + "\t" + indexed + "\t" + scanning);
+		}
+	}
+
+	/**
+	 * Links of a parent descended from a common ancestor. Innovation numbers
+	 * below size are shared by both parents, though each parent keeps only
+	 * about 80% of them. Each parent also has about 20% links of its own,
+	 * some of which connect the same nodes as a shared link the parent does
+	 * not have, as happens when both parents add the same link
+	 * independently. No two links of a parent connect the same nodes. Links
+	 * are shuffled, since genotypes are not always sorted.
+	 *
+	 * @param random
+	 *            source of links
+	 * @param size
+	 *            number of shared innovation numbers
+	 * @param parent
+	 *            distinguishes the innovation numbers of each parent's own
+	 *            links
+	 * @return link genes of the parent
+	 */
+	static ArrayList<LinkGene> parentLinks(Random random, int size, int parent) {
+		// Enough nodes that different keys connect different nodes
+		int nodes = (int) Math.sqrt(2 * size) + 2;
+		boolean[] connected = new boolean[size];
+		ArrayList<LinkGene> links = new ArrayList<LinkGene>(size);
+		for (int i = 0; i < size; i++) {
+			if (random.nextDouble() < 0.8) {
+				connected[i] = true;
+				links.add(link(random, i, nodes, i));
+			}
+		}
+		for (int i = 0; i < size / 5; i++) {
+			long innovation = size + 2 * i + parent;
+			int shared = random.nextInt(size);
+			if (random.nextBoolean() && !connected[shared]) {
+				// Connects the same nodes as a shared link
+				connected[shared] = true;
+				links.add(link(random, shared, nodes, innovation));
+			} else {
+				links.add(link(random, size + i, nodes, innovation));
+			}
+		}
+		Collections.shuffle(links, random);
+		return links;
+	}
+
+	/**
+	 * Link whose source and target are determined by a key, so the same key
+	 * always connects the same nodes.
+	 */
+	private static LinkGene link(Random random, int key, int nodes, long innovation) {
+		return TWEANNGenotype.newLinkGene(key % nodes, nodes + (key / nodes) % nodes, random.nextGaussian(), innovation, false);
+	}
+
+	/**
+	 * @param links
+	 *            link genes
+	 * @return list of copies of the link genes
+	 */
+	static ArrayList<LinkGene> copy(ArrayList<LinkGene> links) {
+		ArrayList<LinkGene> result = new ArrayList<LinkGene>(links.size());
+		for (LinkGene lg : links) {
+			result.add(lg.clone());
+		}
+		return result;
+	}
+
+	/**
+	 * Whether two alignments have the same links in the same places, with
+	 * the same innovation numbers after duplicates were merged.
+	 *
+	 * @param a
+	 *            result of an alignment
+	 * @param b
+	 *            result of another alignment
+	 * @return true if the alignments match
+	 */
+	static boolean sameAlignment(ArrayList<ArrayList<LinkGene>> a, ArrayList<ArrayList<LinkGene>> b) {
+		if (a == null || b == null) {
+			return a == b;
+		}
+		for (int side = 0; side < 2; side++) {
+			ArrayList<LinkGene> x = a.get(side), y = b.get(side);
+			if (x.size() != y.size()) {
+				return false;
+			}
+			for (int i = 0; i < x.size(); i++) {
+				LinkGene lx = x.get(i), ly = y.get(i);
+				if (lx == null || ly == null) {
+					if (lx != ly) {
+						return false;
+					}
+				} else if (lx.innovation != ly.innovation || lx.sourceInnovation != ly.sourceInnovation
+						|| lx.targetInnovation != ly.targetInnovation || lx.weight != ly.weight) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Original version of TWEANNCrossover.alignLinkGenes, which compares
+	 * every pair of links to merge duplicates and scans the whole list of
+	 * links for each innovation lookup, taking quadratic time. Kept to check
+	 * and measure the indexed version.
+	 *
+	 * @param left
+	 *            See TWEANNCrossover.alignLinkGenes
+	 * @param right
+	 *            See TWEANNCrossover.alignLinkGenes
+	 * @return See TWEANNCrossover.alignLinkGenes
+	 */
+	static ArrayList<ArrayList<LinkGene>> scanningAlignLinkGenes(ArrayList<LinkGene> left, ArrayList<LinkGene> right) {
+		for (LinkGene lg : left) {
+			for (LinkGene rg : right) {
+				if (lg.sourceInnovation == rg.sourceInnovation && lg.targetInnovation == rg.targetInnovation
+						&& lg.innovation != rg.innovation) {
+					rg.innovation = lg.innovation;
+				}
+			}
+		}
+		TWEANNGenotype.sortLinkGenes(left);
+		TWEANNGenotype.sortLinkGenes(right);
+
+		ArrayList<LinkGene> alignedLeft = new ArrayList<LinkGene>();
+		ArrayList<LinkGene> alignedRight = new ArrayList<LinkGene>();
+		int leftPos = 0, rightPos = 0;
+		while (leftPos < left.size() && rightPos < right.size()) {
+			int l = leftPos, r = rightPos;
+			long leftInnovation = left.get(leftPos).innovation;
+			long rightInnovation = right.get(rightPos).innovation;
+			if (leftInnovation == rightInnovation) {
+				alignedLeft.add(left.get(leftPos++));
+				alignedRight.add(right.get(rightPos++));
+			} else if (containsInnovationAt(left, rightInnovation) == null) {
+				alignedLeft.add(null);
+				alignedRight.add(right.get(rightPos++));
+			} else if (containsInnovationAt(right, leftInnovation) == null) {
+				alignedLeft.add(left.get(leftPos++));
+				alignedRight.add(null);
+			}
+			if (l == leftPos && r == rightPos) {
+				return null;
+			}
+		}
+		while (leftPos < left.size()) {
+			alignedLeft.add(left.get(leftPos++));
+			alignedRight.add(null);
+		}
+		while (rightPos < right.size()) {
+			alignedLeft.add(null);
+			alignedRight.add(right.get(rightPos++));
+		}
+		ArrayList<ArrayList<LinkGene>> pair = new ArrayList<ArrayList<LinkGene>>(2);
+		pair.add(alignedLeft);
+		pair.add(alignedRight);
+		return pair;
+	}
+
+	/**
+	 * Index in list of genes where innovation number is found
+	 *
+	 * @param genes
+	 *            = list of link genes
+	 * @param innovation
+	 *            = innovation number to search for
+	 * @return index in "list" where gene with innovation was found
+	 */
+	private static Integer containsInnovationAt(ArrayList<LinkGene> genes, long innovation) {
+		for (int i = 0; i < genes.size(); i++) {
+			if (genes.get(i).innovation == innovation) {
+				return i;
+			}
+		}
+		return null;
+	}
+}
@@ -6,12 +6,14 @@ package edu.utexas.cs.nn.evolution.crossover.network;
 import static org.junit.Assert.*;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Test;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.datastructures.ArrayUtil;
@@ -234,4 +236,25 @@ public class TWEANNCrossoverTest {
 		}
 	}
 
+	/**
+	 * Indexed link alignment must match the original scanning version
+	 * exactly, so that crossover produces the same offspring.
+	 */
+	@Test
+	public void testIndexedAlignmentMatchesScanning() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		Random random = new Random(0);
+		for (int size = 1; size <= 2000; size *= 3) {
+			for (int trial = 0; trial < 5; trial++) {
+				ArrayList<LinkGene> left = TWEANNCrossoverBenchmark.parentLinks(random, size, 0);
+				ArrayList<LinkGene> right = TWEANNCrossoverBenchmark.parentLinks(random, size, 1);
+				ArrayList<ArrayList<LinkGene>> indexed = TWEANNCrossover.alignLinkGenes(
+						TWEANNCrossoverBenchmark.copy(left), TWEANNCrossoverBenchmark.copy(right));
+				ArrayList<ArrayList<LinkGene>> scanned = TWEANNCrossoverBenchmark.scanningAlignLinkGenes(
+						TWEANNCrossoverBenchmark.copy(left), TWEANNCrossoverBenchmark.copy(right));
+				assertNotNull(indexed);
+				assertTrue(TWEANNCrossoverBenchmark.sameAlignment(indexed, scanned));
+			}
+		}
+	}
 }
@@ -0,0 +1,416 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.FullLinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.FullNodeGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+
+/**
+ * Compact, versioned binary encoding of genotypes, used instead of WOX XML
+ * when binaryGenotypes is set (see edu.utexas.cs.nn.data.GenotypeFiles).
+ * Supports TWEANNGenotype, HyperNEATCPPNGenotype, RealValuedGenotype,
+ * BoundedRealValuedGenotype, BoundedIntegerValuedGenotype, CombinedGenotype
+ * of supported genotypes, and archetype node lists (ArrayList of NodeGene).
+ * Other classes, including subclasses of these, are not supported and are
+ * still saved as XML.
+ *
+ * A stream starts with a header (magic number and version), followed by any
+ * number of objects, each of which is a tag byte identifying its class and
+ * then its fields. Integers are written as variable length zig-zag numbers,
+ * so small innovation numbers and counts take one or two bytes, and doubles
+ * are written exactly. Booleans of each gene are packed into one byte.
+ *
+ * Like WOX, decoding sets every field directly. Genotypes are created with
+ * constructors that only take their saved ID, so loading a genotype does not
+ * use up a new genotype ID, and genes are restored as the same kind (full or
+ * small) that was saved.
+ */
+public class BinaryGenotypeFormat {
+
+	// "MMGB"
+	public static final int MAGIC = 0x4D4D4742;
+	// Increase whenever the encoding changes, and keep reading old versions
+	public static final int VERSION = 1;
+
+	private static final int TWEANN = 1;
+	private static final int HYPERNEAT_CPPN = 2;
+	private static final int REAL = 3;
+	private static final int BOUNDED_REAL = 4;
+	private static final int BOUNDED_INTEGER = 5;
+	private static final int COMBINED = 6;
+	private static final int NODE_LIST = 7;
+
+	private static final int FULL = 1;
+	private static final int FROZEN = 2;
+	private static final int FROM_COMBINING_CROSSOVER = 4;
+	private static final int ACTIVE = 4;
+	private static final int RECURRENT = 8;
+
+	/**
+	 * @param o
+	 *            object that might be saved
+	 * @return whether the object can be encoded
+	 */
+	public static boolean supports(Object o) {
+		if (o == null) {
+			return false;
+		}
+		Class<?> c = o.getClass();
+		if (c == TWEANNGenotype.class || c == HyperNEATCPPNGenotype.class || c == RealValuedGenotype.class
+				|| c == BoundedRealValuedGenotype.class || c == BoundedIntegerValuedGenotype.class) {
+			return true;
+		} else if (c == CombinedGenotype.class) {
+			CombinedGenotype<?, ?> cg = (CombinedGenotype<?, ?>) o;
+			return supports(cg.t1) && supports(cg.t2);
+		} else if (c == ArrayList.class) {
+			for (Object x : (ArrayList<?>) o) {
+				if (!(x instanceof NodeGene)) {
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Write a header followed by one object
+	 *
+	 * @param o
+	 *            supported object
+	 * @param out
+	 *            destination, which is not closed
+	 * @throws IOException
+	 *             if writing fails or the object is not supported
+	 */
+	public static void write(Object o, OutputStream out) throws IOException {
+		DataOutputStream data = new DataOutputStream(out);
+		writeHeader(data);
+		writeObject(data, o);
+		data.flush();
+	}
+
+	/**
+	 * Read a header followed by one object
+	 *
+	 * @param in
+	 *            source, which is not closed
+	 * @return decoded object
+	 * @throws IOException
+	 *             if reading fails or the data is not in this format
+	 */
+	public static Object read(InputStream in) throws IOException {
+		DataInputStream data = new DataInputStream(in);
+		int version = readHeader(data);
+		return readObject(data, version);
+	}
+
+	public static void writeHeader(DataOutput out) throws IOException {
+		out.writeInt(MAGIC);
+		out.writeShort(VERSION);
+	}
+
+	/**
+	 * @return version of the stream
+	 */
+	public static int readHeader(DataInput in) throws IOException {
+		if (in.readInt() != MAGIC) {
+			throw new IOException("Not a binary genotype stream");
+		}
+		int version = in.readShort();
+		if (version < 1 || version > VERSION) {
+			throw new IOException("Unsupported binary genotype version " + version);
+		}
+		return version;
+	}
+
+	/**
+	 * Write one object, without a header
+	 */
+	public static void writeObject(DataOutput out, Object o) throws IOException {
+		if (!supports(o)) {
+			throw new IOException("Can not encode " + (o == null ? null : o.getClass().getName()) + " in binary");
+		}
+		Class<?> c = o.getClass();
+		if (c == TWEANNGenotype.class || c == HyperNEATCPPNGenotype.class) {
+			TWEANNGenotype tg = (TWEANNGenotype) o;
+			out.writeByte(c == TWEANNGenotype.class ? TWEANN : HYPERNEAT_CPPN);
+			writeVarLong(out, tg.getId());
+			writeVarLong(out, tg.numIn);
+			writeVarLong(out, tg.numOut);
+			writeVarLong(out, tg.numModules);
+			writeVarLong(out, tg.neuronsPerModule);
+			writeVarLong(out, tg.archetypeIndex);
+			out.writeBoolean(tg.standardMultitask);
+			out.writeBoolean(tg.hierarchicalMultitask);
+			writeInts(out, tg.moduleAssociations);
+			writeInts(out, tg.moduleUsage);
+			writeNodes(out, tg.nodes);
+			writeVarLong(out, tg.links == null ? -1 : tg.links.size());
+			if (tg.links != null) {
+				for (LinkGene lg : tg.links) {
+					writeLink(out, lg);
+				}
+			}
+			if (c == HyperNEATCPPNGenotype.class) {
+				writeVarLong(out, ((HyperNEATCPPNGenotype) tg).innovationID);
+			}
+		} else if (c == RealValuedGenotype.class || c == BoundedRealValuedGenotype.class) {
+			RealValuedGenotype rg = (RealValuedGenotype) o;
+			out.writeByte(c == RealValuedGenotype.class ? REAL : BOUNDED_REAL);
+			writeVarLong(out, rg.getId());
+			writeVarLong(out, rg.genes.size());
+			for (Double x : rg.genes) {
+				out.writeDouble(x);
+			}
+			if (c == BoundedRealValuedGenotype.class) {
+				BoundedRealValuedGenotype bg = (BoundedRealValuedGenotype) rg;
+				writeDoubles(out, bg.lower);
+				writeDoubles(out, bg.upper);
+				out.writeBoolean(bg.polynomialMutation);
+			}
+		} else if (c == BoundedIntegerValuedGenotype.class) {
+			BoundedIntegerValuedGenotype ig = (BoundedIntegerValuedGenotype) o;
+			out.writeByte(BOUNDED_INTEGER);
+			writeVarLong(out, ig.getId());
+			writeVarLong(out, ig.genes.size());
+			for (Integer x : ig.genes) {
+				writeVarLong(out, x);
+			}
+		} else if (c == CombinedGenotype.class) {
+			CombinedGenotype<?, ?> cg = (CombinedGenotype<?, ?>) o;
+			out.writeByte(COMBINED);
+			writeVarLong(out, cg.getId());
+			writeObject(out, cg.t1);
+			writeObject(out, cg.t2);
+		} else {
+			@SuppressWarnings("unchecked")
+			ArrayList<NodeGene> nodes = (ArrayList<NodeGene>) o;
+			out.writeByte(NODE_LIST);
+			writeNodes(out, nodes);
+		}
+	}
+
+	/**
+	 * Read one object, without a header
+	 *
+	 * @param version
+	 *            version from the header of the stream
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public static Object readObject(DataInput in, int version) throws IOException {
+		int tag = in.readByte();
+		switch (tag) {
+		case TWEANN:
+		case HYPERNEAT_CPPN: {
+			long id = readVarLong(in);
+			TWEANNGenotype tg = tag == TWEANN ? new TWEANNGenotype(id) : new HyperNEATCPPNGenotype(id);
+			tg.numIn = (int) readVarLong(in);
+			tg.numOut = (int) readVarLong(in);
+			tg.numModules = (int) readVarLong(in);
+			tg.neuronsPerModule = (int) readVarLong(in);
+			tg.archetypeIndex = (int) readVarLong(in);
+			tg.standardMultitask = in.readBoolean();
+			tg.hierarchicalMultitask = in.readBoolean();
+			tg.moduleAssociations = readInts(in);
+			tg.moduleUsage = readInts(in);
+			tg.nodes = readNodes(in);
+			int numLinks = (int) readVarLong(in);
+			if (numLinks >= 0) {
+				tg.links = new ArrayList<LinkGene>(numLinks);
+				for (int i = 0; i < numLinks; i++) {
+					tg.links.add(readLink(in));
+				}
+			}
+			if (tag == HYPERNEAT_CPPN) {
+				((HyperNEATCPPNGenotype) tg).innovationID = (int) readVarLong(in);
+			}
+			return tg;
+		}
+		case REAL:
+		case BOUNDED_REAL: {
+			long id = readVarLong(in);
+			RealValuedGenotype rg = tag == REAL ? new RealValuedGenotype(id) : new BoundedRealValuedGenotype(id);
+			int size = (int) readVarLong(in);
+			rg.genes = new ArrayList<Double>(size);
+			for (int i = 0; i < size; i++) {
+				rg.genes.add(in.readDouble());
+			}
+			if (tag == BOUNDED_REAL) {
+				BoundedRealValuedGenotype bg = (BoundedRealValuedGenotype) rg;
+				bg.lower = readDoubles(in);
+				bg.upper = readDoubles(in);
+				bg.polynomialMutation = in.readBoolean();
+			}
+			return rg;
+		}
+		case BOUNDED_INTEGER: {
+			BoundedIntegerValuedGenotype ig = new BoundedIntegerValuedGenotype(readVarLong(in));
+			int size = (int) readVarLong(in);
+			ig.genes = new ArrayList<Integer>(size);
+			for (int i = 0; i < size; i++) {
+				ig.genes.add((int) readVarLong(in));
+			}
+			return ig;
+		}
+		case COMBINED: {
+			CombinedGenotype cg = new CombinedGenotype(readVarLong(in));
+			cg.t1 = (Genotype) readObject(in, version);
+			cg.t2 = (Genotype) readObject(in, version);
+			return cg;
+		}
+		case NODE_LIST:
+			return readNodes(in);
+		default:
+			throw new IOException("Unknown binary genotype tag " + tag);
+		}
+	}
+
+	private static void writeNodes(DataOutput out, ArrayList<NodeGene> nodes) throws IOException {
+		writeVarLong(out, nodes == null ? -1 : nodes.size());
+		if (nodes != null) {
+			for (NodeGene ng : nodes) {
+				writeNode(out, ng);
+			}
+		}
+	}
+
+	private static ArrayList<NodeGene> readNodes(DataInput in) throws IOException {
+		int size = (int) readVarLong(in);
+		if (size < 0) {
+			return null;
+		}
+		ArrayList<NodeGene> nodes = new ArrayList<NodeGene>(size);
+		for (int i = 0; i < size; i++) {
+			nodes.add(readNode(in));
+		}
+		return nodes;
+	}
+
+	private static void writeNode(DataOutput out, NodeGene ng) throws IOException {
+		boolean full = ng instanceof FullNodeGene;
+		int flags = (full ? FULL : 0) | (ng.isFrozen() ? FROZEN : 0) | (ng.fromCombiningCrossover() ? FROM_COMBINING_CROSSOVER : 0);
+		out.writeByte(flags);
+		writeVarLong(out, ng.innovation);
+		writeVarLong(out, ng.ftype);
+		writeVarLong(out, ng.ntype);
+		if (full) {
+			out.writeDouble(ng.getBias());
+		}
+	}
+
+	private static NodeGene readNode(DataInput in) throws IOException {
+		int flags = in.readByte();
+		long innovation = readVarLong(in);
+		int ftype = (int) readVarLong(in);
+		int ntype = (int) readVarLong(in);
+		boolean full = (flags & FULL) != 0;
+		NodeGene ng = TWEANNGenotype.newNodeGene(full, ftype, ntype, innovation, (flags & FROZEN) != 0, full ? in.readDouble() : 0.0);
+		if ((flags & FROM_COMBINING_CROSSOVER) != 0) {
+			ng.setFromCombiningCrossover();
+		}
+		return ng;
+	}
+
+	private static void writeLink(DataOutput out, LinkGene lg) throws IOException {
+		boolean full = lg instanceof FullLinkGene;
+		// FullLinkGene.isRecurrent is not overridden, so the field is saved
+		// directly
+		boolean recurrent = full ? ((FullLinkGene) lg).recurrent : lg.isRecurrent();
+		int flags = (full ? FULL : 0) | (lg.isFrozen() ? FROZEN : 0) | (lg.isActive() ? ACTIVE : 0) | (recurrent ? RECURRENT : 0);
+		out.writeByte(flags);
+		writeVarLong(out, lg.innovation);
+		writeVarLong(out, lg.sourceInnovation);
+		writeVarLong(out, lg.targetInnovation);
+		out.writeDouble(lg.weight);
+	}
+
+	private static LinkGene readLink(DataInput in) throws IOException {
+		int flags = in.readByte();
+		long innovation = readVarLong(in);
+		long source = readVarLong(in);
+		long target = readVarLong(in);
+		double weight = in.readDouble();
+		return TWEANNGenotype.newLinkGene((flags & FULL) != 0, source, target, weight, innovation, (flags & ACTIVE) != 0,
+				(flags & RECURRENT) != 0, (flags & FROZEN) != 0);
+	}
+
+	private static void writeInts(DataOutput out, int[] xs) throws IOException {
+		writeVarLong(out, xs == null ? -1 : xs.length);
+		if (xs != null) {
+			for (int x : xs) {
+				writeVarLong(out, x);
+			}
+		}
+	}
+
+	private static int[] readInts(DataInput in) throws IOException {
+		int length = (int) readVarLong(in);
+		if (length < 0) {
+			return null;
+		}
+		int[] xs = new int[length];
+		for (int i = 0; i < length; i++) {
+			xs[i] = (int) readVarLong(in);
+		}
+		return xs;
+	}
+
+	private static void writeDoubles(DataOutput out, double[] xs) throws IOException {
+		writeVarLong(out, xs == null ? -1 : xs.length);
+		if (xs != null) {
+			for (double x : xs) {
+				out.writeDouble(x);
+			}
+		}
+	}
+
+	private static double[] readDoubles(DataInput in) throws IOException {
+		int length = (int) readVarLong(in);
+		if (length < 0) {
+			return null;
+		}
+		double[] xs = new double[length];
+		for (int i = 0; i < length; i++) {
+			xs[i] = in.readDouble();
+		}
+		return xs;
+	}
+
+	/**
+	 * Zig-zag variable length encoding: 7 bits per byte, with the high bit
+	 * set on every byte but the last
+	 */
+	public static void writeVarLong(DataOutput out, long x) throws IOException {
+		long v = (x << 1) ^ (x >> 63);
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) ((v & 0x7F) | 0x80));
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	public static long readVarLong(DataInput in) throws IOException {
+		long v = 0;
+		int shift = 0;
+		int b;
+		do {
+			if (shift > 63) {
+				throw new IOException("Malformed variable length number");
+			}
+			b = in.readByte();
+			v |= (long) (b & 0x7F) << shift;
+			shift += 7;
+		} while ((b & 0x80) != 0);
+		return (v >>> 1) ^ -(v & 1);
+	}
+}
@@ -0,0 +1,227 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.GenotypeFiles;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class BinaryGenotypeFormatTest {
+
+	@After
+	public void tearDown() throws Exception {
+		TWEANNGenotype.smallerGenotypes = false;
+		MMNEAT.clearClasses();
+		RandomNumbers.reset(0);
+	}
+
+	private static void setup(String... extra) {
+		String[] args = new String[extra.length + 3];
+		args[0] = "io:false";
+		args[1] = "netio:false";
+		args[2] = "recurrency:true";
+		System.arraycopy(extra, 0, args, 3, extra.length);
+		Parameters.initializeParameterCollections(args);
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.loadClasses();
+		RandomNumbers.reset(5);
+	}
+
+	/**
+	 * Checks that every field of two objects is the same, recursively
+	 */
+	private static void assertSameFields(Object expected, Object actual) throws IllegalAccessException {
+		if (expected == null || actual == null) {
+			assertTrue(expected == actual);
+			return;
+		}
+		assertEquals(expected.getClass(), actual.getClass());
+		Class<?> c = expected.getClass();
+		if (c.isArray()) {
+			assertEquals(Array.getLength(expected), Array.getLength(actual));
+			for (int i = 0; i < Array.getLength(expected); i++) {
+				assertSameFields(Array.get(expected, i), Array.get(actual, i));
+			}
+		} else if (expected instanceof List) {
+			assertSameFields(((List<?>) expected).toArray(), ((List<?>) actual).toArray());
+		} else if (!c.getName().startsWith("edu.utexas")) {
+			// Boxed numbers and booleans, where NaN equals NaN
+			assertEquals(expected, actual);
+		} else {
+			for (; c != null; c = c.getSuperclass()) {
+				for (Field f : c.getDeclaredFields()) {
+					if (!Modifier.isStatic(f.getModifiers())) {
+						f.setAccessible(true);
+						assertSameFields(f.get(expected), f.get(actual));
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Encodes and decodes an object, and checks that nothing about it changed
+	 * and that no genotype ids were used up
+	 */
+	private static Object roundTrip(Object o) throws IOException, IllegalAccessException {
+		assertTrue(BinaryGenotypeFormat.supports(o));
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		BinaryGenotypeFormat.write(o, out);
+		long nextId = EvolutionaryHistory.largestUnusedGenotypeId;
+		Object copy = BinaryGenotypeFormat.read(new ByteArrayInputStream(out.toByteArray()));
+		assertEquals(nextId, EvolutionaryHistory.largestUnusedGenotypeId);
+		assertSameFields(o, copy);
+		return copy;
+	}
+
+	private static TWEANNGenotype evolved() {
+		TWEANNGenotype tg = new TWEANNGenotype(5, 2, 0);
+		MMNEAT.genotype = tg.copy();
+		EvolutionaryHistory.initArchetype(0);
+		for (int i = 0; i < 30; i++) {
+			tg.mutate();
+		}
+		tg.nodes.get(6).freeze();
+		tg.links.get(0).setActive(false);
+		return tg;
+	}
+
+	@Test
+	public void testTWEANNGenotype() throws Exception {
+		setup("mmdRate:0.2");
+		TWEANNGenotype tg = evolved();
+		tg.setModuleUsage(new int[] { 3, 4 });
+		TWEANNGenotype copy = (TWEANNGenotype) roundTrip(tg);
+		assertEquals(tg.getId(), copy.getId());
+		assertEquals(tg.toString(), copy.toString());
+		// Archetypes are saved as plain lists of nodes
+		ArrayList<NodeGene> archetype = EvolutionaryHistory.archetypes[0].toArrayList();
+		roundTrip(archetype);
+		roundTrip(new ArrayList<NodeGene>());
+	}
+
+	@Test
+	public void testSmallerGenotypes() throws Exception {
+		setup();
+		TWEANNGenotype.smallerGenotypes = true;
+		TWEANNGenotype tg = evolved();
+		roundTrip(tg);
+		// Genes are restored as the kind that was saved
+		TWEANNGenotype.smallerGenotypes = false;
+		roundTrip(tg);
+	}
+
+	@Test
+	public void testHyperNEATCPPNGenotype() throws Exception {
+		setup("hyperNEAT:true", "task:edu.utexas.cs.nn.networks.hyperneat.HyperNEATDummyTask");
+		HyperNEATCPPNGenotype hcppn = new HyperNEATCPPNGenotype(4, 3, 0);
+		hcppn.mutate();
+		hcppn.innovationID = 17;
+		roundTrip(hcppn);
+	}
+
+	@Test
+	public void testNumericArrayGenotypes() throws Exception {
+		setup();
+		RealValuedGenotype real = new RealValuedGenotype(new double[] { 0.5, -1.25, Double.NaN, 1e300 });
+		roundTrip(real);
+		BoundedRealValuedGenotype bounded = new BoundedRealValuedGenotype(new double[] { -1, -2, -3 }, new double[] { 1, 2, 3 });
+		roundTrip(bounded);
+		ArrayList<Integer> genes = new ArrayList<Integer>();
+		genes.add(0);
+		genes.add(-70000);
+		genes.add(Integer.MAX_VALUE);
+		roundTrip(new BoundedIntegerValuedGenotype(genes));
+		roundTrip(new CombinedGenotype<ArrayList<Double>, ArrayList<Double>>(real, bounded));
+	}
+
+	@Test
+	public void testUnsupported() {
+		assertFalse(BinaryGenotypeFormat.supports(null));
+		assertFalse(BinaryGenotypeFormat.supports("genotype"));
+		ArrayList<Object> list = new ArrayList<Object>();
+		list.add(1);
+		assertFalse(BinaryGenotypeFormat.supports(list));
+		assertFalse(BinaryGenotypeFormat.supports(new CombinedGenotype<ArrayList<Double>, Object>(
+				new RealValuedGenotype(new double[] { 1 }), null)));
+	}
+
+	@Test
+	public void testVarLong() throws IOException {
+		long[] values = { 0, 1, -1, 63, 64, -64, -65, 1L << 35, Long.MAX_VALUE, Long.MIN_VALUE };
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		for (long x : values) {
+			BinaryGenotypeFormat.writeVarLong(out, x);
+		}
+		// Small numbers take one byte each
+		assertArrayEquals(new byte[] { 0, 2, 1 }, Arrays.copyOf(bytes.toByteArray(), 3));
+		DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+		for (long x : values) {
+			assertEquals(x, BinaryGenotypeFormat.readVarLong(in));
+		}
+		assertEquals(-1, in.read());
+	}
+
+	@Test
+	public void testGenotypeFiles() throws Exception {
+		setup("binaryGenotypes:true");
+		File dir = Files.createTempDirectory("genotypes").toFile();
+		try {
+			TWEANNGenotype tg = new TWEANNGenotype(3, 1, 0);
+			String name = dir.getPath() + "/net.xml";
+			assertEquals(dir.getPath() + "/net.bin", GenotypeFiles.save(tg, name));
+			assertTrue(GenotypeFiles.isBinary(dir.getPath() + "/net.bin"));
+			assertTrue(GenotypeFiles.exists(name));
+			assertSameFields(tg, GenotypeFiles.load(name));
+			assertSameFields(tg, GenotypeFiles.load(dir.getPath() + "/net.bin"));
+			assertNull(GenotypeFiles.load(dir.getPath() + "/other.xml"));
+
+			// An old copy in the other format is replaced
+			Files.write(new File(name).toPath(), "<object/>".getBytes());
+			GenotypeFiles.save(tg, name);
+			assertFalse(new File(name).exists());
+		} finally {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testNodeTypes() throws Exception {
+		setup();
+		ArrayList<NodeGene> nodes = new ArrayList<NodeGene>();
+		nodes.add(TWEANNGenotype.newNodeGene(1, TWEANN.Node.NTYPE_INPUT, 0));
+		nodes.add(TWEANNGenotype.newNodeGene(2, TWEANN.Node.NTYPE_OUTPUT, Long.MAX_VALUE, true, -0.25));
+		nodes.get(1).setFromCombiningCrossover();
+		ArrayList<NodeGene> copy = (ArrayList<NodeGene>) roundTrip(nodes);
+		assertTrue(copy.get(1).isFrozen());
+		assertTrue(copy.get(1).fromCombiningCrossover());
+		assertEquals(-0.25, copy.get(1).getBias(), 0);
+	}
+}
@@ -19,6 +19,15 @@ public class BoundedIntegerValuedGenotype extends NumericArrayGenotype<Integer>
 		super(genes);
 	}
 
+	/**
+	 * Restored by BinaryGenotypeFormat
+	 *
+	 * @param id ID of the saved genotype
+	 */
+	BoundedIntegerValuedGenotype(long id) {
+		super(id);
+	}
+
 	public Genotype<ArrayList<Integer>> copy() {
 		return new BoundedIntegerValuedGenotype(genes);
 	}
@@ -47,6 +47,15 @@ public class BoundedRealValuedGenotype extends RealValuedGenotype {
 		this(ArrayUtil.doubleArrayFromList(genes), lower, upper);
 	}
 
+	/**
+	 * Restored by BinaryGenotypeFormat
+	 *
+	 * @param id ID of the saved genotype
+	 */
+	BoundedRealValuedGenotype(long id) {
+		super(id);
+	}
+
 	@SuppressWarnings("unused")
 	private BoundedRealValuedGenotype(RealValuedGenotype genotype, double[] lower, double[] upper) {
 		this(genotype.genes, lower, upper);
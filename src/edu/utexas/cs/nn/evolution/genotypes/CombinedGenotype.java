@@ -14,10 +14,22 @@ import edu.utexas.cs.nn.util.datastructures.Pair;
 public class CombinedGenotype<X, Y> extends Pair<Genotype<X>, Genotype<Y>>implements Genotype<Pair<X, Y>> {
 
 	// Any newly created genotype automatically takes the next free genotype ID
-	private long id = EvolutionaryHistory.nextGenotypeId();
+	private long id;
 
 	public CombinedGenotype(Genotype<X> x, Genotype<Y> y) {
 		super(x, y);
+		this.id = EvolutionaryHistory.nextGenotypeId();
+	}
+
+	/**
+	 * Genotype with the ID of a saved genotype and no components yet, filled
+	 * in by BinaryGenotypeFormat. Does not use up a genotype ID.
+	 *
+	 * @param id ID of the saved genotype
+	 */
+	CombinedGenotype(long id) {
+		super(null, null);
+		this.id = id;
 	}
 
 	/**
@@ -1,14 +1,20 @@
 package edu.utexas.cs.nn.evolution.genotypes;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.NetworkUtil;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.networks.hyperneat.HyperNEATTask;
 import edu.utexas.cs.nn.networks.hyperneat.Substrate;
 import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.util2D.ILocated2D;
 import edu.utexas.cs.nn.util.util2D.Tuple2D;
@@ -36,6 +42,16 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 		super();
 	}
 
+	/**
+	 * Empty genotype with the ID of a saved genotype, filled in by
+	 * BinaryGenotypeFormat
+	 *
+	 * @param id ID of the saved genotype
+	 */
+	HyperNEATCPPNGenotype(long id) {
+		super(id);
+	}
+
 	/**
 	 * Used by TWEANNCrossover
 	 * 
@@ -86,14 +102,52 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 	 * Uses another CPPN to create a TWEANN controller for the domain. This
 	 * created TWEANN is unique only to the instance in which it is used. In a
 	 * sense, it's a one-and-done network, which explains the lax use of
-	 * innovation numbers
+	 * innovation numbers.
+	 *
+	 * The CPPN is only queried the first time the substrate is needed, and
+	 * the result is then kept in the SubstrateNetworkCache until this genotype
+	 * changes. Every call still returns a new, flushed network instance, so
+	 * several networks of the same individual never share their state.
 	 *
 	 * @return TWEANN generated by CPPN
 	 */
 	@Override
 	public TWEANN getPhenotype() {
-		TWEANNGenotype tg = getSubstrateGenotype((HyperNEATTask) MMNEAT.task) ;
-		return tg.getPhenotype();//return call to substrate genotype
+		return SubstrateNetworkCache.getSubstrateNetwork(this, (HyperNEATTask) MMNEAT.task);
+	}
+
+	/**
+	 * Builds a new substrate network without using the cache. If
+	 * sparseSubstrates is set, the network is written directly from CPPN
+	 * queries (see getSparseSubstrateNetwork).
+	 *
+	 * @param hnt HyperNEAT task that defines a substrate description used here
+	 * @return new substrate network generated by CPPN
+	 */
+	public TWEANN getSubstrateNetwork(HyperNEATTask hnt) {
+		CompiledTWEANN sparse = getSparseSubstrateNetwork(hnt);
+		return sparse != null ? sparse : getSubstrateGenotype(hnt).getPhenotype();
+	}
+
+	/**
+	 * If sparseSubstrates is set, builds the substrate network directly from
+	 * CPPN queries, without ever creating the substrate genotype. This is not
+	 * done when networks or substrates are being displayed, since drawing
+	 * requires the Link objects of a TWEANN, or when the CPPN cannot be
+	 * queried in batches.
+	 *
+	 * @param hnt HyperNEAT task that defines a substrate description used here
+	 * @return new sparse substrate network, or null if the substrate genotype
+	 *         has to be used instead
+	 */
+	CompiledTWEANN getSparseSubstrateNetwork(HyperNEATTask hnt) {
+		if (CommonConstants.sparseSubstrates && !CommonConstants.showNetworks && !CommonConstants.monitorSubstrates) {
+			CompiledTWEANN cppn = new CompiledTWEANN(this);
+			if (canBatchQueries(cppn)) {
+				return createSparseSubstrateNetwork(cppn, hnt);
+			}
+		}
+		return null;
 	}
 
         /**
@@ -112,7 +166,9 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 	public TWEANNGenotype getSubstrateGenotype(HyperNEATTask hnt) {
 		constructingNetwork = true; // prevent displaying of substrates
 		//long time = System.currentTimeMillis(); // for timing
-		TWEANN cppn = getCPPN();// CPPN used to create TWEANN network
+		// CPPN used to create TWEANN network
+		TWEANN cppn = CommonConstants.batchedSubstrateQueries ? new CompiledTWEANN(this) : getCPPN();
+		boolean batched = CommonConstants.batchedSubstrateQueries && canBatchQueries((CompiledTWEANN) cppn);
 		List<Substrate> subs = hnt.getSubstrateInformation();// extract substrate information from domain
 		List<Pair<String, String>> connections = hnt.getSubstrateConnectivity();// extract substrate connectivity from domain TODO this is causing no bias to be inserted into network
 		ArrayList<NodeGene> newNodes = null;
@@ -120,7 +176,7 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 		innovationID = 0;// reset each time a phenotype is generated
 		int phenotypeOutputs = 0;
 
-		newNodes = createSubstrateNodes(cppn, subs);
+		newNodes = batched ? createSubstrateNodesBatched((CompiledTWEANN) cppn, subs) : createSubstrateNodes(cppn, subs);
 		// Will map substrate names to index in subs List
 		// needs to be switched
 		HashMap<String, Integer> substrateIndexMapping = new HashMap<String, Integer>();
@@ -128,7 +184,9 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 			substrateIndexMapping.put(subs.get(i).getName(), i);
 		}
 		// loop through connections and add links, based on contents of subs
-		newLinks = createNodeLinks(cppn, connections, subs, substrateIndexMapping);
+		newLinks = batched 
+				? createNodeLinksBatched((CompiledTWEANN) cppn, connections, subs, substrateIndexMapping)
+				: createNodeLinks(cppn, connections, subs, substrateIndexMapping);
 		// Figure out number of output neurons
 		for (Substrate s : subs) {
 			if (s.getStype() == Substrate.OUTPUT_SUBSTRATE) {
@@ -161,6 +219,28 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 		return tg;
 	}
 	
+	/**
+	 * Any cached substrate network no longer matches the CPPN after mutation
+	 */
+	@Override
+	public void mutate() {
+		SubstrateNetworkCache.invalidate(this);
+		super.mutate();
+	}
+
+	/**
+	 * Crossover changes both parents in place, so neither can keep its cached
+	 * substrate network
+	 */
+	@Override
+	public Genotype<TWEANN> crossover(Genotype<TWEANN> g) {
+		SubstrateNetworkCache.invalidate(this);
+		if (g instanceof HyperNEATCPPNGenotype) {
+			SubstrateNetworkCache.invalidate((HyperNEATCPPNGenotype) g);
+		}
+		return super.crossover(g);
+	}
+
 	/**
 	 * Copies given genotype
 	 * 
@@ -313,6 +393,350 @@ public class HyperNEATCPPNGenotype extends TWEANNGenotype {
 	}
 
 
+	/**
+	 * The batched versions of createSubstrateNodes and createNodeLinks query the
+	 * CPPN for many coordinate pairs in one pass, which only gives the same
+	 * results as one query at a time if each query is independent of the ones
+	 * before it. That requires a feedforward CPPN with a single module whose
+	 * outputs are not weighted by preference fatigue.
+	 *
+	 * @param cppn compiled CPPN
+	 * @return whether batched queries give the same substrate as single queries
+	 */
+	public static boolean canBatchQueries(CompiledTWEANN cppn) {
+		return cppn.isFeedForward() && cppn.numModules() == 1 && !CommonConstants.weightedAverageModeAggregation;
+	}
+
+	/**
+	 * Same nodes as createSubstrateNodes, but the CPPN is queried for the biases
+	 * of all neurons in a substrate at once.
+	 *
+	 * @param cppn
+	 *            compiled CPPN for which canBatchQueries is true
+	 * @param subs
+	 *            list of substrates extracted from domain
+	 * @return array list of NodeGenes from substrates
+	 */
+	public ArrayList<NodeGene> createSubstrateNodesBatched(CompiledTWEANN cppn, List<Substrate> subs) {
+		double[] biases = substrateBiases(cppn, subs);
+		ArrayList<NodeGene> newNodes = new ArrayList<NodeGene>(biases.length);
+		int n = 0;
+		for (Substrate s : subs) {
+			for (int i = 0; i < s.size.t1 * s.size.t2; i++) {
+				newNodes.add(newNodeGene(CommonConstants.ftype, s.getStype(), innovationID++, false, biases[n++]));
+			}
+		}
+		return newNodes;
+	}
+
+	/**
+	 * Bias of every substrate neuron, in the order of createSubstrateNodes.
+	 * Biases of each substrate are queried in a single block.
+	 *
+	 * @param cppn
+	 *            compiled CPPN for which canBatchQueries is true
+	 * @param subs
+	 *            list of substrates extracted from domain
+	 * @return biases of all substrate neurons
+	 */
+	private static double[] substrateBiases(CompiledTWEANN cppn, List<Substrate> subs) {
+		int total = 0;
+		for (Substrate s : subs) {
+			total += s.size.t1 * s.size.t2;
+		}
+		double[] result = new double[total]; // default 0.0
+		int offset = 0;
+		for (Substrate s : subs) {
+			int count = s.size.t1 * s.size.t2;
+			// Non-input substrates can have a bias if desired
+			if (CommonConstants.evolveHyperNEATBias && s.stype != Substrate.INPUT_SUBSTRATE) {
+				double[][] inputs = new double[HyperNEATTask.NUM_CPPN_INPUTS][count];
+				int b = 0;
+				for (int y = 0; y < s.size.t2; y++) {
+					for (int x = 0; x < s.size.t1; x++) {
+						inputs[2][b] = x;
+						inputs[3][b] = y;
+						inputs[4][b] = BIAS;
+						b++;
+					}
+				}
+				double[][] activations = new double[cppn.nodes.size()][count];
+				cppn.activateBlock(inputs, count, activations);
+				System.arraycopy(activations[cppn.outputStart + biasIndex], 0, result, offset, count);
+			}
+			offset += count;
+		}
+		return result;
+	}
+
+	/**
+	 * Same links as createNodeLinks, in the same order and with the same
+	 * innovation numbers, but queried in blocks by queryLinkBlocks.
+	 *
+	 * @param cppn
+	 *            compiled CPPN for which canBatchQueries is true
+	 * @param connections
+	 *            list of different connections between substrates
+	 * @param subs
+	 *            list of substrates in question
+	 * @param sIMap
+	 *            hashmap that maps the substrate in question to its index in
+	 *            the substrate list
+	 * @return array list containing all the links between substrates
+	 */
+	public ArrayList<LinkGene> createNodeLinksBatched(CompiledTWEANN cppn, List<Pair<String, String>> connections, List<Substrate> subs, HashMap<String, Integer> sIMap) {
+		ArrayList<LinkBlock> blocks = queryLinkBlocks(cppn, connections, subs, sIMap);
+		int total = 0;
+		for (LinkBlock block : blocks) {
+			total += block.size;
+		}
+		ArrayList<LinkGene> result = new ArrayList<LinkGene>(total);
+		for (LinkBlock block : blocks) {
+			for (int k = 0; k < block.size; k++) {
+				result.add(newLinkGene(block.sources[k], block.targets[k], block.weights[k], innovationID++, false));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Builds the substrate network straight from CPPN queries, without creating
+	 * NodeGene, LinkGene or Link objects. Expressed links are written into the
+	 * compressed sparse rows of a CompiledTWEANN, indexed by substrate neuron,
+	 * in the same order a TWEANN built from getSubstrateGenotype would hold
+	 * them. The resulting network therefore has the same outputs, but its Node
+	 * objects have no Links, so it cannot be drawn.
+	 *
+	 * @param cppn
+	 *            compiled CPPN for which canBatchQueries is true
+	 * @param hnt
+	 *            HyperNEAT task that defines a substrate description used here
+	 * @return substrate network generated by the CPPN
+	 */
+	public CompiledTWEANN createSparseSubstrateNetwork(CompiledTWEANN cppn, HyperNEATTask hnt) {
+		List<Substrate> subs = hnt.getSubstrateInformation();
+		List<Pair<String, String>> connections = hnt.getSubstrateConnectivity();
+		HashMap<String, Integer> substrateIndexMapping = new HashMap<String, Integer>();
+		for (int i = 0; i < subs.size(); i++) {
+			substrateIndexMapping.put(subs.get(i).getName(), i);
+		}
+
+		double[] biases = substrateBiases(cppn, subs);
+		int size = biases.length;
+		int[] ntypes = new int[size];
+		int[] ftypes = new int[size];
+		int n = 0;
+		for (Substrate s : subs) {
+			for (int i = 0; i < s.size.t1 * s.size.t2; i++) {
+				ntypes[n] = s.getStype();
+				ftypes[n] = CommonConstants.ftype;
+				n++;
+			}
+		}
+
+		ArrayList<LinkBlock> blocks = queryLinkBlocks(cppn, connections, subs, substrateIndexMapping);
+		// Count the links out of each neuron, then place each link after the
+		// earlier links of its source
+		int[] linkStart = new int[size + 1];
+		for (LinkBlock block : blocks) {
+			for (int k = 0; k < block.size; k++) {
+				linkStart[block.sources[k] + 1]++;
+			}
+		}
+		for (int i = 0; i < size; i++) {
+			linkStart[i + 1] += linkStart[i];
+		}
+		int[] linkTarget = new int[linkStart[size]];
+		double[] linkWeight = new double[linkStart[size]];
+		int[] next = Arrays.copyOf(linkStart, size);
+		for (LinkBlock block : blocks) {
+			for (int k = 0; k < block.size; k++) {
+				int pos = next[block.sources[k]]++;
+				linkTarget[pos] = block.targets[k];
+				linkWeight[pos] = block.weights[k];
+			}
+		}
+		// Same numbering side effects as getSubstrateGenotype
+		innovationID = size + linkTarget.length;
+		return new CompiledTWEANN(EvolutionaryHistory.nextGenotypeId(), ntypes, ftypes, biases, linkStart, linkTarget, linkWeight);
+	}
+
+	/**
+	 * Queries the CPPN for all substrate links. The transformed coordinates of
+	 * each substrate neuron are computed once, and for each source neuron the
+	 * CPPN is queried for all target neurons in one block. The links from
+	 * different source neurons are independent, so if substrateQueryThreads is
+	 * more than 1 they are split into groups for about that many threads. The
+	 * groups run in the EvaluationExecutor, so the threads parameter limits
+	 * the total number of threads even when evaluations run in parallel.
+	 * Blocks are returned in the order that loopThroughLinks would create
+	 * their links.
+	 *
+	 * @param cppn
+	 *            compiled CPPN for which canBatchQueries is true
+	 * @param connections
+	 *            list of different connections between substrates
+	 * @param subs
+	 *            list of substrates in question
+	 * @param sIMap
+	 *            hashmap that maps the substrate in question to its index in
+	 *            the substrate list
+	 * @return expressed links in order
+	 */
+	private static ArrayList<LinkBlock> queryLinkBlocks(final CompiledTWEANN cppn, List<Pair<String, String>> connections, List<Substrate> subs, HashMap<String, Integer> sIMap) {
+		final SubstrateCoordinates[] coordinates = new SubstrateCoordinates[subs.size()];
+		for (int i = 0; i < subs.size(); i++) {
+			coordinates[i] = new SubstrateCoordinates(subs, i);
+		}
+		// Each connection is split into groups of source neurons, so that large
+		// connections can still be shared among the threads
+		ArrayList<Callable<LinkBlock>> queries = new ArrayList<Callable<LinkBlock>>();
+		for (int i = 0; i < connections.size(); i++) {
+			final int outputIndex = i;
+			final SubstrateCoordinates source = coordinates[sIMap.get(connections.get(i).t1)];
+			final SubstrateCoordinates target = coordinates[sIMap.get(connections.get(i).t2)];
+			int groupSize = Math.max(1, source.alive.length / (QUERY_GROUPS_PER_THREAD * CommonConstants.substrateQueryThreads));
+			for (int start = 0; start < source.alive.length; start += groupSize) {
+				final int from = start;
+				final int to = Math.min(start + groupSize, source.alive.length);
+				queries.add(new Callable<LinkBlock>() {
+					@Override
+					public LinkBlock call() {
+						return queryConnectionLinks(cppn, outputIndex, source, target, from, to);
+					}
+				});
+			}
+		}
+
+		ArrayList<LinkBlock> result = new ArrayList<LinkBlock>(queries.size());
+		try {
+			if (CommonConstants.substrateQueryThreads > 1 && queries.size() > 1) {
+				result.addAll(EvaluationExecutor.invokeAll(queries));
+			} else {
+				for (Callable<LinkBlock> query : queries) {
+					result.add(query.call());
+				}
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			System.out.println("Failure querying CPPN for substrate links");
+			System.exit(1);
+		}
+		return result;
+	}
+
+	/**
+	 * Links expressed from a range of living source neurons to a substrate, in
+	 * the order loopThroughLinks would create them.
+	 */
+	private static LinkBlock queryConnectionLinks(CompiledTWEANN cppn, int outputIndex, SubstrateCoordinates s1, SubstrateCoordinates s2, int from, int to) {
+		int count = s2.alive.length;
+		LinkBlock links = new LinkBlock(count);
+		if (count == 0) {
+			return links;
+		}
+		double[][] inputs = new double[HyperNEATTask.NUM_CPPN_INPUTS][count];
+		for (int b = 0; b < count; b++) {
+			inputs[2][b] = s2.x[s2.alive[b]];
+			inputs[3][b] = s2.y[s2.alive[b]];
+		}
+		Arrays.fill(inputs[4], BIAS);
+		double[][] activations = new double[cppn.nodes.size()][count];
+		double[] linkOutputs = activations[cppn.outputStart + (numCPPNOutputsPerLayerPair * outputIndex) + LINK_INDEX];
+		double[] leoOutputs = activations[cppn.outputStart + (numCPPNOutputsPerLayerPair * outputIndex) + leoIndex];
+
+		for (int a = from; a < to; a++) {
+			int source = s1.alive[a];
+			Arrays.fill(inputs[0], s1.x[source]);
+			Arrays.fill(inputs[1], s1.y[source]);
+			cppn.activateBlock(inputs, count, activations);
+			for (int b = 0; b < count; b++) {
+				boolean expressLink = CommonConstants.leo
+						? leoOutputs[b] > CommonConstants.linkExpressionThreshold
+						: Math.abs(linkOutputs[b]) > CommonConstants.linkExpressionThreshold;
+				if (expressLink) {
+					double weight = CommonConstants.leo ? linkOutputs[b] : NetworkUtil.calculateWeight(linkOutputs[b]);
+					links.add(s1.ids[source], s2.ids[s2.alive[b]], weight);
+				}
+			}
+		}
+		return links;
+	}
+
+	/**
+	 * Expressed links stored in parallel arrays instead of LinkGene objects.
+	 * Sources and targets are substrate neuron indexes, which are also the
+	 * innovation numbers of the substrate nodes.
+	 */
+	private static class LinkBlock {
+		int size = 0;
+		int[] sources;
+		int[] targets;
+		double[] weights;
+
+		LinkBlock(int capacity) {
+			sources = new int[capacity];
+			targets = new int[capacity];
+			weights = new double[capacity];
+		}
+
+		void add(int source, int target, double weight) {
+			if (size == sources.length) {
+				int capacity = Math.max(4, 2 * size);
+				sources = Arrays.copyOf(sources, capacity);
+				targets = Arrays.copyOf(targets, capacity);
+				weights = Arrays.copyOf(weights, capacity);
+			}
+			sources[size] = source;
+			targets[size] = target;
+			weights[size] = weight;
+			size++;
+		}
+	}
+
+	/**
+	 * CPPN coordinates and innovation numbers of every neuron in a substrate,
+	 * indexed by X * height + Y to match the loop order of loopThroughLinks.
+	 */
+	private static class SubstrateCoordinates {
+		final double[] x;
+		final double[] y;
+		final int[] ids;
+		// Indexes of neurons that are not dead
+		final int[] alive;
+
+		SubstrateCoordinates(List<Substrate> subs, int sIndex) {
+			Substrate s = subs.get(sIndex);
+			int width = s.size.t1;
+			int height = s.size.t2;
+			int offset = 0;
+			for (int i = 0; i < sIndex; i++) {
+				offset += subs.get(i).size.t1 * subs.get(i).size.t2;
+			}
+			x = new double[width * height];
+			y = new double[width * height];
+			ids = new int[width * height];
+			int[] living = new int[width * height];
+			int numAlive = 0;
+			for (int X = 0; X < width; X++) {
+				for (int Y = 0; Y < height; Y++) {
+					int index = X * height + Y;
+					ILocated2D scaled = MMNEAT.substrateMapping.transformCoordinates(new Tuple2D(X, Y), width, height);
+					x[index] = scaled.getX();
+					y[index] = scaled.getY();
+					ids[index] = offset + (width * Y) + X;
+					if (!s.isNeuronDead(X, Y)) {
+						living[numAlive++] = index;
+					}
+				}
+			}
+			alive = Arrays.copyOf(living, numAlive);
+		}
+	}
+
+	// More groups than threads keeps threads busy when groups take different times
+	private static final int QUERY_GROUPS_PER_THREAD = 4;
+
 	/**
 	 * Given the substrate coordinates and sizes that a particular link is supposed to connect,
 	 * determine the index it should be located at in the cached link gene list.
@@ -13,6 +13,7 @@ import org.junit.Test;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.NetworkUtil;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.networks.TWEANN.Node;
@@ -24,6 +25,7 @@ import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
 import edu.utexas.cs.nn.util.MiscUtil;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.datastructures.Triple;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
 import edu.utexas.cs.nn.util.util2D.ILocated2D;
 import edu.utexas.cs.nn.util.util2D.Tuple2D;
 
@@ -126,6 +128,131 @@ public class HyperNEATCPPNGenotypeTest {
 		assertTrue(!hcppn.getPhenotype().equals(hcppn.getCPPN()));
 	}
 
+	/**
+	 * Repeated calls to getPhenotype only query the CPPN once until it
+	 * changes, but every call returns a separate flushed network
+	 */
+	@Test
+	public void testPhenotypeCache() {
+		HyperNEATTask task = (HyperNEATTask) MMNEAT.task;
+		TWEANN t = hcppn.getPhenotype();
+		long misses = SubstrateNetworkCache.misses();
+		double[] inputs = RandomNumbers.randomArray(t.numInputs());
+		double[] first = t.process(inputs);
+		t.process(inputs);
+		// A different instance that does not share the state of the first
+		TWEANN second = hcppn.getPhenotype();
+		assertNotSame(t, second);
+		assertNotSame(t.getModuleUsage(), second.getModuleUsage());
+		assertEquals(misses, SubstrateNetworkCache.misses());
+		assertArrayEquals(first, second.process(inputs), 0.0);
+		assertArrayEquals(first, hcppn.getSubstrateGenotype(task).getPhenotype().process(inputs), 0.0);
+
+		// Changing the CPPN forces a new substrate network
+		for (int i = 0; i < 10; i++) {
+			hcppn.mutate();
+		}
+		TWEANN mutated = hcppn.getPhenotype();
+		assertEquals(misses + 1, SubstrateNetworkCache.misses());
+		assertArrayEquals(hcppn.getSubstrateGenotype(task).getPhenotype().process(inputs), mutated.process(inputs), 0.0);
+
+		// Changes made without mutate are still noticed
+		hcppn.links.get(0).weight += 1;
+		hcppn.getPhenotype();
+		assertEquals(misses + 2, SubstrateNetworkCache.misses());
+	}
+
+	/**
+	 * Mutated CPPN that can be queried in batches. Even without recurrency,
+	 * mutation can add a link back to an earlier node, so some CPPNs cannot be.
+	 */
+	private HyperNEATCPPNGenotype batchableCPPN() {
+		while (true) {
+			HyperNEATCPPNGenotype result = new HyperNEATCPPNGenotype();
+			for (int i = 0; i < 20; i++) {
+				result.mutate();
+			}
+			if (HyperNEATCPPNGenotype.canBatchQueries(new CompiledTWEANN(result))) {
+				return result;
+			}
+		}
+	}
+
+	/**
+	 * Batched CPPN queries, including parallel ones, generate exactly the same
+	 * substrate genotype as querying one coordinate pair at a time
+	 */
+	@Test
+	public void testBatchedSubstrateQueries() {
+		MMNEAT.clearClasses();
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "recurrency:false", "hyperNEAT:true", 
+				"task:edu.utexas.cs.nn.networks.hyperneat.HyperNEATDummyTask", "evolveHyperNEATBias:true", "linkExpressionThreshold:0.1"});
+		MMNEAT.loadClasses();
+		HyperNEATTask task = (HyperNEATTask) MMNEAT.task;
+		hcppn = batchableCPPN();
+		TWEANNGenotype single = hcppn.getSubstrateGenotype(task);
+		CommonConstants.batchedSubstrateQueries = true;
+		CommonConstants.substrateQueryThreads = 3;
+		TWEANNGenotype batched = hcppn.getSubstrateGenotype(task);
+		CommonConstants.batchedSubstrateQueries = false;
+		CommonConstants.substrateQueryThreads = 1;
+
+		assertEquals(single.nodes.size(), batched.nodes.size());
+		for (int i = 0; i < single.nodes.size(); i++) {
+			assertEquals(single.nodes.get(i).innovation, batched.nodes.get(i).innovation);
+			assertEquals(single.nodes.get(i).ntype, batched.nodes.get(i).ntype);
+			assertEquals(single.nodes.get(i).getBias(), batched.nodes.get(i).getBias(), 0.0);
+		}
+		assertTrue(single.links.size() > 0);
+		assertEquals(single.links.size(), batched.links.size());
+		for (int i = 0; i < single.links.size(); i++) {
+			LinkGene expected = single.links.get(i);
+			LinkGene actual = batched.links.get(i);
+			assertEquals(expected.innovation, actual.innovation);
+			assertEquals(expected.sourceInnovation, actual.sourceInnovation);
+			assertEquals(expected.targetInnovation, actual.targetInnovation);
+			assertEquals(expected.weight, actual.weight, 0.0);
+		}
+	}
+
+	/**
+	 * A substrate network written directly from CPPN queries behaves exactly
+	 * like one built from the substrate genotype
+	 */
+	@Test
+	public void testSparseSubstrateNetwork() {
+		MMNEAT.clearClasses();
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "recurrency:false", "hyperNEAT:true", 
+				"task:edu.utexas.cs.nn.networks.hyperneat.HyperNEATDummyTask", "evolveHyperNEATBias:true", "linkExpressionThreshold:0.1"});
+		MMNEAT.loadClasses();
+		HyperNEATTask task = (HyperNEATTask) MMNEAT.task;
+		hcppn = batchableCPPN();
+		TWEANNGenotype tg = hcppn.getSubstrateGenotype(task);
+		TWEANN expected = tg.getPhenotype();
+		CommonConstants.sparseSubstrates = true;
+		TWEANN sparse = hcppn.getSubstrateNetwork(task);
+		// Cached sparse networks are copies with separate state
+		TWEANN cached = hcppn.getPhenotype();
+		TWEANN copy = hcppn.getPhenotype();
+		CommonConstants.sparseSubstrates = false;
+		assertTrue(cached instanceof CompiledTWEANN);
+		assertNotSame(cached, copy);
+
+		assertTrue(sparse instanceof CompiledTWEANN);
+		assertEquals(tg.links.size(), ((CompiledTWEANN) sparse).numLinks());
+		assertEquals(expected.numInputs(), sparse.numInputs());
+		assertEquals(expected.numOutputs(), sparse.numOutputs());
+		assertEquals(expected.nodes.size(), sparse.nodes.size());
+		for (int i = 0; i < 10; i++) {
+			double[] inputs = RandomNumbers.randomArray(expected.numInputs());
+			double[] outputs = expected.process(inputs);
+			assertArrayEquals(outputs, sparse.process(inputs), 0.0);
+			assertArrayEquals(outputs, cached.process(inputs), 0.0);
+		}
+		assertArrayEquals(expected.getModuleUsage(), cached.getModuleUsage());
+		assertEquals(0, copy.getModuleUsage()[0]);
+	}
+
 	/**
 	 * Tests that the hash mapping is correct
 	 */
@@ -16,20 +16,32 @@ import java.util.ArrayList;
 public abstract class NumericArrayGenotype<T> implements Genotype<ArrayList<T>> {
 
 	ArrayList<T> genes;
-	private long id = EvolutionaryHistory.nextGenotypeId();
+	private long id;
 
 	@SuppressWarnings("unchecked")
 	public NumericArrayGenotype(ArrayList<T> genes) {
+		this.id = EvolutionaryHistory.nextGenotypeId();
 		this.genes = (ArrayList<T>) genes.clone();
 	}
 
 	public NumericArrayGenotype(T[] genes) {
+		this.id = EvolutionaryHistory.nextGenotypeId();
 		this.genes = new ArrayList<T>(genes.length);
 		for (int i = 0; i < genes.length; i++) {
 			this.genes.add(genes[i]);
 		}
 	}
 
+	/**
+	 * Genotype with the ID of a saved genotype and no genes yet, filled in by
+	 * BinaryGenotypeFormat. Does not use up a genotype ID.
+	 *
+	 * @param id ID of the saved genotype
+	 */
+	NumericArrayGenotype(long id) {
+		this.id = id;
+	}
+
 	public void setValue(int pos, T value) {
 		genes.set(pos, value);
 	}
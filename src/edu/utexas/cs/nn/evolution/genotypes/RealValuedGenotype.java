@@ -23,6 +23,15 @@ public class RealValuedGenotype extends NumericArrayGenotype<Double> {
 		this(RandomNumbers.randomArray(size));
 	}
 
+	/**
+	 * Restored by BinaryGenotypeFormat
+	 *
+	 * @param id ID of the saved genotype
+	 */
+	RealValuedGenotype(long id) {
+		super(id);
+	}
+
 	public Genotype<ArrayList<Double>> copy() {
 		return new RealValuedGenotype(genes);
 	}
@@ -0,0 +1,245 @@
+package edu.utexas.cs.nn.evolution.genotypes;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.networks.hyperneat.HyperNEATTask;
+import edu.utexas.cs.nn.networks.hyperneat.Substrate;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+
+/**
+ * Holds the substrates that HyperNEAT CPPNs have already generated, so that
+ * repeated calls to getPhenotype on the same individual only query the CPPN
+ * once.
+ *
+ * What is stored is the substrate genotype, or the compiled arrays of a
+ * sparse substrate network. Each lookup builds a new network instance from
+ * these, which takes time proportional to the size of the substrate network
+ * instead of one CPPN query per possible link. Every caller therefore gets
+ * its own network, with its own recurrent state, module usage and preference
+ * fatigue, even when several networks of one individual are used at once, or
+ * different threads evaluate the same individual.
+ *
+ * Entries are stored by genotype id, but an entry is only used if the genes of
+ * the CPPN and the substrate layout of the task (along with the parameters
+ * that affect substrate generation) are exactly the same as when it was made.
+ * Stale entries can therefore never be returned, even if a CPPN is changed
+ * without going through mutate or crossover. Mutation and crossover still
+ * remove the entries of the genotypes they change, so memory is not wasted on
+ * them.
+ *
+ * The cache is bounded by the total number of links in the cached substrates
+ * (substrateCacheLinks), and the least recently used entries are evicted
+ * first. It is kept outside of the genotypes so that it is never serialized
+ * along with them.
+ */
+public class SubstrateNetworkCache {
+
+	/**
+	 * Cached substrate for a single CPPN. Neither the substrate genotype nor
+	 * the compiled arrays are ever changed once stored.
+	 */
+	private static class Entry {
+		final long[] cppnGenes;
+		final List<Object> layout;
+		// Exactly one of these is set
+		final TWEANNGenotype substrateGenotype;
+		final CompiledTWEANN sparseNetwork;
+		final int numLinks;
+
+		Entry(long[] cppnGenes, List<Object> layout, TWEANNGenotype substrateGenotype, CompiledTWEANN sparseNetwork) {
+			this.cppnGenes = cppnGenes;
+			this.layout = layout;
+			this.substrateGenotype = substrateGenotype;
+			this.sparseNetwork = sparseNetwork;
+			this.numLinks = sparseNetwork != null ? sparseNetwork.numLinks() : substrateGenotype.links.size();
+		}
+
+		int weight() {
+			return numLinks;
+		}
+
+		/**
+		 * The network is built directly instead of with getPhenotype, which
+		 * would change the module usage of the shared substrate genotype.
+		 *
+		 * @return new flushed substrate network
+		 */
+		TWEANN newNetwork() {
+			if (sparseNetwork != null) {
+				return sparseNetwork.copy();
+			}
+			return CommonConstants.compiledTWEANNs ? new CompiledTWEANN(substrateGenotype) : new TWEANN(substrateGenotype);
+		}
+	}
+
+	// Access order, so iteration starts at the least recently used entry
+	private static final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<Long, Entry>(16, 0.75f, true);
+	private static long cachedLinks = 0;
+	private static long hits = 0;
+	private static long misses = 0;
+
+	/**
+	 * New substrate network for the CPPN and task. The CPPN is only queried
+	 * if its substrate is not already in the cache.
+	 *
+	 * @param cppn
+	 *            HyperNEAT CPPN genotype
+	 * @param hnt
+	 *            task defining the substrate layout
+	 * @return new flushed substrate network
+	 */
+	public static TWEANN getSubstrateNetwork(HyperNEATCPPNGenotype cppn, HyperNEATTask hnt) {
+		return lookup(cppn, hnt).newNetwork();
+	}
+
+	private static Entry lookup(HyperNEATCPPNGenotype cppn, HyperNEATTask hnt) {
+		long[] genes = cppnGenes(cppn);
+		List<Object> layout = layout(hnt);
+		long id = cppn.getId();
+		synchronized (SubstrateNetworkCache.class) {
+			Entry entry = entries.get(id);
+			if (entry != null && Arrays.equals(entry.cppnGenes, genes) && entry.layout.equals(layout)) {
+				hits++;
+				return entry;
+			}
+			misses++;
+		}
+		// Substrates of different individuals can be built in parallel
+		CompiledTWEANN sparse = cppn.getSparseSubstrateNetwork(hnt);
+		Entry entry = new Entry(genes, layout, sparse == null ? cppn.getSubstrateGenotype(hnt) : null, sparse);
+		store(id, entry);
+		return entry;
+	}
+
+	private static synchronized void store(long id, Entry entry) {
+		long bound = Parameters.parameters.integerParameter("substrateCacheLinks");
+		Entry old = entries.remove(id);
+		if (old != null) {
+			cachedLinks -= old.weight();
+		}
+		if (bound <= 0 || entry.weight() > bound) {
+			return; // Too big to cache at all
+		}
+		Iterator<Map.Entry<Long, Entry>> it = entries.entrySet().iterator();
+		while (cachedLinks + entry.weight() > bound && it.hasNext()) {
+			cachedLinks -= it.next().getValue().weight();
+			it.remove();
+		}
+		entries.put(id, entry);
+		cachedLinks += entry.weight();
+	}
+
+	/**
+	 * Remove any substrate cached for the genotype, because it has changed.
+	 *
+	 * @param cppn
+	 *            CPPN genotype that was changed
+	 */
+	public static synchronized void invalidate(HyperNEATCPPNGenotype cppn) {
+		Entry old = entries.remove(cppn.getId());
+		if (old != null) {
+			cachedLinks -= old.weight();
+		}
+	}
+
+	/**
+	 * Empty the whole cache
+	 */
+	public static synchronized void clear() {
+		entries.clear();
+		cachedLinks = 0;
+		hits = 0;
+		misses = 0;
+	}
+
+	/**
+	 * @return number of lookups answered from the cache
+	 */
+	public static synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups that required building a substrate
+	 */
+	public static synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * @return total number of links in all cached substrate networks
+	 */
+	public static synchronized long cachedLinks() {
+		return cachedLinks;
+	}
+
+	/**
+	 * Every value of every CPPN gene, so that two CPPNs generate the same
+	 * substrate if their arrays are equal.
+	 *
+	 * @param cppn
+	 *            CPPN genotype
+	 * @return gene values
+	 */
+	private static long[] cppnGenes(HyperNEATCPPNGenotype cppn) {
+		long[] result = new long[2 + 4 * cppn.nodes.size() + 5 * cppn.links.size()];
+		int i = 0;
+		result[i++] = cppn.nodes.size();
+		result[i++] = cppn.links.size();
+		for (NodeGene ng : cppn.nodes) {
+			result[i++] = ng.innovation;
+			result[i++] = ng.ftype;
+			result[i++] = ng.ntype;
+			result[i++] = Double.doubleToLongBits(ng.getBias());
+		}
+		for (LinkGene lg : cppn.links) {
+			result[i++] = lg.innovation;
+			result[i++] = lg.sourceInnovation;
+			result[i++] = lg.targetInnovation;
+			result[i++] = Double.doubleToLongBits(lg.weight);
+			result[i++] = (lg.isActive() ? 1 : 0) + (lg.isRecurrent() ? 2 : 0);
+		}
+		return result;
+	}
+
+	/**
+	 * Everything about the task and settings that determines the shape of the
+	 * substrate network a CPPN generates.
+	 *
+	 * @param hnt
+	 *            task defining the substrate layout
+	 * @return list that is equal for equal layouts
+	 */
+	private static List<Object> layout(HyperNEATTask hnt) {
+		List<Substrate> subs = hnt.getSubstrateInformation();
+		List<Object> result = new ArrayList<Object>(5 * subs.size() + 8);
+		for (Substrate s : subs) {
+			result.add(s.name);
+			result.add(s.size);
+			result.add(s.stype);
+			result.add(s.subLocation);
+			result.add(s.deadNeurons == null ? null : new HashSet<Object>(s.deadNeurons));
+		}
+		result.add(new ArrayList<Object>(hnt.getSubstrateConnectivity()));
+		result.add(MMNEAT.substrateMapping == null ? null : MMNEAT.substrateMapping.getClass());
+		result.add(CommonConstants.ftype);
+		result.add(CommonConstants.leo);
+		result.add(CommonConstants.linkExpressionThreshold);
+		result.add(CommonConstants.evolveHyperNEATBias);
+		result.add(CommonConstants.compiledTWEANNs);
+		result.add(CommonConstants.sparseSubstrates);
+		return result;
+	}
+}
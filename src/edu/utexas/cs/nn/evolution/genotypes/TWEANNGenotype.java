@@ -7,6 +7,7 @@ import edu.utexas.cs.nn.evolution.nsga2.bd.characterizations.GeneralNetworkChara
 import edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition.TWEANNModulesNicheDefinition;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.networks.ActivationFunctions;
+import edu.utexas.cs.nn.networks.CompiledTWEANN;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
@@ -350,6 +351,19 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
                 ? new NodeGene(ftype, ntype, innovation)
                 : new FullNodeGene(ftype, ntype, innovation, frozen, bias);
     }
+
+    // Used by BinaryGenotypeFormat, which restores the kind of gene that was
+    // saved no matter what smallerGenotypes is set to.
+
+    static NodeGene newNodeGene(boolean full, int ftype, int ntype, long innovation, boolean frozen, double bias) {
+        return full ? new FullNodeGene(ftype, ntype, innovation, frozen, bias) : new NodeGene(ftype, ntype, innovation);
+    }
+
+    static LinkGene newLinkGene(boolean full, long sourceInnovation, long targetInnovation, double weight, long innovation, boolean active, boolean recurrent, boolean frozen) {
+        return full
+                ? new FullLinkGene(sourceInnovation, targetInnovation, weight, innovation, active, recurrent, frozen)
+                : new LinkGene(sourceInnovation, targetInnovation, weight, innovation);
+    }
     
     /**
      * If there is a forward link from node A to node B, then node A must appear
@@ -371,7 +385,10 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
     // multitask mode
     public int[] moduleAssociations;
     protected int[] moduleUsage;
-    private long id = EvolutionaryHistory.nextGenotypeId();
+    // Module usage of phenotypes built by trials running in parallel, which
+    // leave their genotypes alone (see startTrialModuleUsage)
+    private static final ThreadLocal<IdentityHashMap<TWEANNGenotype, int[]>> trialModuleUsage = new ThreadLocal<IdentityHashMap<TWEANNGenotype, int[]>>();
+    private long id;
     public int archetypeIndex;
 
     /**
@@ -399,6 +416,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     public TWEANNGenotype(ArrayList<NodeGene> nodes, ArrayList<LinkGene> links, int neuronsPerModule,
             boolean standardMultitask, boolean hierarchicalMultitask, int archetypeIndex) {
+        this.id = EvolutionaryHistory.nextGenotypeId();
         this.archetypeIndex = archetypeIndex;
         this.nodes = nodes;
         this.links = links;
@@ -469,6 +487,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      * @param tweann The network to make a genotype for
      */
     public TWEANNGenotype(TWEANN tweann) {
+        id = EvolutionaryHistory.nextGenotypeId();
         archetypeIndex = tweann.archetypeIndex;
         numIn = tweann.numInputs();
         numOut = tweann.numOutputs();
@@ -496,6 +515,16 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
         }
     }
 
+    /**
+     * Empty genotype with the ID of a saved genotype, filled in by
+     * BinaryGenotypeFormat. Does not use up a genotype ID.
+     *
+     * @param id ID of the saved genotype
+     */
+    TWEANNGenotype(long id) {
+        this.id = id;
+    }
+
     /**
      * New TWEANN Genotype, used by ClassCreation to get first example of run.
      * Assume only one population by default, hence archetype index of 0.
@@ -721,7 +750,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      * @return The link deleted
      */
     public LinkGene deleteLinkMutation() {
-        return deleteLink(RandomNumbers.randomGenerator.nextInt(links.size()));
+        return deleteLink(RandomNumbers.generator().nextInt(links.size()));
     }
 
     /**
@@ -739,7 +768,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     public void deleteRandomModeMutation() {
         if (numModules > 1) {
-            deleteMode(RandomNumbers.randomGenerator.nextInt(numModules));
+            deleteMode(RandomNumbers.generator().nextInt(numModules));
         }
     }
 
@@ -823,7 +852,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     public void allWeightMutation(RandomGenerator rand, double rate) {
         for (LinkGene l : links) {
-            if (!l.isFrozen() && RandomNumbers.randomGenerator.nextDouble() < rate) {
+            if (!l.isFrozen() && RandomNumbers.generator().nextDouble() < rate) {
                 perturbLink(l, rand.randomOutput());
             }
         }
@@ -862,7 +891,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
             System.out.println("No links to choose from. All are frozen!");
             System.exit(1);
         }
-        return indicies.get(RandomNumbers.randomGenerator.nextInt(indicies.size()));
+        return indicies.get(RandomNumbers.generator().nextInt(indicies.size()));
     }
 
     /**
@@ -902,9 +931,53 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
         lg.weight = w;
     }
 
+    /**
+     * Assign module usage to this genotype, unless the calling thread is in a
+     * trial started with startTrialModuleUsage, in which case the usage is
+     * held for the trial instead.
+     */
     @Override
     public void setModuleUsage(int[] usage) {
-        moduleUsage = usage;
+        IdentityHashMap<TWEANNGenotype, int[]> trialUsage = trialModuleUsage.get();
+        if (trialUsage == null) {
+            moduleUsage = usage;
+        } else {
+            trialUsage.put(this, usage);
+        }
+    }
+
+    /**
+     * Phenotypes built on the calling thread stop assigning their module usage
+     * to their genotypes until endTrialModuleUsage is called. Trials of the
+     * same genotype that run in parallel would otherwise all assign usage to
+     * it, so the usage it ends up with would depend on which trial finished
+     * last. Instead, the usage of each trial is assigned in trial order with
+     * assignTrialModuleUsage.
+     */
+    public static void startTrialModuleUsage() {
+        trialModuleUsage.set(new IdentityHashMap<TWEANNGenotype, int[]>());
+    }
+
+    /**
+     * @return latest module usage of each genotype since startTrialModuleUsage
+     *         was called on this thread
+     */
+    public static Map<TWEANNGenotype, int[]> endTrialModuleUsage() {
+        IdentityHashMap<TWEANNGenotype, int[]> result = trialModuleUsage.get();
+        trialModuleUsage.remove();
+        return result;
+    }
+
+    /**
+     * Assign module usage held for a trial to the genotypes, as if the trial
+     * had been run alone.
+     *
+     * @param usage result of endTrialModuleUsage
+     */
+    public static void assignTrialModuleUsage(Map<TWEANNGenotype, int[]> usage) {
+        for (Map.Entry<TWEANNGenotype, int[]> entry : usage.entrySet()) {
+            entry.getKey().setModuleUsage(entry.getValue());
+        }
     }
 
     @Override
@@ -957,7 +1030,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     private long getRandomLinkSourceNodeInnovationNumber() {
         return nodes.get(
-                RandomNumbers.randomGenerator.nextInt(nodes.size() + (CommonConstants.recurrency ? 0 : -1))).innovation;
+                RandomNumbers.generator().nextInt(nodes.size() + (CommonConstants.recurrency ? 0 : -1))).innovation;
     }
 
     /**
@@ -966,7 +1039,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      * @return any node innovation that is not an output node
      */
     private long getRandomNonOutputNodeInnovationNumber() {
-        return nodes.get(RandomNumbers.randomGenerator.nextInt(outputStartIndex())).innovation;
+        return nodes.get(RandomNumbers.generator().nextInt(outputStartIndex())).innovation;
     }
 
     /**
@@ -1029,7 +1102,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
             }
         }
         Long[] options = new Long[sourceInnovationNumbers.size()];
-        return sourceInnovationNumbers.toArray(options)[RandomNumbers.randomGenerator.nextInt(sourceInnovationNumbers.size())];
+        return sourceInnovationNumbers.toArray(options)[RandomNumbers.generator().nextInt(sourceInnovationNumbers.size())];
     }
 
     /**
@@ -1254,15 +1327,16 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
     }
 
     /**
-     * Generate and return phenotype TWEANN from genotype
+     * Generate and return phenotype TWEANN from genotype. If compiledTWEANNs
+     * is set, the TWEANN evaluates through flat arrays (see CompiledTWEANN).
      *
      * @return executable TWEANN
      */
     @Override
     public TWEANN getPhenotype() {
-        TWEANN result = new TWEANN(this);
+        TWEANN result = CommonConstants.compiledTWEANNs ? new CompiledTWEANN(this) : new TWEANN(this);
         // This is the point where old parent module usage is finally erased
-        this.moduleUsage = result.moduleUsage;
+        setModuleUsage(result.moduleUsage);
         return result;
     }
 
@@ -1274,12 +1348,14 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      */
     @Override
     public Genotype<TWEANN> copy() {
-        int[] temp = moduleUsage;
-        TWEANNGenotype result = new TWEANNGenotype(this.getPhenotype());
-        // Module usage is erased by getPhenotype(), so it is restored here
-        moduleUsage = temp;
-        result.moduleUsage = new int[temp.length];
-        System.arraycopy(this.moduleUsage, 0, result.moduleUsage, 0, moduleUsage.length);
+        // The network is built directly instead of with getPhenotype(), which
+        // would erase the module usage of this genotype. Copying therefore never
+        // modifies the parent, so several children can copy it in parallel.
+        // Only the genes are needed, so the network is never compiled.
+        TWEANNGenotype result = new TWEANNGenotype(new TWEANN(this));
+        int[] usage = this.moduleUsage;
+        result.moduleUsage = new int[usage.length];
+        System.arraycopy(usage, 0, result.moduleUsage, 0, usage.length);
         return result;
     }
 
@@ -1402,7 +1478,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
      * randomly duplicates a module in the network
      */
     public void moduleDuplication() {
-        int module = RandomNumbers.randomGenerator.nextInt(this.numModules);
+        int module = RandomNumbers.generator().nextInt(this.numModules);
         duplicateModule(module);
     }
 
@@ -1468,7 +1544,7 @@ public class TWEANNGenotype implements NetworkGenotype<TWEANN> {
                 + desiredPreferenceLoc + ",nodes.size()=" + nodes.size() + ",neuronsPerModule=" + neuronsPerModule
                 + ",outputStart=" + outputStart;
         // Node that will link into the new preference neuron
-        long randomSourceInnovation = nodes.get(RandomNumbers.randomGenerator.nextInt(outputStart)).innovation;
+        long randomSourceInnovation = nodes.get(RandomNumbers.generator().nextInt(outputStart)).innovation;
         // Last mode?
         long newNodeInnovation;
         if (desiredPreferenceLoc == nodes.size()) {
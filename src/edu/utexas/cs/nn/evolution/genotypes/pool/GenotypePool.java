@@ -3,6 +3,7 @@ package edu.utexas.cs.nn.evolution.genotypes.pool;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.file.XMLFilter;
 
 import java.io.File;
@@ -34,6 +35,11 @@ public class GenotypePool<T extends Network> {
 		return pools.get(pool).getMember(slot);
 	}
 
+	@SuppressWarnings("unchecked")
+	public static <T extends Network> T getMemberPhenotype(int pool, int slot) {
+		return (T) pools.get(pool).getMemberPhenotype(slot);
+	}
+
 	/**
 	 * Number of genotype pools to draw from
 	 * 
@@ -78,6 +84,9 @@ public class GenotypePool<T extends Network> {
 			for (int i = 0; i < pool.length; i++) {
 				pool[i] = directory + "/" + pool[i];
 			}
+			if (Parameters.parameters.booleanParameter("warmSubnetworkPools")) {
+				SubnetworkCache.warmUp(pool);
+			}
 		}
 	}
 
@@ -93,6 +102,18 @@ public class GenotypePool<T extends Network> {
 		return EvolutionaryHistory.getSubnetwork(pool[x]);
 	}
 
+	/**
+	 * Network of the genotype stored at a particular index, which belongs to
+	 * the current thread and is reused by later calls from it
+	 * 
+	 * @param x
+	 *            index in genotype pool of desired filename
+	 * @return flushed network
+	 */
+	public T getMemberPhenotype(int x) {
+		return SubnetworkCache.phenotype(pool[x]);
+	}
+
 	/**
 	 * Size of this genotype pool
 	 * 
@@ -0,0 +1,219 @@
+package edu.utexas.cs.nn.evolution.genotypes.pool;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import edu.utexas.cs.nn.data.GenotypeFiles;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.datastructures.Pair;
+
+/**
+ * Holds the subnetworks that hierarchical, blueprint and subtask tasks load
+ * from files, so that a subnetwork used over and over is only loaded once.
+ * Genotypes are stored by file name, and the networks built from them are
+ * stored by file name and thread, since every evaluation thread needs its own
+ * network to activate.
+ *
+ * The cache is bounded by the total number of genes in the cached genotypes
+ * and networks (subnetworkCacheGenes), and the least recently used entries
+ * are evicted first. An evicted subnetwork is simply loaded again the next
+ * time it is needed. Files are loaded outside of the lock, so several
+ * threads can load different subnetworks at the same time, and warmUp loads
+ * a whole pool of subnetworks in parallel.
+ */
+public class SubnetworkCache {
+
+	/**
+	 * Cached genotype or network
+	 */
+	private static class Entry {
+		final Object value;
+		final int genes;
+
+		Entry(Object value, int genes) {
+			this.value = value;
+			this.genes = genes;
+		}
+	}
+
+	// Access order, so iteration starts at the least recently used entry
+	private static final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<Object, Entry>(16, 0.75f, true);
+	private static long cachedGenes = 0;
+	private static long hits = 0;
+	private static long misses = 0;
+	private static long evictions = 0;
+
+	/**
+	 * The genotype saved in a file. The result is shared, so it must not be
+	 * changed: use getSubnetwork in EvolutionaryHistory for a copy.
+	 *
+	 * @param <T>
+	 *            phenotype of the genotype
+	 * @param file
+	 *            name of the genotype file
+	 * @return genotype loaded from the file
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Network> Genotype<T> genotype(String file) {
+		Entry entry = get(file);
+		if (entry == null) {
+			System.out.println("Added to subnetworks: " + file);
+			Genotype<T> loaded = (Genotype<T>) GenotypeFiles.load(file);
+			entry = new Entry(loaded, genes(loaded));
+			store(file, entry);
+		}
+		return (Genotype<T>) entry.value;
+	}
+
+	/**
+	 * Network of the genotype saved in a file, which belongs to the current
+	 * thread, so repeated calls from the same thread return the same network
+	 * instance. The returned network is flushed.
+	 *
+	 * @param <T>
+	 *            phenotype of the genotype
+	 * @param file
+	 *            name of the genotype file
+	 * @return flushed network
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T extends Network> T phenotype(String file) {
+		Object key = new Pair<String, Long>(file, Thread.currentThread().getId());
+		Entry entry = get(key);
+		if (entry == null) {
+			Genotype<T> g = genotype(file);
+			// Building a network changes the module usage of its genotype
+			entry = new Entry(g.copy().getPhenotype(), genes(g));
+			store(key, entry);
+		}
+		T result = (T) entry.value;
+		result.flush();
+		return result;
+	}
+
+	private static synchronized Entry get(Object key) {
+		Entry entry = entries.get(key);
+		if (entry != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return entry;
+	}
+
+	private static synchronized void store(Object key, Entry entry) {
+		long bound = Parameters.parameters.integerParameter("subnetworkCacheGenes");
+		Entry old = entries.remove(key);
+		if (old != null) {
+			cachedGenes -= old.genes;
+		}
+		if (bound <= 0 || entry.genes > bound) {
+			return; // Too big to cache at all
+		}
+		Iterator<Map.Entry<Object, Entry>> it = entries.entrySet().iterator();
+		while (cachedGenes + entry.genes > bound && it.hasNext()) {
+			cachedGenes -= it.next().getValue().genes;
+			it.remove();
+			evictions++;
+		}
+		entries.put(key, entry);
+		cachedGenes += entry.genes;
+	}
+
+	/**
+	 * Load the genotypes of several files in parallel, so that they do not
+	 * have to be loaded one at a time during evaluation. Files that are
+	 * already cached are not loaded again.
+	 *
+	 * @param files
+	 *            names of genotype files
+	 */
+	public static void warmUp(String[] files) {
+		ArrayList<Future<Genotype<Network>>> futures = new ArrayList<Future<Genotype<Network>>>(files.length);
+		for (final String file : files) {
+			futures.add(EvaluationExecutor.submit(new Callable<Genotype<Network>>() {
+				@Override
+				public Genotype<Network> call() {
+					return genotype(file);
+				}
+			}));
+		}
+		for (Future<Genotype<Network>> f : futures) {
+			try {
+				f.get();
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not load subnetworks");
+				System.exit(1);
+			}
+		}
+	}
+
+	/**
+	 * Size of a genotype, used to bound the cache
+	 */
+	private static int genes(Genotype<?> g) {
+		if (g instanceof TWEANNGenotype) {
+			TWEANNGenotype tg = (TWEANNGenotype) g;
+			return tg.nodes.size() + tg.links.size();
+		}
+		return 1;
+	}
+
+	/**
+	 * Empty the whole cache
+	 */
+	public static synchronized void clear() {
+		entries.clear();
+		cachedGenes = 0;
+		hits = 0;
+		misses = 0;
+		evictions = 0;
+	}
+
+	/**
+	 * @return number of lookups answered from the cache
+	 */
+	public static synchronized long hits() {
+		return hits;
+	}
+
+	/**
+	 * @return number of lookups that required loading a file or building a
+	 *         network
+	 */
+	public static synchronized long misses() {
+		return misses;
+	}
+
+	/**
+	 * @return number of entries removed to make room for others
+	 */
+	public static synchronized long evictions() {
+		return evictions;
+	}
+
+	/**
+	 * @return total number of genes in all cached genotypes and networks
+	 */
+	public static synchronized long cachedGenes() {
+		return cachedGenes;
+	}
+
+	/**
+	 * @return summary of how well the cache worked
+	 */
+	public static synchronized String report() {
+		return "Subnetwork cache: " + hits + " hits, " + misses + " misses, " + evictions + " evictions, "
+				+ entries.size() + " entries with " + cachedGenes + " genes";
+	}
+}
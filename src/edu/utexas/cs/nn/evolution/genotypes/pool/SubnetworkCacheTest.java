@@ -0,0 +1,158 @@
+package edu.utexas.cs.nn.evolution.genotypes.pool;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.GenotypeFiles;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class SubnetworkCacheTest {
+
+	private static final int NETWORKS = 5;
+
+	private File dir;
+	private String[] files;
+
+	private void setup(String... extra) throws IOException {
+		String[] args = new String[extra.length + 4];
+		args[0] = "io:false";
+		args[1] = "netio:false";
+		args[2] = "recurrency:false";
+		args[3] = "binaryGenotypes:true";
+		System.arraycopy(extra, 0, args, 4, extra.length);
+		Parameters.initializeParameterCollections(args);
+		EvolutionaryHistory.setInnovation(0);
+		EvolutionaryHistory.setHighestGenotypeId(0);
+		MMNEAT.loadClasses();
+		RandomNumbers.reset(2);
+		MMNEAT.genotype = new TWEANNGenotype(4, 2, 0);
+		EvolutionaryHistory.initArchetype(0);
+		SubnetworkCache.clear();
+		dir = Files.createTempDirectory("subnetworks").toFile();
+		files = new String[NETWORKS];
+		for (int i = 0; i < NETWORKS; i++) {
+			TWEANNGenotype tg = new TWEANNGenotype(4, 2, 0);
+			for (int j = 0; j < i; j++) {
+				tg.mutate();
+			}
+			files[i] = GenotypeFiles.save(tg, dir.getPath() + "/net" + i + ".xml");
+		}
+	}
+
+	@Before
+	public void setUp() {
+		dir = null;
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		SubnetworkCache.clear();
+		if (dir != null) {
+			for (File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+		MMNEAT.clearClasses();
+		RandomNumbers.reset(0);
+	}
+
+	@Test
+	public void testLoadedOnce() throws IOException {
+		setup();
+		Genotype<TWEANN> first = EvolutionaryHistory.getSubnetwork(files[3]);
+		Genotype<TWEANN> second = EvolutionaryHistory.getSubnetwork(files[3]);
+		assertEquals(1, SubnetworkCache.misses());
+		assertEquals(1, SubnetworkCache.hits());
+		// Every caller gets its own copy
+		assertNotSame(first, second);
+		assertEquals(((TWEANNGenotype) first).nodes.size(), ((TWEANNGenotype) second).nodes.size());
+		assertEquals(((TWEANNGenotype) first).links.size(), ((TWEANNGenotype) second).links.size());
+		assertNull(EvolutionaryHistory.getSubnetwork(""));
+	}
+
+	@Test
+	public void testPhenotypePerThread() throws Exception {
+		setup();
+		TWEANN net = SubnetworkCache.phenotype(files[2]);
+		assertSame(net, SubnetworkCache.phenotype(files[2]));
+		assertEquals(4, net.numInputs());
+		TWEANN other = EvaluationExecutor.submit(new Callable<TWEANN>() {
+			@Override
+			public TWEANN call() {
+				return SubnetworkCache.phenotype(files[2]);
+			}
+		}).get();
+		assertNotSame(net, other);
+		EvaluationExecutor.shutdown();
+	}
+
+	@Test
+	public void testBounded() throws IOException {
+		setup("subnetworkCacheGenes:40");
+		for (int round = 0; round < 3; round++) {
+			for (String file : files) {
+				EvolutionaryHistory.getSubnetwork(file);
+				assertTrue(SubnetworkCache.cachedGenes() <= 40);
+			}
+		}
+		assertTrue(SubnetworkCache.evictions() > 0);
+		// The most recently used genotype is still there
+		long misses = SubnetworkCache.misses();
+		EvolutionaryHistory.getSubnetwork(files[NETWORKS - 1]);
+		assertEquals(misses, SubnetworkCache.misses());
+	}
+
+	@Test
+	public void testDisabled() throws IOException {
+		setup("subnetworkCacheGenes:0");
+		EvolutionaryHistory.getSubnetwork(files[0]);
+		EvolutionaryHistory.getSubnetwork(files[0]);
+		assertEquals(2, SubnetworkCache.misses());
+		assertEquals(0, SubnetworkCache.cachedGenes());
+	}
+
+	@Test
+	public void testWarmUpAndConcurrentUse() throws Exception {
+		setup("threads:4");
+		SubnetworkCache.warmUp(files);
+		assertEquals(NETWORKS, SubnetworkCache.misses());
+		List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 100; i++) {
+			final String file = files[i % NETWORKS];
+			futures.add(EvaluationExecutor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return ((TWEANNGenotype) EvolutionaryHistory.<TWEANN> getSubnetwork(file)).links.size();
+				}
+			}));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			// Compared with a copy, like the ones getSubnetwork returns
+			TWEANNGenotype saved = (TWEANNGenotype) ((TWEANNGenotype) GenotypeFiles.load(files[i % NETWORKS])).copy();
+			assertEquals(saved.links.size(), (int) futures.get(i).get());
+		}
+		// Nothing was loaded again
+		assertEquals(NETWORKS, SubnetworkCache.misses());
+		assertEquals(100, SubnetworkCache.hits());
+		EvaluationExecutor.shutdown();
+	}
+}
@@ -0,0 +1,604 @@
+package edu.utexas.cs.nn.evolution.lineage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import edu.utexas.cs.nn.util.datastructures.LongIntHashMap;
+
+/**
+ * Everything known about the offspring of a run, stored in primitive arrays
+ * rather than one object per offspring. Each offspring is a row holding its
+ * id, parents and the generation it was born in, and rows are found by id
+ * with a hash index. Each time an offspring was evaluated adds a score
+ * entry, holding the generation and one score per objective, and the
+ * entries of each row are chained in the order they were added. Mutation
+ * names are stored once and referred to by number.
+ *
+ * Rows and entries of a generation are found with offsets into arrays sorted
+ * by generation, which are built the first time they are needed after a
+ * change. The whole store can be saved to a file and loaded again much
+ * faster than the logs it was built from can be parsed.
+ */
+public class LineageStore {
+
+	// "MMLS"
+	private static final int MAGIC = 0x4D4D4C53;
+	private static final int VERSION = 1;
+
+	// Rows
+	private int rows = 0;
+	private long[] ids = new long[16];
+	private long[] parent1 = new long[16];
+	private long[] parent2 = new long[16];
+	private int[] generation = new int[16];
+	private int[] firstEntry = new int[16];
+	private int[] lastEntry = new int[16];
+	private int[] firstMutation = new int[16];
+	private int[] lastMutation = new int[16];
+	private int[] networkGeneration = new int[16];
+	private int[] networkWithinGen = new int[16];
+	private LongIntHashMap rowOfId = new LongIntHashMap(16);
+	private long maxId = -1;
+
+	// Score entries, with scores[objective][entry]
+	private int entries = 0;
+	private int objectives = -1;
+	private int[] entryRow = new int[16];
+	private int[] entryGeneration = new int[16];
+	private int[] nextEntry = new int[16];
+	private double[][] scores = new double[0][];
+	// First entry of each row in each generation, by rowGeneration
+	private LongIntHashMap entryOfRowGeneration = new LongIntHashMap(16);
+
+	// Mutations, with names[mutationName[m]] as the name of mutation m
+	private int mutations = 0;
+	private int[] mutationName = new int[16];
+	private int[] nextMutation = new int[16];
+	private final ArrayList<String> names = new ArrayList<String>();
+	private final HashMap<String, Integer> nameCodes = new HashMap<String, Integer>();
+
+	// Prefix of the files of networks, from which their names are built
+	private String networkPrefix = null;
+
+	// Generation offsets, built when first needed
+	private int minGeneration;
+	private int[] rowsByGeneration = null;
+	private int[] rowGenerationStart = null;
+	private int[] entriesByGeneration = null;
+	private int[] entryGenerationStart = null;
+
+	/**
+	 * Number of generations in the logs the store was built from
+	 */
+	public int generations = 0;
+	/**
+	 * Whether scores of children that were not selected were added
+	 */
+	public boolean includesChildren = false;
+
+	/**
+	 * @return number of offspring
+	 */
+	public int size() {
+		return rows;
+	}
+
+	/**
+	 * @return highest offspring id, or -1 if there are none
+	 */
+	public long maxId() {
+		return maxId;
+	}
+
+	/**
+	 * @param id
+	 *            offspring id
+	 * @return row of the offspring, or -1 if there is none
+	 */
+	public int row(long id) {
+		return rowOfId.get(id);
+	}
+
+	public long id(int row) {
+		return ids[row];
+	}
+
+	public long parent1(int row) {
+		return parent1[row];
+	}
+
+	public long parent2(int row) {
+		return parent2[row];
+	}
+
+	/**
+	 * @return generation in which the offspring was born, or -1 if unknown
+	 */
+	public int generation(int row) {
+		return generation[row];
+	}
+
+	/**
+	 * Add an offspring
+	 *
+	 * @param id
+	 *            offspring id
+	 * @param p1
+	 *            id of first parent, or -1
+	 * @param p2
+	 *            id of second parent, or -1
+	 * @param gen
+	 *            generation in which the offspring was born
+	 * @return row of the offspring
+	 */
+	public int addOffspring(long id, long p1, long p2, int gen) {
+		if (row(id) != -1) {
+			throw new IllegalArgumentException("Offspring " + id + " is already in the lineage");
+		}
+		if (rows == ids.length) {
+			int capacity = 2 * rows;
+			ids = Arrays.copyOf(ids, capacity);
+			parent1 = Arrays.copyOf(parent1, capacity);
+			parent2 = Arrays.copyOf(parent2, capacity);
+			generation = Arrays.copyOf(generation, capacity);
+			firstEntry = Arrays.copyOf(firstEntry, capacity);
+			lastEntry = Arrays.copyOf(lastEntry, capacity);
+			firstMutation = Arrays.copyOf(firstMutation, capacity);
+			lastMutation = Arrays.copyOf(lastMutation, capacity);
+			networkGeneration = Arrays.copyOf(networkGeneration, capacity);
+			networkWithinGen = Arrays.copyOf(networkWithinGen, capacity);
+		}
+		int row = rows++;
+		ids[row] = id;
+		parent1[row] = p1;
+		parent2[row] = p2;
+		generation[row] = gen;
+		firstEntry[row] = -1;
+		lastEntry[row] = -1;
+		firstMutation[row] = -1;
+		lastMutation[row] = -1;
+		networkGeneration[row] = -1;
+		networkWithinGen[row] = -1;
+		rowOfId.put(id, row);
+		maxId = Math.max(maxId, id);
+		rowsByGeneration = null;
+		return row;
+	}
+
+	/**
+	 * Add the scores of an evaluation. Offspring that are not in the store
+	 * yet are added without parents or a generation.
+	 *
+	 * @param id
+	 *            offspring id
+	 * @param s
+	 *            one score per objective
+	 * @param gen
+	 *            generation of the evaluation
+	 */
+	public void addScores(long id, double[] s, int gen) {
+		int row = row(id);
+		if (row == -1) {
+			row = addOffspring(id, -1, -1, -1);
+		}
+		if (objectives == -1) {
+			objectives = s.length;
+			scores = new double[objectives][entryRow.length];
+		} else if (s.length != objectives) {
+			throw new IllegalArgumentException("Offspring " + id + " has " + s.length + " scores instead of " + objectives);
+		}
+		if (entries == entryRow.length) {
+			int capacity = 2 * entries;
+			entryRow = Arrays.copyOf(entryRow, capacity);
+			entryGeneration = Arrays.copyOf(entryGeneration, capacity);
+			nextEntry = Arrays.copyOf(nextEntry, capacity);
+			for (int i = 0; i < objectives; i++) {
+				scores[i] = Arrays.copyOf(scores[i], capacity);
+			}
+		}
+		int entry = entries++;
+		entryRow[entry] = row;
+		entryGeneration[entry] = gen;
+		nextEntry[entry] = -1;
+		for (int i = 0; i < objectives; i++) {
+			scores[i][entry] = s[i];
+		}
+		if (firstEntry[row] == -1) {
+			firstEntry[row] = entry;
+		} else {
+			nextEntry[lastEntry[row]] = entry;
+		}
+		lastEntry[row] = entry;
+		long key = rowGeneration(row, gen);
+		if (!entryOfRowGeneration.containsKey(key)) {
+			entryOfRowGeneration.put(key, entry);
+		}
+		rowsByGeneration = null;
+	}
+
+	private static long rowGeneration(int row, int gen) {
+		return ((long) row << 32) | (gen & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Add a mutation of an offspring that is in the store
+	 *
+	 * @param id
+	 *            offspring id
+	 * @param name
+	 *            name of mutation
+	 */
+	public void addMutation(long id, String name) {
+		int row = row(id);
+		if (row == -1) {
+			return; // Mutation of an offspring that was never logged
+		}
+		Integer code = nameCodes.get(name);
+		if (code == null) {
+			code = names.size();
+			names.add(name);
+			nameCodes.put(name, code);
+		}
+		if (mutations == mutationName.length) {
+			mutationName = Arrays.copyOf(mutationName, 2 * mutations);
+			nextMutation = Arrays.copyOf(nextMutation, 2 * mutations);
+		}
+		int m = mutations++;
+		mutationName[m] = code;
+		nextMutation[m] = -1;
+		if (firstMutation[row] == -1) {
+			firstMutation[row] = m;
+		} else {
+			nextMutation[lastMutation[row]] = m;
+		}
+		lastMutation[row] = m;
+	}
+
+	/**
+	 * @return names of the mutations of an offspring, in order
+	 */
+	public ArrayList<String> mutations(int row) {
+		ArrayList<String> result = new ArrayList<String>();
+		for (int m = firstMutation[row]; m != -1; m = nextMutation[m]) {
+			result.add(names.get(mutationName[m]));
+		}
+		return result;
+	}
+
+	/**
+	 * Record where the network of an offspring was saved
+	 *
+	 * @param id
+	 *            offspring id
+	 * @param prefix
+	 *            prefix of network files
+	 * @param gen
+	 *            generation the network was saved in
+	 * @param withinGen
+	 *            position of the network within its generation
+	 */
+	public void setNetwork(long id, String prefix, int gen, int withinGen) {
+		int row = row(id);
+		networkPrefix = prefix;
+		networkGeneration[row] = gen;
+		networkWithinGen[row] = withinGen;
+	}
+
+	/**
+	 * @return prefix of network files, or null if no network was recorded
+	 */
+	public String networkPrefix() {
+		return networkPrefix;
+	}
+
+	/**
+	 * @return generation the network of an offspring was last saved in, or
+	 *         -1 if it was never saved
+	 */
+	public int networkGeneration(int row) {
+		return networkGeneration[row];
+	}
+
+	/**
+	 * @return position of the network of an offspring within its generation
+	 */
+	public int networkWithinGen(int row) {
+		return networkWithinGen[row];
+	}
+
+	/**
+	 * @return number of objectives, or -1 if there are no scores
+	 */
+	public int objectives() {
+		return objectives;
+	}
+
+	/**
+	 * @return number of score entries
+	 */
+	public int entries() {
+		return entries;
+	}
+
+	/**
+	 * @return first score entry of an offspring, or -1 if it has none
+	 */
+	public int firstEntry(int row) {
+		return firstEntry[row];
+	}
+
+	/**
+	 * @return next score entry of the same offspring, or -1 if there is none
+	 */
+	public int nextEntry(int entry) {
+		return nextEntry[entry];
+	}
+
+	/**
+	 * @return first score entry of an offspring in a generation, or -1 if it
+	 *         was not evaluated in that generation
+	 */
+	public int entry(int row, int gen) {
+		return entryOfRowGeneration.get(rowGeneration(row, gen));
+	}
+
+	public int entryRow(int entry) {
+		return entryRow[entry];
+	}
+
+	public int entryGeneration(int entry) {
+		return entryGeneration[entry];
+	}
+
+	public double score(int entry, int objective) {
+		return scores[objective][entry];
+	}
+
+	/**
+	 * @return scores of one objective, indexed by entry. Only the first
+	 *         entries() values are used.
+	 */
+	public double[] scores(int objective) {
+		return scores[objective];
+	}
+
+	/**
+	 * Sort rows and entries by generation. Rows of a generation are sorted
+	 * by id, and entries of a generation are in the order they were added.
+	 */
+	private void indexGenerations() {
+		if (rowsByGeneration != null) {
+			return;
+		}
+		int min = 0, max = -1;
+		for (int r = 0; r < rows; r++) {
+			min = Math.min(min, generation[r]);
+			max = Math.max(max, generation[r]);
+		}
+		for (int e = 0; e < entries; e++) {
+			min = Math.min(min, entryGeneration[e]);
+			max = Math.max(max, entryGeneration[e]);
+		}
+		minGeneration = min;
+		int span = max - min + 1;
+		long[] sortedIds = Arrays.copyOf(ids, rows);
+		Arrays.sort(sortedIds);
+		int[] byId = new int[rows];
+		for (int i = 0; i < rows; i++) {
+			byId[i] = row(sortedIds[i]);
+		}
+		rowGenerationStart = new int[span + 1];
+		for (int r = 0; r < rows; r++) {
+			rowGenerationStart[generation[r] - min + 1]++;
+		}
+		entryGenerationStart = new int[span + 1];
+		for (int e = 0; e < entries; e++) {
+			entryGenerationStart[entryGeneration[e] - min + 1]++;
+		}
+		for (int g = 0; g < span; g++) {
+			rowGenerationStart[g + 1] += rowGenerationStart[g];
+			entryGenerationStart[g + 1] += entryGenerationStart[g];
+		}
+		int[] next = Arrays.copyOf(rowGenerationStart, span);
+		int[] sortedRows = new int[rows];
+		for (int row : byId) {
+			sortedRows[next[generation[row] - min]++] = row;
+		}
+		next = Arrays.copyOf(entryGenerationStart, span);
+		entriesByGeneration = new int[entries];
+		for (int e = 0; e < entries; e++) {
+			entriesByGeneration[next[entryGeneration[e] - min]++] = e;
+		}
+		rowsByGeneration = sortedRows;
+	}
+
+	/**
+	 * @return rows of the offspring born in a generation, sorted by id
+	 */
+	public int[] rowsOfGeneration(int gen) {
+		indexGenerations();
+		int g = gen - minGeneration;
+		if (g < 0 || g + 1 >= rowGenerationStart.length) {
+			return new int[0];
+		}
+		return Arrays.copyOfRange(rowsByGeneration, rowGenerationStart[g], rowGenerationStart[g + 1]);
+	}
+
+	/**
+	 * @return score entries of evaluations in a generation, in the order they
+	 *         were added
+	 */
+	public int[] entriesOfGeneration(int gen) {
+		indexGenerations();
+		int g = gen - minGeneration;
+		if (g < 0 || g + 1 >= entryGenerationStart.length) {
+			return new int[0];
+		}
+		return Arrays.copyOfRange(entriesByGeneration, entryGenerationStart[g], entryGenerationStart[g + 1]);
+	}
+
+	/**
+	 * Rows of an offspring and all of its ancestors that are in the store
+	 *
+	 * @param row
+	 *            row of the offspring
+	 * @return rows of the offspring and its ancestors, sorted by id
+	 */
+	public int[] ancestors(int row) {
+		boolean[] seen = new boolean[rows];
+		int[] stack = new int[rows];
+		int top = 0, count = 0;
+		stack[top++] = row;
+		seen[row] = true;
+		long[] found = new long[rows];
+		while (top > 0) {
+			int r = stack[--top];
+			found[count++] = ids[r];
+			for (long parent : new long[] { parent1[r], parent2[r] }) {
+				int p = parent == -1 ? -1 : row(parent);
+				if (p != -1 && !seen[p]) {
+					seen[p] = true;
+					stack[top++] = p;
+				}
+			}
+		}
+		found = Arrays.copyOf(found, count);
+		Arrays.sort(found);
+		int[] result = new int[count];
+		for (int i = 0; i < count; i++) {
+			result[i] = row(found[i]);
+		}
+		return result;
+	}
+
+	/**
+	 * Write the store to a file
+	 *
+	 * @param file
+	 *            file to write
+	 * @throws IOException
+	 *             if the file cannot be written
+	 */
+	public void save(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(generations);
+			out.writeBoolean(includesChildren);
+			out.writeBoolean(networkPrefix != null);
+			if (networkPrefix != null) {
+				out.writeUTF(networkPrefix);
+			}
+			out.writeInt(rows);
+			for (int r = 0; r < rows; r++) {
+				out.writeLong(ids[r]);
+				out.writeLong(parent1[r]);
+				out.writeLong(parent2[r]);
+				out.writeInt(generation[r]);
+				out.writeInt(networkGeneration[r]);
+				out.writeInt(networkWithinGen[r]);
+			}
+			out.writeInt(objectives);
+			out.writeInt(entries);
+			for (int e = 0; e < entries; e++) {
+				out.writeInt(entryRow[e]);
+				out.writeInt(entryGeneration[e]);
+			}
+			for (int i = 0; i < objectives; i++) {
+				for (int e = 0; e < entries; e++) {
+					out.writeDouble(scores[i][e]);
+				}
+			}
+			out.writeInt(names.size());
+			for (String name : names) {
+				out.writeUTF(name);
+			}
+			// Mutations in row order, so they are chained again when loaded
+			out.writeInt(mutations);
+			for (int r = 0; r < rows; r++) {
+				for (int m = firstMutation[r]; m != -1; m = nextMutation[m]) {
+					out.writeInt(r);
+					out.writeInt(mutationName[m]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Read a store written by save
+	 *
+	 * @param file
+	 *            file to read
+	 * @return the store
+	 * @throws IOException
+	 *             if the file cannot be read or is not a saved store
+	 */
+	public static LineageStore load(File file) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not a saved lineage");
+			}
+			LineageStore store = new LineageStore();
+			store.generations = in.readInt();
+			store.includesChildren = in.readBoolean();
+			String prefix = in.readBoolean() ? in.readUTF() : null;
+			int rows = in.readInt();
+			for (int r = 0; r < rows; r++) {
+				long id = in.readLong();
+				store.addOffspring(id, in.readLong(), in.readLong(), in.readInt());
+				int gen = in.readInt();
+				int withinGen = in.readInt();
+				if (gen != -1) {
+					store.setNetwork(id, prefix, gen, withinGen);
+				}
+			}
+			int objectives = in.readInt();
+			int entries = in.readInt();
+			int[] rowOfEntry = new int[entries];
+			int[] genOfEntry = new int[entries];
+			for (int e = 0; e < entries; e++) {
+				rowOfEntry[e] = in.readInt();
+				genOfEntry[e] = in.readInt();
+			}
+			double[][] values = new double[Math.max(objectives, 0)][entries];
+			for (int i = 0; i < objectives; i++) {
+				for (int e = 0; e < entries; e++) {
+					values[i][e] = in.readDouble();
+				}
+			}
+			double[] s = new double[Math.max(objectives, 0)];
+			for (int e = 0; e < entries; e++) {
+				for (int i = 0; i < objectives; i++) {
+					s[i] = values[i][e];
+				}
+				store.addScores(store.ids[rowOfEntry[e]], s, genOfEntry[e]);
+			}
+			int names = in.readInt();
+			String[] name = new String[names];
+			for (int i = 0; i < names; i++) {
+				name[i] = in.readUTF();
+			}
+			int mutations = in.readInt();
+			for (int m = 0; m < mutations; m++) {
+				int row = in.readInt();
+				store.addMutation(store.ids[row], name[in.readInt()]);
+			}
+			return store;
+		} finally {
+			in.close();
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package edu.utexas.cs.nn.evolution.lineage;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class LineageStoreTest {
+
+	/**
+	 * Lineage of three generations: 0, 1 and 2 are initial, 3 = 0 X 1,
+	 * 4 = 1, 5 = 3 X 4 and 6 = 3. Offspring are added out of id order, and
+	 * the parents of each generation are evaluated again.
+	 */
+	private static LineageStore lineage() {
+		LineageStore store = new LineageStore();
+		store.addOffspring(2, -1, -1, 0);
+		store.addOffspring(0, -1, -1, 0);
+		store.addOffspring(1, -1, -1, 0);
+		store.addOffspring(4, 1, -1, 1);
+		store.addOffspring(3, 0, 1, 1);
+		store.addOffspring(6, 3, -1, 2);
+		store.addOffspring(5, 3, 4, 2);
+		for (long id = 0; id < 3; id++) {
+			store.addScores(id, new double[] { id, -id }, 0);
+		}
+		store.addScores(0, new double[] { 0, 0 }, 1);
+		store.addScores(1, new double[] { 1, -1 }, 1);
+		store.addScores(3, new double[] { 5, 0 }, 1);
+		store.addScores(4, new double[] { 2, 1 }, 1);
+		store.addScores(3, new double[] { 5.5, 0 }, 2);
+		store.addScores(4, new double[] { 2, 1 }, 2);
+		store.addScores(5, new double[] { 4, 2 }, 2);
+		store.addScores(6, new double[] { 7, -3 }, 2);
+		store.addMutation(3, "NewLinkMutation");
+		store.addMutation(5, "SpliceNeuronMutation");
+		store.addMutation(3, "WeightPerturbationMutation");
+		store.setNetwork(3, "base/run0/log0_", 1, 1);
+		store.setNetwork(3, "base/run0/log0_", 2, 0);
+		return store;
+	}
+
+	private static long[] ids(LineageStore store, int[] rows) {
+		long[] result = new long[rows.length];
+		for (int i = 0; i < rows.length; i++) {
+			result[i] = store.id(rows[i]);
+		}
+		return result;
+	}
+
+	@Test
+	public void testQueries() {
+		LineageStore store = lineage();
+		assertEquals(7, store.size());
+		assertEquals(6, store.maxId());
+		assertEquals(-1, store.row(7));
+		int row = store.row(5);
+		assertEquals(3, store.parent1(row));
+		assertEquals(4, store.parent2(row));
+		assertEquals(2, store.generation(row));
+
+		assertArrayEquals(new long[] { 0, 1, 2 }, ids(store, store.rowsOfGeneration(0)));
+		assertArrayEquals(new long[] { 3, 4 }, ids(store, store.rowsOfGeneration(1)));
+		assertArrayEquals(new long[] { 5, 6 }, ids(store, store.rowsOfGeneration(2)));
+		assertEquals(0, store.rowsOfGeneration(3).length);
+		assertEquals(4, store.entriesOfGeneration(1).length);
+
+		row = store.row(3);
+		assertEquals(5.0, store.score(store.entry(row, 1), 0), 0);
+		assertEquals(5.5, store.score(store.entry(row, 2), 0), 0);
+		assertEquals(-1, store.entry(row, 0));
+		assertEquals(Arrays.asList("NewLinkMutation", "WeightPerturbationMutation"), store.mutations(row));
+		// The last network saved is kept
+		assertEquals(2, store.networkGeneration(row));
+		assertEquals(0, store.networkWithinGen(row));
+		assertEquals(-1, store.networkGeneration(store.row(4)));
+
+		assertArrayEquals(new long[] { 0, 1, 3, 4, 5 }, ids(store, store.ancestors(store.row(5))));
+
+		// Scores of an unknown offspring add it without a generation
+		store.addScores(9, new double[] { 0, 0 }, 2);
+		assertEquals(-1, store.generation(store.row(9)));
+		assertArrayEquals(new long[] { 9 }, ids(store, store.rowsOfGeneration(-1)));
+		assertEquals(5, store.entriesOfGeneration(2).length);
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		LineageStore store = lineage();
+		store.generations = 3;
+		store.includesChildren = true;
+		File file = File.createTempFile("lineage", ".bin");
+		try {
+			store.save(file);
+			LineageStore loaded = LineageStore.load(file);
+			assertEquals(3, loaded.generations);
+			assertTrue(loaded.includesChildren);
+			assertEquals(store.size(), loaded.size());
+			assertEquals(store.entries(), loaded.entries());
+			assertEquals(store.networkPrefix(), loaded.networkPrefix());
+			for (int r = 0; r < store.size(); r++) {
+				int row = loaded.row(store.id(r));
+				assertEquals(store.parent1(r), loaded.parent1(row));
+				assertEquals(store.parent2(r), loaded.parent2(row));
+				assertEquals(store.generation(r), loaded.generation(row));
+				assertEquals(store.mutations(r), loaded.mutations(row));
+				assertEquals(store.networkGeneration(r), loaded.networkGeneration(row));
+				assertEquals(store.networkWithinGen(r), loaded.networkWithinGen(row));
+				for (int gen = 0; gen < 3; gen++) {
+					int entry = store.entry(r, gen);
+					int loadedEntry = loaded.entry(row, gen);
+					assertEquals(entry == -1, loadedEntry == -1);
+					for (int i = 0; entry != -1 && i < store.objectives(); i++) {
+						assertEquals(store.score(entry, i), loaded.score(loadedEntry, i), 0);
+					}
+				}
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testOffspringQueries() {
+		Offspring.reset();
+		Offspring.store = lineage();
+		assertEquals(7, Offspring.size());
+		assertNull(Offspring.get(7));
+		Offspring o = Offspring.get(3);
+		assertSame(o, Offspring.get(3));
+		assertEquals(Arrays.asList(1, 2), o.correspondingGenerations);
+		assertEquals(Arrays.asList(5.5, 0.0), o.scores.get(1));
+		assertEquals("base/run0/gen2/log0_gen2_0.xml", o.xmlNetwork);
+
+		assertEquals(2, Offspring.lastGeneration());
+		ArrayList<Offspring> os = Offspring.offspringOfGeneration(1);
+		assertEquals(2, os.size());
+		assertEquals(3, os.get(0).offspringId);
+		assertEquals(4, os.get(1).offspringId);
+		assertEquals(6, Offspring.bestOfGeneration(2, 0).offspringId);
+		assertEquals(5, Offspring.bestOfGeneration(2, 1).offspringId);
+		assertEquals(Arrays.asList(4.0, 1.0), Offspring.fitnessDifference(1, 1, 3));
+		assertEquals(1, Offspring.mostRecentCommonAncestor(5, 6).generation);
+		assertEquals(3, Offspring.mostRecentCommonAncestor(5, 6).offspringId);
+		assertNull(Offspring.mostRecentCommonAncestor(0, 1));
+		assertEquals(5, Offspring.allAncestors(5).size());
+		assertEquals(1, Offspring.numberOfImprovedOffspring(1, 0));
+
+		// 3 improved on the worse of its parents by 4, more than 4 or 5 did
+		JumpPoint jump = Offspring.findBiggestFitnessJump(0, 5);
+		assertEquals(4, jump.jump, 0);
+		assertEquals(3, jump.individual.offspringId);
+		Offspring.reset();
+	}
+}
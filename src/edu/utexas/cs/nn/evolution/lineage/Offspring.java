@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.evolution.lineage;
 
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.MLPGenotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
@@ -7,6 +8,7 @@ import edu.utexas.cs.nn.evolution.mulambda.MuLambda;
 import edu.utexas.cs.nn.evolution.selectiveBreeding.SelectiveBreedingEA;
 import edu.utexas.cs.nn.graphics.DrawingPanel;
 import edu.utexas.cs.nn.graphics.Plot;
+import edu.utexas.cs.nn.log.LineageEventLog;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.networks.MLP;
 import edu.utexas.cs.nn.networks.Network;
@@ -28,6 +30,7 @@ import java.awt.event.KeyEvent;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -35,7 +38,6 @@ import java.util.Scanner;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import wox.serial.Easy;
 
 /**
  * This complicated, clunky file is used to browse the lineage of an evolved
@@ -138,7 +140,7 @@ public class Offspring {
 		 * Draws the initial panels and information
 		 */
 		public void draw() {
-			Offspring o = lineage.get(position);
+			Offspring o = get(position);
 			System.out.println(position);
 			clear();
 			if (o == null) {
@@ -234,7 +236,7 @@ public class Offspring {
 
 			// Show scores of ancestry backwards through generations
 			if (key == KeyEvent.VK_B) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -244,7 +246,7 @@ public class Offspring {
 
 			// Run evaluation
 			if (key == KeyEvent.VK_E) {
-				final Offspring o = lineage.get(position);
+				final Offspring o = get(position);
 				if (o != null && o.xmlNetwork != null) {
 					// Launch a new thread in which to evaluate the genotype
 					new Thread() {
@@ -317,7 +319,7 @@ public class Offspring {
 
 			// Save picture of network
 			if (key == KeyEvent.VK_S) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o != null && o.xmlNetwork != null) {
 					String filename = "NETWORK_" + o.offspringId + "_GEN_" + o.generation + ".jpg";
 					panel.save(filename);
@@ -381,7 +383,7 @@ public class Offspring {
 			// Make jump point be the biggest fitness jump in ancestry of
 			// current position
 			if (key == KeyEvent.VK_J) {
-				if (lineage.get(position) == null) {
+				if (get(position) == null) {
 					System.out.println("Cannot calculate jump to null");
 				} else {
 					// Biggest fitness jump info
@@ -423,7 +425,7 @@ public class Offspring {
 
 			// Goto parent 1 (mother)
 			if (key == KeyEvent.VK_M) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -435,7 +437,7 @@ public class Offspring {
 
 			// Goto parent 2 (father)
 			if (key == KeyEvent.VK_F) {
-				Offspring o = lineage.get(position);
+				Offspring o = get(position);
 				if (o == null) {
 					System.out.println("null has no parents");
 				} else {
@@ -497,7 +499,7 @@ public class Offspring {
 		}
 
 		public void changeGeneration(boolean up) {
-			Offspring o = lineage.get(position);
+			Offspring o = get(position);
 			int prev = position;
 			if (o == null) {
 				while (o == null || o.xmlNetwork == null) {
@@ -506,7 +508,7 @@ public class Offspring {
 					} else {
 						decreasePosition();
 					}
-					o = lineage.get(position);
+					o = get(position);
 				}
 				System.out.println((up ? "Advancing" : "Decreasing") + " to non-null generation: " + o.generation);
 			} else {
@@ -517,7 +519,7 @@ public class Offspring {
 					} else {
 						decreasePosition();
 					}
-					o = lineage.get(position);
+					o = get(position);
 				}
 				System.out.println(
 						(up ? "Advancing" : "Decreasing") + " from generation: " + generation + " to " + o.generation);
@@ -533,7 +535,7 @@ public class Offspring {
 		public void advancePosition() {
 			previousPosition = position;
 			position++;
-			if (position >= lineage.size()) {
+			if (position >= size()) {
 				position = 0;
 			}
 		}
@@ -542,7 +544,7 @@ public class Offspring {
 			previousPosition = position;
 			position--;
 			if (position < 0) {
-				position = lineage.size() - 1;
+				position = size() - 1;
 			}
 		}
 
@@ -565,13 +567,15 @@ public class Offspring {
 	 */
 
 	//public static variables
-	public static ArrayList<Offspring> lineage = new ArrayList<Offspring>();
+	public static LineageStore store = new LineageStore();
 	public static ArrayList<Double> maxes = new ArrayList<Double>();
 	public static ArrayList<Double> mins = new ArrayList<Double>();
 	public static double[][] bestScores = null;
 	public static double[][] worstScores = null;
 	public static double[][] tugGoals = null;
 	public static int numObjectives = 0;
+	// Offspring already built from the store, so changes such as modeUsage are kept
+	private static HashMap<Long, Offspring> views = new HashMap<Long, Offspring>();
 
 	//public global variables
 	public long offspringId;
@@ -588,7 +592,8 @@ public class Offspring {
 	 * resets all the necessary objects so class can be called multiple times 
 	 */
 	public static void  reset() { 
-		lineage = new ArrayList<Offspring>();
+		store = new LineageStore();
+		views = new HashMap<Long, Offspring>();
 		maxes = new ArrayList<Double>();
 		mins = new ArrayList<Double>();
 		bestScores = null;
@@ -692,7 +697,8 @@ public class Offspring {
 	 * @param name name of offspring 
 	 */
 	public static void addMutation(long offspringId, String name) {
-		lineage.get((int) offspringId).addMutation(name);
+		store.addMutation(offspringId, name);
+		views.remove(offspringId);
 	}
 
 	/**
@@ -712,14 +718,23 @@ public class Offspring {
 	 * @param generation gen #
 	 */
 	public static void addScores(long offspringId, ArrayList<Double> s, int generation) {
-
-		Offspring o = lineage.get((int) offspringId);
-		if (o == null) {
-			o = new Offspring(offspringId, -1);
-			addOffspring(o);
+		double[] values = new double[s.size()];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = s.get(i);
 		}
-		numObjectives = s.size();
-		o.addScores(s, generation);
+		addScores(offspringId, values, generation);
+	}
+
+	/**
+	 * Adds scores from offspring lineage
+	 * @param offspringId ID of offspring
+	 * @param s scores
+	 * @param generation gen #
+	 */
+	public static void addScores(long offspringId, double[] s, int generation) {
+		numObjectives = s.length;
+		store.addScores(offspringId, s, generation);
+		views.remove(offspringId);
 	}
 
 	/**
@@ -730,10 +745,21 @@ public class Offspring {
 	 * @param withinGen population slot within that generation
 	 */
 	public static void addNetwork(long offspringId, String filePrefix, int gen, int withinGen) {
-		Offspring o = lineage.get((int) offspringId);
+		store.setNetwork(offspringId, filePrefix, gen, withinGen);
+		views.remove(offspringId);
+	}
+
+	/**
+	 * Name of the xml file a network was saved in
+	 * @param filePrefix prefix of xml files where networks are stored
+	 * @param gen gen # 
+	 * @param withinGen population slot within that generation
+	 * @return xml file name
+	 */
+	private static String networkFile(String filePrefix, int gen, int withinGen) {
 		int slash = filePrefix.lastIndexOf("/");
 		String subdir = gen == 0 ? "initial" : "gen" + gen;
-		o.xmlNetwork = filePrefix.substring(0, slash) + "/" + subdir + "/" + filePrefix.substring(slash + 1) + subdir + "_" + withinGen + ".xml";
+		return filePrefix.substring(0, slash) + "/" + subdir + "/" + filePrefix.substring(slash + 1) + subdir + "_" + withinGen + ".xml";
 	}
 
 	/**
@@ -741,21 +767,76 @@ public class Offspring {
 	 * @param o individual in question
 	 */
 	public static void addOffspring(Offspring o) {
-		while (lineage.size() <= o.offspringId) {
-			lineage.add(null); // problematic?
-		}
-		int index = (int) o.offspringId;
-		if (lineage.get(index) != null) {
+		if (store.row(o.offspringId) != -1) {
 			System.out.println("Already filled!");
-			System.out.println("Index " + index);
-			System.out.println("Contains: " + lineage.get(index));
+			System.out.println("Index " + o.offspringId);
+			System.out.println("Contains: " + get(o.offspringId));
 			System.out.println("Replace : " + o);
 			System.exit(1);
 		}
-		lineage.set(index, o);
+		store.addOffspring(o.offspringId, o.parentId1, o.parentId2, o.generation);
+	}
+
+	/**
+	 * Adds offspring to the lineage without building an Offspring for it
+	 * @param offspringId ID of offspring
+	 * @param parentId1 ID of first parent, or -1
+	 * @param parentId2 ID of second parent, or -1
+	 * @param generation gen #
+	 */
+	public static void addOffspring(long offspringId, long parentId1, long parentId2, int generation) {
+		if (store.row(offspringId) != -1) {
+			addOffspring(new Offspring(offspringId, parentId1, parentId2, generation));
+		}
+		store.addOffspring(offspringId, parentId1, parentId2, generation);
+	}
+
+	/**
+	 * Offspring in the lineage with the given ID, built from the store the
+	 * first time it is requested
+	 * @param offspringId ID of offspring
+	 * @return the offspring, or null if it is not in the lineage
+	 */
+	public static Offspring get(long offspringId) {
+		Offspring o = views.get(offspringId);
+		if (o == null) {
+			int row = store.row(offspringId);
+			if (row == -1) {
+				return null;
+			}
+			o = new Offspring(offspringId, store.parent1(row), store.parent2(row), store.generation(row));
+			for (int e = store.firstEntry(row); e != -1; e = store.nextEntry(e)) {
+				o.addScores(entryScores(e), store.entryGeneration(e));
+			}
+			o.mutations = store.mutations(row);
+			if (store.networkGeneration(row) != -1) {
+				o.xmlNetwork = networkFile(store.networkPrefix(), store.networkGeneration(row), store.networkWithinGen(row));
+			}
+			views.put(offspringId, o);
+		}
+		return o;
 	}
 
+	/**
+	 * Number of positions in the lineage, which is one more than the highest
+	 * offspring ID. Not every position has an offspring.
+	 * @return size of lineage
+	 */
+	public static int size() {
+		return (int) (store.maxId() + 1);
+	}
 
+	/**
+	 * @param entry score entry in the store
+	 * @return scores of the entry
+	 */
+	private static ArrayList<Double> entryScores(int entry) {
+		ArrayList<Double> s = new ArrayList<Double>(store.objectives());
+		for (int i = 0; i < store.objectives(); i++) {
+			s.add(store.score(entry, i));
+		}
+		return s;
+	}
 
 	/**
 	 * Adds information about mutations done to offspring 
@@ -763,6 +844,11 @@ public class Offspring {
 	 * @throws FileNotFoundException if mutation file cannot be found 
 	 */
 	public static void addMutationInformation(String filename) throws FileNotFoundException {
+		File binary = LineageEventLog.binaryFile(filename);
+		if (!new File(filename).exists() && binary != null && binary.exists()) {
+			addMutationEvents(binary);
+			return;
+		}
 		Scanner s = new Scanner(new File(filename));
 		@SuppressWarnings("unused")
 		int generation = 0;
@@ -786,6 +872,31 @@ public class Offspring {
 		s.close();
 	}
 
+	/**
+	 * Adds information about mutations done to offspring from a binary
+	 * lineage event log, which replaces the text mutation log when
+	 * binaryLineage is set
+	 * @param file binary lineage event log
+	 */
+	private static void addMutationEvents(File file) {
+		try {
+			LineageEventLog.read(file, new LineageEventLog.Events() {
+				@Override
+				public void mutation(long id, String mutations) {
+					Scanner pattern = new Scanner(mutations);
+					while (pattern.hasNext()) {
+						addMutation(id, pattern.next());
+					}
+					pattern.close();
+				}
+			});
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not load mutations from " + file);
+			System.exit(1);
+		}
+	}
+
 	/**
 	 * Adds goals if TUG implemented 
 	 * @param tugLog log of TUG info
@@ -826,38 +937,13 @@ public class Offspring {
 			String filename = filePrefix + infix + i + ".txt";
 			Scanner s = new Scanner(new File(filename));
 			while (s.hasNextLine()) {
-				Scanner line = new Scanner(s.nextLine());
-				int withinGen = line.nextInt();
-				long offspringId = line.nextLong();
-				ArrayList<Double> scores = new ArrayList<Double>();
-				int scoreIndex = 0;
-				while (line.hasNext()) {
-					double x = line.nextDouble();
-					if (scoreIndex >= maxes.size()) {
-						maxes.add(-Double.MAX_VALUE);
-						mins.add(Double.MAX_VALUE);
-					}
-					maxes.set(scoreIndex, Math.max(maxes.get(scoreIndex), x));
-					mins.set(scoreIndex, Math.min(mins.get(scoreIndex), x));
-					scores.add(x);
-					scoreIndex++;
-				}
-				line.close();
-
-				if (bestScores == null) {
-					bestScores = new double[maxes.size()][numGenerations];
-					worstScores = new double[maxes.size()][numGenerations];
-					for (int j = 0; j < bestScores.length; j++) {
-						Arrays.fill(bestScores[j], -Double.MAX_VALUE);
-						Arrays.fill(worstScores[j], Double.MAX_VALUE);
-					}
-				}
-
-				for (int j = 0; j < bestScores.length; j++) {
-					bestScores[j][i] = Math.max(bestScores[j][i], scores.get(j));
-					worstScores[j][i] = Math.min(worstScores[j][i], scores.get(j));
+				String[] fields = s.nextLine().trim().split("\\s+");
+				int withinGen = Integer.parseInt(fields[0]);
+				long offspringId = Long.parseLong(fields[1]);
+				double[] scores = new double[fields.length - 2];
+				for (int j = 0; j < scores.length; j++) {
+					scores[j] = Double.parseDouble(fields[j + 2]);
 				}
-
 				addScores(offspringId, scores, i);
 				if (associateNetworks) {
 					addNetwork(offspringId, networkPrefix, i, withinGen);
@@ -865,6 +951,41 @@ public class Offspring {
 			}
 			s.close();
 		}
+		summarizeScores(numGenerations);
+	}
+
+	/**
+	 * Fills in maxes, mins, bestScores and worstScores from all scores in
+	 * the store
+	 * @param numGenerations number of generations passed
+	 */
+	private static void summarizeScores(int numGenerations) {
+		int objectives = Math.max(store.objectives(), 0);
+		maxes = new ArrayList<Double>();
+		mins = new ArrayList<Double>();
+		bestScores = new double[objectives][numGenerations];
+		worstScores = new double[objectives][numGenerations];
+		for (int j = 0; j < objectives; j++) {
+			double[] scores = store.scores(j);
+			double max = -Double.MAX_VALUE;
+			double min = Double.MAX_VALUE;
+			Arrays.fill(bestScores[j], -Double.MAX_VALUE);
+			Arrays.fill(worstScores[j], Double.MAX_VALUE);
+			for (int e = 0; e < store.entries(); e++) {
+				max = Math.max(max, scores[e]);
+				min = Math.min(min, scores[e]);
+				int gen = store.entryGeneration(e);
+				if (gen >= 0 && gen < numGenerations) {
+					bestScores[j][gen] = Math.max(bestScores[j][gen], scores[e]);
+					worstScores[j][gen] = Math.min(worstScores[j][gen], scores[e]);
+				}
+			}
+			maxes.add(max);
+			mins.add(min);
+		}
+		if (objectives > 0) {
+			numObjectives = objectives;
+		}
 	}
 
 	/**
@@ -891,18 +1012,38 @@ public class Offspring {
 		String originalPrefix = base + "/" + loadFrom + run + "/" + log.replace(saveTo, loadFrom) + run + "_";
 		System.out.println("Prefix: " + prefix);
 		// Parameters.initializeParameterCollections(prefix + "parameters.txt");
-		int numGenerations = PopulationUtil.loadLineage();
-		System.out.println("---Lineage Loaded (" + numGenerations + " generations)-----------");
-		addMutationInformation(originalPrefix + "Mutations_log.txt");
-		System.out.println("---Mutation Information Added-----------");
-		if(MMNEAT.ea instanceof MuLambda) { // Only MuLambda scheme has separate child pop
-			if (includeChildren) {
-				addAllScores(prefix, "child_gen", numGenerations, false, originalPrefix);
-				System.out.println("---Child Scores Added-----------");
+		boolean cache = Parameters.parameters.booleanParameter("cacheLineage");
+		File cacheFile = new File(prefix + "Lineage_store.bin");
+		int numGenerations;
+		if (cache && loadCachedLineage(cacheFile, includeChildren, prefix, originalPrefix)) {
+			numGenerations = store.generations;
+			summarizeScores(numGenerations);
+			System.out.println("---Lineage Loaded From " + cacheFile + " (" + numGenerations + " generations)-----------");
+		} else {
+			numGenerations = PopulationUtil.loadLineage();
+			System.out.println("---Lineage Loaded (" + numGenerations + " generations)-----------");
+			addMutationInformation(originalPrefix + "Mutations_log.txt");
+			System.out.println("---Mutation Information Added-----------");
+			if(MMNEAT.ea instanceof MuLambda) { // Only MuLambda scheme has separate child pop
+				if (includeChildren) {
+					addAllScores(prefix, "child_gen", numGenerations, false, originalPrefix);
+					System.out.println("---Child Scores Added-----------");
+				}
+			}
+			addAllScores(prefix, "parents_gen", numGenerations, true, originalPrefix);
+			System.out.println("---Parent Scores Added-----------");
+			if (cache) {
+				store.generations = numGenerations;
+				store.includesChildren = includeChildren;
+				try {
+					store.save(cacheFile);
+				} catch (IOException ex) {
+					// Browsing still works, it just has to parse the logs again next time
+					ex.printStackTrace();
+					System.out.println("Could not save lineage to " + cacheFile);
+				}
 			}
 		}
-		addAllScores(prefix, "parents_gen", numGenerations, true, originalPrefix);
-		System.out.println("---Parent Scores Added-----------");
 		// Add TUG Goals?
 		File tugLog = new File(prefix + "TUG_log.txt");
 		if (tugLog.exists()) {
@@ -911,6 +1052,43 @@ public class Offspring {
 		}
 	}
 
+	/**
+	 * Loads the lineage saved by an earlier call to fillInLineage, if it was
+	 * saved after the logs last changed and with the same choice of child
+	 * scores
+	 * @param cacheFile saved lineage
+	 * @param includeChildren whether child scores are wanted
+	 * @param prefix prefix of lineage and score logs
+	 * @param originalPrefix prefix of mutation logs
+	 * @return true if the saved lineage was loaded
+	 */
+	private static boolean loadCachedLineage(File cacheFile, boolean includeChildren, String prefix, String originalPrefix) {
+		if (!cacheFile.exists()) {
+			return false;
+		}
+		String[] logs = new String[] { prefix + "Lineage_log.txt", prefix + "Lineage_log.bin",
+				originalPrefix + "Mutations_log.txt", originalPrefix + "Lineage_log.bin" };
+		for (String log : logs) {
+			File f = new File(log);
+			if (f.exists() && f.lastModified() > cacheFile.lastModified()) {
+				return false;
+			}
+		}
+		LineageStore saved;
+		try {
+			saved = LineageStore.load(cacheFile);
+		} catch (IOException ex) {
+			System.out.println("Could not load lineage from " + cacheFile + ": " + ex.getMessage());
+			return false;
+		}
+		if (saved.includesChildren != includeChildren) {
+			return false;
+		}
+		store = saved;
+		views = new HashMap<Long, Offspring>();
+		return true;
+	}
+
 	/**
 	 * 
 	 * @param generation
@@ -919,22 +1097,18 @@ public class Offspring {
 	 * @return
 	 */
 	public static ArrayList<Double> fitnessDifference(int generation, long parentId, long offspringId) {
-		Offspring parent = lineage.get((int) parentId);
-		Offspring child = lineage.get((int) offspringId);
-		int genIndex = parent.correspondingGenerations.indexOf(generation);
-		if (genIndex == -1) {
+		int parentEntry = store.entry(store.row(parentId), generation);
+		if (parentEntry == -1) {
 			System.out.println("FAILURE!");
 			System.out.println("gen: " + generation + ", parentId: " + parentId + ", offspringId: " + offspringId);
-			System.out.println("parent: " + parent);
-			System.out.println("child: " + child);
+			System.out.println("parent: " + get(parentId));
+			System.out.println("child: " + get(offspringId));
 			System.exit(1);
 		}
-		ArrayList<Double> parentScores = parent.scores.get(genIndex);
-		genIndex = child.correspondingGenerations.indexOf(generation);
-		ArrayList<Double> childScores = child.scores.get(genIndex);
+		int childEntry = store.entry(store.row(offspringId), generation);
 		ArrayList<Double> differences = new ArrayList<Double>();
-		for (int i = 0; i < parentScores.size(); i++) {
-			differences.add(childScores.get(i) - parentScores.get(i));
+		for (int i = 0; i < store.objectives(); i++) {
+			differences.add(store.score(childEntry, i) - store.score(parentEntry, i));
 		}
 		return differences;
 	}
@@ -962,7 +1136,7 @@ public class Offspring {
 		if (visited.containsKey(offspringId)) {
 			return visited.get(offspringId);
 		}
-		Offspring o = lineage.get((int) offspringId);
+		Offspring o = get(offspringId);
 		long parent1 = o.parentId1;
 		long parent2 = o.parentId2;
 		MutationBranch left = completeMutationHistory(parent1, visited);
@@ -979,22 +1153,20 @@ public class Offspring {
 	 * @return
 	 */
 	public static edu.utexas.cs.nn.evolution.lineage.JumpPoint findBiggestFitnessJump(int objective, long endpointId) {
-		HashMap<Long, MutationBranch> map = new HashMap<Long, MutationBranch>();
-		completeMutationHistory(endpointId, map);
 		double jump = 0;
-		Offspring individual = null;
+		int individual = -1;
 		int whenGen = 0;
 		boolean firstParent = true;
-		for (MutationBranch mb : map.values()) {
-			Offspring o = mb.o;
-			int gen = o.correspondingGenerations.get(0);
-			boolean first = true;
-			if (o.parentId1 > -1) {
-				ArrayList<Double> diffs = fitnessDifference(gen, o.parentId1, o.offspringId);
-				double diff = diffs.get(objective);
-				if (o.parentId2 > -1) {
-					ArrayList<Double> diffs2 = fitnessDifference(gen, o.parentId2, o.offspringId);
-					double diff2 = diffs2.get(objective);
+		for (int row : store.ancestors(store.row(endpointId))) {
+			long parentId1 = store.parent1(row);
+			long parentId2 = store.parent2(row);
+			if (parentId1 > -1) {
+				int gen = store.entryGeneration(store.firstEntry(row));
+				int entry = store.entry(row, gen);
+				double diff = store.score(entry, objective) - parentScore(parentId1, gen, objective, row);
+				boolean first = true;
+				if (parentId2 > -1) {
+					double diff2 = store.score(entry, objective) - parentScore(parentId2, gen, objective, row);
 					// Only take the worse level of improvement
 					if (diff2 < diff) {
 						first = false;
@@ -1003,13 +1175,30 @@ public class Offspring {
 				}
 				if (diff > jump) {
 					jump = diff;
-					individual = o;
+					individual = row;
 					whenGen = gen;
 					firstParent = first;
 				}
 			}
 		}
-		return new edu.utexas.cs.nn.evolution.lineage.JumpPoint(objective, jump, individual, whenGen, firstParent);
+		return new edu.utexas.cs.nn.evolution.lineage.JumpPoint(objective, jump, individual == -1 ? null : get(store.id(individual)), whenGen, firstParent);
+	}
+
+	/**
+	 * Score of a parent in the generation its child was first evaluated,
+	 * which must exist
+	 * @param parentId ID of parent
+	 * @param generation gen #
+	 * @param objective objective of score
+	 * @param childRow row of child in store
+	 * @return score of parent
+	 */
+	private static double parentScore(long parentId, int generation, int objective, int childRow) {
+		int entry = store.entry(store.row(parentId), generation);
+		if (entry == -1) {
+			fitnessDifference(generation, parentId, store.id(childRow)); // Reports the failure
+		}
+		return store.score(entry, objective);
 	}
 
 	/**
@@ -1017,7 +1206,7 @@ public class Offspring {
 	 * @return
 	 */
 	public static int lastGeneration() {
-		return lineage.get(lineage.size() - 1).generation;
+		return store.generation(store.row(store.maxId()));
 	}
 
 	/**
@@ -1027,11 +1216,10 @@ public class Offspring {
 	 */
 	public static ArrayList<edu.utexas.cs.nn.evolution.lineage.JumpPoint> biggestJumpsToReachFinalPopulation(int objectives) {
 		ArrayList<edu.utexas.cs.nn.evolution.lineage.JumpPoint> jumps = new ArrayList<edu.utexas.cs.nn.evolution.lineage.JumpPoint>();
-		ArrayList<Offspring> os = offspringOfGeneration(lastGeneration());
-		for (int i = 0; i < os.size(); i++) {
+		int[] rows = store.rowsOfGeneration(lastGeneration());
+		for (int i = 0; i < rows.length; i++) {
 			for (int j = 0; j < objectives; j++) {
-				Offspring o = os.get(i);
-				edu.utexas.cs.nn.evolution.lineage.JumpPoint jump = findBiggestFitnessJump(j, o.offspringId);
+				edu.utexas.cs.nn.evolution.lineage.JumpPoint jump = findBiggestFitnessJump(j, store.id(rows[i]));
 				if (!jumps.contains(jump)) {
 					jumps.add(jump);
 				}
@@ -1046,11 +1234,9 @@ public class Offspring {
 	 * @return
 	 */
 	public static HashMap<Long, Offspring> allAncestors(long offspringId) {
-		HashMap<Long, MutationBranch> map = new HashMap<Long, MutationBranch>();
-		completeMutationHistory(offspringId, map);
 		HashMap<Long, Offspring> ancestors = new HashMap<Long, Offspring>();
-		for (MutationBranch mb : map.values()) {
-			ancestors.put(mb.o.offspringId, mb.o);
+		for (int row : store.ancestors(store.row(offspringId))) {
+			ancestors.put(store.id(row), get(store.id(row)));
 		}
 		return ancestors;
 	}
@@ -1062,19 +1248,19 @@ public class Offspring {
 	 * @return
 	 */
 	public static Offspring mostRecentCommonAncestor(long offspringId1, long offspringId2) {
-		HashMap<Long, Offspring> a1 = allAncestors(offspringId1);
-		HashMap<Long, Offspring> a2 = allAncestors(offspringId2);
+		boolean[] ancestor1 = new boolean[store.size()];
+		for (int row : store.ancestors(store.row(offspringId1))) {
+			ancestor1[row] = true;
+		}
 		int recentGen = 0;
-		Offspring result = null;
-		for (Offspring o1 : a1.values()) {
-			for (Offspring o2 : a2.values()) {
-				if (o1.equals(o2) && o1.generation > recentGen) {
-					recentGen = o1.generation;
-					result = o1;
-				}
+		int result = -1;
+		for (int row : store.ancestors(store.row(offspringId2))) {
+			if (ancestor1[row] && store.generation(row) > recentGen) {
+				recentGen = store.generation(row);
+				result = row;
 			}
 		}
-		return result;
+		return result == -1 ? null : get(store.id(result));
 	}
 
 	/**
@@ -1114,11 +1300,8 @@ public class Offspring {
 	 */
 	public static ArrayList<Offspring> offspringOfGeneration(int generation) {
 		ArrayList<Offspring> os = new ArrayList<Offspring>();
-		for (int i = 0; i < lineage.size(); i++) {
-			Offspring next = lineage.get(i);
-			if (next != null && next.generation == generation) {
-				os.add(next);
-			}
+		for (int row : store.rowsOfGeneration(generation)) {
+			os.add(get(store.id(row)));
 		}
 		return os;
 	}
@@ -1130,23 +1313,31 @@ public class Offspring {
 	 * @return
 	 */
 	public static Offspring bestOfGeneration(int generation, int objective) {
-		ArrayList<Offspring> os = offspringOfGeneration(generation);
-		Offspring best = null;
+		int best = bestEntryOfGeneration(generation, objective);
+		return best == -1 ? null : get(store.id(store.entryRow(best)));
+	}
+
+	/**
+	 * Score entry of the offspring born in a generation with the highest
+	 * score in that generation
+	 * @param generation gen #
+	 * @param objective objective of score
+	 * @return score entry, or -1 if no offspring was evaluated
+	 */
+	private static int bestEntryOfGeneration(int generation, int objective) {
+		int best = -1;
 		double max = -Double.MAX_VALUE;
-		for (Offspring o : os) {
-			int index = o.correspondingGenerations.indexOf(generation);
-			if (index == -1) {
+		for (int row : store.rowsOfGeneration(generation)) {
+			int entry = store.entry(row, generation);
+			if (entry == -1) {
 				System.out.println("generation: " + generation);
-				System.out.println("Problem: " + o);
-				System.out.println("correspondingGenerations: " + o.correspondingGenerations);
-				System.out.println("correspondingGenerations: " + o.scores);
-
+				System.out.println("Problem: " + get(store.id(row)));
 				continue;
 			}
-			double score = o.scores.get(index).get(objective);
+			double score = store.score(entry, objective);
 			if (score > max) {
 				max = score;
-				best = o;
+				best = entry;
 			}
 		}
 		return best;
@@ -1162,18 +1353,17 @@ public class Offspring {
 		// Selective breeding does not produce interesting scores
 		if(!(MMNEAT.ea instanceof SelectiveBreedingEA)) {
 			int generations = lastGeneration() + 1;
-			Offspring previousBest = bestOfGeneration(0, objective);
+			int previousBest = bestEntryOfGeneration(0, objective);
 			double previousScore = mins.get(objective);
-			if (previousBest != null) {
-				previousScore = previousBest.scores.get(previousBest.correspondingGenerations.indexOf(0)).get(objective);
+			if (previousBest != -1) {
+				previousScore = store.score(previousBest, objective);
 			}
 			for (int i = 1; i < generations; i++) {
-				Offspring currentBest = bestOfGeneration(i, objective);
-				if (currentBest != null) {
-					double currentScore = currentBest.scores.get(currentBest.correspondingGenerations.indexOf(i))
-							.get(objective);
+				int currentBest = bestEntryOfGeneration(i, objective);
+				if (currentBest != -1) {
+					double currentScore = store.score(currentBest, objective);
 					double diff = currentScore - previousScore;
-					edu.utexas.cs.nn.evolution.lineage.JumpPoint jump = new edu.utexas.cs.nn.evolution.lineage.JumpPoint(objective, diff, currentBest, i, previousBest.offspringId);
+					edu.utexas.cs.nn.evolution.lineage.JumpPoint jump = new edu.utexas.cs.nn.evolution.lineage.JumpPoint(objective, diff, get(store.id(store.entryRow(currentBest))), i, store.id(store.entryRow(previousBest)));
 					jumps.add(jump);
 					previousBest = currentBest;
 					previousScore = currentScore;
@@ -1208,13 +1398,10 @@ public class Offspring {
 	 * @return
 	 */
 	public static int numberOfImprovedOffspring(int generation, int objective) {
-		Offspring o = bestOfGeneration(generation - 1, objective);
-		double oldBest = o.scores.get(o.correspondingGenerations.indexOf(generation - 1)).get(objective);
-		ArrayList<Offspring> current = offspringOfGeneration(generation);
+		double oldBest = store.score(bestEntryOfGeneration(generation - 1, objective), objective);
 		int count = 0;
-		for (Offspring candidate : current) {
-			int index = candidate.correspondingGenerations.indexOf(generation);
-			if (candidate.scores.get(index).get(objective) > oldBest) {
+		for (int row : store.rowsOfGeneration(generation)) {
+			if (store.score(store.entry(row, generation), objective) > oldBest) {
 				count++;
 			}
 		}
@@ -1263,7 +1450,7 @@ public class Offspring {
 	 */
 	@SuppressWarnings("unchecked")
 	public static Genotype<? extends Network> getGenotype(String xml) {
-		return (Genotype<? extends Network>) Easy.load(xml);
+		return (Genotype<? extends Network>) GenotypeFiles.load(xml);
 	}
 
 	/**
@@ -1343,52 +1530,43 @@ public class Offspring {
 			g.drawString("" + mins.get(obj1), 0, browseDim - offset / 2);
 		}
 
-		Offspring child = lineage.get((int) currentId);
+		Offspring child = get(currentId);
 		long parentId1 = child.parentId1;
 		long parentId2 = child.parentId2;
-		for (int i = 0; i < lineage.size(); i++) {
-			Offspring o = lineage.get(i);
-			if (o != null) {
-				if (o.offspringId == currentId) {
-					// All scores of given solution
-					g.setColor(Color.CYAN);
-					for (int j = 0; j < o.correspondingGenerations.size(); j++) {
-						ArrayList<Double> s = o.scores.get(j);
-						int x = offset + scale(s.get(obj1), obj1) - (ovalDim / 2);
-						int y = singleObjective ? browseDim / 2 : offset + invert(s.get(obj2), obj2) - (ovalDim / 2);
-						g.drawOval(x, y, ovalDim, ovalDim);
-					}
-				}
-				for (int j = 0; j < o.correspondingGenerations.size(); j++) {
-					Integer gen = o.correspondingGenerations.get(j);
-					if (gen == viewingGen) {
-						ArrayList<Double> s = o.scores.get(j);
-						int x = offset + scale(s.get(obj1), obj1) - (ovalDim / 2);
-						int y = singleObjective ? browseDim / 2 : offset + invert(s.get(obj2), obj2) - (ovalDim / 2);
-						// System.out.println("("+s.get(0)+","+s.get(1)+")->("+x+","+y+")");
-						if (o.offspringId == currentId) {
-							g.setColor(Color.GREEN);
-							g.fillRect(x - (ovalDim / 2), y - (ovalDim / 2), 2 * ovalDim, 2 * ovalDim);
-						} else if (o.offspringId == parentId1) {
-							g.setColor(Color.BLUE);
-							g.fillRect(x - (ovalDim / 2), y - (ovalDim / 2), 2 * ovalDim, 2 * ovalDim);
-						} else if (o.offspringId == parentId2) {
-							g.setColor(Color.ORANGE);
-							g.fillRect(x - (ovalDim / 2), y - (ovalDim / 2), 2 * ovalDim, 2 * ovalDim);
-						} else {
-							g.setColor(Color.red);
-							g.drawOval(x, y, ovalDim, ovalDim);
-						}
-						if (label) {
-							g.setColor(Color.black);
-							g.drawString(s.toString(), x, y);
-						}
-						if (id) {
-							g.setColor(Color.blue);
-							g.drawString("" + o.offspringId, x, y + ovalDim);
-						}
-					}
-				}
+		// All scores of given solution
+		g.setColor(Color.CYAN);
+		for (int j = 0; j < child.correspondingGenerations.size(); j++) {
+			ArrayList<Double> s = child.scores.get(j);
+			int x = offset + scale(s.get(obj1), obj1) - (ovalDim / 2);
+			int y = singleObjective ? browseDim / 2 : offset + invert(s.get(obj2), obj2) - (ovalDim / 2);
+			g.drawOval(x, y, ovalDim, ovalDim);
+		}
+		double[] scores1 = store.scores(obj1);
+		double[] scores2 = store.scores(obj2);
+		for (int entry : store.entriesOfGeneration(viewingGen)) {
+			long offspringId = store.id(store.entryRow(entry));
+			int x = offset + scale(scores1[entry], obj1) - (ovalDim / 2);
+			int y = singleObjective ? browseDim / 2 : offset + invert(scores2[entry], obj2) - (ovalDim / 2);
+			if (offspringId == currentId) {
+				g.setColor(Color.GREEN);
+				g.fillRect(x - (ovalDim / 2), y - (ovalDim / 2), 2 * ovalDim, 2 * ovalDim);
+			} else if (offspringId == parentId1) {
+				g.setColor(Color.BLUE);
+				g.fillRect(x - (ovalDim / 2), y - (ovalDim / 2), 2 * ovalDim, 2 * ovalDim);
+			} else if (offspringId == parentId2) {
+				g.setColor(Color.ORANGE);
+				g.fillRect(x - (ovalDim / 2), y - (ovalDim / 2), 2 * ovalDim, 2 * ovalDim);
+			} else {
+				g.setColor(Color.red);
+				g.drawOval(x, y, ovalDim, ovalDim);
+			}
+			if (label) {
+				g.setColor(Color.black);
+				g.drawString(entryScores(entry).toString(), x, y);
+			}
+			if (id) {
+				g.setColor(Color.blue);
+				g.drawString("" + offspringId, x, y + ovalDim);
 			}
 		}
 	}
@@ -1485,7 +1663,7 @@ public class Offspring {
 			DrawingPanel fitness, DrawingPanel front, boolean showScores, boolean showIds, DrawingPanel info, int obj1,
 			int obj2) {
 		if (offspringId != -1) {
-			Offspring o = lineage.get((int) offspringId);
+			Offspring o = get(offspringId);
 			fillInfo(o, info);
 			if (o != null) {
 				if (MMNEAT.genotype instanceof TWEANNGenotype) {
@@ -1667,7 +1845,7 @@ public class Offspring {
 
 				int parent1Pos = (int) o.parentId1;
 				if (parent1Pos > -1) {
-					Offspring parent1 = lineage.get(parent1Pos);
+					Offspring parent1 = get(parent1Pos);
 					double parent1Score = parent1.scores.get(0).get(i);
 
 					double bestScore = parent1Score;
@@ -1676,7 +1854,7 @@ public class Offspring {
 
 					int parent2Pos = (int) o.parentId2;
 					if (parent2Pos > -1) {
-						Offspring parent2 = lineage.get(parent2Pos);
+						Offspring parent2 = get(parent2Pos);
 						double parent2Score = parent2.scores.get(0).get(i);
 						if (parent2Score > bestScore) {
 							bestScore = parent2Score;
@@ -1687,7 +1865,7 @@ public class Offspring {
 					drawScoreSegment(offspringScore, o.correspondingGenerations.get(0), bestScore,
 							bestParent.correspondingGenerations.get(0), bests[i], i);
 
-					o = lineage.get(bestPos);
+					o = get(bestPos);
 				} else {
 					o = null;
 				}
@@ -1758,7 +1936,7 @@ public class Offspring {
 		// System.out.println(numberOfImprovedOffspringByGeneration(0));
 		// System.out.println(numberOfImprovedOffspringByGeneration(1));
 		// viewTWEANN("mspacman/DetDelLeastMMR22/gen340/MsPacMan-DetDelLeastMMR22_gen340_15.xml");
-		// lineage.get(800).drawTWEANN();
+		// get(800).drawTWEANN();
 
 		browse();
 	}
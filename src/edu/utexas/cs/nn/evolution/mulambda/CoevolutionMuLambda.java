@@ -62,7 +62,7 @@ public abstract class CoevolutionMuLambda implements MultiplePopulationGeneratio
 		} else {
 			successfulOffspringSearches++;
 			ArrayList<Long> offspring = recentOffspring.get(parentId);
-			return offspring.get(RandomNumbers.randomGenerator.nextInt(offspring.size()));
+			return offspring.get(RandomNumbers.generator().nextInt(offspring.size()));
 		}
 	}
 
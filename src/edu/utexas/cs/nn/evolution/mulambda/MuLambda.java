@@ -270,8 +270,7 @@ public abstract class MuLambda<T> implements SinglePopulationGenerationalEA<T> {
 	public ArrayList<Genotype<T>> selectAndAdvance(ArrayList<Score<T>> parentScores, ArrayList<Score<T>> childrenScores) {
 		ArrayList<Score<T>> population = prepareSourcePopulation(parentScores, childrenScores);
 		ArrayList<Genotype<T>> newParents = selection(mu, population);
-		EvolutionaryHistory.logMutationData("---Gen " + generation + " Over-----------------");
-		EvolutionaryHistory.logLineageData("---Gen " + generation + " Over-----------------");
+		EvolutionaryHistory.logGenerationOver(generation);
 		generation++;
 		EvolutionaryHistory.frozenPreferenceVsPolicyStatusUpdate(newParents, generation);
 		CommonConstants.trialsByGenerationUpdate(generation);
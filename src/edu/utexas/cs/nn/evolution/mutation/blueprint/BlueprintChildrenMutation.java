@@ -35,7 +35,7 @@ public class BlueprintChildrenMutation extends Mutation<ArrayList<Long>> {
 	public void mutate(Genotype<ArrayList<Long>> genotype) {
 		NumericArrayGenotype<Long> ng = (NumericArrayGenotype<Long>) genotype;
 		for (int i = 0; i < ng.getPhenotype().size(); i++) {
-			if (RandomNumbers.randomGenerator.nextDouble() <= rate) {
+			if (RandomNumbers.generator().nextDouble() <= rate) {
 				mutateIndex(ng, i);
 			}
 		}
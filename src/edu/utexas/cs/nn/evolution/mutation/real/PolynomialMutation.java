@@ -43,7 +43,7 @@ public class PolynomialMutation extends RealMutation {
 	public double delta(double y, double yl, double yu) {
 		double delta1 = (y - yl) / (yu - yl);
 		double delta2 = (yu - y) / (yu - yl);
-		double rnd = RandomNumbers.randomGenerator.nextDouble();
+		double rnd = RandomNumbers.generator().nextDouble();
 		double mut_pow = 1.0 / (eta_m_ + 1.0);
 		double deltaq;
 		if (rnd <= 0.5) {
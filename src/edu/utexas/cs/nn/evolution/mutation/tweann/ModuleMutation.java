@@ -53,7 +53,7 @@ public abstract class ModuleMutation extends TWEANNMutation {
 					originalModules); // Copy over old module associations
 			int hierarchicalmodules = CommonConstants.multitaskModules;
 			// Assign to random multitask module
-			newmoduleAssociations[originalModules] = RandomNumbers.randomGenerator.nextInt(hierarchicalmodules); 
+			newmoduleAssociations[originalModules] = RandomNumbers.generator().nextInt(hierarchicalmodules); 
 			((TWEANNGenotype) genotype).moduleAssociations = newmoduleAssociations;
 			infoTracking.append("Assoc: ").append(Arrays.toString(newmoduleAssociations)).append(" ");
 		}
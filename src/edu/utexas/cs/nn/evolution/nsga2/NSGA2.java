@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.evolution.nsga2;
 
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.ParallelReproduction;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.mulambda.MuPlusLambda;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
@@ -107,9 +108,13 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 			judge = new ParentComparator<T>();
 		}
 
+		if (ParallelReproduction.enabled()) {
+			return ParallelReproduction.offspring(selectMatings(numChildren, scoresArray, judge, mating, crossoverRate));
+		}
+
 		for (int i = 0; i < numChildren; i++) {
-			int e1 = RandomNumbers.randomGenerator.nextInt(scoresArray.length);
-			int e2 = RandomNumbers.randomGenerator.nextInt(scoresArray.length);
+			int e1 = RandomNumbers.generator().nextInt(scoresArray.length);
+			int e2 = RandomNumbers.generator().nextInt(scoresArray.length);
 			// determines which of the two randomly chosen scores is better
 			NSGA2Score<T> better = judge.better(scoresArray[e1], scoresArray[e2]);
 			Genotype<T> source = better.individual;// stores better genotype
@@ -123,9 +128,9 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 			if (!CommonConstants.requireFitnessDifferenceForChange || better.scores[0] > 0) {
 				// If neither net has reached a given level, the scores of 0
 				// will prevent evolution mating only occurs if on and randomly
-				if (mating && RandomNumbers.randomGenerator.nextDouble() < crossoverRate) {
-					e1 = RandomNumbers.randomGenerator.nextInt(scoresArray.length);
-					e2 = RandomNumbers.randomGenerator.nextInt(scoresArray.length);
+				if (mating && RandomNumbers.generator().nextDouble() < crossoverRate) {
+					e1 = RandomNumbers.generator().nextInt(scoresArray.length);
+					e2 = RandomNumbers.generator().nextInt(scoresArray.length);
 
 					Genotype<T> otherSource = judge.better(scoresArray[e1], scoresArray[e2]).individual;
 					parentId2 = otherSource.getId();
@@ -152,7 +157,7 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 					if (i < numChildren) {
 						otherOffspring.mutate();
 						offspring.add(otherOffspring);
-						EvolutionaryHistory.logLineageData(parentId1 + " X " + parentId2 + " -> " + otherOffspring.getId());
+						EvolutionaryHistory.logLineage(parentId1, parentId2, otherOffspring.getId());
 					}
 				}
 
@@ -161,14 +166,53 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 
 			offspring.add(e);
 			if (parentId2 == -1) {
-				EvolutionaryHistory.logLineageData(parentId1 + " -> " + e.getId());
+				EvolutionaryHistory.logLineage(parentId1, -1, e.getId());
 			} else {
-				EvolutionaryHistory.logLineageData(parentId1 + " X " + parentId2 + " -> " + e.getId());
+				EvolutionaryHistory.logLineage(parentId1, parentId2, e.getId());
 			}
 		}
 		return offspring;
 	}
 
+	/**
+	 * Tournament selection of the parents used by generateNSGA2Children, for
+	 * when the offspring are generated in parallel. All parents are chosen
+	 * before any offspring is generated.
+	 *
+	 * @param <T> phenotype
+	 * @param numChildren
+	 *            number of children to be created
+	 * @param scoresArray
+	 *            sorted parent scores
+	 * @param judge
+	 *            compares the two individuals in each tournament
+	 * @param mating
+	 *            whether crossover is allowed
+	 * @param crossoverRate
+	 *            chance of crossover
+	 * @return parents of each mating
+	 */
+	private static <T> ArrayList<ParallelReproduction.Mating<T>> selectMatings(int numChildren, NSGA2Score<T>[] scoresArray,
+			Better<NSGA2Score<T>> judge, boolean mating, double crossoverRate) {
+		ArrayList<ParallelReproduction.Mating<T>> matings = new ArrayList<ParallelReproduction.Mating<T>>(numChildren);
+		for (int i = 0; i < numChildren; i++) {
+			int e1 = RandomNumbers.generator().nextInt(scoresArray.length);
+			int e2 = RandomNumbers.generator().nextInt(scoresArray.length);
+			NSGA2Score<T> better = judge.better(scoresArray[e1], scoresArray[e2]);
+			Genotype<T> otherSource = null;
+			// Same restriction on mutation and crossover as in generateNSGA2Children
+			boolean change = !CommonConstants.requireFitnessDifferenceForChange || better.scores[0] > 0;
+			if (change && mating && RandomNumbers.generator().nextDouble() < crossoverRate) {
+				e1 = RandomNumbers.generator().nextInt(scoresArray.length);
+				e2 = RandomNumbers.generator().nextInt(scoresArray.length);
+				otherSource = judge.better(scoresArray[e1], scoresArray[e2]).individual;
+				i++;
+			}
+			matings.add(new ParallelReproduction.Mating<T>(better.individual, otherSource, i < numChildren, change));
+		}
+		return matings;
+	}
+
 	/**
 	 * gets the NSGA2 modified scores from raw scores
 	 * 
@@ -256,13 +300,53 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 
 	/**
 	 * Given the whole population of scores (after evaluation), assign crowding
-	 * distances to each individual.
+	 * distances to each individual. The scores array is left sorted by the
+	 * last objective used, exactly as if it had been sorted by each objective
+	 * in turn.
 	 * 
 	 * @param scores
 	 *            Each instance is a set of multiple scores for a member of the
 	 *            population that was just evaluated.
 	 */
-	private static <T> void assignCrowdingDistance(NSGA2Score<T>[] scores) {
+	static <T> void assignCrowdingDistance(NSGA2Score<T>[] scores) {
+		if (!canSortWithMatrix(scores)) {
+			pairwiseCrowdingDistance(scores);
+			return;
+		}
+		int numObjectives = scores[0].numObjectives();
+		int[] order = new int[scores.length];
+		for (int i = 0; i < order.length; i++) {
+			order[i] = i;
+		}
+		double[] distance = new double[scores.length];
+		double[] column = new double[scores.length];
+		int[] buffer = new int[scores.length];
+		for (int j = 0; j < numObjectives; j++) {
+			if (scores[order[0]].useObjective(j)) {
+				for (int i = 0; i < scores.length; i++) {
+					column[i] = scores[i].scores[j];
+				}
+				NonDominatedSorting.addCrowdingDistances(column, order, distance, buffer);
+			}
+		}
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		NSGA2Score<T>[] sorted = new NSGA2Score[scores.length];
+		for (int i = 0; i < order.length; i++) {
+			sorted[i] = scores[order[i]];
+			sorted[i].setCrowdingDistance(distance[order[i]]);
+		}
+		System.arraycopy(sorted, 0, scores, 0, scores.length);
+	}
+
+	/**
+	 * Original version of assignCrowdingDistance, which sorts the score
+	 * objects themselves. Used for scores that canSortWithMatrix rejects.
+	 * 
+	 * @param scores
+	 *            Each instance is a set of multiple scores for a member of the
+	 *            population that was just evaluated.
+	 */
+	static <T> void pairwiseCrowdingDistance(NSGA2Score<T>[] scores) {
 		// reset distances
 		for (int i = 0; i < scores.length; i++) {
 			scores[i].setCrowdingDistance(0);
@@ -291,6 +375,35 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 		}
 	}
 
+	/**
+	 * Whether the scores can be sorted by NonDominatedSorting, which works on
+	 * a matrix of the objectives that each score uses. This requires every
+	 * score to use the same objectives, since isBetter only compares those,
+	 * and no score can be NaN, since isBetter treats NaN as equal to anything.
+	 * 
+	 * @param scores
+	 *            scores to sort
+	 * @return whether the matrix versions of sorting give the same results
+	 */
+	private static <T> boolean canSortWithMatrix(NSGA2Score<T>[] scores) {
+		if (scores.length == 0) {
+			return false;
+		}
+		int numObjectives = scores[0].numObjectives();
+		for (int i = 0; i < scores.length; i++) {
+			assert scores[i] != null : "Score is null! " + i;
+			if (scores[i].numObjectives() != numObjectives) {
+				return false;
+			}
+			for (int j = 0; j < numObjectives; j++) {
+				if (Double.isNaN(scores[i].scores[j]) || scores[i].useObjective(j) != scores[0].useObjective(j)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
 	/**
 	 * Sort the evaluated population into Pareto fronts according to their
 	 * objective scores.
@@ -301,9 +414,61 @@ public class NSGA2<T> extends MuPlusLambda<T> {
 	 * @return List of lists in which each sublist is one Pareto front. Each
 	 *         member of the original scores array will be in exactly one of the
 	 *         sublists that is returned. Earlier sublists dominate subsequent
-	 *         sublists.
+	 *         sublists. Members of each front are in the same order as in the
+	 *         scores array.
 	 */
 	private static <T> ArrayList<ArrayList<NSGA2Score<T>>> fastNonDominatedSort(NSGA2Score<T>[] scores) {
+		if (!canSortWithMatrix(scores)) {
+			return pairwiseNonDominatedSort(scores);
+		}
+		int numObjectives = scores[0].numObjectives();
+		int used = 0;
+		for (int j = 0; j < numObjectives; j++) {
+			if (scores[0].useObjective(j)) {
+				used++;
+			}
+		}
+		double[][] points = new double[scores.length][used];
+		for (int i = 0; i < scores.length; i++) {
+			int k = 0;
+			for (int j = 0; j < numObjectives; j++) {
+				if (scores[0].useObjective(j)) {
+					points[i][k++] = scores[i].scores[j];
+				}
+			}
+		}
+		int[] fronts = NonDominatedSorting.fronts(points);
+		int numFronts = 0;
+		for (int i = 0; i < fronts.length; i++) {
+			numFronts = Math.max(numFronts, fronts[i] + 1);
+		}
+		int[] sizes = new int[numFronts];
+		for (int i = 0; i < fronts.length; i++) {
+			sizes[fronts[i]]++;
+		}
+		ArrayList<ArrayList<NSGA2Score<T>>> frontSet = new ArrayList<ArrayList<NSGA2Score<T>>>(numFronts);
+		for (int f = 0; f < numFronts; f++) {
+			frontSet.add(new ArrayList<NSGA2Score<T>>(sizes[f]));
+		}
+		for (int i = 0; i < scores.length; i++) {
+			// Same final state as after the pairwise sort
+			scores[i].reset();
+			scores[i].assign(fronts[i]);
+			scores[i].processed = true;
+			frontSet.get(fronts[i]).add(scores[i]);
+		}
+		return frontSet;
+	}
+
+	/**
+	 * Original version of fastNonDominatedSort, which compares every pair of
+	 * scores with isBetter. Used for scores that canSortWithMatrix rejects.
+	 * 
+	 * @param scores
+	 *            See fastNonDominatedSort
+	 * @return See fastNonDominatedSort
+	 */
+	static <T> ArrayList<ArrayList<NSGA2Score<T>>> pairwiseNonDominatedSort(NSGA2Score<T>[] scores) {
 
 		for (int i = 0; i < scores.length; i++) {
 			assert scores[i] != null : "Score is null! " + i;
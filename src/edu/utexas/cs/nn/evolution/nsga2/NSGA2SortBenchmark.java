@@ -0,0 +1,73 @@
+package edu.utexas.cs.nn.evolution.nsga2;
+
+import java.util.Random;
+
+/**
+ * Measures how NSGA2 selection scales with population size. For each number
+ * of objectives and population size, random scores are assigned crowding
+ * distances and sorted into Pareto fronts, both with NonDominatedSorting (as
+ * NSGA2 now does) and with the original pairwise comparisons. The pairwise
+ * version is skipped for populations larger than maxPairwise, since it takes
+ * quadratic time.
+ *
+ * Usage: java edu.utexas.cs.nn.evolution.nsga2.NSGA2SortBenchmark [maxSize] [maxPairwise]
+ */
+public class NSGA2SortBenchmark {
+
+	public static void main(String[] args) {
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 32000;
+		int maxPairwise = args.length > 1 ? Integer.parseInt(args[1]) : 8000;
+		Random random = new Random(0);
+
+		System.out.println("objectives\tsize\tfronts\tmatrix(ms)\tpairwise(ms)");
+		for (int m = 2; m <= 5; m++) {
+			for (int n = 250; n <= maxSize; n *= 2) {
+				NSGA2Score<Object>[] scores = randomScores(random, n, m);
+				// Warm up
+				NSGA2.assignCrowdingDistance(scores);
+				NSGA2.getParetoLayers(scores);
+
+				int reps = Math.max(1, 32000 / n);
+				long start = System.nanoTime();
+				int fronts = 0;
+				for (int i = 0; i < reps; i++) {
+					NSGA2.assignCrowdingDistance(scores);
+					fronts = NSGA2.getParetoLayers(scores).size();
+				}
+				double matrix = (System.nanoTime() - start) / (reps * 1000000.0);
+
+				String pairwise = "-";
+				if (n <= maxPairwise) {
+					start = System.nanoTime();
+					NSGA2.pairwiseCrowdingDistance(scores);
+					int pairwiseFronts = NSGA2.pairwiseNonDominatedSort(scores).size();
+					pairwise = String.valueOf((System.nanoTime() - start) / 1000000.0);
+					assert pairwiseFronts == fronts : "Different number of fronts: " + pairwiseFronts + " vs " + fronts;
+				}
+				System.out.println(m + "\t" + n + "\t" + fronts + "\t" + matrix + "\t" + pairwise);
+			}
+		}
+	}
+
+	/**
+	 * @param random
+	 *            source of scores
+	 * @param n
+	 *            population size
+	 * @param m
+	 *            number of objectives
+	 * @return scores with objectives rounded to create some ties
+	 */
+	private static NSGA2Score<Object>[] randomScores(Random random, int n, int m) {
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		NSGA2Score<Object>[] result = new NSGA2Score[n];
+		for (int i = 0; i < n; i++) {
+			double[] s = new double[m];
+			for (int j = 0; j < m; j++) {
+				s[j] = Math.round(random.nextDouble() * 1000) / 1000.0;
+			}
+			result[i] = new NSGA2Score<Object>(null, s, null, new double[0]);
+		}
+		return result;
+	}
+}
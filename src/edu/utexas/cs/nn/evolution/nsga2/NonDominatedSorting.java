@@ -0,0 +1,212 @@
+package edu.utexas.cs.nn.evolution.nsga2;
+
+import java.util.Arrays;
+
+/**
+ * Non-dominated sorting and crowding distance computed on primitive arrays of
+ * objective scores instead of by comparing NSGA2Score objects.
+ *
+ * Point p dominates q when p is at least as large as q in every objective and
+ * larger in at least one, which is exactly what MultiObjectiveScore.isBetter
+ * computes for scores that are not NaN. Points are sorted lexicographically
+ * in decreasing order, so a point can only be dominated by points that come
+ * before it, and each point is then placed in the first front that has no
+ * member dominating it. Because domination is transitive, this gives every
+ * point the same front as the pairwise procedure in Deb's paper.
+ *
+ * With two objectives, only the most recently added member of each front
+ * needs to be checked, so sorting takes O(N log N) time. With more objectives
+ * the fronts are searched by binary search, and the members of a front are
+ * checked from the most recently added one (Efficient Non-domination Level
+ * Update with Binary Search, Zhang et al. 2015), which is O(M N^2) in the
+ * worst case but much faster on typical populations. Both use O(N) memory
+ * beyond the objective matrix.
+ */
+public class NonDominatedSorting {
+
+	/**
+	 * Front of each point, where front 0 is the Pareto front
+	 *
+	 * @param points
+	 *            points[i][j] is objective j of point i, with larger being
+	 *            better. No value can be NaN.
+	 * @return front of each point
+	 */
+	public static int[] fronts(double[][] points) {
+		int n = points.length;
+		int[] result = new int[n];
+		if (n == 0) {
+			return result;
+		}
+		int m = points[0].length;
+		int[] order = lexicographicOrder(points);
+		// Points in each front, in the order they were added
+		int[][] members = new int[n][];
+		int[] sizes = new int[n];
+		int numFronts = 0;
+		for (int k = 0; k < n; k++) {
+			int p = order[k];
+			// First front with no member dominating p
+			int low = 0;
+			int high = numFronts;
+			while (low < high) {
+				int mid = (low + high) >>> 1;
+				boolean dominated = m == 2 ? lastDominates(points, members[mid][sizes[mid] - 1], p) : frontDominates(points, members[mid], sizes[mid], p);
+				if (dominated) {
+					low = mid + 1;
+				} else {
+					high = mid;
+				}
+			}
+			if (low == numFronts) {
+				members[numFronts] = new int[4];
+				numFronts++;
+			} else if (sizes[low] == members[low].length) {
+				members[low] = Arrays.copyOf(members[low], 2 * members[low].length);
+			}
+			members[low][sizes[low]++] = p;
+			result[p] = low;
+		}
+		return result;
+	}
+
+	/**
+	 * With two objectives, the members of a front are added with decreasing
+	 * values in the first objective, so the last one added has the largest
+	 * value in the second objective. Only it can dominate a new point if any
+	 * member does.
+	 */
+	private static boolean lastDominates(double[][] points, int last, int p) {
+		double[] q = points[last];
+		double[] s = points[p];
+		return q[1] > s[1] || (q[1] == s[1] && q[0] > s[0]);
+	}
+
+	/**
+	 * Whether any member of the front dominates p, checking the most recently
+	 * added members first since they are most similar to p
+	 */
+	private static boolean frontDominates(double[][] points, int[] front, int size, int p) {
+		double[] s = points[p];
+		for (int i = size - 1; i >= 0; i--) {
+			if (dominatesEarlier(points[front[i]], s)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Whether q dominates p, given that q is not lexicographically smaller
+	 * than p
+	 */
+	private static boolean dominatesEarlier(double[] q, double[] p) {
+		boolean better = false;
+		for (int j = 0; j < q.length; j++) {
+			if (q[j] < p[j]) {
+				return false;
+			}
+			better |= q[j] > p[j];
+		}
+		return better;
+	}
+
+	/**
+	 * @param points
+	 *            objective scores of each point
+	 * @return indices of the points in lexicographically decreasing order
+	 */
+	private static int[] lexicographicOrder(double[][] points) {
+		int n = points.length;
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++) {
+			order[i] = i;
+		}
+		// Stable sorts from the last objective to the first
+		int[] buffer = new int[n];
+		double[] keys = new double[n];
+		for (int j = points[0].length - 1; j >= 0; j--) {
+			for (int i = 0; i < n; i++) {
+				keys[i] = -points[i][j];
+			}
+			stableSort(order, keys, buffer);
+		}
+		return order;
+	}
+
+	/**
+	 * Sorts indices by increasing key, leaving indices with equal keys in
+	 * their current relative order, so the result is the same as sorting the
+	 * corresponding objects with Arrays.sort and a comparator on the keys.
+	 *
+	 * @param order
+	 *            indices to sort in place
+	 * @param keys
+	 *            key of each index
+	 * @param buffer
+	 *            scratch space at least as long as order
+	 */
+	public static void stableSort(int[] order, double[] keys, int[] buffer) {
+		int n = order.length;
+		int[] from = order;
+		int[] to = buffer;
+		for (int width = 1; width < n; width *= 2) {
+			for (int low = 0; low < n; low += 2 * width) {
+				int mid = Math.min(low + width, n);
+				int high = Math.min(low + 2 * width, n);
+				int a = low;
+				int b = mid;
+				int k = low;
+				while (a < mid && b < high) {
+					// Take from the right run only when strictly smaller
+					to[k++] = keys[from[b]] < keys[from[a]] ? from[b++] : from[a++];
+				}
+				while (a < mid) {
+					to[k++] = from[a++];
+				}
+				while (b < high) {
+					to[k++] = from[b++];
+				}
+			}
+			int[] swap = from;
+			from = to;
+			to = swap;
+		}
+		if (from != order) {
+			System.arraycopy(from, 0, order, 0, n);
+		}
+	}
+
+	/**
+	 * Adds the crowding distance contributed by one objective. The points are
+	 * stably sorted by the objective, so points with equal scores keep their
+	 * order from the previous objective, and the first and last point get an
+	 * infinite distance. Sorts and sums happen in the same order as when the
+	 * NSGA2Score array itself is sorted, so the distances are identical.
+	 *
+	 * @param column
+	 *            column[i] is the objective score of point i
+	 * @param order
+	 *            current order of the points, which is sorted by the
+	 *            objective
+	 * @param distance
+	 *            crowding distance of each point, which is added to
+	 * @param buffer
+	 *            scratch space at least as long as order
+	 */
+	public static void addCrowdingDistances(double[] column, int[] order, double[] distance, int[] buffer) {
+		int n = order.length;
+		stableSort(order, column, buffer);
+		distance[order[0]] = Float.POSITIVE_INFINITY;
+		distance[order[n - 1]] = Float.POSITIVE_INFINITY;
+		double min = column[order[0]];
+		double max = column[order[n - 1]];
+		// Just leave all crowding distances at 0 if all objective scores are
+		// the same
+		if (max - min > 0) {
+			for (int k = 1; k < n - 1; k++) {
+				distance[order[k]] += Math.abs(column[order[k + 1]] - column[order[k - 1]]) / (max - min);
+			}
+		}
+	}
+}
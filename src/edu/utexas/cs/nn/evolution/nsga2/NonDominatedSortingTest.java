@@ -0,0 +1,115 @@
+package edu.utexas.cs.nn.evolution.nsga2;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.utexas.cs.nn.evolution.nsga2.tug.TUGNSGA2Score;
+import edu.utexas.cs.nn.scores.Score;
+
+public class NonDominatedSortingTest {
+
+	/**
+	 * Random scores with many ties, since scores are small integers
+	 */
+	private static NSGA2Score<Object>[] randomScores(Random r, int n, int m, int values, boolean[] active) {
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		NSGA2Score<Object>[] result = new NSGA2Score[n];
+		for (int i = 0; i < n; i++) {
+			double[] s = new double[m];
+			for (int j = 0; j < m; j++) {
+				s[j] = r.nextInt(values);
+			}
+			result[i] = active == null ? new NSGA2Score<Object>(null, s, null, new double[0]) : new TUGNSGA2Score<Object>(new Score<Object>(null, s, null), active);
+		}
+		return result;
+	}
+
+	/**
+	 * Fronts, ranks, crowding distances and the final order of the scores
+	 * array must all match the pairwise versions
+	 */
+	private static void assertSameAsPairwise(NSGA2Score<Object>[] scores) {
+		NSGA2Score<Object>[] copy = scores.clone();
+		NSGA2.pairwiseCrowdingDistance(copy);
+		ArrayList<ArrayList<NSGA2Score<Object>>> expected = NSGA2.pairwiseNonDominatedSort(copy);
+		double[] expectedDistances = new double[copy.length];
+		int[] expectedRanks = new int[copy.length];
+		for (int i = 0; i < copy.length; i++) {
+			expectedDistances[i] = copy[i].getCrowdingDistance();
+			expectedRanks[i] = copy[i].getRank();
+		}
+
+		NSGA2.assignCrowdingDistance(scores);
+		ArrayList<ArrayList<NSGA2Score<Object>>> actual = NSGA2.getParetoLayers(scores);
+		assertArrayEquals(copy, scores);
+		assertEquals(expected, actual);
+		for (int i = 0; i < scores.length; i++) {
+			assertEquals(expectedDistances[i], scores[i].getCrowdingDistance(), 0.0);
+			assertEquals(expectedRanks[i], scores[i].getRank());
+			assertEquals(0, scores[i].numDominators);
+			assertTrue(scores[i].isAssigned && scores[i].processed);
+		}
+	}
+
+	@Test
+	public void testMatchesPairwiseSort() {
+		Random r = new Random(0);
+		for (int m = 1; m <= 5; m++) {
+			for (int trial = 0; trial < 20; trial++) {
+				int n = 1 + r.nextInt(200);
+				assertSameAsPairwise(randomScores(r, n, m, 2 + r.nextInt(20), null));
+			}
+		}
+	}
+
+	@Test
+	public void testInactiveObjectives() {
+		Random r = new Random(1);
+		for (int trial = 0; trial < 20; trial++) {
+			boolean[] active = new boolean[] { r.nextBoolean(), r.nextBoolean(), r.nextBoolean() };
+			assertSameAsPairwise(randomScores(r, 1 + r.nextInt(100), 3, 10, active));
+		}
+	}
+
+	@Test
+	public void testSpecialValues() {
+		Random r = new Random(2);
+		double[] special = new double[] { Double.NEGATIVE_INFINITY, -0.0, 0.0, 1, Double.POSITIVE_INFINITY };
+		for (int trial = 0; trial < 20; trial++) {
+			NSGA2Score<Object>[] scores = randomScores(r, 50, 3, 5, null);
+			for (NSGA2Score<Object> s : scores) {
+				for (int j = 0; j < s.scores.length; j++) {
+					if (r.nextInt(4) == 0) {
+						s.scores[j] = special[r.nextInt(special.length)];
+					}
+				}
+			}
+			assertSameAsPairwise(scores);
+		}
+	}
+
+	@Test
+	public void testStableSort() {
+		Random r = new Random(3);
+		for (int n = 0; n < 100; n++) {
+			double[] keys = new double[n];
+			int[] order = new int[n];
+			for (int i = 0; i < n; i++) {
+				keys[i] = r.nextInt(5);
+				order[i] = n - 1 - i;
+			}
+			NonDominatedSorting.stableSort(order, keys, new int[n]);
+			for (int i = 1; i < n; i++) {
+				assertTrue(keys[order[i - 1]] <= keys[order[i]]);
+				if (keys[order[i - 1]] == keys[order[i]]) {
+					// Started in decreasing order of index
+					assertTrue(order[i - 1] > order[i]);
+				}
+			}
+		}
+	}
+}
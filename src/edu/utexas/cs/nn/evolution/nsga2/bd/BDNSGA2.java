@@ -3,12 +3,19 @@ package edu.utexas.cs.nn.evolution.nsga2.bd;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.nsga2.NSGA2;
 import edu.utexas.cs.nn.evolution.nsga2.bd.characterizations.BehaviorCharacterization;
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.BehaviorMatrix;
 import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.BehaviorVector;
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.VantagePointTree;
 import edu.utexas.cs.nn.util.ClassCreation;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
 
 import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Non-sorting genetic algorithm 2 with a behavioral diversity objective added.
@@ -25,6 +32,14 @@ public class BDNSGA2<T> extends NSGA2<T> {
 	private ArrayList<BehaviorVector> archiveBehaviors;
 	private int maxArchiveSize;
 	private int indexToAdd;
+	// Index of the behaviors most recently given to allDiversityScores
+	private VantagePointTree lastIndex = null;
+	/**
+	 * Index of the behaviors of the population from the latest call to
+	 * prepareSourcePopulation, with one row per member in the same order,
+	 * which subclasses can reuse for other nearest neighbor queries.
+	 */
+	protected VantagePointTree populationIndex = null;
 
 	/**
 	 * Constructor for BD NSGA2 genetic algorithm
@@ -82,7 +97,9 @@ public class BDNSGA2<T> extends NSGA2<T> {
 	/**
 	 * Given the behavior vectors of the entire population, return the diversity
 	 * of the one individual specified by individualIndex, which is the distance
-	 * from individualIndex to its nearest neighbor in behavior space.
+	 * from individualIndex to its nearest neighbor in behavior space. Compares
+	 * the individual to every other behavior, so allDiversityScores uses a
+	 * nearest neighbor index instead, which gives the same scores.
 	 * 
 	 * @param behaviorVectors
 	 *            List of behavior vectors
@@ -129,11 +146,12 @@ public class BDNSGA2<T> extends NSGA2<T> {
 	 * @return List of behavior scores for each individual in population.
 	 */
 	public ArrayList<Double> allDiversityScores(ArrayList<BehaviorVector> behaviorVectors, boolean compareArchive) {
+		double[] scores = nearestDistances(behaviorVectors, compareArchive);
 		ArrayList<Double> result = new ArrayList<Double>(behaviorVectors.size());
 		double maxDiversity = -Double.MAX_VALUE;// more negative = more diverse
 		int mostDiverseIndex = -1;
 		for (int i = 0; i < behaviorVectors.size(); i++) {
-			double score = diversityScore(behaviorVectors, i, compareArchive);
+			double score = scores[i];
 			result.add(score);
 			if (score > maxDiversity) {
 				maxDiversity = score;
@@ -150,6 +168,80 @@ public class BDNSGA2<T> extends NSGA2<T> {
 		return result;
 	}
 
+	/**
+	 * Same result as calling diversityScore for every individual. All behavior
+	 * vectors (population followed by archive) are packed into one
+	 * BehaviorMatrix, and the population and archive are each indexed by a
+	 * VantagePointTree, so each individual only needs to be compared to a
+	 * fraction of the others. With parallelDiversity, the individuals are
+	 * split among the evaluation threads.
+	 *
+	 * @param behaviorVectors
+	 *            Behavior vectors of all population members
+	 * @param compareArchive
+	 *            Whether or not to compare behaviors against archive of past
+	 *            behaviors
+	 * @return diversity score of each individual
+	 */
+	public double[] nearestDistances(ArrayList<BehaviorVector> behaviorVectors, boolean compareArchive) {
+		final int size = behaviorVectors.size();
+		ArrayList<BehaviorVector> all = behaviorVectors;
+		if (compareArchive) {
+			all = new ArrayList<BehaviorVector>(size + archiveBehaviors.size());
+			all.addAll(behaviorVectors);
+			all.addAll(archiveBehaviors);
+		}
+		BehaviorMatrix matrix = BehaviorMatrix.of(all);
+		final VantagePointTree population = new VantagePointTree(matrix, 0, size);
+		final VantagePointTree archived = compareArchive ? new VantagePointTree(matrix, size, matrix.size()) : null;
+		final double[] result = new double[size];
+		lastIndex = population;
+
+		int chunks = CommonConstants.parallelDiversity && size >= VantagePointTree.MIN_INDEXED_SIZE
+				? Math.min(size, 4 * Parameters.parameters.integerParameter("threads")) : 1;
+		if (chunks == 1) {
+			nearestDistances(population, archived, result, 0, size);
+			return result;
+		}
+		ArrayList<Future<Boolean>> futures = new ArrayList<Future<Boolean>>(chunks);
+		for (int c = 0; c < chunks; c++) {
+			final int first = (int) ((long) size * c / chunks);
+			final int last = (int) ((long) size * (c + 1) / chunks);
+			futures.add(EvaluationExecutor.submit(new Callable<Boolean>() {
+				@Override
+				public Boolean call() {
+					nearestDistances(population, archived, result, first, last);
+					return true;
+				}
+			}));
+		}
+		for (Future<Boolean> future : futures) {
+			try {
+				future.get();
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.exit(1);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Diversity scores of the individuals from first (inclusive) to last
+	 * (exclusive)
+	 */
+	private static void nearestDistances(VantagePointTree population, VantagePointTree archived, double[] result,
+			int first, int last) {
+		for (int i = first; i < last; i++) {
+			// Individuals are not compared to themselves, and archive members
+			// identical to them are ignored
+			result[i] = population.nearestDistance(i, i, false);
+			if (archived != null) {
+				result[i] = Math.min(result[i], archived.nearestDistance(i, -1, true));
+			}
+		}
+	}
+
 	/**
 	 * Adds behavioral scores to each individual before they are subjected to
 	 * NSGA2 selection. Also adds some individuals to behavior archive, if it is
@@ -162,6 +254,8 @@ public class BDNSGA2<T> extends NSGA2<T> {
 		characterization.prepare();// gets a random syllabus
 		ArrayList<BehaviorVector> behaviorVectors = getBehaviorVectors(population);
 		ArrayList<Double> diversityScores = allDiversityScores(behaviorVectors, maxArchiveSize > 0);
+		// Saved before the archive is indexed below
+		populationIndex = lastIndex;
 
 		if (maxArchiveSize > 0) { // Adjust archive
 			// If overfull, remove least diverse individual from archive
@@ -0,0 +1,71 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.BehaviorVector;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.Score;
+
+public class BDNSGA2Test {
+
+	private static final int POPULATION = 60;
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	private static ArrayList<Score<Object>> randomScores(Random r, int n) {
+		ArrayList<Score<Object>> result = new ArrayList<Score<Object>>(n);
+		for (int i = 0; i < n; i++) {
+			ArrayList<Double> behavior = new ArrayList<Double>();
+			for (int j = 0; j < 10; j++) {
+				behavior.add((double) r.nextInt(3));
+			}
+			result.add(new Score<Object>(null, new double[] { r.nextDouble() }, behavior));
+		}
+		return result;
+	}
+
+	/**
+	 * Several generations with an archive, where the diversity of every
+	 * individual is also computed by comparing it to every other behavior
+	 *
+	 * @return diversity scores of all generations
+	 */
+	private ArrayList<Double> run(boolean parallel) {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "mu:" + POPULATION,
+				"bdArchiveSize:50", "threads:3", "parallelDiversity:" + parallel });
+		MMNEAT.loadClasses();
+		assertEquals(parallel, CommonConstants.parallelDiversity);
+		BDNSGA2<Object> ea = new BDNSGA2<Object>();
+		Random r = new Random(0);
+		ArrayList<Double> result = new ArrayList<Double>();
+		for (int g = 0; g < 8; g++) {
+			ArrayList<Score<Object>> population = ea.prepareSourcePopulation(randomScores(r, POPULATION), randomScores(r, POPULATION));
+			for (Score<Object> s : population) {
+				result.add(s.scores[s.scores.length - 1]);
+			}
+			// Check against comparing all pairs, including the archive
+			ArrayList<BehaviorVector> behaviors = ea.getBehaviorVectors(population);
+			ArrayList<Double> scores = ea.allDiversityScores(behaviors, true);
+			for (int i = 0; i < population.size(); i++) {
+				assertEquals(ea.diversityScore(behaviors, i, true), scores.get(i), 0);
+			}
+		}
+		return result;
+	}
+
+	@Test
+	public void testParallelDiversity() {
+		assertEquals(run(false), run(true));
+	}
+}
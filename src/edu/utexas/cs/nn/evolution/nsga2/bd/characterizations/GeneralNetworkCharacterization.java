@@ -57,21 +57,23 @@ public class GeneralNetworkCharacterization<T extends Network> implements Behavi
 	 *            network
 	 * @param syllabus
 	 *            syllabus
-	 * @return behavior vector
+	 * @return behavior vector: the outputs for each syllabus example in order
 	 */
-	protected ArrayList<Double> getBehaviorVector(T net, ArrayList<double[]> syllabus) {
+	protected double[] getBehaviorVector(T net, ArrayList<double[]> syllabus) {
 		net.flush();// clears internal state of network
-		ArrayList<Double> behaviorVector = new ArrayList<Double>(syllabus.size() * net.numOutputs());
-		for (int x = 0; x < syllabus.size(); x++) {// gets behavior vector by
-													// processing syllabus
-													// through net
-			double[] output = net.process(syllabus.get(x));// uses processed
-															// syllabus to
-															// compare networks'
-															// diversity
-			for (int i = 0; i < output.length; i++) {
-				behaviorVector.add(output[i]);
-			}
+		// gets behavior vector by processing whole syllabus through net
+		double[][] outputs = net.processBatch(syllabus.toArray(new double[syllabus.size()][]), false);
+		int length = 0;
+		for (int x = 0; x < outputs.length; x++) {
+			length += outputs[x].length;
+		}
+		double[] behaviorVector = new double[length];
+		int pos = 0;
+		for (int x = 0; x < outputs.length; x++) {
+			double[] output = outputs[x];// uses processed syllabus to compare
+											// networks' diversity
+			System.arraycopy(output, 0, behaviorVector, pos, output.length);
+			pos += output.length;
 		}
 		return behaviorVector;
 	}
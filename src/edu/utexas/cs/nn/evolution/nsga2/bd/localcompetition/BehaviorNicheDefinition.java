@@ -0,0 +1,80 @@
+/*
+ * Method for determining what other members of a population are in the same niche
+ * for local competition
+ */
+package edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition;
+
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.VantagePointTree;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.Score;
+import java.util.ArrayList;
+
+/**
+ * The niche of an individual is itself and the nicheSize individuals nearest
+ * to it in behavior space, as in the local competition of Lehman and
+ * Stanley. Neighbors are found with the index of behaviors that
+ * LocalCompetitionBDNSGA2 already built to compute behavioral diversity, so
+ * all niches take far fewer distance computations than comparing every pair
+ * of individuals. Individuals at the same distance are ordered by their
+ * position in the population.
+ */
+public class BehaviorNicheDefinition<T> extends NicheDefinition<T> {
+
+	private final int nicheSize;
+
+	public BehaviorNicheDefinition() {
+		this(Parameters.parameters.integerParameter("nicheSize"));
+	}
+
+	/**
+	 * @param nicheSize
+	 *            number of neighbors in each niche
+	 */
+	public BehaviorNicheDefinition(int nicheSize) {
+		this.nicheSize = nicheSize;
+	}
+
+	@Override
+	public ArrayList<Score<T>> getNiche(Score<T> individual) {
+		int position = -1;
+		for (int i = 0; i < originalPopulation.size() && position == -1; i++) {
+			if (originalPopulation.get(i) == individual) {
+				position = i;
+			}
+		}
+		int[] members = niche(position);
+		ArrayList<Score<T>> result = new ArrayList<Score<T>>(members.length);
+		for (int member : members) {
+			result.add(originalPopulation.get(member));
+		}
+		return result;
+	}
+
+	@Override
+	public int[][] getNiches(ArrayList<Score<T>> population, VantagePointTree behaviorIndex) {
+		this.behaviorIndex = behaviorIndex;
+		loadPopulation(population);
+		int[][] result = new int[population.size()][];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = niche(i);
+		}
+		return result;
+	}
+
+	/**
+	 * @param position
+	 *            position of an individual in the population
+	 * @return positions of the individual and its nearest neighbors
+	 */
+	private int[] niche(int position) {
+		if (behaviorIndex == null || behaviorIndex.size() != originalPopulation.size()) {
+			System.out.println("Behavior niches need the behaviors of the population from BDNSGA2");
+			System.exit(1);
+		}
+		int[] neighbors = behaviorIndex.nearestRows(position, nicheSize);
+		int[] result = new int[neighbors.length + 1];
+		result[0] = position;
+		System.arraycopy(neighbors, 0, result, 1, neighbors.length);
+		return result;
+	}
+}
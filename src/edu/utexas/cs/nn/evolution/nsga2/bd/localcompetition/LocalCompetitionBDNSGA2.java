@@ -41,14 +41,9 @@ public class LocalCompetitionBDNSGA2<T> extends BDNSGA2<T> {
 			ArrayList<Score<T>> childrenScores) {
 		// BDNSGA2 addes diversity scores as a final objective to each score
 		ArrayList<Score<T>> originalPopulation = super.prepareSourcePopulation(parentScores, childrenScores);
-		// Give population to niche definition
-		nicheDefinition.loadPopulation(originalPopulation);
-		// Determine each niche
-		ArrayList<ArrayList<Score<T>>> niches = new ArrayList<ArrayList<Score<T>>>(originalPopulation.size());
-		for (int i = 0; i < originalPopulation.size(); i++) {
-			ArrayList<Score<T>> niche = nicheDefinition.getNiche(originalPopulation.get(i));
-			niches.add(niche);
-		}
+		// Determine all niches at once, reusing the index of behaviors that
+		// was built to compute behavioral diversity
+		int[][] niches = nicheDefinition.getNiches(originalPopulation, populationIndex);
 		// Now that niches are calculated, remove the BD scores, but put them in
 		// the new score
 		ArrayList<Score<T>> localCompetitonPopulation = new ArrayList<Score<T>>(originalPopulation.size());
@@ -62,25 +57,82 @@ public class LocalCompetitionBDNSGA2<T> extends BDNSGA2<T> {
 			s.dropLastScore();
 		}
 		// Now get niche dominance count for each individual
+		int[] nicheDominationCounts = nicheDominationCounts(originalPopulation, niches);
+		// Log lines for the whole generation are written at once
+		StringBuilder log = writeOutput ? new StringBuilder() : null;
 		for (int i = 0; i < originalPopulation.size(); i++) {
 			Score<T> s = originalPopulation.get(i);
-			int nicheDominationCount = 0;
-			ArrayList<Score<T>> niche = niches.get(i);
-			for (Score<T> n : niche) {
-				if (s.isAtLeastAsGood(n)) {
-					nicheDominationCount++;
-				}
-			}
 			// Add niche domination ratio to score
-			double ratio = (nicheDominationCount * 1.0) / niche.size();
-			nicheLog.log(s.individual.getId() + "\t" + nicheDominationCount + "\t" + niche.size() + "\t" + ratio);
+			double ratio = (nicheDominationCounts[i] * 1.0) / niches[i].length;
+			if (writeOutput) {
+				log.append(s.individual.getId() + "\t" + nicheDominationCounts[i] + "\t" + niches[i].length + "\t" + ratio);
+				log.append(System.lineSeparator());
+			}
 			localCompetitonPopulation.get(i).extraScore(ratio);
 		}
-		nicheLog.log("---Gen " + generation + " Over-----------------");
+		if (writeOutput) {
+			log.append("---Gen " + generation + " Over-----------------");
+			nicheLog.log(log.toString());
+		}
 		// Pair of BD and local dominance count will be used for selection
 		return localCompetitonPopulation;
 	}
 
+	/**
+	 * For each individual, the number of members of its niche that it is at
+	 * least as good as (Score.isAtLeastAsGood). Objectives are copied into one
+	 * primitive array first, so the comparisons do not go through the score
+	 * objects. Individual i is at least as good as j when it is not worse in
+	 * any objective, which is what MultiObjectiveScore computes.
+	 *
+	 * @param <T>
+	 *            phenotype
+	 * @param population
+	 *            scores of the population
+	 * @param niches
+	 *            for each individual, positions of the members of its niche
+	 * @return number of niche members each individual is at least as good as
+	 */
+	public static <T> int[] nicheDominationCounts(ArrayList<Score<T>> population, int[][] niches) {
+		int[] result = new int[population.size()];
+		int m = population.isEmpty() ? 0 : population.get(0).scores.length;
+		boolean primitive = true;
+		for (Score<T> s : population) {
+			primitive = primitive && s instanceof MultiObjectiveScore && s.scores.length == m;
+		}
+		if (!primitive) {
+			// Single objective scores or scores of different lengths
+			for (int i = 0; i < result.length; i++) {
+				for (int j : niches[i]) {
+					if (population.get(i).isAtLeastAsGood(population.get(j))) {
+						result[i]++;
+					}
+				}
+			}
+			return result;
+		}
+		double[] objectives = new double[population.size() * m];
+		for (int i = 0; i < population.size(); i++) {
+			System.arraycopy(population.get(i).scores, 0, objectives, i * m, m);
+		}
+		for (int i = 0; i < result.length; i++) {
+			int a = i * m;
+			int count = 0;
+			for (int j : niches[i]) {
+				int b = j * m;
+				int k = 0;
+				while (k < m && !(objectives[a + k] < objectives[b + k])) {
+					k++;
+				}
+				if (k == m) {
+					count++;
+				}
+			}
+			result[i] = count;
+		}
+		return result;
+	}
+
 	@Override
 	public void close(ArrayList<Genotype<T>> population) {
 		super.close(population);
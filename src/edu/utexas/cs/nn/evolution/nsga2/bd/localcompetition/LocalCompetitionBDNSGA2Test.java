@@ -0,0 +1,128 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.RealBehaviorVector;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.MultiObjectiveScore;
+import edu.utexas.cs.nn.scores.Score;
+
+public class LocalCompetitionBDNSGA2Test {
+
+	private static final int POPULATION = 50;
+	private static final int NICHE_SIZE = 6;
+
+	@After
+	public void tearDown() throws Exception {
+		MMNEAT.clearClasses();
+	}
+
+	/**
+	 * Scores with few distinct values, so there are ties in objectives and
+	 * behavior distances
+	 */
+	private static ArrayList<Score<Object>> randomScores(Random r, int n) {
+		ArrayList<Score<Object>> result = new ArrayList<Score<Object>>(n);
+		for (int i = 0; i < n; i++) {
+			ArrayList<Double> behavior = new ArrayList<Double>();
+			for (int j = 0; j < 6; j++) {
+				behavior.add((double) r.nextInt(3));
+			}
+			result.add(new MultiObjectiveScore<Object>(null, new double[] { r.nextInt(4), r.nextInt(4) }, behavior, new double[0]));
+		}
+		return result;
+	}
+
+	/**
+	 * Niche of an individual found by comparing it to every other individual
+	 */
+	private static ArrayList<Score<Object>> bruteForceNiche(ArrayList<Score<Object>> population, int i) {
+		RealBehaviorVector self = new RealBehaviorVector(population.get(i).behaviorVector);
+		ArrayList<Integer> others = new ArrayList<Integer>();
+		for (int j = 0; j < population.size(); j++) {
+			if (j != i) {
+				others.add(j);
+			}
+		}
+		others.sort((a, b) -> {
+			int c = Double.compare(new RealBehaviorVector(population.get(a).behaviorVector).distance(self),
+					new RealBehaviorVector(population.get(b).behaviorVector).distance(self));
+			return c != 0 ? c : Integer.compare(a, b);
+		});
+		ArrayList<Score<Object>> result = new ArrayList<Score<Object>>();
+		result.add(population.get(i));
+		for (int j = 0; j < NICHE_SIZE; j++) {
+			result.add(population.get(others.get(j)));
+		}
+		return result;
+	}
+
+	@Test
+	public void testBehaviorNiches() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "mu:" + POPULATION,
+				"nicheSize:" + NICHE_SIZE, "nicheDefinition:edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition.BehaviorNicheDefinition" });
+		MMNEAT.loadClasses();
+		LocalCompetitionBDNSGA2<Object> ea = new LocalCompetitionBDNSGA2<Object>();
+		Random r = new Random(0);
+		for (int g = 0; g < 3; g++) {
+			ArrayList<Score<Object>> parents = randomScores(r, POPULATION);
+			ArrayList<Score<Object>> localCompetition = ea.prepareSourcePopulation(parents, randomScores(r, POPULATION));
+			// Parents and children, with their diversity scores dropped again
+			ArrayList<Score<Object>> population = parents;
+			assertEquals(2 * POPULATION, population.size());
+			for (int i = 0; i < population.size(); i++) {
+				ArrayList<Score<Object>> niche = bruteForceNiche(population, i);
+				int count = 0;
+				for (Score<Object> n : niche) {
+					if (population.get(i).isAtLeastAsGood(n)) {
+						count++;
+					}
+				}
+				assertEquals(2, localCompetition.get(i).scores.length);
+				assertEquals(count * 1.0 / niche.size(), localCompetition.get(i).scores[1], 0);
+			}
+		}
+	}
+
+	@Test
+	public void testNicheDominationCounts() {
+		Random r = new Random(1);
+		ArrayList<Score<Object>> multiple = randomScores(r, 40);
+		ArrayList<Score<Object>> single = new ArrayList<Score<Object>>();
+		for (int i = 0; i < 40; i++) {
+			single.add(new Score<Object>(null, new double[] { r.nextInt(4) }, null));
+		}
+		for (ArrayList<Score<Object>> population : new ArrayList<ArrayList<Score<Object>>>() {
+			{
+				add(multiple);
+				add(single);
+			}
+		}) {
+			int[][] niches = new int[population.size()][];
+			for (int i = 0; i < niches.length; i++) {
+				niches[i] = new int[1 + r.nextInt(10)];
+				niches[i][0] = i;
+				for (int j = 1; j < niches[i].length; j++) {
+					niches[i][j] = r.nextInt(population.size());
+				}
+			}
+			int[] counts = LocalCompetitionBDNSGA2.nicheDominationCounts(population, niches);
+			for (int i = 0; i < niches.length; i++) {
+				int count = 0;
+				for (int j : niches[i]) {
+					if (population.get(i).isAtLeastAsGood(population.get(j))) {
+						count++;
+					}
+				}
+				assertEquals(count, counts[i]);
+			}
+		}
+	}
+}
@@ -4,8 +4,10 @@
  */
 package edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition;
 
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.VantagePointTree;
 import edu.utexas.cs.nn.scores.Score;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
 
 /**
  *
@@ -14,10 +16,44 @@ import java.util.ArrayList;
 public abstract class NicheDefinition<T> {
 
 	ArrayList<Score<T>> originalPopulation;
+	// Behaviors of originalPopulation, if known
+	VantagePointTree behaviorIndex = null;
 
 	public void loadPopulation(ArrayList<Score<T>> originalPopulation) {
 		this.originalPopulation = originalPopulation;
 	}
 
 	public abstract ArrayList<Score<T>> getNiche(Score<T> individual);
+
+	/**
+	 * Niches of every member of the population at once. By default this
+	 * loads the population and calls getNiche for each member in order, but
+	 * definitions that can compute all niches in one pass should override
+	 * it.
+	 *
+	 * @param population
+	 *            population to divide into niches
+	 * @param behaviorIndex
+	 *            index of the behaviors of the population, with one row per
+	 *            member in the same order, or null if there is none
+	 * @return for each member, the positions in population of the members
+	 *         of its niche. Members of the same niche may share an array.
+	 */
+	public int[][] getNiches(ArrayList<Score<T>> population, VantagePointTree behaviorIndex) {
+		this.behaviorIndex = behaviorIndex;
+		loadPopulation(population);
+		IdentityHashMap<Score<T>, Integer> positions = new IdentityHashMap<Score<T>, Integer>(2 * population.size());
+		for (int i = 0; i < population.size(); i++) {
+			positions.put(population.get(i), i);
+		}
+		int[][] niches = new int[population.size()][];
+		for (int i = 0; i < population.size(); i++) {
+			ArrayList<Score<T>> niche = getNiche(population.get(i));
+			niches[i] = new int[niche.size()];
+			for (int j = 0; j < niche.size(); j++) {
+				niches[i][j] = positions.get(niche.get(j));
+			}
+		}
+		return niches;
+	}
 }
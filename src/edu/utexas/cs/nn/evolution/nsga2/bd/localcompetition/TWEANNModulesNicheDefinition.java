@@ -5,6 +5,7 @@
 package edu.utexas.cs.nn.evolution.nsga2.bd.localcompetition;
 
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.nsga2.bd.vectors.VantagePointTree;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.scores.Score;
 import java.util.HashMap;
@@ -109,6 +110,44 @@ public class TWEANNModulesNicheDefinition extends NicheDefinition<TWEANN> {
 		return niches.get(numModes);
 	}
 
+	/**
+	 * Groups the whole population by number of modules in one pass. All
+	 * members of a niche share the same array of positions.
+	 */
+	@Override
+	public int[][] getNiches(ArrayList<Score<TWEANN>> population, VantagePointTree behaviorIndex) {
+		this.behaviorIndex = behaviorIndex;
+		loadPopulation(population);
+		HashMap<Integer, ArrayList<Integer>> positions = new HashMap<Integer, ArrayList<Integer>>();
+		for (int i = 0; i < population.size(); i++) {
+			Score<TWEANN> s = population.get(i);
+			int numModes = ((TWEANNGenotype) s.individual).numModules;
+			if (!niches.containsKey(numModes)) {
+				niches.put(numModes, new ArrayList<Score<TWEANN>>());
+				positions.put(numModes, new ArrayList<Integer>());
+			}
+			niches.get(numModes).add(s);
+			positions.get(numModes).add(i);
+		}
+		HashMap<Integer, int[]> arrays = new HashMap<Integer, int[]>();
+		for (Integer numModes : positions.keySet()) {
+			ArrayList<Integer> members = positions.get(numModes);
+			int[] array = new int[members.size()];
+			for (int j = 0; j < array.length; j++) {
+				array[j] = members.get(j);
+			}
+			arrays.put(numModes, array);
+		}
+		int[][] result = new int[population.size()][];
+		for (int i = 0; i < population.size(); i++) {
+			Score<TWEANN> s = population.get(i);
+			int numModes = ((TWEANNGenotype) s.individual).numModules;
+			result[i] = arrays.get(numModes);
+			updateBestNicheScores(numModes, s);
+		}
+		return result;
+	}
+
 	private void updateBestNicheScores(int numModes, Score<TWEANN> individual) {
 		int numScores = individual.numObjectives() - 1; // Ignore diversity
 														// objective
@@ -0,0 +1,173 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import java.util.List;
+
+/**
+ * Behavior vectors of a whole population packed into one contiguous
+ * primitive array, so that distances can be computed without boxing,
+ * cloning or padding. Real vectors become rows of doubles, padded with zeros
+ * to the length of the longest one, and bit vectors become rows of longs.
+ * Distances are exactly the same as those computed by the vectors
+ * themselves. Vectors of any other type are kept as they are.
+ */
+public abstract class BehaviorMatrix {
+
+	/**
+	 * @param vectors
+	 *            behavior vectors that are all of the same kind
+	 * @return matrix with one row per vector, in the same order
+	 */
+	public static BehaviorMatrix of(List<? extends BehaviorVector> vectors) {
+		boolean real = true;
+		boolean bits = true;
+		for (BehaviorVector v : vectors) {
+			real = real && v instanceof RealBehaviorVector;
+			bits = bits && v instanceof BitBehaviorVector;
+		}
+		if (real && !vectors.isEmpty()) {
+			return new Real(vectors);
+		} else if (bits && !vectors.isEmpty()) {
+			return new Bits(vectors);
+		} else {
+			return new Objects(vectors);
+		}
+	}
+
+	/**
+	 * @return number of rows
+	 */
+	public abstract int size();
+
+	/**
+	 * @param i
+	 *            row of one vector
+	 * @param j
+	 *            row of another vector
+	 * @return distance between the vectors
+	 */
+	public abstract double distance(int i, int j);
+
+	/**
+	 * @return whether the distance is known to satisfy the triangle
+	 *         inequality, which a VantagePointTree depends on
+	 */
+	public abstract boolean isMetric();
+
+	/**
+	 * Euclidean distance between real vectors
+	 */
+	private static class Real extends BehaviorMatrix {
+		private final double[] values;
+		private final int[] lengths;
+		private final int width;
+		private final boolean finite;
+
+		Real(List<? extends BehaviorVector> vectors) {
+			lengths = new int[vectors.size()];
+			int max = 0;
+			for (int i = 0; i < lengths.length; i++) {
+				lengths[i] = ((RealBehaviorVector) vectors.get(i)).values().length;
+				max = Math.max(max, lengths[i]);
+			}
+			width = max;
+			values = new double[lengths.length * width];
+			for (int i = 0; i < lengths.length; i++) {
+				System.arraycopy(((RealBehaviorVector) vectors.get(i)).values(), 0, values, i * width, lengths[i]);
+			}
+			boolean allFinite = true;
+			for (int i = 0; i < values.length && allFinite; i++) {
+				allFinite = !Double.isNaN(values[i]) && !Double.isInfinite(values[i]);
+			}
+			finite = allFinite;
+		}
+
+		@Override
+		public int size() {
+			return lengths.length;
+		}
+
+		@Override
+		public double distance(int i, int j) {
+			// Row lengths are kept so that padding is summed in the same
+			// order as RealBehaviorVector.distance
+			return RealBehaviorVector.distance(values, i * width, lengths[i], values, j * width, lengths[j]);
+		}
+
+		@Override
+		public boolean isMetric() {
+			// NaN distances can not be used to skip anything
+			return finite;
+		}
+	}
+
+	/**
+	 * Hamming distance between bit vectors
+	 */
+	private static class Bits extends BehaviorMatrix {
+		private final long[] words;
+		private final int rows;
+		private final int width;
+
+		Bits(List<? extends BehaviorVector> vectors) {
+			rows = vectors.size();
+			long[][] all = new long[rows][];
+			int max = 0;
+			for (int i = 0; i < rows; i++) {
+				all[i] = ((BitBehaviorVector) vectors.get(i)).words();
+				max = Math.max(max, all[i].length);
+			}
+			width = max;
+			words = new long[rows * width];
+			for (int i = 0; i < rows; i++) {
+				System.arraycopy(all[i], 0, words, i * width, all[i].length);
+			}
+		}
+
+		@Override
+		public int size() {
+			return rows;
+		}
+
+		@Override
+		public double distance(int i, int j) {
+			int count = 0;
+			int a = i * width;
+			int b = j * width;
+			for (int k = 0; k < width; k++) {
+				count += Long.bitCount(words[a + k] ^ words[b + k]);
+			}
+			return count;
+		}
+
+		@Override
+		public boolean isMetric() {
+			return true;
+		}
+	}
+
+	/**
+	 * Any other kind of vector, whose distance is computed by the vectors
+	 */
+	private static class Objects extends BehaviorMatrix {
+		private final List<? extends BehaviorVector> vectors;
+
+		Objects(List<? extends BehaviorVector> vectors) {
+			this.vectors = vectors;
+		}
+
+		@Override
+		public int size() {
+			return vectors.size();
+		}
+
+		@Override
+		public double distance(int i, int j) {
+			return vectors.get(j).distance(vectors.get(i));
+		}
+
+		@Override
+		public boolean isMetric() {
+			return false;
+		}
+	}
+}
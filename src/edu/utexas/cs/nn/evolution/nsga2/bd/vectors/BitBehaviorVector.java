@@ -18,6 +18,13 @@ public class BitBehaviorVector implements BehaviorVector {
 		this.bs = bs;
 	}
 
+	/**
+	 * @return the bits as returned by BitSet.toLongArray
+	 */
+	long[] words() {
+		return bs.toLongArray();
+	}
+
 	/*
 	 * Hamming distance
 	 */
@@ -28,6 +28,32 @@ public class HighestBitBehaviorVector extends BitBehaviorVector {
 		super(groupBits(xs, groupSize));
 	}
 
+	/**
+	 * Constructor for outputs stored in an array
+	 *
+	 * @param xs
+	 *            network outputs for the whole syllabus
+	 * @param groupSize
+	 *            number of outputs per syllabus example
+	 */
+	public HighestBitBehaviorVector(double[] xs, int groupSize) {
+		super(groupBits(xs, groupSize));
+	}
+
+	/**
+	 * Same as groupBits for an ArrayList, without boxing
+	 */
+	public static BitSet groupBits(double[] xs, int groupSize) {
+		BitSet bs = new BitSet(xs.length);
+		double[] set = new double[groupSize];
+		for (int i = 0; i < xs.length; i += groupSize) {
+			System.arraycopy(xs, i, set, 0, groupSize);
+			int highest = StatisticsUtilities.argmax(set);
+			bs.set(i + highest);
+		}
+		return bs;
+	}
+
 	/**
 	 * For every set of outputs (groupSize) one action is chosen, which has the
 	 * highest output value. That position is mapped to 1 and the un-chosen
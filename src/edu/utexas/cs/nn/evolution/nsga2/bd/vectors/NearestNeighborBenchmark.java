@@ -0,0 +1,71 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * Measures how computing behavioral diversity (the distance from each
+ * behavior to its nearest neighbor) scales with population size, both with a
+ * VantagePointTree over a BehaviorMatrix (as BDNSGA2 now does) and by
+ * comparing every pair of behavior vectors. Behaviors are outputs of random
+ * networks on a syllabus, simulated by clustered random values. The pairwise
+ * version is skipped for populations larger than maxPairwise.
+ *
+ * Usage: java edu.utexas.cs.nn.evolution.nsga2.bd.vectors.NearestNeighborBenchmark [maxSize] [maxPairwise] [dimensions]
+ */
+public class NearestNeighborBenchmark {
+
+	public static void main(String[] args) {
+		int maxSize = args.length > 0 ? Integer.parseInt(args[0]) : 16000;
+		int maxPairwise = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+		int dimensions = args.length > 2 ? Integer.parseInt(args[2]) : 40;
+		Random random = new Random(0);
+
+		System.out.println("size\tdimensions\ttree(ms)\tpairwise(ms)");
+		for (int n = 250; n <= maxSize; n *= 2) {
+			ArrayList<BehaviorVector> vectors = randomVectors(random, n, dimensions);
+			double[] tree = new double[n];
+			long start = System.nanoTime();
+			VantagePointTree index = new VantagePointTree(BehaviorMatrix.of(vectors), 0, n);
+			for (int i = 0; i < n; i++) {
+				tree[i] = index.nearestDistance(i, i, false);
+			}
+			String treeTime = String.valueOf((System.nanoTime() - start) / 1000000.0);
+
+			String pairwise = "-";
+			if (n <= maxPairwise) {
+				start = System.nanoTime();
+				for (int i = 0; i < n; i++) {
+					double nearest = Double.MAX_VALUE;
+					for (int j = 0; j < n; j++) {
+						if (i != j) {
+							nearest = Math.min(nearest, vectors.get(j).distance(vectors.get(i)));
+						}
+					}
+					assert nearest == tree[i] : "Different distance for " + i + ": " + nearest + " vs " + tree[i];
+				}
+				pairwise = String.valueOf((System.nanoTime() - start) / 1000000.0);
+			}
+			System.out.println(n + "\t" + dimensions + "\t" + treeTime + "\t" + pairwise);
+		}
+	}
+
+	private static ArrayList<BehaviorVector> randomVectors(Random random, int n, int dimensions) {
+		double[][] centers = new double[20][dimensions];
+		for (double[] c : centers) {
+			for (int j = 0; j < dimensions; j++) {
+				c[j] = random.nextDouble() * 2 - 1;
+			}
+		}
+		ArrayList<BehaviorVector> result = new ArrayList<BehaviorVector>(n);
+		for (int i = 0; i < n; i++) {
+			double[] c = centers[random.nextInt(centers.length)];
+			double[] v = new double[dimensions];
+			for (int j = 0; j < dimensions; j++) {
+				v[j] = c[j] + random.nextGaussian() * 0.1;
+			}
+			result.add(new RealBehaviorVector(v));
+		}
+		return result;
+	}
+}
@@ -4,48 +4,80 @@
  */
 package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
 
-import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
 import java.util.ArrayList;
 
 /**
+ * Behavior vector of real values, compared by Euclidean distance. Vectors of
+ * different lengths are compared as if the shorter one ended in zeros.
  *
  * @author Jacob Schrum
  */
 public class RealBehaviorVector implements BehaviorVector {
 
-	private final ArrayList<Double> v;
+	private final double[] v;
 
 	public RealBehaviorVector(ArrayList<Double> v) {
-		this.v = v;
+		this.v = new double[v.size()];
+		for (int j = 0; j < this.v.length; j++) {
+			this.v[j] = v.get(j);
+		}
 	}
 
 	public RealBehaviorVector(int[] i) {
-		this.v = new ArrayList<Double>(i.length);
+		this.v = new double[i.length];
 		for (int j = 0; j < i.length; j++) {
-			v.add(new Double(i[j]));
+			v[j] = i[j];
 		}
 	}
 
 	public RealBehaviorVector(double[] d) {
-		this.v = new ArrayList<Double>(d.length);
-		for (int j = 0; j < d.length; j++) {
-			v.add(new Double(d[j]));
-		}
+		this.v = d.clone();
+	}
+
+	/**
+	 * @return the values, which must not be changed
+	 */
+	double[] values() {
+		return v;
 	}
 
 	public double distance(BehaviorVector rhs) {
-		ArrayList<Double> shorter = v;
-		ArrayList<Double> longer = ((RealBehaviorVector) rhs).v;
-		if (shorter.size() != longer.size()) {
-			if (shorter.size() > longer.size()) {
-				shorter = longer;
-				longer = v;
-			}
-
-			for (int i = shorter.size(); i < longer.size(); i++) {
-				shorter.add(0.0);
-			}
+		return distance(v, 0, v.length, ((RealBehaviorVector) rhs).v, 0, ((RealBehaviorVector) rhs).v.length);
+	}
+
+	/**
+	 * Euclidean distance between two vectors stored in arrays, where the
+	 * missing values of the shorter one are zero. Squares are summed in order
+	 * with Math.pow, exactly as
+	 * CartesianGeometricUtilities.euclideanDistance does, so the result is
+	 * the same to the last bit.
+	 *
+	 * @param x
+	 *            array containing the first vector
+	 * @param xStart
+	 *            index where the first vector starts
+	 * @param xLength
+	 *            length of the first vector
+	 * @param y
+	 *            array containing the second vector
+	 * @param yStart
+	 *            index where the second vector starts
+	 * @param yLength
+	 *            length of the second vector
+	 * @return Euclidean distance
+	 */
+	static double distance(double[] x, int xStart, int xLength, double[] y, int yStart, int yLength) {
+		int common = Math.min(xLength, yLength);
+		double sum = 0;
+		for (int i = 0; i < common; i++) {
+			sum += Math.pow(x[xStart + i] - y[yStart + i], 2);
+		}
+		for (int i = common; i < xLength; i++) {
+			sum += Math.pow(0.0 - x[xStart + i], 2);
+		}
+		for (int i = common; i < yLength; i++) {
+			sum += Math.pow(0.0 - y[yStart + i], 2);
 		}
-		return CartesianGeometricUtilities.euclideanDistance(shorter, longer);
+		return Math.sqrt(sum);
 	}
 }
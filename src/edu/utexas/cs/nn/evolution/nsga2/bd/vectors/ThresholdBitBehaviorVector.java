@@ -17,6 +17,18 @@ public class ThresholdBitBehaviorVector extends BitBehaviorVector {
 		super(thresholdAll(xs));
 	}
 
+	public ThresholdBitBehaviorVector(double[] xs) {
+		super(thresholdAll(xs));
+	}
+
+	public static BitSet thresholdAll(double[] xs) {
+		BitSet bs = new BitSet(xs.length);
+		for (int i = 0; i < xs.length; i++) {
+			bs.set(i, xs[i] > 0);
+		}
+		return bs;
+	}
+
 	public static BitSet thresholdAll(ArrayList<Double> xs) {
 		BitSet bs = new BitSet(xs.size());
 		for (int i = 0; i < xs.size(); i++) {
@@ -0,0 +1,309 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import java.util.Arrays;
+
+/**
+ * Index over a range of rows of a BehaviorMatrix that finds the distance from
+ * any row to its nearest neighbor within the range, or its k nearest
+ * neighbors (used for niches in local competition). Each node of the tree is
+ * a vantage point, and the rows below it are split by the median of their
+ * distance to it: the closer half goes to the inner subtree and the rest to
+ * the outer subtree. By the triangle inequality, a subtree whose rows are all
+ * further away than the nearest neighbor found so far can be skipped, so a
+ * query typically takes far fewer than N distance computations.
+ *
+ * The search is exact, and returns exactly the same result as comparing the
+ * query to every row. Subtrees are only skipped with a margin that covers
+ * the rounding error of computed distances. If the matrix is not known to be
+ * a metric, or the range is small, every row is simply compared to the query.
+ *
+ * A tree never changes after it is built, so any number of threads can query
+ * it at once. Building it does not use any random numbers, so it has no
+ * effect on the rest of the experiment.
+ */
+public class VantagePointTree {
+
+	// Ranges at most this large are searched by comparing every row
+	private static final int LEAF_SIZE = 8;
+	// Smaller ranges are not worth indexing
+	public static final int MIN_INDEXED_SIZE = 32;
+	// Relative rounding error allowed when skipping subtrees
+	private static final double SLACK = 1e-9;
+
+	private final BehaviorMatrix matrix;
+	// Rows in the order of the tree. The node for range [lo, hi) has its
+	// vantage point at lo, its inner subtree at [lo + 1, mid) and its outer
+	// subtree at [mid, hi), where mid = (lo + 1 + hi) / 2
+	private final int[] rows;
+	// Median distance from the vantage point at each position to its outer
+	// subtree
+	private final double[] radius;
+	private final boolean indexed;
+
+	/**
+	 * Index the rows from first (inclusive) to last (exclusive)
+	 *
+	 * @param matrix
+	 *            behavior vectors
+	 * @param first
+	 *            first row to index
+	 * @param last
+	 *            one past the last row to index
+	 */
+	public VantagePointTree(BehaviorMatrix matrix, int first, int last) {
+		this.matrix = matrix;
+		this.rows = new int[last - first];
+		for (int i = 0; i < rows.length; i++) {
+			rows[i] = first + i;
+		}
+		this.radius = new double[rows.length];
+		this.indexed = matrix.isMetric() && rows.length >= MIN_INDEXED_SIZE;
+		if (indexed) {
+			build(0, rows.length, new double[rows.length]);
+		}
+	}
+
+	/**
+	 * @return number of indexed rows
+	 */
+	public int size() {
+		return rows.length;
+	}
+
+	private void build(int lo, int hi, double[] distances) {
+		if (hi - lo <= LEAF_SIZE) {
+			return;
+		}
+		int vantage = rows[lo];
+		for (int k = lo + 1; k < hi; k++) {
+			distances[k] = matrix.distance(vantage, rows[k]);
+		}
+		int mid = (lo + 1 + hi) >>> 1;
+		select(lo + 1, hi, mid, distances);
+		radius[lo] = distances[mid];
+		build(lo + 1, mid, distances);
+		build(mid, hi, distances);
+	}
+
+	/**
+	 * Rearrange rows (and their distances) in [lo, hi) so that the one at k is
+	 * where it would be if they were sorted by distance (quickselect)
+	 */
+	private void select(int lo, int hi, int k, double[] distances) {
+		hi--;
+		while (lo < hi) {
+			double pivot = distances[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (distances[i] < pivot) {
+					i++;
+				}
+				while (distances[j] > pivot) {
+					j--;
+				}
+				if (i <= j) {
+					swap(i, j, distances);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+
+	private void swap(int i, int j, double[] distances) {
+		int row = rows[i];
+		rows[i] = rows[j];
+		rows[j] = row;
+		double d = distances[i];
+		distances[i] = distances[j];
+		distances[j] = d;
+	}
+
+	/**
+	 * Distance from a row of the matrix to the nearest indexed row
+	 *
+	 * @param query
+	 *            row of the matrix, which does not need to be indexed
+	 * @param exclude
+	 *            row to ignore (usually the query itself), or -1
+	 * @param positiveOnly
+	 *            whether to ignore rows at distance zero
+	 * @return distance to the nearest row that is not ignored, or
+	 *         Double.MAX_VALUE if there is none
+	 */
+	public double nearestDistance(int query, int exclude, boolean positiveOnly) {
+		Search search = new Search(query, exclude, positiveOnly);
+		if (indexed) {
+			search.search(0, rows.length);
+		} else {
+			search.scan(0, rows.length);
+		}
+		return search.best;
+	}
+
+	/**
+	 * Nearest rows to a row of the matrix. Rows at the same distance are
+	 * ordered by row number, so the result does not depend on how the tree
+	 * was built.
+	 *
+	 * @param query
+	 *            row of the matrix
+	 * @param k
+	 *            number of neighbors
+	 * @return the k indexed rows other than query that are nearest to it (or
+	 *         all of them if there are fewer), nearest first
+	 */
+	public int[] nearestRows(int query, int k) {
+		Neighbors neighbors = new Neighbors(query, Math.min(k, rows.length));
+		if (neighbors.rows.length == 0) {
+			return new int[0];
+		} else if (indexed) {
+			neighbors.search(0, rows.length);
+		} else {
+			neighbors.scan(0, rows.length);
+		}
+		return Arrays.copyOf(neighbors.rows, neighbors.count);
+	}
+
+	/**
+	 * State of one query
+	 */
+	private class Search {
+		final int query;
+		final int exclude;
+		final boolean positiveOnly;
+		double best = Double.MAX_VALUE;
+
+		Search(int query, int exclude, boolean positiveOnly) {
+			this.query = query;
+			this.exclude = exclude;
+			this.positiveOnly = positiveOnly;
+		}
+
+		/**
+		 * @return distance from the query to the row
+		 */
+		double visit(int row) {
+			double d = matrix.distance(query, row);
+			if (row != exclude && (d > 0 || !positiveOnly)) {
+				best = Math.min(best, d);
+			}
+			return d;
+		}
+
+		void scan(int lo, int hi) {
+			for (int k = lo; k < hi; k++) {
+				visit(rows[k]);
+			}
+		}
+
+		void search(int lo, int hi) {
+			if (hi - lo <= LEAF_SIZE) {
+				scan(lo, hi);
+				return;
+			}
+			double d = visit(rows[lo]);
+			double mu = radius[lo];
+			int mid = (lo + 1 + hi) >>> 1;
+			double margin = SLACK * (d + mu);
+			// Inner rows are at most mu from the vantage point, so at least
+			// d - mu from the query. Outer rows are at least mu from it, so
+			// at least mu - d from the query.
+			if (d < mu) {
+				search(lo + 1, mid);
+				if (mu - d <= best + margin) {
+					search(mid, hi);
+				}
+			} else {
+				search(mid, hi);
+				if (d - mu <= best + margin) {
+					search(lo + 1, mid);
+				}
+			}
+		}
+	}
+
+	/**
+	 * State of one k nearest neighbors query. The neighbors found so far are
+	 * kept sorted, which is fast for the small k used for niches.
+	 */
+	private class Neighbors {
+		final int query;
+		final int[] rows;
+		final double[] distances;
+		int count = 0;
+
+		Neighbors(int query, int k) {
+			this.query = query;
+			this.rows = new int[k];
+			this.distances = new double[k];
+		}
+
+		/**
+		 * @return distance within which a row could still be a neighbor
+		 */
+		double bound() {
+			return count < rows.length ? Double.MAX_VALUE : distances[count - 1];
+		}
+
+		double visit(int row) {
+			double d = matrix.distance(query, row);
+			if (row == query) {
+				return d;
+			}
+			// Position of the new row, if it is nearer than some neighbor
+			int pos = count;
+			while (pos > 0 && (d < distances[pos - 1] || (d == distances[pos - 1] && row < rows[pos - 1]))) {
+				pos--;
+			}
+			if (pos < rows.length) {
+				int moved = Math.min(count, rows.length - 1) - pos;
+				System.arraycopy(rows, pos, rows, pos + 1, moved);
+				System.arraycopy(distances, pos, distances, pos + 1, moved);
+				rows[pos] = row;
+				distances[pos] = d;
+				count = Math.min(count + 1, rows.length);
+			}
+			return d;
+		}
+
+		void scan(int lo, int hi) {
+			for (int k = lo; k < hi; k++) {
+				visit(VantagePointTree.this.rows[k]);
+			}
+		}
+
+		void search(int lo, int hi) {
+			if (hi - lo <= LEAF_SIZE) {
+				scan(lo, hi);
+				return;
+			}
+			double d = visit(VantagePointTree.this.rows[lo]);
+			double mu = radius[lo];
+			int mid = (lo + 1 + hi) >>> 1;
+			double margin = SLACK * (d + mu);
+			// Same bounds as Search. Rows at exactly the bound are still
+			// visited, because they may replace a neighbor with a larger row
+			// number.
+			if (d < mu) {
+				search(lo + 1, mid);
+				if (mu - d <= bound() + margin) {
+					search(mid, hi);
+				}
+			} else {
+				search(mid, hi);
+				if (d - mu <= bound() + margin) {
+					search(lo + 1, mid);
+				}
+			}
+		}
+	}
+}
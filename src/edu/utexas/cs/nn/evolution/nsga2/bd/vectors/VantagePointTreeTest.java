@@ -0,0 +1,163 @@
+package edu.utexas.cs.nn.evolution.nsga2.bd.vectors;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Random;
+
+import org.junit.Test;
+
+import edu.utexas.cs.nn.util.CartesianGeometricUtilities;
+
+public class VantagePointTreeTest {
+
+	/**
+	 * Real vectors of different lengths, with values rounded so that there
+	 * are duplicates and ties
+	 */
+	private static ArrayList<BehaviorVector> realVectors(Random r, int n) {
+		ArrayList<BehaviorVector> result = new ArrayList<BehaviorVector>(n);
+		for (int i = 0; i < n; i++) {
+			if (i > 0 && r.nextInt(10) == 0) {
+				result.add(result.get(r.nextInt(i)));
+			} else {
+				double[] v = new double[18 + r.nextInt(3)];
+				for (int j = 0; j < v.length; j++) {
+					v[j] = Math.round(r.nextGaussian() * 4) / 4.0;
+				}
+				result.add(new RealBehaviorVector(v));
+			}
+		}
+		return result;
+	}
+
+	private static ArrayList<BehaviorVector> bitVectors(Random r, int n) {
+		ArrayList<BehaviorVector> result = new ArrayList<BehaviorVector>(n);
+		for (int i = 0; i < n; i++) {
+			BitSet bs = new BitSet();
+			int length = 90 + r.nextInt(60);
+			for (int j = 0; j < length; j++) {
+				bs.set(j, r.nextInt(4) == 0);
+			}
+			result.add(new BitBehaviorVector(bs));
+		}
+		return result;
+	}
+
+	/**
+	 * Distance to the nearest vector in [first, last), computed the way
+	 * BDNSGA2.diversityScore does
+	 */
+	private static double bruteForce(ArrayList<BehaviorVector> vectors, int query, int first, int last, int exclude, boolean positiveOnly) {
+		double result = Double.MAX_VALUE;
+		for (int i = first; i < last; i++) {
+			double d = vectors.get(i).distance(vectors.get(query));
+			if (i != exclude && (d > 0 || !positiveOnly)) {
+				result = Math.min(result, d);
+			}
+		}
+		return result;
+	}
+
+	private static void assertExact(ArrayList<BehaviorVector> vectors, int split) {
+		BehaviorMatrix matrix = BehaviorMatrix.of(vectors);
+		assertTrue(matrix.isMetric());
+		VantagePointTree first = new VantagePointTree(matrix, 0, split);
+		VantagePointTree second = new VantagePointTree(matrix, split, vectors.size());
+		for (int q = 0; q < split; q++) {
+			assertEquals(bruteForce(vectors, q, 0, split, q, false), first.nearestDistance(q, q, false), 0);
+			assertEquals(bruteForce(vectors, q, 0, split, q, true), first.nearestDistance(q, q, true), 0);
+			assertEquals(bruteForce(vectors, q, split, vectors.size(), -1, true), second.nearestDistance(q, -1, true), 0);
+			assertEquals(bruteForce(vectors, q, split, vectors.size(), -1, false), second.nearestDistance(q, -1, false), 0);
+		}
+	}
+
+	@Test
+	public void testRealVectors() {
+		Random r = new Random(0);
+		for (int n : new int[] { 1, 5, 40, 300 }) {
+			assertExact(realVectors(r, 2 * n), n);
+		}
+	}
+
+	@Test
+	public void testBitVectors() {
+		Random r = new Random(1);
+		for (int n : new int[] { 1, 5, 40, 300 }) {
+			assertExact(bitVectors(r, 2 * n), n);
+		}
+	}
+
+	/**
+	 * Nearest rows by comparing all of them, ordered by distance and then by
+	 * row
+	 */
+	private static int[] bruteForceRows(ArrayList<BehaviorVector> vectors, int query, int first, int last, int k) {
+		ArrayList<Integer> others = new ArrayList<Integer>();
+		for (int i = first; i < last; i++) {
+			if (i != query) {
+				others.add(i);
+			}
+		}
+		others.sort((a, b) -> {
+			int c = Double.compare(vectors.get(a).distance(vectors.get(query)), vectors.get(b).distance(vectors.get(query)));
+			return c != 0 ? c : Integer.compare(a, b);
+		});
+		int[] result = new int[Math.min(k, others.size())];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = others.get(i);
+		}
+		return result;
+	}
+
+	@Test
+	public void testNearestRows() {
+		Random r = new Random(4);
+		for (int n : new int[] { 3, 20, 200 }) {
+			ArrayList<ArrayList<BehaviorVector>> sets = new ArrayList<ArrayList<BehaviorVector>>(2);
+			sets.add(realVectors(r, n));
+			sets.add(bitVectors(r, n));
+			for (ArrayList<BehaviorVector> vectors : sets) {
+				VantagePointTree tree = new VantagePointTree(BehaviorMatrix.of(vectors), 0, n);
+				for (int q = 0; q < n; q++) {
+					for (int k : new int[] { 0, 1, 5, 15 }) {
+						assertArrayEquals(bruteForceRows(vectors, q, 0, n, k), tree.nearestRows(q, k));
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testNothingToCompare() {
+		BehaviorMatrix matrix = BehaviorMatrix.of(realVectors(new Random(2), 1));
+		assertEquals(Double.MAX_VALUE, new VantagePointTree(matrix, 0, 1).nearestDistance(0, 0, false), 0);
+		assertEquals(Double.MAX_VALUE, new VantagePointTree(matrix, 1, 1).nearestDistance(0, -1, false), 0);
+	}
+
+	@Test
+	public void testSameDistanceAsBoxedVectors() {
+		Random r = new Random(3);
+		for (int i = 0; i < 100; i++) {
+			ArrayList<Double> x = new ArrayList<Double>();
+			ArrayList<Double> y = new ArrayList<Double>();
+			for (int j = r.nextInt(20); j > 0; j--) {
+				x.add(r.nextGaussian());
+			}
+			for (int j = r.nextInt(20); j > 0; j--) {
+				y.add(r.nextGaussian());
+			}
+			double d = new RealBehaviorVector(x).distance(new RealBehaviorVector(y));
+			// Old behavior: pad the shorter list with zeros
+			while (x.size() < y.size()) {
+				x.add(0.0);
+			}
+			while (y.size() < x.size()) {
+				y.add(0.0);
+			}
+			assertEquals(CartesianGeometricUtilities.euclideanDistance(x, y), d, 0);
+			assertEquals(CartesianGeometricUtilities.euclideanDistance(y, x), d, 0);
+		}
+	}
+}
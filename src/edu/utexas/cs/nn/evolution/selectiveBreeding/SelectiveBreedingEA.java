@@ -134,18 +134,18 @@ public class SelectiveBreedingEA<T> implements SinglePopulationGenerationalEA<T>
 		for(int i = scores.size(); i < size; i++) {
 			long parentId1 = -1;
 			long parentId2 = -1;
-			Genotype<T> parent1 = scores.get(RandomNumbers.randomGenerator.nextInt(scores.size())).individual;
+			Genotype<T> parent1 = scores.get(RandomNumbers.generator().nextInt(scores.size())).individual;
 			parentId1 = parent1.getId();
 			Genotype<T> g1 = parent1.copy();
-			if (mating && RandomNumbers.randomGenerator.nextDouble() < crossoverRate) {
-				Genotype<T> parent2 = scores.get(RandomNumbers.randomGenerator.nextInt(scores.size())).individual;
+			if (mating && RandomNumbers.generator().nextDouble() < crossoverRate) {
+				Genotype<T> parent2 = scores.get(RandomNumbers.generator().nextInt(scores.size())).individual;
 				parentId2 = parent2.getId();
 				Genotype<T> g2 = parent2.copy();
 				Genotype<T> offspring1 = g1.crossover(g2);
 				offspring1.mutate();
 				children.add(offspring1);
 				i++;
-				EvolutionaryHistory.logLineageData(parentId1 + " X " + parentId2 + " -> " + offspring1.getId());
+				EvolutionaryHistory.logLineage(parentId1, parentId2, offspring1.getId());
 				offspring.add(new Offspring(offspring1.getId(), parentId1, parentId2, generation));
 			}
 			if(i < size) {
@@ -154,10 +154,10 @@ public class SelectiveBreedingEA<T> implements SinglePopulationGenerationalEA<T>
 				}
 				children.add(g1);
 				if (parentId2 == -1) {
-					EvolutionaryHistory.logLineageData(parentId1 + " -> " + g1.getId());
+					EvolutionaryHistory.logLineage(parentId1, -1, g1.getId());
 					offspring.add(new Offspring(g1.getId(), parentId1, generation));
 				} else {
-					EvolutionaryHistory.logLineageData(parentId1 + " X " + parentId2 + " -> " + g1.getId());
+					EvolutionaryHistory.logLineage(parentId1, parentId2, g1.getId());
 					offspring.add(new Offspring(g1.getId(), parentId1, parentId2, generation));
 				}
 			}
@@ -166,8 +166,7 @@ public class SelectiveBreedingEA<T> implements SinglePopulationGenerationalEA<T>
 		if(CommonConstants.netio) {
 			PopulationUtil.saveCurrentGen(scores);
 		}
-		EvolutionaryHistory.logMutationData("---Gen " + generation + " Over-----------------");
-		EvolutionaryHistory.logLineageData("---Gen " + generation + " Over-----------------");
+		EvolutionaryHistory.logGenerationOver(generation);
 		generation++;
 		return children;
 	}
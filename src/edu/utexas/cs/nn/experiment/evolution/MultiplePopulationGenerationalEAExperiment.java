@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.experiment.evolution;
 
+import edu.utexas.cs.nn.data.BackgroundWriter;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.MultiplePopulationGenerationalEA;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
@@ -140,7 +141,7 @@ public abstract class MultiplePopulationGenerationalEAExperiment implements Expe
 		System.out.println("Evolving with " + ea + " to solve " + ea.getTask());
 		if (writeOutput && !loaded) {
 			save("initial");
-			Parameters.parameters.saveParameters();
+			BackgroundWriter.saveParameters();
 		}
 		while (!shouldStop()) {
 			System.out.println("Starting generation: " + ea.currentGeneration());
@@ -214,7 +215,7 @@ public abstract class MultiplePopulationGenerationalEAExperiment implements Expe
 			if (writeOutput) {
 				save("gen" + gen);
 				Parameters.parameters.setInteger("lastSavedGeneration", gen);
-				Parameters.parameters.saveParameters();
+				BackgroundWriter.saveParameters();
 				/**
 				 * With multiple populations, there is a subdirectory for each
 				 * type of network, and the files from each subdirectory need to
@@ -222,17 +223,23 @@ public abstract class MultiplePopulationGenerationalEAExperiment implements Expe
 				 * the top-level dir.
 				 */
 				if (deleteOld) {
-					File lastDir = new File(saveDirectory + (gen > 1 ? "/gen" + (gen - 1) : "/initial"));
-					File[] dirs = lastDir.listFiles();
-					for (File dir : dirs) {
-						FileUtilities.deleteDirectoryContents(dir);
-						dir.delete();
-					}
-					lastDir.delete();
+					final File lastDir = new File(saveDirectory + (gen > 1 ? "/gen" + (gen - 1) : "/initial"));
+					BackgroundWriter.submit(new BackgroundWriter.Write() {
+						@Override
+						public void write() {
+							File[] dirs = lastDir.listFiles();
+							for (File dir : dirs) {
+								FileUtilities.deleteDirectoryContents(dir);
+								dir.delete();
+							}
+							lastDir.delete();
+						}
+					});
 				}
 			}
 		}
 		ea.close(populations);
+		BackgroundWriter.close();
 		if (blueprintLog != null) {
 			blueprintLog.close();
 		}
@@ -277,6 +284,6 @@ public abstract class MultiplePopulationGenerationalEAExperiment implements Expe
 	@SuppressWarnings("rawtypes") // Each population can be a different type
 	public long randomIdFromSubpop(int subpop) {
 		ArrayList<Genotype> pop = populations.get(subpop);
-		return pop.get(RandomNumbers.randomGenerator.nextInt(pop.size())).getId();
+		return pop.get(RandomNumbers.generator().nextInt(pop.size())).getId();
 	}
 }
\ No newline at end of file
@@ -1,5 +1,7 @@
 package edu.utexas.cs.nn.experiment.evolution;
 
+import edu.utexas.cs.nn.data.BackgroundWriter;
+import edu.utexas.cs.nn.data.GenerationCheckpoint;
 import edu.utexas.cs.nn.data.SaveThread;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.SinglePopulationGenerationalEA;
@@ -8,15 +10,15 @@ import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.experiment.Experiment;
 import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.PopulationUtil;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 /**
@@ -41,6 +43,8 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 	private boolean loaded = false;
 	// Whether file saving should occur in a parellel thread
 	private boolean parallel;
+	// Single file that generations are saved to, if checkpointGenerations is set
+	private GenerationCheckpoint<T> checkpoint = null;
 
 	public SinglePopulationGenerationalEAExperiment() {
 		// Dummy constructor used by Post Evolution Evaluation Experiment
@@ -104,7 +108,7 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 			Genotype<T> g = population.get(0);
 			assert g instanceof TWEANNGenotype : "Cannot init Combining Crossover on genotype other than TWEANNGenotype";
 			if (((TWEANNGenotype) g).numModules == 1) {
-				Collections.shuffle(population, RandomNumbers.randomGenerator);
+				Collections.shuffle(population, RandomNumbers.generator());
 				CombiningTWEANNCrossover combCross = new CombiningTWEANNCrossover();
 				assert population.size()
 						% 2 == 0 : "Need even number of individuals to properly pair off entire population";
@@ -194,6 +198,10 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 		if ((writeOutput || io) && !dir.exists()) {
 			dir.mkdir();
 		}
+		if (Parameters.parameters.booleanParameter("checkpointGenerations")) {
+			String experimentPrefix = Parameters.parameters.stringParameter("log") + Parameters.parameters.integerParameter("runNumber");
+			checkpoint = new GenerationCheckpoint<T>(saveDirectory + "/" + experimentPrefix + "_checkpoint.bin");
+		}
 		System.out.println("GenerationalEAExperiment: writeOutput = " + writeOutput);
 	}
 
@@ -207,7 +215,7 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 		System.out.println("Evolving with " + ea + " to solve " + ea.getTask());
 		if (writeOutput && !loaded) {
 			save("initial");
-			Parameters.parameters.saveParameters();
+			BackgroundWriter.saveParameters();
 		}
 		while (!shouldStop()) {
 			System.out.println("Starting generation: " + ea.currentGeneration());
@@ -224,23 +232,52 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 			if (writeOutput) {
 				save("gen" + gen);
 				Parameters.parameters.setInteger("lastSavedGeneration", gen);
-				Parameters.parameters.saveParameters();
+				BackgroundWriter.saveParameters();
 				if (deleteOld) {
-					File lastDir = gen > 1 ? new File(saveDirectory + "/gen" + (gen - 1))
+					// Only deleted once the new generation has been written
+					final File lastDir = gen > 1 ? new File(saveDirectory + "/gen" + (gen - 1))
 							: new File(saveDirectory + "/initial");
-					if (lastDir.exists()) {
-						FileUtilities.deleteDirectoryContents(lastDir);
-						lastDir.delete();
-					}
+					BackgroundWriter.submit(new BackgroundWriter.Write() {
+						@Override
+						public void write() {
+							if (lastDir.exists()) {
+								FileUtilities.deleteDirectoryContents(lastDir);
+								lastDir.delete();
+							}
+						}
+					});
 				}
 			}
 		}
 		ea.close(population);
+		// Evaluation and save threads are kept until the experiment ends
+		EvaluationExecutor.shutdown();
+		BackgroundWriter.close();
 		System.out.println("Finished evolving");
 	}
 
+	/**
+	 * Save the population to the checkpoint file if there is one, and
+	 * otherwise to a new directory of genotype files
+	 *
+	 * @param prefix
+	 *            subdir in saveDirectory to save files in if there is no
+	 *            checkpoint
+	 */
 	public void save(String prefix) {
-		save(prefix, saveDirectory, population, parallel);
+		if (checkpoint != null && GenerationCheckpoint.supports(population)) {
+			System.out.println("Saving generation " + ea.currentGeneration() + " to \"" + checkpoint.getFilename() + "\"");
+			try {
+				BackgroundWriter.submit(checkpoint.snapshot(ea.currentGeneration(), population));
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Failure saving checkpoint " + checkpoint.getFilename());
+				System.exit(1);
+			}
+			EvolutionaryHistory.saveArchetype(0);
+		} else {
+			save(prefix, saveDirectory, population, parallel);
+		}
 	}
 
 	/**
@@ -267,7 +304,12 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 		Parameters.parameters.setString("lastSavedDirectory", fullSaveDir);
 		System.out.println("Saving to \"" + fullSaveDir + "\" with prefix \"" + prefix + "\"");
 
-		ExecutorService poolExecutor = null;
+		if (BackgroundWriter.enabled()) {
+			BackgroundWriter.saveAll(population, fullSaveDir + "/" + prefix);
+			EvolutionaryHistory.saveArchetype(0);
+			return;
+		}
+
 		ArrayList<Future<Boolean>> futures = null;
 		ArrayList<SaveThread<Genotype<T>>> saves = new ArrayList<SaveThread<Genotype<T>>>(population.size());
 
@@ -282,10 +324,9 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 		}
 
 		if (parallel) {
-			poolExecutor = Executors.newCachedThreadPool();
 			futures = new ArrayList<Future<Boolean>>(population.size());
 			for (int i = 0; i < population.size(); i++) {
-				futures.add(poolExecutor.submit(saves.get(i)));
+				futures.add(EvaluationExecutor.submit(saves.get(i)));
 			}
 		}
 
@@ -303,10 +344,6 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 			}
 		}
 
-		if (parallel) {
-			poolExecutor.shutdown();
-		}
-
 		// Better to save archetype immediately after network saves so that
 		// unexpected crash/restarts don't make archetype out of sync with
 		// population.
@@ -314,14 +351,29 @@ public abstract class SinglePopulationGenerationalEAExperiment<T> implements Exp
 	}
 
 	/**
-	 * Load population and return true on success
+	 * Load population and return true on success. A checkpoint file also
+	 * restores the archetype and random generator saved with the population.
 	 *
 	 * @param directory
-	 *            directory full of xml files of saved genotypes
+	 *            directory full of xml files of saved genotypes, or a
+	 *            checkpoint file
 	 * @return true if successful, false otherwise
 	 */
 	public final boolean load(String directory) {
-		this.population = PopulationUtil.load(directory);
+		if (GenerationCheckpoint.isCheckpoint(directory)) {
+			System.out.println("Resuming from checkpoint: " + directory);
+			try {
+				GenerationCheckpoint.Generation<T> saved = GenerationCheckpoint.load(directory);
+				saved.restore();
+				this.population = saved.population;
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not load checkpoint " + directory);
+				System.exit(1);
+			}
+		} else {
+			this.population = PopulationUtil.load(directory);
+		}
 		return population != null;
 	}
 }
@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.experiment.post;
 
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.experiment.Experiment;
 import edu.utexas.cs.nn.graphics.DrawingPanel;
@@ -8,7 +9,6 @@ import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.GroupTask;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 import java.util.ArrayList;
-import wox.serial.Easy;
 
 /**
  * Actually only works for coevolved Ms. Pac-Man experiments.
@@ -32,7 +32,7 @@ public class BestCooperativeMsPacManTeamExperiment implements Experiment {
 		team = new Genotype[numMembers];
 		String teamDir = FileUtilities.getSaveDirectory() + "/bestTeam";
 		for (int i = 0; i < numMembers; i++) {
-			team[i] = (Genotype) Easy.load(teamDir + "/teamMember" + i + ".xml");
+			team[i] = (Genotype) GenotypeFiles.load(teamDir + "/teamMember" + i + ".xml");
 		}
 	}
 
@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.experiment.post;
 
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.experiment.Experiment;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
@@ -7,7 +8,6 @@ import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.LonerTask;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
-import wox.serial.Easy;
 
 /**
  * This really only works for Ms. Pac-Man (rename it?).
@@ -29,7 +29,7 @@ public class BestNetworkExperiment implements Experiment {
         @Override
 	public void init() {
 		String dir = FileUtilities.getSaveDirectory() + "/bestPacMan";
-		net = (Genotype) Easy.load(dir + "/bestPacMan.xml");
+		net = (Genotype) GenotypeFiles.load(dir + "/bestPacMan.xml");
 	}
 
 	// Will always be running the Ms. Pac-Man experiment
@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.experiment.post;
 
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.nsga2.NSGA2Score;
 import edu.utexas.cs.nn.experiment.Experiment;
@@ -24,7 +25,6 @@ import edu.utexas.cs.nn.util.random.RandomNumbers;
 import java.io.FileNotFoundException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import wox.serial.Easy;
 
 /**
  * Designed to take several pre-evolved populations and evaluate them (not
@@ -79,9 +79,9 @@ public final class MultinetworkMsPacManExperiment<T extends Network> implements
 			mediators[1] = new PillTaskMediator();
 
 			populations[0] = new ArrayList<Genotype<T>>(1);
-			populations[0].add((Genotype<T>) Easy.load(Parameters.parameters.stringParameter("ghostEatingSubnetwork")));
+			populations[0].add((Genotype<T>) GenotypeFiles.load(Parameters.parameters.stringParameter("ghostEatingSubnetwork")));
 			populations[1] = new ArrayList<Genotype<T>>(1);
-			populations[1].add((Genotype<T>) Easy.load(Parameters.parameters.stringParameter("pillEatingSubnetwork")));
+			populations[1].add((Genotype<T>) GenotypeFiles.load(Parameters.parameters.stringParameter("pillEatingSubnetwork")));
 		} else {
 			for (int i = 0; i < populations.length; i++) {
 				mediators[i] = tempMediators[i];
@@ -20,7 +20,7 @@ public class RandomPredatorController extends TorusPredPreyController {
 	 */
 	@Override
 	public int[] getAction(TorusAgent me, TorusWorld world, TorusAgent[] preds, TorusAgent[] prey) {
-		return predatorActions()[RandomNumbers.randomGenerator.nextInt(predatorActions().length)];
+		return predatorActions()[RandomNumbers.generator().nextInt(predatorActions().length)];
 	}
 
 }
\ No newline at end of file
@@ -20,7 +20,7 @@ public class RandomPreyController extends TorusPredPreyController {
 	 */
 	@Override
 	public int[] getAction(TorusAgent me, TorusWorld world, TorusAgent[] preds, TorusAgent[] prey) {
-		return preyActions()[RandomNumbers.randomGenerator.nextInt(preyActions().length)];
+		return preyActions()[RandomNumbers.generator().nextInt(preyActions().length)];
 	}
 
 }
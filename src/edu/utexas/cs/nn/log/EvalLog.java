@@ -17,6 +17,8 @@ public class EvalLog {
 	protected PrintStream stream;
 	protected String directory;
 	protected String prefix;
+	// Lines logged by threads that are buffering instead of writing directly
+	private final ThreadLocal<StringBuilder> buffers = new ThreadLocal<StringBuilder>();
 
 	public EvalLog(String infix) {
 		String experimentPrefix = Parameters.parameters.stringParameter("log")
@@ -45,7 +47,44 @@ public class EvalLog {
 	}
 
 	public void log(String data) {
-		stream.println(data);
+		StringBuilder buffer = buffers.get();
+		if (buffer != null) {
+			buffer.append(data).append(System.lineSeparator());
+		} else {
+			synchronized (this) {
+				stream.println(data);
+			}
+		}
+	}
+
+	/**
+	 * Lines logged by the current thread are held back until endBuffer is
+	 * called, so that logs written by several threads at once can still be
+	 * written in a fixed order.
+	 */
+	public void startBuffer() {
+		buffers.set(new StringBuilder());
+	}
+
+	/**
+	 * Stop holding back lines logged by the current thread
+	 *
+	 * @return text logged since startBuffer, to be passed to write
+	 */
+	public String endBuffer() {
+		String result = buffers.get().toString();
+		buffers.remove();
+		return result;
+	}
+
+	/**
+	 * Write text that was held back by a thread
+	 *
+	 * @param text
+	 *            result of endBuffer
+	 */
+	public synchronized void write(String text) {
+		stream.print(text);
 	}
 
 	public void close() {
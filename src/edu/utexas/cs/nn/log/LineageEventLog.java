@@ -0,0 +1,557 @@
+package edu.utexas.cs.nn.log;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import edu.utexas.cs.nn.data.BackgroundWriter;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.file.FileUtilities;
+
+/**
+ * Binary log of lineage and mutation events, which holds the same
+ * information as the text Lineage and Mutations logs in a single file.
+ * Events are encoded into an in-memory buffer as they happen, which any
+ * number of reproduction threads can do at once, and the buffer is handed
+ * to the BackgroundWriter when a generation ends or the buffer fills up, so
+ * logging a child never waits for the disk.
+ *
+ * Each record is a type byte followed by its fields: the parents and child
+ * of an offspring, the id and mutation names of a mutated genotype, the
+ * number of a generation that ended, or a line of lineage or mutation text
+ * that does not fit the other records. When a run is resumed, the log is
+ * cut off after the last saved generation. Events can be streamed with
+ * read, and export writes the old text logs.
+ */
+public class LineageEventLog {
+
+	// "MMLE"
+	private static final int MAGIC = 0x4D4D4C45;
+	private static final int VERSION = 1;
+	private static final int BUFFER_SIZE = 1 << 16;
+
+	private static final byte CHILD = 1;
+	private static final byte MUTATION = 2;
+	private static final byte GENERATION = 3;
+	private static final byte LINEAGE_TEXT = 4;
+	private static final byte MUTATION_TEXT = 5;
+
+	// Logs that have not been closed yet
+	private static final ArrayList<LineageEventLog> OPEN = new ArrayList<LineageEventLog>();
+
+	/**
+	 * Receives the events of a log as it is read. Every method does nothing
+	 * unless overridden.
+	 */
+	public static class Events {
+		/**
+		 * @param parent1
+		 *            id of the first parent
+		 * @param parent2
+		 *            id of the second parent, or -1 without crossover
+		 * @param child
+		 *            id of the offspring
+		 */
+		public void child(long parent1, long parent2, long child) {
+		}
+
+		/**
+		 * @param id
+		 *            id of the mutated genotype
+		 * @param mutations
+		 *            names of the mutations, as logged after the id
+		 */
+		public void mutation(long id, String mutations) {
+		}
+
+		/**
+		 * @param generation
+		 *            generation that ended
+		 */
+		public void generation(int generation) {
+		}
+
+		public void lineageText(String line) {
+		}
+
+		public void mutationText(String line) {
+		}
+	}
+
+	private File file = null;
+	private FileOutputStream stream = null;
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream(BUFFER_SIZE);
+	private final DataOutputStream out = new DataOutputStream(pending);
+
+	/**
+	 * Log in the save directory, which keeps the events of the generations
+	 * up to the last saved generation if the file already exists
+	 *
+	 * @param infix
+	 *            name of log file
+	 */
+	public LineageEventLog(String infix) {
+		if (Parameters.parameters.booleanParameter("logLock")) {
+			// Don't do any file reading
+			return;
+		}
+		String saveTo = Parameters.parameters.stringParameter("saveTo");
+		if (saveTo.isEmpty()) {
+			System.out.println("Can't maintain logs if no save directory is given");
+			System.out.println("infix: " + infix);
+			System.exit(1);
+		}
+		String directory = FileUtilities.getSaveDirectory();
+		File dir = new File(directory);
+		if (!dir.exists()) {
+			dir.mkdir();
+		}
+		file = new File(dir, Parameters.parameters.stringParameter("log")
+				+ Parameters.parameters.integerParameter("runNumber") + "_" + infix + "_log.bin");
+		try {
+			if (file.exists()) {
+				keep(file, Parameters.parameters.integerParameter("lastSavedGeneration"));
+				stream = new FileOutputStream(file, true);
+			} else {
+				stream = new FileOutputStream(file);
+				DataOutputStream header = new DataOutputStream(stream);
+				header.writeInt(MAGIC);
+				header.writeInt(VERSION);
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not setup log file " + file);
+			System.exit(1);
+		}
+		synchronized (OPEN) {
+			OPEN.add(this);
+		}
+	}
+
+	/**
+	 * Cut off the events after a number of generations ended
+	 */
+	private static void keep(File file, int generations) throws IOException {
+		final int[] ended = new int[1];
+		long[] end = new long[] { 8 };
+		read(file, new Events() {
+			@Override
+			public void generation(int generation) {
+				ended[0]++;
+			}
+		}, generations, end);
+		if (ended[0] < generations) {
+			System.out.println(file.getAbsolutePath());
+			System.out.println("Failure reading generation " + ended[0] + " out of an expected " + generations);
+			System.exit(1);
+		}
+		RandomAccessFile log = new RandomAccessFile(file, "rw");
+		try {
+			log.setLength(end[0]);
+		} finally {
+			log.close();
+		}
+	}
+
+	/**
+	 * Record an offspring
+	 *
+	 * @param parent1
+	 *            id of the first parent
+	 * @param parent2
+	 *            id of the second parent, or -1 without crossover
+	 * @param child
+	 *            id of the offspring
+	 */
+	public synchronized void child(long parent1, long parent2, long child) {
+		try {
+			out.writeByte(CHILD);
+			out.writeLong(parent1);
+			out.writeLong(parent2);
+			out.writeLong(child);
+		} catch (IOException ex) {
+			// Cannot happen when writing to memory
+			throw new IllegalStateException(ex);
+		}
+		handOffIfFull();
+	}
+
+	/**
+	 * Record the mutations of a genotype
+	 *
+	 * @param id
+	 *            id of the mutated genotype
+	 * @param mutations
+	 *            names of the mutations, as logged after the id
+	 */
+	public synchronized void mutation(long id, String mutations) {
+		try {
+			out.writeByte(MUTATION);
+			out.writeLong(id);
+			writeString(out, mutations);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		handOffIfFull();
+	}
+
+	/**
+	 * Record the end of a generation, and write everything logged so far
+	 *
+	 * @param generation
+	 *            generation that ended
+	 */
+	public synchronized void generation(int generation) {
+		try {
+			out.writeByte(GENERATION);
+			out.writeInt(generation);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		handOff();
+	}
+
+	/**
+	 * Record a line of the lineage log. Lines in the format of an offspring
+	 * are stored as offspring, and other lines are stored as text.
+	 *
+	 * @param line
+	 *            line of the text lineage log
+	 */
+	public void lineageLine(String line) {
+		long[] ids = parseChild(line);
+		if (ids != null) {
+			child(ids[0], ids[1], ids[2]);
+		} else {
+			text(LINEAGE_TEXT, line);
+		}
+	}
+
+	/**
+	 * Record a line of the mutation log. Lines that start with a genotype id
+	 * are stored as mutations, and other lines are stored as text.
+	 *
+	 * @param line
+	 *            line of the text mutation log
+	 */
+	public void mutationLine(String line) {
+		int space = line.indexOf(' ');
+		if (space > 0) {
+			try {
+				long id = Long.parseLong(line.substring(0, space));
+				if (line.startsWith(id + " ")) {
+					mutation(id, line.substring(space + 1));
+					return;
+				}
+			} catch (NumberFormatException ex) {
+				// Stored as text
+			}
+		}
+		text(MUTATION_TEXT, line);
+	}
+
+	private synchronized void text(byte type, String line) {
+		try {
+			out.writeByte(type);
+			writeString(out, line);
+		} catch (IOException ex) {
+			throw new IllegalStateException(ex);
+		}
+		handOffIfFull();
+	}
+
+	/**
+	 * Ids of an offspring in a line of the lineage log, if the line has
+	 * exactly the format of childLine
+	 */
+	private static long[] parseChild(String line) {
+		String[] parts = line.split(" ");
+		try {
+			long[] ids;
+			if (parts.length == 3 && parts[1].equals("->")) {
+				ids = new long[] { Long.parseLong(parts[0]), -1, Long.parseLong(parts[2]) };
+			} else if (parts.length == 5 && parts[1].equals("X") && parts[3].equals("->")) {
+				ids = new long[] { Long.parseLong(parts[0]), Long.parseLong(parts[2]), Long.parseLong(parts[4]) };
+			} else {
+				return null;
+			}
+			return childLine(ids[0], ids[1], ids[2]).equals(line) ? ids : null;
+		} catch (NumberFormatException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return line of the text lineage log for an offspring
+	 */
+	public static String childLine(long parent1, long parent2, long child) {
+		return parent2 == -1 ? parent1 + " -> " + child : parent1 + " X " + parent2 + " -> " + child;
+	}
+
+	/**
+	 * @return line of the text logs that ends a generation
+	 */
+	public static String generationLine(int generation) {
+		return "---Gen " + generation + " Over-----------------";
+	}
+
+	private void handOffIfFull() {
+		if (pending.size() >= BUFFER_SIZE) {
+			handOff();
+		}
+	}
+
+	/**
+	 * Give the buffered events to the BackgroundWriter. Chunks are submitted
+	 * while holding the lock, so they are written in order.
+	 */
+	private void handOff() {
+		if (pending.size() == 0 || stream == null) {
+			pending.reset();
+			return;
+		}
+		final byte[] chunk = pending.toByteArray();
+		final FileOutputStream target = stream;
+		pending.reset();
+		BackgroundWriter.submit(new BackgroundWriter.Write() {
+			@Override
+			public void write() throws IOException {
+				target.write(chunk);
+			}
+		});
+	}
+
+	/**
+	 * Write the events logged so far
+	 */
+	public synchronized void flush() {
+		handOff();
+	}
+
+	/**
+	 * Write every open log, e.g. before saving parameters that say the
+	 * current generation can be resumed from
+	 */
+	public static void flushAll() {
+		synchronized (OPEN) {
+			for (LineageEventLog log : OPEN) {
+				log.flush();
+			}
+		}
+	}
+
+	/**
+	 * Write the remaining events and close the file
+	 */
+	public synchronized void close() {
+		synchronized (OPEN) {
+			OPEN.remove(this);
+		}
+		handOff();
+		if (stream != null) {
+			final FileOutputStream target = stream;
+			stream = null;
+			BackgroundWriter.submit(new BackgroundWriter.Write() {
+				@Override
+				public void write() throws IOException {
+					target.close();
+				}
+			});
+		}
+	}
+
+	/**
+	 * @return the log file, or null if logs are locked
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	private static void writeString(DataOutputStream out, String s) throws IOException {
+		byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+
+	/**
+	 * Stream every event in a log. A record cut off at the end of the file,
+	 * as left by a run that stopped while writing, is ignored.
+	 *
+	 * @param file
+	 *            binary event log
+	 * @param events
+	 *            receives the events in the order they were logged
+	 * @throws IOException
+	 *             if the file cannot be read or is not an event log
+	 */
+	public static void read(File file, Events events) throws IOException {
+		read(file, events, -1, null);
+	}
+
+	/**
+	 * Stream events until a number of generations ended, or the end of the
+	 * file if stopAfter is negative
+	 *
+	 * @param end
+	 *            if not null, end[0] is set to the offset after the last
+	 *            generation that was read
+	 */
+	private static void read(File file, Events events, int stopAfter, long[] end) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE));
+		long offset = 8;
+		int generations = 0;
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				throw new IOException(file + " is not a lineage event log");
+			}
+			while (generations != stopAfter) {
+				int type = in.read();
+				if (type == -1) {
+					break;
+				}
+				switch (type) {
+				case CHILD:
+					long parent1 = in.readLong();
+					long parent2 = in.readLong();
+					long child = in.readLong();
+					events.child(parent1, parent2, child);
+					offset += 25;
+					break;
+				case MUTATION:
+					long id = in.readLong();
+					byte[] mutations = readBytes(in);
+					events.mutation(id, new String(mutations, StandardCharsets.UTF_8));
+					offset += 13 + mutations.length;
+					break;
+				case GENERATION:
+					events.generation(in.readInt());
+					offset += 5;
+					generations++;
+					if (end != null) {
+						end[0] = offset;
+					}
+					break;
+				case LINEAGE_TEXT:
+				case MUTATION_TEXT:
+					byte[] line = readBytes(in);
+					if (type == LINEAGE_TEXT) {
+						events.lineageText(new String(line, StandardCharsets.UTF_8));
+					} else {
+						events.mutationText(new String(line, StandardCharsets.UTF_8));
+					}
+					offset += 5 + line.length;
+					break;
+				default:
+					throw new IOException("Unknown record " + type + " at offset " + offset + " of " + file);
+				}
+			}
+		} catch (EOFException ex) {
+			// Record cut off at the end of the file
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * The binary log that replaced a text Lineage or Mutations log
+	 *
+	 * @param textFile
+	 *            name of a text log ending in Lineage_log.txt or
+	 *            Mutations_log.txt
+	 * @return binary log with the same prefix, or null if the name is not
+	 *         that of a lineage or mutation log
+	 */
+	public static File binaryFile(String textFile) {
+		for (String suffix : new String[] { "Lineage_log.txt", "Mutations_log.txt" }) {
+			if (textFile.endsWith(suffix)) {
+				return new File(textFile.substring(0, textFile.length() - suffix.length()) + "Lineage_log.bin");
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Write the text Lineage and Mutations logs that would have been written
+	 * instead of a binary log
+	 *
+	 * @param file
+	 *            binary event log
+	 * @param lineageFile
+	 *            text lineage log to write
+	 * @param mutationFile
+	 *            text mutation log to write
+	 * @throws IOException
+	 *             if a file cannot be read or written
+	 */
+	public static void export(File file, File lineageFile, File mutationFile) throws IOException {
+		final PrintStream lineage = new PrintStream(new FileOutputStream(lineageFile), false, "UTF-8");
+		final PrintStream mutation = new PrintStream(new FileOutputStream(mutationFile), false, "UTF-8");
+		try {
+			read(file, new Events() {
+				@Override
+				public void child(long parent1, long parent2, long child) {
+					lineage.println(childLine(parent1, parent2, child));
+				}
+
+				@Override
+				public void mutation(long id, String mutations) {
+					mutation.println(id + " " + mutations);
+				}
+
+				@Override
+				public void generation(int generation) {
+					mutation.println(generationLine(generation));
+					lineage.println(generationLine(generation));
+				}
+
+				@Override
+				public void lineageText(String line) {
+					lineage.println(line);
+				}
+
+				@Override
+				public void mutationText(String line) {
+					mutation.println(line);
+				}
+			});
+		} finally {
+			lineage.close();
+			mutation.close();
+		}
+	}
+
+	/**
+	 * Export a binary event log as text logs in the same directory
+	 *
+	 * Usage: java edu.utexas.cs.nn.log.LineageEventLog file_Lineage_log.bin
+	 *
+	 * @param args
+	 *            name of the binary log
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length != 1) {
+			System.out.println("Usage: java edu.utexas.cs.nn.log.LineageEventLog file_Lineage_log.bin");
+			return;
+		}
+		String name = args[0];
+		String prefix = name.endsWith("Lineage_log.bin") ? name.substring(0, name.length() - "Lineage_log.bin".length()) : name + "_";
+		export(new File(name), new File(prefix + "Lineage_log.txt"), new File(prefix + "Mutations_log.txt"));
+		System.out.println("Exported " + prefix + "Lineage_log.txt and " + prefix + "Mutations_log.txt");
+	}
+}
@@ -0,0 +1,217 @@
+package edu.utexas.cs.nn.log;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.data.BackgroundWriter;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.parameters.Parameters;
+
+public class LineageEventLogTest {
+
+	private File base;
+
+	private void setup(String... extra) throws IOException {
+		base = Files.createTempDirectory("lineage").toFile();
+		String[] args = new String[extra.length + 6];
+		args[0] = "io:false";
+		args[1] = "netio:false";
+		args[2] = "base:" + base.getPath();
+		args[3] = "saveTo:Test";
+		args[4] = "log:Log";
+		args[5] = "runNumber:0";
+		System.arraycopy(extra, 0, args, 6, extra.length);
+		Parameters.initializeParameterCollections(args);
+	}
+
+	@After
+	public void tearDown() {
+		EvolutionaryHistory.lineageEvents = null;
+		EvolutionaryHistory.mutationLog = null;
+		EvolutionaryHistory.lineageLog = null;
+		BackgroundWriter.close();
+		delete(base);
+	}
+
+	private static void delete(File f) {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	/**
+	 * Ids of every offspring in a log, and the generations that ended
+	 */
+	private static List<Long> children(File file, final List<Integer> generations) throws IOException {
+		final List<Long> result = new ArrayList<Long>();
+		LineageEventLog.read(file, new LineageEventLog.Events() {
+			@Override
+			public void child(long parent1, long parent2, long child) {
+				result.add(child);
+			}
+
+			@Override
+			public void generation(int generation) {
+				generations.add(generation);
+			}
+		});
+		return result;
+	}
+
+	@Test
+	public void testExportMatchesText() throws IOException {
+		setup();
+		List<String> lineage = Arrays.asList("3 -> 10", "4 X 5 -> 11", "---Line between comparisons----------------",
+				"12 X -> odd", LineageEventLog.generationLine(0), "10 -> 12");
+		List<String> mutations = Arrays.asList("10 NewLinkMutation SpliceNeuronMutation ", "11 ", "---Note",
+				"007 Zero", LineageEventLog.generationLine(0), "12 Assoc: [0, 1] ");
+		LineageEventLog log = new LineageEventLog("Lineage");
+		for (int i = 0; i < lineage.size(); i++) {
+			if (lineage.get(i).startsWith("---Gen")) {
+				log.generation(0);
+			} else {
+				log.lineageLine(lineage.get(i));
+				log.mutationLine(mutations.get(i));
+			}
+		}
+		log.close();
+
+		File lineageFile = new File(base, "lineage.txt");
+		File mutationFile = new File(base, "mutations.txt");
+		LineageEventLog.export(log.getFile(), lineageFile, mutationFile);
+		assertEquals(lineage, Files.readAllLines(lineageFile.toPath()));
+		assertEquals(mutations, Files.readAllLines(mutationFile.toPath()));
+	}
+
+	@Test
+	public void testSeveralThreads() throws Exception {
+		setup("backgroundSaves:true");
+		final LineageEventLog log = new LineageEventLog("Lineage");
+		final int perThread = 5000;
+		Thread[] threads = new Thread[4];
+		for (int t = 0; t < threads.length; t++) {
+			final int first = t * perThread;
+			threads[t] = new Thread() {
+				@Override
+				public void run() {
+					for (int i = first; i < first + perThread; i++) {
+						log.child(i, -1, i + 1);
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (Thread t : threads) {
+			t.join();
+		}
+		log.generation(0);
+		log.close();
+		BackgroundWriter.flush();
+
+		List<Integer> generations = new ArrayList<Integer>();
+		List<Long> children = children(log.getFile(), generations);
+		assertEquals(threads.length * perThread, children.size());
+		assertEquals(Arrays.asList(0), generations);
+		// The children of each thread are in the order they were logged
+		long[] last = new long[threads.length];
+		for (long child : children) {
+			int t = (int) ((child - 1) / perThread);
+			assertTrue(child > last[t]);
+			last[t] = child;
+		}
+	}
+
+	@Test
+	public void testWrittenAtGenerationBoundaries() throws IOException {
+		setup("backgroundSaves:true");
+		LineageEventLog log = new LineageEventLog("Lineage");
+		log.child(1, -1, 2);
+		log.mutation(2, "NewLinkMutation ");
+		BackgroundWriter.flush();
+		// Only the header is on disk
+		assertEquals(8, log.getFile().length());
+		log.generation(0);
+		BackgroundWriter.flush();
+		assertEquals(Arrays.asList(2L), children(log.getFile(), new ArrayList<Integer>()));
+		log.close();
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		setup();
+		LineageEventLog log = new LineageEventLog("Lineage");
+		for (int gen = 0; gen < 5; gen++) {
+			log.child(gen, -1, gen + 100);
+			EvolutionaryHistory.logMutationData((gen + 100) + " ");
+			log.generation(gen);
+		}
+		// Not finished before the crash
+		log.child(5, -1, 105);
+		log.flush();
+		log.close();
+
+		Parameters.parameters.setInteger("lastSavedGeneration", 3);
+		log = new LineageEventLog("Lineage");
+		log.child(3, 1, 200);
+		log.generation(3);
+		log.close();
+		List<Integer> generations = new ArrayList<Integer>();
+		assertEquals(Arrays.asList(100L, 101L, 102L, 200L), children(log.getFile(), generations));
+		assertEquals(Arrays.asList(0, 1, 2, 3), generations);
+
+		Parameters.parameters.setInteger("lastSavedGeneration", 0);
+		log = new LineageEventLog("Lineage");
+		log.close();
+		assertTrue(children(log.getFile(), new ArrayList<Integer>()).isEmpty());
+	}
+
+	@Test
+	public void testResumeFromTextLogs() throws IOException {
+		setup("mu:2");
+		EvolutionaryHistory.initLineageAndMutationLogs();
+		for (int gen = 0; gen < 3; gen++) {
+			EvolutionaryHistory.logLineage(gen, -1, gen + 100);
+			EvolutionaryHistory.logMutationData((gen + 100) + " ");
+			EvolutionaryHistory.logLineage(gen, gen + 1, gen + 200);
+			EvolutionaryHistory.logMutationData((gen + 200) + " ");
+			EvolutionaryHistory.logGenerationOver(gen);
+		}
+		File text = EvolutionaryHistory.lineageLog.getFile();
+		EvolutionaryHistory.lineageLog.close();
+		EvolutionaryHistory.mutationLog.close();
+
+		// Resumed with binary logging, but the lineage is already in text
+		Parameters.parameters.setBoolean("binaryLineage", true);
+		Parameters.parameters.setInteger("lastSavedGeneration", 2);
+		EvolutionaryHistory.initLineageAndMutationLogs();
+		assertNull(EvolutionaryHistory.lineageEvents);
+		EvolutionaryHistory.logLineage(2, -1, 300);
+		EvolutionaryHistory.logMutationData("300 ");
+		EvolutionaryHistory.logLineage(2, 3, 301);
+		EvolutionaryHistory.logMutationData("301 ");
+		EvolutionaryHistory.logGenerationOver(2);
+		EvolutionaryHistory.lineageLog.close();
+		EvolutionaryHistory.mutationLog.close();
+
+		assertFalse(LineageEventLog.binaryFile(text.getPath()).exists());
+		List<String> lines = Files.readAllLines(text.toPath(), StandardCharsets.UTF_8);
+		assertEquals(Arrays.asList(LineageEventLog.childLine(0, -1, 100), LineageEventLog.childLine(0, 1, 200),
+				LineageEventLog.generationLine(0), LineageEventLog.childLine(1, -1, 101),
+				LineageEventLog.childLine(1, 2, 201), LineageEventLog.generationLine(1),
+				LineageEventLog.childLine(2, -1, 300), LineageEventLog.childLine(2, 3, 301),
+				LineageEventLog.generationLine(2)), lines);
+	}
+}
@@ -2,23 +2,56 @@ package edu.utexas.cs.nn.log;
 
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.file.FileUtilities;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintStream;
+import java.io.RandomAccessFile;
 import java.util.ArrayList;
-import java.util.NoSuchElementException;
 import java.util.Scanner;
 
 /**
  * General logging class. Needs to be generalized more.
  *
+ * Logs are plain text files that are only ever appended to. Next to each log
+ * is an index file holding the byte offset in the log after every
+ * generation, so when a run is resumed, the lines logged after the last
+ * saved generation are cut off without reading or rewriting the lines
+ * before them. Logs written without an index are read once to build it.
+ * Output is buffered, and flushAll writes every log to disk before
+ * parameters naming a saved generation are written.
+ *
  * @author Jacob Schrum
  * @Commented Lauren Gillespie
  */
 public class MMNEATLog {
 
+	// "MMLI"
+	private static final int INDEX_MAGIC = 0x4D4D4C49;
+	private static final int BUFFER_SIZE = 1 << 16;
+	// Logs that have not been closed yet
+	private static final ArrayList<MMNEATLog> OPEN = new ArrayList<MMNEATLog>();
+
+	static {
+		// Not every log is closed before the program exits
+		Runtime.getRuntime().addShutdownHook(new Thread() {
+			@Override
+			public void run() {
+				flushAll();
+			}
+		});
+	}
+
 	protected PrintStream stream;
+	private DataOutputStream index;
 	protected String directory;
 	protected String prefix;
 	public String lastLoadedEntry = null;
@@ -51,7 +84,7 @@ public class MMNEATLog {
 
 	/**
 	 * Constructor for file log. Sets up a new file that logs data from task.
-	 * Also saves old data if present
+	 * Also keeps old data up to the last saved generation if present
 	 * 
 	 * @param infix
 	 *            name of log file
@@ -87,66 +120,299 @@ public class MMNEATLog {
 		directory += (directory.equals("") ? "" : "/");
 		File file = getFile();
 		try {
-			int expectedEntries = Parameters.parameters.integerParameter("lastSavedGeneration");
-			ArrayList<String> oldData = new ArrayList<String>();
+			// Number of lines that each generation adds to the log
+			int stride = batches ? Parameters.parameters.integerParameter("mu") + 1 : 1;
+			long expectedEntries = Parameters.parameters.integerParameter("lastSavedGeneration") * (long) stride;
+			Resume resume = new Resume(file, getIndexFile(), stride);
 			if (file.exists()) {
-				Scanner oldFile = new Scanner(file);
-				if (batches) {// only occurs if batches of runs want to be kept
-					int popSize = Parameters.parameters.integerParameter("mu");
-					expectedEntries *= (popSize + 1);
-					for (int i = 0; 
-                                                (!restricted || oldFile.hasNextLine()) && // may be fewer log lines than expected
-                                                (i < expectedEntries || // expectd number of entries
-                                                (unlimited && oldFile.hasNextLine())); // more than expected
-                                                 i++) {
-						oldData.add(oldFile.nextLine());
-					}
-				} else {
-					for (int i = 0; i < expectedEntries || (unlimited && oldFile.hasNextLine()); i++) {
-						try {// sticks all the old data in a new file called old data
-							String line = oldFile.nextLine();
-							if (!unlimited) { // Expect generation number to be listed
-								Scanner temp = new Scanner(line);
-								int gen = temp.nextInt();
-								if (i != gen) {
-									System.out.println(file.getAbsolutePath());
-									System.out.println("Problem copying over log file on resume");
-									System.out.println("Reading line " + i);
-									System.out.println("Does not match gen " + gen);
-									System.out.println("Line: " + line);
-									System.exit(1);
-								}
-								temp.close();
-							}
-							oldData.add(line);
-						} catch (NoSuchElementException nse) {
-							System.out.println(file.getAbsolutePath());
-							System.out.println("Failure reading line " + i + " out of an expected " + expectedEntries);
-							System.out.println("Last line successfully read:");
-							System.out.println(oldData.get(oldData.size() - 1));
-							nse.printStackTrace();
-							System.exit(1);
-						}
+				resume.keep(expectedEntries, unlimited, restricted, !batches && !unlimited);
+				lastLoadedEntry = resume.lastLine;
+			} else {
+				resume.clear();
+			}
+			// Continue after the lines that were kept
+			index = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(getIndexFile(), true)));
+			if (resume.indexLength == 0) {
+				index.writeInt(INDEX_MAGIC);
+				index.writeInt(stride);
+			}
+			stream = new PrintStream(new CountingOutputStream(new BufferedOutputStream(
+					new FileOutputStream(file, true), BUFFER_SIZE), resume, stride, index));
+			synchronized (OPEN) {
+				OPEN.add(this);
+			}
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not setup log file");
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Finds where the lines of a log that should be kept on a resume end,
+	 * using the offsets in the index file, and cuts off the rest of the log
+	 * and its index. Only lines after the last indexed generation are read.
+	 */
+	private static class Resume {
+		final File file;
+		final File indexFile;
+		final int stride;
+		// Kept lines, the offset just after them, and the last of them
+		long lines = 0;
+		long offset = 0;
+		String lastLine = null;
+		// Length of the kept part of the index
+		long indexLength = 0;
+		// Offsets after every stride lines, from the index or found by reading
+		final ArrayList<Long> offsets = new ArrayList<Long>();
+
+		Resume(File file, File indexFile, int stride) {
+			this.file = file;
+			this.indexFile = indexFile;
+			this.stride = stride;
+		}
+
+		void clear() throws IOException {
+			if (indexFile.exists() && !indexFile.delete()) {
+				throw new IOException("Could not delete " + indexFile);
+			}
+		}
+
+		/**
+		 * Keep the first expected lines of the log, or all of them if there
+		 * may be more (unlimited) or fewer (restricted) lines
+		 */
+		void keep(long expected, boolean unlimited, boolean restricted, boolean numbered) throws IOException {
+			RandomAccessFile log = new RandomAccessFile(file, "rw");
+			try {
+				readIndex(log);
+				// Start from the last indexed generation that is kept
+				long start = unlimited ? offsets.size() : Math.min(offsets.size(), expected / stride);
+				lines = start * stride;
+				offset = start == 0 ? 0 : offsets.get((int) start - 1);
+				while (offsets.size() > start) {
+					offsets.remove(offsets.size() - 1);
+				}
+				count(log, unlimited ? Long.MAX_VALUE : expected);
+				if (lines < expected && !unlimited && !restricted) {
+					System.out.println(file.getAbsolutePath());
+					System.out.println("Failure reading line " + lines + " out of an expected " + expected);
+					System.exit(1);
+				}
+				if (lines > 0) {
+					lastLine = lastLine(log, offset);
+					if (numbered) {
+						checkGeneration(lastLine, lines - 1);
 					}
+				}
+				if (lines == 1) {
+					// A single line was never kept
+					lines = 0;
+					offset = 0;
+					offsets.clear();
+				}
+				log.setLength(offset);
+			} finally {
+				log.close();
+			}
+			writeIndex();
+		}
 
+		/**
+		 * Offsets from the index file that are consistent with the log
+		 */
+		private void readIndex(RandomAccessFile log) throws IOException {
+			if (!indexFile.exists()) {
+				return;
+			}
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+			try {
+				if (in.readInt() != INDEX_MAGIC || in.readInt() != stride) {
+					return; // Different number of lines per generation
 				}
-				oldFile.close();
-				if (oldData.size() > 0) {
-					lastLoadedEntry = oldData.get(oldData.size() - 1);
+				long previous = 0;
+				long length = log.length();
+				while (true) {
+					long next = in.readLong();
+					if (next <= previous || next > length) {
+						break;
+					}
+					offsets.add(next);
+					previous = next;
+				}
+			} catch (EOFException ex) {
+				// End of the index, possibly part way through an offset
+			} finally {
+				in.close();
+			}
+			// Offsets must follow the end of a line
+			while (!offsets.isEmpty()) {
+				log.seek(offsets.get(offsets.size() - 1) - 1);
+				if (log.read() == '\n') {
+					break;
 				}
+				offsets.remove(offsets.size() - 1);
 			}
-			stream = new PrintStream(new FileOutputStream(file));
-			if (oldData.size() > 1) {
-				for (int i = 0; i < oldData.size(); i++) {
-					if (oldData.get(i) != null) {
-						stream.println(oldData.get(i));// prints old data
+		}
+
+		/**
+		 * Read lines from offset until there are expected lines or the log
+		 * ends, adding offsets for the generations along the way
+		 */
+		private void count(RandomAccessFile log, long expected) throws IOException {
+			log.seek(offset);
+			byte[] buffer = new byte[BUFFER_SIZE];
+			long position = offset;
+			int read;
+			while (lines < expected && (read = log.read(buffer)) > 0) {
+				for (int i = 0; i < read && lines < expected; i++) {
+					if (buffer[i] == '\n') {
+						lines++;
+						offset = position + i + 1;
+						if (lines % stride == 0) {
+							offsets.add(offset);
+						}
 					}
 				}
+				position += read;
 			}
-		} catch (FileNotFoundException ex) {
-			System.out.println("Could not setup log file");
+		}
+
+		private void writeIndex() throws IOException {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile)));
+			try {
+				out.writeInt(INDEX_MAGIC);
+				out.writeInt(stride);
+				for (long o : offsets) {
+					out.writeLong(o);
+				}
+			} finally {
+				out.close();
+			}
+			indexLength = indexFile.length();
+		}
+	}
+
+	/**
+	 * The line that ends just before an offset, read backwards from it
+	 */
+	private static String lastLine(RandomAccessFile log, long end) throws IOException {
+		long start = end - 1;
+		byte[] buffer = new byte[BUFFER_SIZE];
+		search: while (start > 0) {
+			int length = (int) Math.min(buffer.length, start);
+			log.seek(start - length);
+			log.readFully(buffer, 0, length);
+			for (int i = length - 1; i >= 0; i--) {
+				if (buffer[i] == '\n') {
+					start = start - length + i + 1;
+					break search;
+				}
+			}
+			start -= length;
+		}
+		byte[] line = new byte[(int) (end - 1 - start)];
+		log.seek(start);
+		log.readFully(line);
+		String result = new String(line);
+		return result.endsWith("\r") ? result.substring(0, result.length() - 1) : result;
+	}
+
+	/**
+	 * Logs with one line per generation start each line with the generation
+	 */
+	private static void checkGeneration(String line, long expected) {
+		Scanner temp = new Scanner(line);
+		if (!temp.hasNextLong() || temp.nextLong() != expected) {
+			System.out.println("Problem resuming log file");
+			System.out.println("Line " + expected + " does not start with its generation");
+			System.out.println("Line: " + line);
 			System.exit(1);
 		}
+		temp.close();
+	}
+
+	/**
+	 * Counts lines as they are written, and adds the offset in the log after
+	 * every generation of lines to the index
+	 */
+	private static class CountingOutputStream extends FilterOutputStream {
+		private final int stride;
+		private final DataOutputStream index;
+		private long lines;
+		private long offset;
+
+		CountingOutputStream(OutputStream out, Resume resume, int stride, DataOutputStream index) {
+			super(out);
+			this.lines = resume.lines;
+			this.offset = resume.offset;
+			this.stride = stride;
+			this.index = index;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			out.write(b);
+			offset++;
+			if (b == '\n' && ++lines % stride == 0) {
+				index.writeLong(offset);
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) throws IOException {
+			int from = off;
+			for (int i = off; i < off + len; i++) {
+				if (b[i] == '\n' && (lines + 1) % stride == 0) {
+					out.write(b, from, i + 1 - from);
+					offset += i + 1 - from;
+					from = i + 1;
+					lines++;
+					index.writeLong(offset);
+				} else if (b[i] == '\n') {
+					lines++;
+				}
+			}
+			out.write(b, from, off + len - from);
+			offset += off + len - from;
+		}
+
+		@Override
+		public void flush() throws IOException {
+			// Lines are on disk before the offsets that point past them
+			out.flush();
+			index.flush();
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				super.close();
+			} finally {
+				index.close();
+			}
+		}
+	}
+
+	/**
+	 * Write every open log to disk, e.g. before saving parameters that say
+	 * the current generation can be resumed from
+	 */
+	public static void flushAll() {
+		synchronized (OPEN) {
+			for (MMNEATLog log : OPEN) {
+				log.flush();
+			}
+		}
+	}
+
+	/**
+	 * Write the lines logged so far to disk
+	 */
+	public void flush() {
+		if (stream != null) {
+			stream.flush();
+		}
 	}
 
 	/**
@@ -162,6 +428,9 @@ public class MMNEATLog {
 	 * Closes printstream and therefore closes log
 	 */
 	public void close() {
+		synchronized (OPEN) {
+			OPEN.remove(this);
+		}
 		stream.close();
 	}
 
@@ -173,4 +442,13 @@ public class MMNEATLog {
 	public File getFile() {
 		return new File(directory + prefix + "_log.txt");
 	}
+
+	/**
+	 * returns the file with the offset of every generation in the log file
+	 * 
+	 * @return index file
+	 */
+	public File getIndexFile() {
+		return new File(directory + prefix + "_log.idx");
+	}
 }
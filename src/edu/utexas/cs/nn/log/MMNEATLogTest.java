@@ -0,0 +1,154 @@
+package edu.utexas.cs.nn.log;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+
+public class MMNEATLogTest {
+
+	private File base;
+
+	@Before
+	public void setUp() throws IOException {
+		base = Files.createTempDirectory("logs").toFile();
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "base:" + base.getPath(),
+				"saveTo:Test", "log:Log", "runNumber:0", "mu:3" });
+	}
+
+	@After
+	public void tearDown() {
+		delete(base);
+	}
+
+	private static void delete(File f) {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	private static List<String> lines(MMNEATLog log) throws IOException {
+		return Files.readAllLines(log.getFile().toPath());
+	}
+
+	private static List<String> generations(int from, int to) {
+		List<String> result = new ArrayList<String>();
+		for (int gen = from; gen < to; gen++) {
+			result.add(gen + "\tscore" + gen);
+		}
+		return result;
+	}
+
+	/**
+	 * Log generations as one line each, after resuming at a saved generation
+	 */
+	private static MMNEATLog resume(int lastSavedGeneration, int to) {
+		Parameters.parameters.setInteger("lastSavedGeneration", lastSavedGeneration);
+		MMNEATLog log = new MMNEATLog("Scores");
+		for (String line : generations(lastSavedGeneration, to)) {
+			log.log(line);
+		}
+		return log;
+	}
+
+	@Test
+	public void testResume() throws IOException {
+		MMNEATLog log = resume(0, 10);
+		log.close();
+		assertEquals(generations(0, 10), lines(log));
+
+		// Crashed after saving generation 6 and logging generation 9
+		log = resume(6, 8);
+		assertEquals("5\tscore5", log.lastLoadedEntry);
+		log.close();
+		assertEquals(generations(0, 8), lines(log));
+
+		// Logs written without an index are read to find where to cut
+		assertTrue(log.getIndexFile().delete());
+		log = resume(3, 12);
+		assertEquals("2\tscore2", log.lastLoadedEntry);
+		log.close();
+		assertEquals(generations(0, 12), lines(log));
+		log = resume(11, 12);
+		log.close();
+		assertEquals(generations(0, 12), lines(log));
+	}
+
+	@Test
+	public void testDamagedIndex() throws IOException {
+		MMNEATLog log = resume(0, 10);
+		log.close();
+		// Offsets past the end of the log, or not after a line, are ignored
+		RandomAccessFile index = new RandomAccessFile(log.getIndexFile(), "rw");
+		index.seek(index.length() - 8);
+		index.writeLong(log.getFile().length() + 100);
+		index.writeInt(7);
+		index.close();
+		log = resume(9, 10);
+		assertEquals("8\tscore8", log.lastLoadedEntry);
+		log.close();
+		assertEquals(generations(0, 10), lines(log));
+
+		index = new RandomAccessFile(log.getIndexFile(), "rw");
+		index.seek(index.length() - 8);
+		index.writeLong(log.getFile().length() - 3);
+		index.close();
+		log = resume(10, 11);
+		log.close();
+		assertEquals(generations(0, 11), lines(log));
+	}
+
+	@Test
+	public void testBatches() throws IOException {
+		Parameters.parameters.setInteger("lastSavedGeneration", 0);
+		MMNEATLog log = new MMNEATLog("Lineage", true);
+		for (int gen = 0; gen < 5; gen++) {
+			for (int i = 0; i <= 3; i++) {
+				log.log(gen + " " + i);
+			}
+		}
+		// Lines become visible without closing the log
+		MMNEATLog.flushAll();
+		assertEquals(20, lines(log).size());
+		log.close();
+
+		Parameters.parameters.setInteger("lastSavedGeneration", 2);
+		log = new MMNEATLog("Lineage", true);
+		assertEquals("1 3", log.lastLoadedEntry);
+		log.log("2 0");
+		log.close();
+		List<String> lines = lines(log);
+		assertEquals(9, lines.size());
+		assertEquals("2 0", lines.get(8));
+	}
+
+	@Test
+	public void testUnlimited() throws IOException {
+		Parameters.parameters.setInteger("lastSavedGeneration", 0);
+		MMNEATLog log = new MMNEATLog("Events", false, true);
+		for (int i = 0; i < 25; i++) {
+			log.log("event " + i);
+		}
+		log.close();
+		// Everything is kept, however many lines there are
+		Parameters.parameters.setInteger("lastSavedGeneration", 3);
+		log = new MMNEATLog("Events", false, true);
+		assertEquals("event 24", log.lastLoadedEntry);
+		log.log("event 25");
+		log.close();
+		assertEquals(26, lines(log).size());
+	}
+}
@@ -229,7 +229,7 @@ public class ActivationFunctions {
 	 * @return function for either TWEANN or CPPN
 	 */
 	public static int newNodeFunction() {
-		if (Parameters.parameters.booleanParameter("allowMultipleFunctions")) { 
+		if (CommonConstants.allowMultipleFunctions) { 
                         // for CPPN
 			return randomFunction();
 		} else {
@@ -0,0 +1,205 @@
+package edu.utexas.cs.nn.networks;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+
+import java.util.Arrays;
+
+/**
+ * TWEANN whose activation runs over flat primitive arrays instead of the Node
+ * and Link objects. Node sums, activations, biases and activation function
+ * types are stored in arrays indexed by node position, and the outgoing links
+ * of each node are stored in compressed sparse row form: the links of node i
+ * occupy positions linkStart[i] up to linkStart[i+1] of linkTarget and
+ * linkWeight.
+ *
+ * Nodes are still activated one at a time in forward order, and each node
+ * transmits along its links in the same order as the Link lists of a TWEANN,
+ * so every sum is accumulated in exactly the same order. Outputs are therefore
+ * identical to those of a TWEANN built from the same genotype, including
+ * recurrent links. Mode arbitration (preference neurons, fatigue, multitask
+ * and ensemble modes) is inherited from TWEANN unchanged.
+ *
+ * The Node objects are only kept up to date when something is displaying the
+ * network, since the drawing code reads activations from them.
+ */
+public class CompiledTWEANN extends TWEANN {
+
+	private final double[] sums;
+	private final double[] activations;
+	private final double[] biases;
+	private final int[] ftypes;
+	private final int[] linkStart;
+	private final int[] linkTarget;
+	private final double[] linkWeight;
+	private final FlatTWEANN flat;
+	// Only known for networks built directly from compiled arrays
+	private final int[] ntypes;
+
+	/**
+	 * Build the standard TWEANN phenotype and compile it into arrays
+	 *
+	 * @param g
+	 *            The genotype
+	 */
+	public CompiledTWEANN(TWEANNGenotype g) {
+		super(g);
+		flat = FlatTWEANN.compile(this);
+		sums = new double[flat.numNodes()];
+		activations = new double[flat.numNodes()];
+		biases = flat.biases;
+		ftypes = flat.ftypes;
+		linkStart = flat.linkStart;
+		linkTarget = flat.linkTarget;
+		linkWeight = flat.linkWeight;
+		ntypes = null;
+		resetArrays();
+	}
+
+	/**
+	 * Single-module network built directly from compiled arrays, without a
+	 * genotype. Its Node objects have no Links, so it cannot be drawn.
+	 *
+	 * @param id
+	 *            id of the network
+	 * @param ntypes
+	 *            neuron type of each node, with outputs last
+	 * @param ftypes
+	 *            activation function of each node
+	 * @param biases
+	 *            bias of each node
+	 * @param linkStart
+	 *            links of node i occupy positions linkStart[i] up to
+	 *            linkStart[i+1] of linkTarget and linkWeight
+	 * @param linkTarget
+	 *            position of the target node of each link
+	 * @param linkWeight
+	 *            weight of each link
+	 */
+	public CompiledTWEANN(long id, int[] ntypes, int[] ftypes, double[] biases, int[] linkStart, int[] linkTarget, double[] linkWeight) {
+		super(id, ntypes, ftypes, biases);
+		this.sums = new double[ntypes.length];
+		this.activations = new double[ntypes.length];
+		this.biases = biases;
+		this.ftypes = ftypes;
+		this.linkStart = linkStart;
+		this.linkTarget = linkTarget;
+		this.linkWeight = linkWeight;
+		this.flat = new FlatTWEANN(numIn, biases, ftypes, linkStart, linkTarget, linkWeight);
+		this.ntypes = ntypes;
+		resetArrays();
+	}
+
+	/**
+	 * New network that shares the compiled arrays of this one, which are
+	 * never changed, but has its own activation state, module usage and
+	 * preference fatigue. Only networks built directly from compiled arrays
+	 * can be copied.
+	 *
+	 * @return flushed copy of this network
+	 */
+	public CompiledTWEANN copy() {
+		assert ntypes != null : "Only networks built from compiled arrays can be copied";
+		return new CompiledTWEANN(getId(), ntypes, ftypes, biases, linkStart, linkTarget, linkWeight);
+	}
+
+	/**
+	 * Same propagation as TWEANN: inputs are added to the input sums (which
+	 * may hold recurrent activation), then each node is activated in order,
+	 * has its sum reset to its bias, and transmits along its links.
+	 */
+	@Override
+	protected void activateNodes(double[] inputs) {
+		final double[] sums = this.sums;
+		final double[] activations = this.activations;
+		final int[] linkTarget = this.linkTarget;
+		final double[] linkWeight = this.linkWeight;
+
+		for (int i = 0; i < numIn; i++) {
+			assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
+			sums[i] += inputs[i];
+		}
+
+		for (int i = 0; i < sums.length; i++) {
+			double activation = ActivationFunctions.activation(ftypes[i], sums[i]);
+			activations[i] = activation;
+			sums[i] = biases[i];
+			for (int k = linkStart[i]; k < linkStart[i + 1]; k++) {
+				sums[linkTarget[k]] += activation * linkWeight[k];
+			}
+		}
+
+		if (canDraw && (panel != null || CommonConstants.monitorSubstrates)) {
+			for (int i = 0; i < activations.length; i++) {
+				nodes.get(i).artificiallySetActivation(activations[i]);
+			}
+		}
+	}
+
+	/**
+	 * Activates the network once for each of several input vectors. Column b
+	 * of inputs holds input vector b, and afterwards column b of activations
+	 * holds the resulting activation of every node. Each node is activated for
+	 * the whole block before moving on to the next node, but the sums of each
+	 * column are accumulated in the same order as in activateNodes.
+	 *
+	 * Only valid for feedforward networks, since every column starts from a
+	 * flushed network. The state used by process is not touched, so different
+	 * threads can activate blocks at the same time as long as each has its own
+	 * activations array.
+	 *
+	 * @param inputs
+	 *            inputs[i][b] is input i of vector b
+	 * @param count
+	 *            number of input vectors (columns) in the block
+	 * @param activations
+	 *            one row per node, each with at least count columns, that is
+	 *            filled with the node activations
+	 */
+	public void activateBlock(double[][] inputs, int count, double[][] activations) {
+		assert isFeedForward() : "Blocks can only be activated for feedforward networks";
+		flat.activateBlock(inputs, count, activations);
+	}
+
+	/**
+	 * @return whether every link leads to a later node, in which case outputs
+	 *         only depend on the current inputs
+	 */
+	public boolean isFeedForward() {
+		return flat.isFeedForward();
+	}
+
+	/**
+	 * Already compiled, so batches are activated straight from the arrays
+	 */
+	@Override
+	FlatTWEANN flatten() {
+		return flat;
+	}
+
+	@Override
+	protected double nodeOutput(int index) {
+		return activations[index];
+	}
+
+	@Override
+	public void flush() {
+		super.flush();
+		resetArrays();
+	}
+
+	/**
+	 * Sums start at the bias and activations at zero, as with Node.flush
+	 */
+	private void resetArrays() {
+		System.arraycopy(biases, 0, sums, 0, sums.length);
+		Arrays.fill(activations, 0.0);
+	}
+
+	/**
+	 * @return total number of links in the compiled network
+	 */
+	public int numLinks() {
+		return linkTarget.length;
+	}
+}
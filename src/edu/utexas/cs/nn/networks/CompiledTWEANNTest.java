@@ -0,0 +1,132 @@
+package edu.utexas.cs.nn.networks;
+
+import static org.junit.Assert.*;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class CompiledTWEANNTest {
+
+	final int MUTATIONS = 30;
+	final int STEPS = 20;
+	TWEANNGenotype tg;
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false",
+				"allowMultipleFunctions:true", "recurrency:true", "mmdRate:0.1", "randomArgMaxTieBreak:false" });
+		MMNEAT.loadClasses();
+		tg = new TWEANNGenotype(5, 2, 0);
+		MMNEAT.genotype = tg.copy();
+		EvolutionaryHistory.initArchetype(0);
+		for (int i = 0; i < MUTATIONS; i++) {
+			tg.mutate();
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		tg = null;
+		MMNEAT.clearClasses();
+	}
+
+	@Test
+	public void testSameOutputsAsTWEANN() {
+		TWEANN t = new TWEANN(tg);
+		CompiledTWEANN c = new CompiledTWEANN(tg);
+		assertEquals(t.numInputs(), c.numInputs());
+		assertEquals(t.numOutputs(), c.numOutputs());
+		assertEquals(t.numModules(), c.numModules());
+		// Recurrent activation carries over between steps
+		for (int i = 0; i < STEPS; i++) {
+			double[] inputs = RandomNumbers.randomArray(t.numInputs());
+			assertArrayEquals(t.process(inputs), c.process(inputs), 0.0);
+			assertEquals(t.lastModule(), c.lastModule());
+			for (int m = 0; m < t.numModules(); m++) {
+				assertArrayEquals(t.moduleOutput(m), c.moduleOutput(m), 0.0);
+			}
+		}
+		assertArrayEquals(t.getModuleUsage(), c.getModuleUsage());
+	}
+
+	@Test
+	public void testFlush() {
+		CompiledTWEANN c = new CompiledTWEANN(tg);
+		double[] inputs = RandomNumbers.randomArray(c.numInputs());
+		double[] first = c.process(inputs);
+		for (int i = 0; i < STEPS; i++) {
+			c.process(RandomNumbers.randomArray(c.numInputs()));
+		}
+		c.flush();
+		assertArrayEquals(first, c.process(inputs), 0.0);
+	}
+
+	@Test
+	public void testProcessBatch() {
+		// Unmutated genotype is feedforward, the mutated one is recurrent
+		TWEANNGenotype feedforward = new TWEANNGenotype(5, 2, 0);
+		for (TWEANNGenotype g : new TWEANNGenotype[] { feedforward, tg }) {
+			for (boolean flushEachInput : new boolean[] { false, true }) {
+				assertSameBatchOutputs(new TWEANN(g), new TWEANN(g), flushEachInput);
+				assertSameBatchOutputs(new CompiledTWEANN(g), new TWEANN(g), flushEachInput);
+			}
+		}
+		assertTrue(new CompiledTWEANN(feedforward).isFeedForward());
+	}
+
+	@Test
+	public void testProcessBatchRandomDraws() {
+		TWEANNGenotype feedforward = new TWEANNGenotype(5, 2, 0);
+		double[][] inputs = new double[STEPS][];
+		for (int i = 0; i < STEPS; i++) {
+			inputs[i] = RandomNumbers.randomArray(feedforward.numIn);
+		}
+		CommonConstants.randomArgMaxTieBreak = true;
+		for (boolean softmax : new boolean[] { false, true }) {
+			CommonConstants.softmaxModeSelection = softmax;
+			for (boolean flushEachInput : new boolean[] { false, true }) {
+				RandomNumbers.reset(7);
+				new TWEANN(feedforward).processBatch(inputs, flushEachInput);
+				long batched = RandomNumbers.generator().nextLong();
+
+				RandomNumbers.reset(7);
+				TWEANN sequential = new TWEANN(feedforward);
+				for (double[] in : inputs) {
+					if (flushEachInput) {
+						sequential.flush();
+					}
+					sequential.process(in);
+				}
+				// Mode selection made the same draws
+				assertEquals(RandomNumbers.generator().nextLong(), batched);
+			}
+		}
+	}
+
+	private void assertSameBatchOutputs(TWEANN batched, TWEANN sequential, boolean flushEachInput) {
+		double[][] inputs = new double[STEPS][];
+		for (int i = 0; i < STEPS; i++) {
+			inputs[i] = RandomNumbers.randomArray(batched.numInputs());
+		}
+		double[][] outputs = batched.processBatch(inputs, flushEachInput);
+		assertEquals(STEPS, outputs.length);
+		for (int i = 0; i < STEPS; i++) {
+			if (flushEachInput) {
+				sequential.flush();
+			}
+			assertArrayEquals(sequential.process(inputs[i]), outputs[i], 0.0);
+		}
+		assertArrayEquals(sequential.getModuleUsage(), batched.getModuleUsage());
+		// Both are left in the same state
+		double[] next = RandomNumbers.randomArray(batched.numInputs());
+		assertArrayEquals(sequential.process(next), batched.process(next), 0.0);
+	}
+}
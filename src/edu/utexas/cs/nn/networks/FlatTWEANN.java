@@ -0,0 +1,182 @@
+package edu.utexas.cs.nn.networks;
+
+import java.util.Arrays;
+
+import edu.utexas.cs.nn.util.datastructures.LongIntHashMap;
+
+/**
+ * Topology and weights of a TWEANN stored in flat primitive arrays. The
+ * outgoing links of node i occupy positions linkStart[i] up to linkStart[i+1]
+ * of linkTarget and linkWeight, in the same order as the Link list of the
+ * node, so sums accumulated from these arrays match those of the Node objects
+ * exactly.
+ *
+ * Shared by CompiledTWEANN, which activates these arrays on every call to
+ * process, and by TWEANN.processBatch, which compiles a plain TWEANN on the
+ * fly in order to activate it over many input vectors at once.
+ */
+final class FlatTWEANN {
+
+	final int numIn;
+	final double[] biases;
+	final int[] ftypes;
+	final int[] linkStart;
+	final int[] linkTarget;
+	final double[] linkWeight;
+
+	FlatTWEANN(int numIn, double[] biases, int[] ftypes, int[] linkStart, int[] linkTarget, double[] linkWeight) {
+		this.numIn = numIn;
+		this.biases = biases;
+		this.ftypes = ftypes;
+		this.linkStart = linkStart;
+		this.linkTarget = linkTarget;
+		this.linkWeight = linkWeight;
+	}
+
+	/**
+	 * Copy the nodes and links of a network into arrays
+	 *
+	 * @param net
+	 *            network made of Node and Link objects
+	 * @return arrays describing the same network
+	 */
+	static FlatTWEANN compile(TWEANN net) {
+		int size = net.nodes.size();
+		double[] biases = new double[size];
+		int[] ftypes = new int[size];
+		int[] linkStart = new int[size + 1];
+
+		LongIntHashMap index = new LongIntHashMap(size);
+		int numLinks = 0;
+		for (int i = 0; i < size; i++) {
+			TWEANN.Node n = net.nodes.get(i);
+			index.put(n.innovation, i);
+			biases[i] = n.bias;
+			ftypes[i] = n.ftype;
+			numLinks += n.outputs.size();
+		}
+
+		int[] linkTarget = new int[numLinks];
+		double[] linkWeight = new double[numLinks];
+		int pos = 0;
+		for (int i = 0; i < size; i++) {
+			linkStart[i] = pos;
+			for (TWEANN.Link l : net.nodes.get(i).outputs) {
+				linkTarget[pos] = index.get(l.target.innovation);
+				linkWeight[pos] = l.weight;
+				pos++;
+			}
+		}
+		linkStart[size] = pos;
+		return new FlatTWEANN(net.numIn, biases, ftypes, linkStart, linkTarget, linkWeight);
+	}
+
+	/**
+	 * @return number of nodes
+	 */
+	int numNodes() {
+		return biases.length;
+	}
+
+	/**
+	 * @return whether every link leads to a later node, in which case outputs
+	 *         only depend on the current inputs
+	 */
+	boolean isFeedForward() {
+		for (int i = 0; i < biases.length; i++) {
+			for (int k = linkStart[i]; k < linkStart[i + 1]; k++) {
+				if (linkTarget[k] <= i) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Activates a feedforward network once for each of several input vectors.
+	 * Column b of inputs holds input vector b, and afterwards column b of
+	 * activations holds the resulting activation of every node. Each node is
+	 * activated for the whole block before moving on to the next node, but
+	 * the sums of each column are accumulated in the same order as when
+	 * activating a single input vector.
+	 *
+	 * @param inputs
+	 *            inputs[i][b] is input i of vector b
+	 * @param count
+	 *            number of input vectors (columns) in the block
+	 * @param activations
+	 *            one row per node, each with at least count columns, that is
+	 *            filled with the node activations
+	 */
+	void activateBlock(double[][] inputs, int count, double[][] activations) {
+		// Rows hold sums until their node is activated
+		for (int i = 0; i < activations.length; i++) {
+			Arrays.fill(activations[i], 0, count, biases[i]);
+		}
+		for (int i = 0; i < numIn; i++) {
+			double[] sum = activations[i];
+			double[] in = inputs[i];
+			for (int b = 0; b < count; b++) {
+				sum[b] += in[b];
+			}
+		}
+		for (int i = 0; i < activations.length; i++) {
+			double[] row = activations[i];
+			int ftype = ftypes[i];
+			for (int b = 0; b < count; b++) {
+				row[b] = ActivationFunctions.activation(ftype, row[b]);
+			}
+			for (int k = linkStart[i]; k < linkStart[i + 1]; k++) {
+				double[] target = activations[linkTarget[k]];
+				double weight = linkWeight[k];
+				for (int b = 0; b < count; b++) {
+					target[b] += row[b] * weight;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Activates a feedforward network for a range of input vectors, a block
+	 * at a time, and copies a range of node activations out as the outputs
+	 * of each vector.
+	 *
+	 * @param inputs
+	 *            one input vector per row
+	 * @param from
+	 *            first row to process
+	 * @param to
+	 *            row after the last one to process
+	 * @param outputStart
+	 *            position of the first node to copy out
+	 * @param numOutputs
+	 *            number of nodes to copy out
+	 * @param results
+	 *            row r is set to a new array of outputs for inputs[r]
+	 */
+	void activateRows(double[][] inputs, int from, int to, int outputStart, int numOutputs, double[][] results) {
+		int block = NetworkUtil.batchBlockSize(biases.length + numIn);
+		double[][] columns = new double[numIn][block];
+		double[][] activations = new double[biases.length][block];
+		for (int start = from; start < to; start += block) {
+			int count = Math.min(block, to - start);
+			for (int b = 0; b < count; b++) {
+				double[] in = inputs[start + b];
+				assert in.length == numIn : "Input mismatch! numIn = " + numIn + ", inputs.length = " + in.length;
+				for (int i = 0; i < numIn; i++) {
+					assert !Double.isNaN(in[i]) : "Input " + i + " is NaN!" + Arrays.toString(in);
+					columns[i][b] = in[i];
+				}
+			}
+			activateBlock(columns, count, activations);
+			for (int b = 0; b < count; b++) {
+				double[] out = new double[numOutputs];
+				for (int o = 0; o < numOutputs; o++) {
+					out[o] = activations[outputStart + o][b];
+				}
+				results[start + b] = out;
+			}
+		}
+	}
+}
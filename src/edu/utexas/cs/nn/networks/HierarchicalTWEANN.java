@@ -28,6 +28,15 @@ public class HierarchicalTWEANN extends TWEANN {
 		return GenotypePool.getMember(pool, subNetIds.get(pool));
 	}
 
+	/**
+	 * Network of a subnetwork, which belongs to the current thread and is
+	 * reused by the evaluations of later individuals with the same
+	 * subnetwork
+	 */
+	public TWEANN getSubNetPhenotype(int pool) {
+		return GenotypePool.getMemberPhenotype(pool, subNetIds.get(pool));
+	}
+
 	public ArrayList<Integer> getSubNetIds() {
 		return subNetIds;
 	}
@@ -169,6 +169,66 @@ public class MLP implements Network {
 		return outputs;
 	}
 
+	/**
+	 * MLP outputs only depend on the current inputs, so blocks of input
+	 * vectors are propagated together, reusing each row of weights for every
+	 * vector in the block. Sums are accumulated in the same order as in
+	 * propagate. The final input vector goes through propagate so that the
+	 * network is left in the same state as after sequential processing.
+	 */
+	@Override
+	public double[][] processBatch(double[][] inputIn, boolean flushEachInput) {
+		double[][] results = new double[inputIn.length][];
+		if (inputIn.length == 0) {
+			return results;
+		}
+		int numIn = firstConnectionLayer.length;
+		int numHidden = secondConnectionLayer.length;
+		int numOut = secondConnectionLayer[0].length;
+		int last = inputIn.length - 1;
+		int block = NetworkUtil.batchBlockSize(numIn + numHidden + numOut);
+		double[][] hidden = new double[block][numHidden];
+		for (int start = 0; start < last; start += block) {
+			int count = Math.min(block, last - start);
+			for (int b = 0; b < count; b++) {
+				assert inputIn[start + b].length == numIn : "MLP given " + inputIn[start + b].length + " inputs, but initialized for " + numIn;
+				clear(hidden[b]);
+				results[start + b] = new double[numOut];
+			}
+			for (int from = 0; from < numIn; from++) {
+				double[] weights = firstConnectionLayer[from];
+				for (int b = 0; b < count; b++) {
+					double input = inputIn[start + b][from];
+					double[] sums = hidden[b];
+					for (int to = 0; to < numHidden; to++) {
+						sums[to] += input * weights[to];
+					}
+				}
+			}
+			for (int b = 0; b < count; b++) {
+				tanh(hidden[b]);
+			}
+			for (int from = 0; from < numHidden; from++) {
+				double[] weights = secondConnectionLayer[from];
+				for (int b = 0; b < count; b++) {
+					double activation = hidden[b][from];
+					double[] sums = results[start + b];
+					for (int to = 0; to < numOut; to++) {
+						sums[to] += activation * weights[to];
+					}
+				}
+			}
+			for (int b = 0; b < count; b++) {
+				tanh(results[start + b]);
+			}
+		}
+		if (flushEachInput) {
+			flush();
+		}
+		results[last] = propagate(inputIn[last]).clone();
+		return results;
+	}
+
 	/**
 	 * Initializes random connections between layers
 	 * (??will not be fully connected??)//TODO
@@ -53,4 +53,21 @@ public class MLPTest {
 		double O = Math.tanh(p1*mlp.secondConnectionLayer[0][0] + p2*mlp.secondConnectionLayer[1][0]);
 		assertEquals(O, outputs[0], .000001);
 	}
+
+	@Test
+	public void testProcessBatch() {
+		mlp = new MLP(3, 4, 2);
+		MLP sequential = new MLP(mlp.firstConnectionLayer, mlp.secondConnectionLayer);
+		double[][] inputs = new double[10][];
+		for (int i = 0; i < inputs.length; i++) {
+			inputs[i] = new double[] { i / 10.0, -i / 5.0, 0.3 };
+		}
+		double[][] outputs = mlp.processBatch(inputs, false);
+		assertEquals(inputs.length, outputs.length);
+		for (int i = 0; i < inputs.length; i++) {
+			assertArrayEquals(sequential.process(inputs[i]), outputs[i], 0.0);
+		}
+		// Rows are not shared with the network
+		assertNotSame(outputs[outputs.length - 1], mlp.process(inputs[0]));
+	}
 }
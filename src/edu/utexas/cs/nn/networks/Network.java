@@ -40,6 +40,34 @@ public interface Network {
 	 **/
 	public double[] process(double[] inputs);
 
+	/**
+	 * Processes several input vectors, returning the outputs for each. The
+	 * outputs are the same as those of calling process on each input vector
+	 * in order (with a call to flush before each one if flushEachInput is
+	 * true), and the network is left in the same state afterwards. Networks
+	 * whose outputs only depend on the current inputs can override this to
+	 * evaluate many input vectors at once.
+	 *
+	 * @param inputs
+	 *            Array with one array of sensor inputs per row
+	 * @param flushEachInput
+	 *            Whether each input vector should be processed by a freshly
+	 *            flushed network
+	 * @return Array whose row i is a new array of network outputs for
+	 *         inputs[i]
+	 */
+	public default double[][] processBatch(double[][] inputs, boolean flushEachInput) {
+		double[][] outputs = new double[inputs.length][];
+		for (int i = 0; i < inputs.length; i++) {
+			if (flushEachInput) {
+				flush();
+			}
+			// Some networks reuse the array they return
+			outputs[i] = process(inputs[i]).clone();
+		}
+		return outputs;
+	}
+
 	/**
 	 * Clear any internal state
 	 */
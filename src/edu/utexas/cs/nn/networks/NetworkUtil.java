@@ -9,6 +9,10 @@ import edu.utexas.cs.nn.parameters.CommonConstants;
  */
 public class NetworkUtil {
 
+	// Limits on the size of the blocks used when processing batches of inputs
+	private static final int BATCH_BLOCK_VALUES = 32768;
+	private static final int BATCH_BLOCK_MAX = 256;
+
 	/**
 	 * Used for standard HyperNEAT link expression. If a link is to be
 	 * expressed, then values beyond a threshold slide back to 0 so that weights
@@ -76,4 +80,16 @@ public class NetworkUtil {
 			}
 		}
 	}
+
+	/**
+	 * Number of input vectors to activate together when processing a batch,
+	 * chosen so that the values of a block (around 256KB of doubles) stay in
+	 * cache while every node is activated.
+	 *
+	 * @param valuesPerInput number of values stored for each input vector
+	 * @return number of input vectors per block
+	 */
+	public static int batchBlockSize(int valuesPerInput) {
+		return Math.max(1, Math.min(BATCH_BLOCK_MAX, BATCH_BLOCK_VALUES / Math.max(1, valuesPerInput)));
+	}
 }
@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.networks;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.evolution.genotypes.HyperNEATCPPNGenotype;
@@ -236,6 +237,124 @@ public class SubstrateMLP implements Network {
 		return outputs;
 	}
 
+	/**
+	 * Without flushing, every layer accumulates onto its activations from the
+	 * previous input vector, so only batches that flush before each input
+	 * vector are processed a block at a time. Each layer is then stored with
+	 * one row per node and one column per input vector, and the nodes are
+	 * visited in the same order as in process, so the results are identical.
+	 * The final input vector goes through process so that the network is left
+	 * in the same state as after sequential processing.
+	 */
+	@Override
+	public double[][] processBatch(double[][] inputs, boolean flushEachInput) {
+		if (!flushEachInput || inputs.length < 2) {
+			return Network.super.processBatch(inputs, flushEachInput);
+		}
+		int totalNodes = 0;
+		for (MLPLayer layer : layers) {
+			totalNodes += layer.nodes.length * layer.nodes[0].length;
+		}
+		int block = NetworkUtil.batchBlockSize(totalNodes);
+		double[][][] blockLayers = new double[layers.size()][][];
+		for (int l = 0; l < blockLayers.length; l++) {
+			MLPLayer layer = layers.get(l);
+			blockLayers[l] = new double[layer.nodes.length * layer.nodes[0].length][block];
+		}
+		int last = inputs.length - 1;
+		double[][] results = new double[inputs.length][];
+		for (int start = 0; start < last; start += block) {
+			int count = Math.min(block, last - start);
+			for (double[][] nodes : blockLayers) {
+				for (double[] node : nodes) {
+					Arrays.fill(node, 0, count, 0.0);
+				}
+			}
+			fillBlockLayers(blockLayers, inputs, start, count);
+			for (MLPConnection connect : connections) {
+				propagateBlock(connect, blockLayers[layers.indexOf(connect.source)], blockLayers[layers.indexOf(connect.target)], count);
+			}
+			// Same row major order as process
+			double[][] outputNodes = layers.get(layers.size() - 1).nodes;
+			double[][] output = blockLayers[blockLayers.length - 1];
+			int width = outputNodes.length;
+			int height = outputNodes[0].length;
+			for (int b = 0; b < count; b++) {
+				double[] result = new double[width * height];
+				int x = 0;
+				for (int Y = 0; Y < height; Y++) {
+					for (int X = 0; X < width; X++) {
+						result[x++] = output[X * height + Y][b];
+					}
+				}
+				results[start + b] = result;
+			}
+		}
+		flush();
+		results[last] = process(inputs[last]);
+		return results;
+	}
+
+	/**
+	 * Block version of fillLayers. Node (X,Y) of a layer is row X*height+Y
+	 * of its block.
+	 */
+	private void fillBlockLayers(double[][][] blockLayers, double[][] inputs, int start, int count) {
+		int x = 0;
+		for (int l = 0; l < blockLayers.length; l++) {
+			MLPLayer mlplayer = layers.get(l);
+			int width = mlplayer.nodes.length;
+			int height = mlplayer.nodes[0].length;
+			if (mlplayer.ltype == Substrate.INPUT_SUBSTRATE) {
+				for (int j = 0; j < height; j++) {
+					for (int i = 0; i < width; i++) {
+						double[] node = blockLayers[l][i * height + j];
+						for (int b = 0; b < count; b++) {
+							assert numInputs == inputs[start + b].length : "number of inputs " + numInputs + " does not match size of inputs given: " + inputs[start + b].length;
+							node[b] = inputs[start + b][x];
+						}
+						x++;
+					}
+				}
+			}
+			activateBlockLayer(blockLayers[l], count);
+			if (x == numInputs) break;
+		}
+	}
+
+	/**
+	 * Block version of propagateOneStep
+	 */
+	private void propagateBlock(MLPConnection connection, double[][] from, double[][] to, int count) {
+		double[][][][] weights = connection.connection;
+		int toHeight = weights[0][0][0].length;
+		int fromHeight = weights[0].length;
+		for (int X1 = 0; X1 < weights.length; X1++) {
+			for (int Y1 = 0; Y1 < fromHeight; Y1++) {
+				double[] source = from[X1 * fromHeight + Y1];
+				for (int X2 = 0; X2 < weights[0][0].length; X2++) {
+					double[] w = weights[X1][Y1][X2];
+					for (int Y2 = 0; Y2 < toHeight; Y2++) {
+						double[] target = to[X2 * toHeight + Y2];
+						double weight = w[Y2];
+						for (int b = 0; b < count; b++) {
+							target[b] += source[b] * weight;
+						}
+					}
+				}
+			}
+		}
+		activateBlockLayer(to, count);
+	}
+
+	private void activateBlockLayer(double[][] nodes, int count) {
+		for (double[] node : nodes) {
+			for (int b = 0; b < count; b++) {
+				node[b] = ActivationFunctions.activation(ftype, node[b]);
+			}
+		}
+	}
+
 	/**
 	 * Propagates one step through network
 	 * @param inputs inputs to layer
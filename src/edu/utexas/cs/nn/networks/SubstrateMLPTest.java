@@ -68,6 +68,29 @@ public class SubstrateMLPTest {
 		}
 	}
 
+	@Test
+	public void testProcessBatch() {
+		SubstrateMLP sequential = new SubstrateMLP(task.getSubstrateInformation(), task.getSubstrateConnectivity(), hcppn.getCPPN());
+		double[][] inputs = new double[12][9];
+		for(int i = 0; i < inputs.length; i++) {
+			for(int j = 0; j < inputs[i].length; j++) {
+				inputs[i][j] = ((i * 7 + j) % 10) / 10.0;
+			}
+		}
+		for(boolean flushEachInput : new boolean[] {false, true}) {
+			mlp.flush();
+			sequential.flush();
+			double[][] outputs = mlp.processBatch(inputs, flushEachInput);
+			assertEquals(inputs.length, outputs.length);
+			for(int i = 0; i < inputs.length; i++) {
+				if(flushEachInput) sequential.flush();
+				assertArrayEquals(sequential.process(inputs[i]), outputs[i], 0.0);
+			}
+			// Both are left in the same state
+			assertArrayEquals(sequential.process(inputs[0]), mlp.process(inputs[0]), 0.0);
+		}
+	}
+
 	public abstract class AggregateHyperNEATTask implements Task, HyperNEATTask {
 	}
 
@@ -12,6 +12,7 @@ import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.CombinatoricUtilities;
+import edu.utexas.cs.nn.util.datastructures.LongIntHashMap;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
 
@@ -308,6 +309,7 @@ public class TWEANN implements Network {
 		protected void connect(Node target, double weight, long innovation, boolean recurrent, boolean frozen) {
 			Link l = new Link(target, weight, innovation, recurrent, frozen);
 			outputs.add(l);
+			flat = null;
 		}
 
 		/**
@@ -344,6 +346,10 @@ public class TWEANN implements Network {
 	public ArrayList<Node> nodes;
 	public int[] moduleUsage;
 	private double[] preferenceFatigue;
+	// Reused by every call to process
+	private double[] preferences;
+	// Compiled form used by processBatch, discarded whenever a link is added
+	private FlatTWEANN flat;
 	public int chosenModule = 0;
 	public boolean canDraw = true;
 	public final int archetypeIndex;
@@ -358,14 +364,9 @@ public class TWEANN implements Network {
 		if (CommonConstants.ensembleModeMutation) {
 			return false;
 		}
-		double mmpRate = Parameters.parameters.doubleParameter("mmpRate");
-		double mmrRate = Parameters.parameters.doubleParameter("mmrRate");
-		double mmdRate = Parameters.parameters.doubleParameter("mmdRate");
-		double fullMMRate = Parameters.parameters.doubleParameter("fullMMRate");
-		int startingModes = Parameters.parameters.integerParameter("startingModes");
-		boolean multitaskCombiningCrossover = Parameters.parameters.booleanParameter("multitaskCombiningCrossover");
-		return (!multitaskCombiningCrossover || startingModes > 1 || mmpRate > 0 || mmrRate > 0 || mmdRate > 0
-				|| fullMMRate > 0 || CommonConstants.hierarchicalMultitask);
+		return (!CommonConstants.multitaskCombiningCrossover || CommonConstants.startingModes > 1
+				|| CommonConstants.mmpRate > 0 || CommonConstants.mmrRate > 0 || CommonConstants.mmdRate > 0
+				|| CommonConstants.fullMMRate > 0 || CommonConstants.hierarchicalMultitask);
 	}
 
 	/**
@@ -438,6 +439,7 @@ public class TWEANN implements Network {
 			}
 		}
 		this.numOut = numOut;
+		this.preferences = new double[this.numModes];
 
 		nodes = new ArrayList<Node>(numIn + numOut);
 
@@ -504,6 +506,8 @@ public class TWEANN implements Network {
 		this.archetypeIndex = g.archetypeIndex;
 		this.id = g.getId();
 		this.nodes = new ArrayList<Node>(g.nodes.size());
+		// Positions of nodes in the list, so links can be resolved in constant time
+		LongIntHashMap nodeIndex = new LongIntHashMap(g.nodes.size());
 
 		int countIn = 0;
 		int countOut = 0;
@@ -532,6 +536,7 @@ public class TWEANN implements Network {
 				countOut++;
 				break;
 			}
+			nodeIndex.put(n.innovation, nodes.size());
 			nodes.add(n);
 		}
 
@@ -564,13 +569,16 @@ public class TWEANN implements Network {
 
 		this.moduleUsage = new int[numModes];
 		this.preferenceFatigue = new double[numModes];
+		this.preferences = new double[numModes];
 
 		for (LinkGene lg : g.links) {
 			if (lg.isActive()) {
-				Node source = getNode(lg.sourceInnovation);
-				Node target = getNode(lg.targetInnovation);
-				assert(target != null) : "No target: " + lg + "\nNet:" + g.getId();
-				assert(source != null) : "How could the source be null?";
+				int sourceIndex = nodeIndex.get(lg.sourceInnovation);
+				int targetIndex = nodeIndex.get(lg.targetInnovation);
+				assert(targetIndex != -1) : "No target: " + lg + "\nNet:" + g.getId();
+				assert(sourceIndex != -1) : "How could the source be null?";
+				Node source = nodes.get(sourceIndex);
+				Node target = nodes.get(targetIndex);
 				source.connect(target, lg.weight, lg.innovation, lg.isRecurrent(), lg.isFrozen());
 			}
 		}
@@ -578,7 +586,54 @@ public class TWEANN implements Network {
 		allViable();
 	}
 
+	/**
+	 * Single-module network whose nodes are created without any Links, for
+	 * subclasses that keep their links in another form. Node i has innovation
+	 * number i, and output nodes must come last.
+	 *
+	 * @param id
+	 *            id of the network
+	 * @param ntypes
+	 *            neuron type of each node
+	 * @param ftypes
+	 *            activation function of each node
+	 * @param biases
+	 *            bias of each node
+	 */
+	protected TWEANN(long id, int[] ntypes, int[] ftypes, double[] biases) {
+		NETWORK_VIEW_DIM = (Parameters.parameters.booleanParameter("hyperNEAT")) ? 1000 : 500;
+		this.archetypeIndex = -1;
+		this.id = id;
+		this.nodes = new ArrayList<Node>(ntypes.length);
+		int countIn = 0;
+		int countOut = 0;
+		for (int i = 0; i < ntypes.length; i++) {
+			if (ntypes[i] == Node.NTYPE_INPUT) {
+				countIn++;
+			} else if (ntypes[i] == Node.NTYPE_OUTPUT) {
+				countOut++;
+			}
+			nodes.add(new Node(ftypes[i], ntypes[i], i, false, biases[i]));
+		}
+		this.numIn = countIn;
+		this.numOut = countOut;
+		this.numModes = 1;
+		this.neuronsPerModule = countOut;
+		this.standardMultitask = false;
+		this.hierarchicalMultitask = false;
+		this.moduleAssociations = new int[] { 0 };
+		this.moduleUsage = new int[numModes];
+		this.preferenceFatigue = new double[numModes];
+		this.preferences = new double[numModes];
+		outputStart = nodes.size() - numOut;
+		allViable();
+	}
+
 	// Getters
+	public long getId() {
+		return id;
+	}
+
 	@Override
 	public int[] getModuleUsage() {
 		return moduleUsage;
@@ -658,20 +713,12 @@ public class TWEANN implements Network {
 		assert(inputs.length == numIn) : "Input mismatch! numIn = " + numIn + "\n" + "inputs.length = " + inputs.length + "\n" + Arrays.toString(inputs);
 		assert(numIn <= nodes.size()) : "Input mismatch! numIn = " + numIn + "\n" + "nodes.size() = " + nodes.size() + "\n" + nodes;
 
-		// Load inputs
-		for (int i = 0; i < numIn; i++) {
-			assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
-			nodes.get(i).load(inputs[i]);
-		}
-
-		// Activate nodes in forward order
-		for (int i = 0; i < nodes.size(); i++) {
-			nodes.get(i).activateAndTransmit();
-		}
+		activateNodes(inputs);
 
 		// All outputs
 
-		double[] preferences = new double[numModes];
+		double[] preferences = this.preferences;
+		Arrays.fill(preferences, 0.0);
 		if (CommonConstants.ensembleModeMutation) {
 			// Give all equal preference and then take average across modes
 			Arrays.fill(preferences, 1.0);
@@ -682,9 +729,9 @@ public class TWEANN implements Network {
 				preferences[presetMode] = 1.0;
 			} else {
 				for (int m = 0; m < numModes; m++) {
-					Node out = nodes.get(outputStart + (m * (neuronsPerModule + 1)) + neuronsPerModule);
+					int out = outputStart + (m * (neuronsPerModule + 1)) + neuronsPerModule;
 					// Inviable modes have minimal preference
-					preferences[m] = viableModes[m] ? out.output() : -Double.MAX_VALUE;
+					preferences[m] = viableModes[m] ? nodeOutput(out) : -Double.MAX_VALUE;
 				}
 			}
 			// subtract fatigue
@@ -724,7 +771,7 @@ public class TWEANN implements Network {
 			for (int i = 0; i < outputs.length; i++) {
 				for (int j = 0; j < numModes; j++) {
 					int modeStart = outputStart + (j * (neuronsPerModule + (CommonConstants.ensembleModeMutation ? 0 : 1)));
-					outputs[i] += preferences[j] * nodes.get(modeStart + i).output();
+					outputs[i] += preferences[j] * nodeOutput(modeStart + i);
 				}
 				outputs[i] /= numModes;
 			}
@@ -736,7 +783,7 @@ public class TWEANN implements Network {
 				animateSubstrate();
 			}
 				
-			if (panel != null && Parameters.parameters.booleanParameter("animateNetwork")) {
+			if (panel != null && CommonConstants.animateNetwork) {
 				draw(panel);
 			}
 			if (inputPanel != null) {
@@ -747,6 +794,81 @@ public class TWEANN implements Network {
 		return outputs;
 	}
 
+	/**
+	 * Feedforward single-module networks are activated over blocks of input
+	 * vectors at a time, since their outputs only depend on the current
+	 * inputs. The final input vector is still sent through process, so the
+	 * network is left in exactly the state sequential processing would leave
+	 * it in, and module usage and preference fatigue are updated for every
+	 * vector. Mode selection still draws from the random generator once per
+	 * vector, so the random stream advances just as it would in process.
+	 *
+	 * Recurrent, multimodal and displayed networks are processed one vector
+	 * at a time.
+	 */
+	@Override
+	public double[][] processBatch(double[][] inputs, boolean flushEachInput) {
+		if (inputs.length < 2 || !canProcessBlocks()) {
+			return Network.super.processBatch(inputs, flushEachInput);
+		}
+		FlatTWEANN flat = flatten();
+		if (!flat.isFeedForward()) {
+			return Network.super.processBatch(inputs, flushEachInput);
+		}
+		int last = inputs.length - 1;
+		double[][] results = new double[inputs.length][];
+		flat.activateRows(inputs, 0, last, outputStart, neuronsPerModule, results);
+		for (int i = 0; i < last; i++) {
+			if (flushEachInput) {
+				preferenceFatigue[0] = 0;
+			}
+			chooseSingleModule();
+		}
+		if (flushEachInput) {
+			flush();
+		}
+		results[last] = process(inputs[last]);
+		return results;
+	}
+
+	/**
+	 * Whether the outputs of processBatch can be computed without the mode
+	 * arbitration and drawing done by process
+	 */
+	private boolean canProcessBlocks() {
+		if (numModes != 1 || CommonConstants.ensembleModeMutation || CommonConstants.weightedAverageModeAggregation) {
+			return false;
+		}
+		return !canDraw || (panel == null && inputPanel == null && !(CommonConstants.hyperNEAT && CommonConstants.monitorSubstrates));
+	}
+
+	/**
+	 * Mode arbitration of process for a network with a single module. The
+	 * choice is always module 0, but the random draw of the tie-break or
+	 * softmax is still made.
+	 */
+	private void chooseSingleModule() {
+		preferences[0] = 1.0 - preferenceFatigue[0];
+		if (CommonConstants.disabledMode >= 0) {
+			preferences[CommonConstants.disabledMode] = -2;
+		}
+		chosenModule = CommonConstants.softmaxModeSelection
+				? StatisticsUtilities.softmax(preferences, CommonConstants.softmaxTemperature)
+				: StatisticsUtilities.argmax(preferences);
+		moduleUsage[chosenModule]++;
+		preferenceFatigue[chosenModule] += CommonConstants.preferenceNeuronFatigueUnit;
+	}
+
+	/**
+	 * @return arrays describing the current nodes and links of the network
+	 */
+	FlatTWEANN flatten() {
+		if (flat == null || flat.numNodes() != nodes.size()) {
+			flat = FlatTWEANN.compile(this);
+		}
+		return flat;
+	}
+
 	/**
 	 * After processing, the neurons retain their activations. Therefore, the
 	 * output values can be accessed for any mode, not just the chosen one.
@@ -760,12 +882,43 @@ public class TWEANN implements Network {
 		int selectedModeStart = outputStart + (mode * (neuronsPerModule + (standardMultitask ? 0 : 1)));
 		double[] outputs = new double[neuronsPerModule];
 		for (int i = 0; i < neuronsPerModule; i++) {
-			Node out = nodes.get(selectedModeStart + i);
-			outputs[i] = out.output();
+			outputs[i] = nodeOutput(selectedModeStart + i);
 		}
 		return outputs;
 	}
 
+	/**
+	 * Load the inputs and activate every node in forward order, transmitting
+	 * each activation along the outgoing links of its node. Mode arbitration
+	 * is handled afterwards by process.
+	 *
+	 * @param inputs
+	 *            sensor readings for the network
+	 */
+	protected void activateNodes(double[] inputs) {
+		// Load inputs
+		for (int i = 0; i < numIn; i++) {
+			assert !Double.isNaN(inputs[i]) : "Input " + i + " is NaN!" + Arrays.toString(inputs);
+			nodes.get(i).load(inputs[i]);
+		}
+
+		// Activate nodes in forward order
+		for (int i = 0; i < nodes.size(); i++) {
+			nodes.get(i).activateAndTransmit();
+		}
+	}
+
+	/**
+	 * Activation of a node after the most recent call to process
+	 *
+	 * @param index
+	 *            position of the node in the network
+	 * @return its activation
+	 */
+	protected double nodeOutput(int index) {
+		return nodes.get(index).output();
+	}
+
 	@SuppressWarnings("unchecked")
 	@Override
 	public void flush() {
@@ -786,18 +939,6 @@ public class TWEANN implements Network {
 		}
 	}
 
-	private Node getNode(long targetInnovation) {
-		Node targetNode = null;
-		for (Node n : nodes) {
-			if (n.innovation == targetInnovation) {
-				targetNode = n;
-				break;
-			}
-		}
-		assert targetNode != null : "No node with innovation " + targetInnovation + " existed";
-		return targetNode;
-	}
-
 	@Override
 	public String toString() {
 		String result = "";
@@ -1321,9 +1462,9 @@ public class TWEANN implements Network {
 		double activation = display.activation;
 		if (display.frozen) {
 			drawBorder(g, Color.CYAN, display.displayX, display.displayY, activation, 2);
-		} else if(Parameters.parameters.booleanParameter("allowMultipleFunctions")) {
+		} else if(CommonConstants.allowMultipleFunctions) {
 			drawBorder(g, CombinatoricUtilities.colorFromInt(display.ftype), display.displayX, display.displayY, activation, 2);
-		} else if(Parameters.parameters.booleanParameter("allowMultipleFunctions") && display.frozen) {
+		} else if(CommonConstants.allowMultipleFunctions && display.frozen) {
 			drawBorder(g, Color.CYAN, display.displayX, display.displayY, activation, 4);
 			drawBorder(g, CombinatoricUtilities.colorFromInt(display.ftype), display.displayX, display.displayY, activation, 4);
 		}
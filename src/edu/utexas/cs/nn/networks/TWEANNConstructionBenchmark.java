@@ -0,0 +1,112 @@
+package edu.utexas.cs.nn.networks;
+
+import java.util.ArrayList;
+
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.LinkGene;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype.NodeGene;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+/**
+ * Measures how long it takes to construct TWEANN phenotypes for
+ * HyperNEAT-style substrate networks of increasing size. Each network has a
+ * square input substrate fully connected to a hidden substrate of the same
+ * size, which is fully connected to a 2x2 output substrate. For comparison,
+ * the time needed to resolve the same links by scanning the node list for
+ * each link end (the old approach) is also reported.
+ *
+ * Usage: java edu.utexas.cs.nn.networks.TWEANNConstructionBenchmark [maxSide]
+ */
+public class TWEANNConstructionBenchmark {
+
+	// Keeps the linear scan from being optimized away
+	private static long sink = 0;
+
+	public static void main(String[] args) {
+		int maxSide = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "hyperNEAT:true" });
+
+		System.out.println("side\tnodes\tlinks\tconstruct(ms)\tlinearScan(ms)");
+		for (int side = 5; side <= maxSide; side += 5) {
+			TWEANNGenotype tg = substrateGenotype(side);
+			// Warm up
+			new TWEANN(tg);
+			int reps = Math.max(1, 200 / side);
+			long start = System.nanoTime();
+			for (int i = 0; i < reps; i++) {
+				new TWEANN(tg);
+			}
+			double construct = (System.nanoTime() - start) / (reps * 1000000.0);
+
+			start = System.nanoTime();
+			long checksum = linearScanResolution(tg);
+			double scan = (System.nanoTime() - start) / 1000000.0;
+			sink += checksum;
+			System.out.println(side + "\t" + tg.nodes.size() + "\t" + tg.links.size() + "\t" + construct + "\t" + scan);
+		}
+	}
+
+	/**
+	 * Genotype for a side x side input substrate, a side x side hidden
+	 * substrate and a 2x2 output substrate, numbered the way
+	 * HyperNEATCPPNGenotype numbers substrate nodes and links.
+	 *
+	 * @param side
+	 *            width and height of input and hidden substrates
+	 * @return substrate genotype
+	 */
+	public static TWEANNGenotype substrateGenotype(int side) {
+		int layer = side * side;
+		int outputs = 4;
+		ArrayList<NodeGene> nodes = new ArrayList<NodeGene>(2 * layer + outputs);
+		long innovation = 0;
+		for (int i = 0; i < layer; i++) {
+			nodes.add(TWEANNGenotype.newNodeGene(CommonConstants.ftype, TWEANN.Node.NTYPE_INPUT, innovation++));
+		}
+		for (int i = 0; i < layer; i++) {
+			nodes.add(TWEANNGenotype.newNodeGene(CommonConstants.ftype, TWEANN.Node.NTYPE_HIDDEN, innovation++));
+		}
+		for (int i = 0; i < outputs; i++) {
+			nodes.add(TWEANNGenotype.newNodeGene(CommonConstants.ftype, TWEANN.Node.NTYPE_OUTPUT, innovation++));
+		}
+		ArrayList<LinkGene> links = new ArrayList<LinkGene>(layer * layer + layer * outputs);
+		for (int i = 0; i < layer; i++) {
+			for (int j = 0; j < layer; j++) {
+				links.add(TWEANNGenotype.newLinkGene(i, layer + j, RandomNumbers.fullSmallRand(), innovation++, false));
+			}
+		}
+		for (int i = 0; i < layer; i++) {
+			for (int j = 0; j < outputs; j++) {
+				links.add(TWEANNGenotype.newLinkGene(layer + i, 2 * layer + j, RandomNumbers.fullSmallRand(), innovation++, false));
+			}
+		}
+		return new TWEANNGenotype(nodes, links, outputs, false, false, -1);
+	}
+
+	/**
+	 * Resolves both ends of every link by scanning the node list, which is
+	 * what phenotype construction used to do.
+	 *
+	 * @param tg
+	 *            genotype whose links are resolved
+	 * @return sum of resolved positions, so the work cannot be skipped
+	 */
+	private static long linearScanResolution(TWEANNGenotype tg) {
+		long checksum = 0;
+		for (LinkGene lg : tg.links) {
+			checksum += scan(tg.nodes, lg.sourceInnovation) + scan(tg.nodes, lg.targetInnovation);
+		}
+		return checksum;
+	}
+
+	private static int scan(ArrayList<NodeGene> nodes, long innovation) {
+		for (int i = 0; i < nodes.size(); i++) {
+			if (nodes.get(i).innovation == innovation) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
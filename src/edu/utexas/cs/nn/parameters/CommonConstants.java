@@ -1,10 +1,21 @@
 package edu.utexas.cs.nn.parameters;
 
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+
 /**
  * Contains Parameter values loaded via Parameters that never change once they
  * are loaded, and are repeatedly used through the simulation. It is more
  * efficient to save the variable values here than to use the HashMap of each
- * ParameterCollection over and over.
+ * ParameterCollection over and over. Parameters read on every time step or
+ * network activation belong here, so that reading them is a field access.
+ *
+ * A field is named after the parameter it holds. If a parameter is changed
+ * with one of the set methods of Parameters after it was loaded here, but the
+ * field was not changed along with it, then the field is stale. checkSnapshot
+ * finds and fixes such fields before an experiment starts.
  *
  * @author Jacob Schrum
  */
@@ -30,12 +41,15 @@ public class CommonConstants {
 	public static boolean splitRawTetrisInputs;
 	public static boolean allowMultipleFunctions;
 	public static boolean allowRandomGhostReversals;
+	public static boolean animateNetwork;
+	public static boolean batchedSubstrateQueries;
 	public static boolean checkEachAbsoluteDistanceGhostSort;
 	public static boolean checkEachFlushWalls;
 	public static boolean connectToInputs;
 	public static boolean constantTUGGoalIncrements;
 	public static boolean cullCrossovers;
 	public static boolean cullModeMutations;
+	public static boolean compiledTWEANNs;
 	public static boolean deleteLeastUsed;
 	public static boolean eliminateImpossibleDirections;
 	public static boolean ensembleModeMutation;
@@ -54,6 +68,7 @@ public class CommonConstants {
 	public static boolean minimalSubnetExecution;
 	public static boolean minimizeSpliceImpact;
 	public static boolean mmpActivationId;
+	public static boolean multitaskCombiningCrossover;
 	public static boolean monitorInputs;
 	public static boolean mutationChancePerMode;
 	public static boolean netio;
@@ -61,6 +76,9 @@ public class CommonConstants {
 	public static boolean onlyModeMutationWhenModesSame;
 	public static boolean pacmanFatalTimeLimit;
 	public static boolean pacManSensorCaching;
+	public static boolean parallelDiversity;
+	public static boolean parallelReproduction;
+	public static boolean parallelTrials;
 	public static boolean polynomialWeightMutation;
 	public static boolean probabilisticSelection;
 	public static boolean randomArgMaxTieBreak;
@@ -70,11 +88,14 @@ public class CommonConstants {
 	public static boolean relativePacmanDirections;
 	public static boolean replayPacman;
 	public static boolean requireFitnessDifferenceForChange;
+	public static boolean senseHyperNEATGhostPath;
 	public static boolean showNetworks;
 	public static boolean showSubnetAnalysis;
 	public static boolean softmaxModeSelection;
 	public static boolean softmaxSelection;
+	public static boolean sparseSubstrates;
 	public static boolean timedPacman;
+	public static boolean lockStepPacman;
 	public static boolean trackCombiningCrossover;
 	public static boolean trialsMatchGenerations;
 	public static boolean tugKeepsParetoFront;
@@ -102,7 +123,9 @@ public class CommonConstants {
 	public static int pacManLevelTimeLimit;
 	public static int pacmanStartingPowerPillIndex = -1; // Not a commandline
 	// param yet
+	public static int startingModes;
 	public static int stopMode;
+	public static int substrateQueryThreads;
 	public static int syllabusSize;
 	public static int trialIncreaseFrequency;
 	public static int trials;
@@ -110,7 +133,11 @@ public class CommonConstants {
 
 	public static double campPercentOfTrials;
 	public static double distanceForNewMode;
+	public static double fullMMRate;
 	public static double linkExpressionThreshold;
+	public static double mmdRate;
+	public static double mmpRate;
+	public static double mmrRate;
 	public static double netChangeActivationRate;
 	public static double preferenceNeuronDecay;
 	public static double preferenceNeuronFatigueUnit;
@@ -121,6 +148,9 @@ public class CommonConstants {
 	public static double softmaxTemperature;
 	public static double usageForNewMode;
 
+	// Values of the fields named after parameters when they were loaded
+	private static HashMap<String, Object> loaded = new HashMap<String, Object>();
+
 	/**
 	 * To be called once and only once after Parameters are initialized. None of
 	 * the variables here should ever be changed.
@@ -147,6 +177,8 @@ public class CommonConstants {
 		splitRawTetrisInputs = Parameters.parameters.booleanParameter("splitRawTetrisInputs");
 		allowMultipleFunctions = Parameters.parameters.booleanParameter("allowMultipleFunctions");
 		allowRandomGhostReversals = Parameters.parameters.booleanParameter("allowRandomGhostReversals");
+		animateNetwork = Parameters.parameters.booleanParameter("animateNetwork");
+		batchedSubstrateQueries = Parameters.parameters.booleanParameter("batchedSubstrateQueries");
 		checkEachAbsoluteDistanceGhostSort = Parameters.parameters
 				.booleanParameter("checkEachAbsoluteDistanceGhostSort");
 		checkEachFlushWalls = Parameters.parameters.booleanParameter("checkEachFlushWalls");
@@ -154,6 +186,7 @@ public class CommonConstants {
 		constantTUGGoalIncrements = Parameters.parameters.booleanParameter("constantTUGGoalIncrements");
 		cullCrossovers = Parameters.parameters.booleanParameter("cullCrossovers");
 		cullModeMutations = Parameters.parameters.booleanParameter("cullModeMutations");
+		compiledTWEANNs = Parameters.parameters.booleanParameter("compiledTWEANNs");
 		deleteLeastUsed = Parameters.parameters.booleanParameter("deleteLeastUsed");
 		eliminateImpossibleDirections = Parameters.parameters.booleanParameter("eliminateImpossibleDirections");
 		ensembleModeMutation = Parameters.parameters.booleanParameter("ensembleModeMutation");
@@ -172,6 +205,7 @@ public class CommonConstants {
 		minimalSubnetExecution = Parameters.parameters.booleanParameter("minimalSubnetExecution");
 		minimizeSpliceImpact = Parameters.parameters.booleanParameter("minimizeSpliceImpact");
 		mmpActivationId = Parameters.parameters.booleanParameter("mmpActivationId");
+		multitaskCombiningCrossover = Parameters.parameters.booleanParameter("multitaskCombiningCrossover");
 		monitorInputs = Parameters.parameters.booleanParameter("monitorInputs");
 		mutationChancePerMode = Parameters.parameters.booleanParameter("mutationChancePerMode");
 		netio = Parameters.parameters.booleanParameter("netio");
@@ -179,6 +213,9 @@ public class CommonConstants {
 		onlyModeMutationWhenModesSame = Parameters.parameters.booleanParameter("onlyModeMutationWhenModesSame");
 		pacmanFatalTimeLimit = Parameters.parameters.booleanParameter("pacmanFatalTimeLimit");
 		pacManSensorCaching = Parameters.parameters.booleanParameter("pacManSensorCaching");
+		parallelDiversity = Parameters.parameters.booleanParameter("parallelDiversity");
+		parallelReproduction = Parameters.parameters.booleanParameter("parallelReproduction");
+		parallelTrials = Parameters.parameters.booleanParameter("parallelTrials");
 		polynomialWeightMutation = Parameters.parameters.booleanParameter("polynomialWeightMutation");
 		probabilisticSelection = Parameters.parameters.booleanParameter("probabilisticSelection");
 		randomArgMaxTieBreak = Parameters.parameters.booleanParameter("randomArgMaxTieBreak");
@@ -188,11 +225,14 @@ public class CommonConstants {
 		relativePacmanDirections = Parameters.parameters.booleanParameter("relativePacmanDirections");
 		replayPacman = Parameters.parameters.booleanParameter("replayPacman");
 		requireFitnessDifferenceForChange = Parameters.parameters.booleanParameter("requireFitnessDifferenceForChange");
+		senseHyperNEATGhostPath = Parameters.parameters.booleanParameter("senseHyperNEATGhostPath");
 		showNetworks = Parameters.parameters.booleanParameter("showNetworks");
 		showSubnetAnalysis = Parameters.parameters.booleanParameter("showSubnetAnalysis");
 		softmaxModeSelection = Parameters.parameters.booleanParameter("softmaxModeSelection");
 		softmaxSelection = Parameters.parameters.booleanParameter("softmaxSelection");
+		sparseSubstrates = Parameters.parameters.booleanParameter("sparseSubstrates");
 		timedPacman = Parameters.parameters.booleanParameter("timedPacman");
+		lockStepPacman = Parameters.parameters.booleanParameter("lockStepPacman");
 		trackCombiningCrossover = Parameters.parameters.booleanParameter("trackCombiningCrossover");
 		trialsMatchGenerations = Parameters.parameters.booleanParameter("trialsMatchGenerations");
 		tugKeepsParetoFront = Parameters.parameters.booleanParameter("tugKeepsParetoFront");
@@ -219,7 +259,9 @@ public class CommonConstants {
 		multitaskModules = Parameters.parameters.integerParameter("multitaskModes");
 		numActiveGhosts = Parameters.parameters.integerParameter("numActiveGhosts");
 		pacManLevelTimeLimit = Parameters.parameters.integerParameter("pacManLevelTimeLimit");
+		startingModes = Parameters.parameters.integerParameter("startingModes");
 		stopMode = Parameters.parameters.integerParameter("stopMode");
+		substrateQueryThreads = Parameters.parameters.integerParameter("substrateQueryThreads");
 		syllabusSize = Parameters.parameters.integerParameter("syllabusSize");
 		trialIncreaseFrequency = Parameters.parameters.integerParameter("trialIncreaseFrequency");
 		trials = Parameters.parameters.integerParameter("trials");
@@ -227,7 +269,11 @@ public class CommonConstants {
 		// double
 		campPercentOfTrials = Parameters.parameters.doubleParameter("campPercentOfTrials");
 		distanceForNewMode = Parameters.parameters.doubleParameter("distanceForNewMode");
+		fullMMRate = Parameters.parameters.doubleParameter("fullMMRate");
 		linkExpressionThreshold = Parameters.parameters.doubleParameter("linkExpressionThreshold");
+		mmdRate = Parameters.parameters.doubleParameter("mmdRate");
+		mmpRate = Parameters.parameters.doubleParameter("mmpRate");
+		mmrRate = Parameters.parameters.doubleParameter("mmrRate");
 		netChangeActivationRate = Parameters.parameters.doubleParameter("netChangeActivationRate");
 		preferenceNeuronDecay = Parameters.parameters.doubleParameter("preferenceNeuronDecay");
 		preferenceNeuronFatigueUnit = Parameters.parameters.doubleParameter("preferenceNeuronFatigueUnit");
@@ -237,6 +283,91 @@ public class CommonConstants {
 		remainingTUGGoalRatio = Parameters.parameters.doubleParameter("remainingTUGGoalRatio");
 		softmaxTemperature = Parameters.parameters.doubleParameter("softmaxTemperature");
 		usageForNewMode = Parameters.parameters.doubleParameter("usageForNewMode");
+
+		loaded = new HashMap<String, Object>();
+		for (Field f : CommonConstants.class.getFields()) {
+			if (parameterValue(f) != null) {
+				loaded.put(f.getName(), fieldValue(f));
+			}
+		}
+	}
+
+	/**
+	 * Current value of the parameter a field is named after
+	 *
+	 * @param f
+	 *            field of this class
+	 * @return value of the parameter, or null if there is no parameter of the
+	 *         same name and type
+	 */
+	private static Object parameterValue(Field f) {
+		String label = f.getName();
+		if (f.getType() == boolean.class && Parameters.parameters.booleanOptions.hasLabel(label)) {
+			return Parameters.parameters.booleanParameter(label);
+		} else if (f.getType() == int.class && Parameters.parameters.integerOptions.hasLabel(label)) {
+			return Parameters.parameters.integerParameter(label);
+		} else if (f.getType() == double.class && Parameters.parameters.doubleOptions.hasLabel(label)) {
+			return Parameters.parameters.doubleParameter(label);
+		}
+		return null;
+	}
+
+	private static Object fieldValue(Field f) {
+		try {
+			return f.get(null);
+		} catch (IllegalAccessException e) {
+			e.printStackTrace();
+			System.out.println("Could not read CommonConstants." + f.getName());
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Parameters that were changed since load was called while the fields
+	 * holding them kept their loaded values. Fields that were deliberately
+	 * changed without changing the parameter, as some tasks do, are not stale.
+	 *
+	 * @return sorted labels of stale parameters
+	 */
+	public static ArrayList<String> staleParameters() {
+		ArrayList<String> stale = new ArrayList<String>();
+		for (Field f : CommonConstants.class.getFields()) {
+			Object current = parameterValue(f);
+			Object value = fieldValue(f);
+			if (current != null && !current.equals(value) && value.equals(loaded.get(f.getName()))) {
+				stale.add(f.getName());
+			}
+		}
+		Collections.sort(stale);
+		return stale;
+	}
+
+	/**
+	 * Reports any stale parameters, and loads their current values into the
+	 * fields that hold them. Meant to be called once all parameter changes made
+	 * while setting up an experiment are done, and before it runs.
+	 *
+	 * @return labels of parameters that were stale
+	 */
+	public static ArrayList<String> checkSnapshot() {
+		ArrayList<String> stale = staleParameters();
+		if (!stale.isEmpty()) {
+			System.out.println("Parameters changed after CommonConstants were loaded: " + stale);
+			for (String label : stale) {
+				try {
+					Field f = CommonConstants.class.getField(label);
+					Object current = parameterValue(f);
+					f.set(null, current);
+					loaded.put(label, current);
+				} catch (NoSuchFieldException | IllegalAccessException e) {
+					e.printStackTrace();
+					System.out.println("Could not update CommonConstants." + label);
+					System.exit(1);
+				}
+			}
+		}
+		return stale;
 	}
 
 	public static void trialsByGenerationUpdate(int generation) {
@@ -0,0 +1,51 @@
+package edu.utexas.cs.nn.parameters;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class CommonConstantsTest {
+
+	@Before
+	public void setUp() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "animateNetwork:true" });
+	}
+
+	@After
+	public void tearDown() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+	}
+
+	@Test
+	public void testLoad() {
+		assertTrue(CommonConstants.animateNetwork);
+		assertEquals(Parameters.parameters.integerParameter("startingModes"), CommonConstants.startingModes);
+		assertEquals(Parameters.parameters.doubleParameter("mmpRate"), CommonConstants.mmpRate, 0);
+		assertTrue(CommonConstants.staleParameters().isEmpty());
+	}
+
+	@Test
+	public void testCheckSnapshot() {
+		Parameters.parameters.setBoolean("animateNetwork", false);
+		Parameters.parameters.setDouble("mmrRate", 0.5);
+		// Changed along with its field
+		Parameters.parameters.setBoolean("watch", !CommonConstants.watch);
+		CommonConstants.watch = !CommonConstants.watch;
+		// Field changed on purpose without the parameter
+		CommonConstants.infiniteEdibleTime = !CommonConstants.infiniteEdibleTime;
+		// Not held in a field
+		Parameters.parameters.setInteger("maxGens", 7);
+
+		assertEquals(Arrays.asList("animateNetwork", "mmrRate"), CommonConstants.staleParameters());
+		assertTrue(CommonConstants.animateNetwork);
+		assertEquals(Arrays.asList("animateNetwork", "mmrRate"), CommonConstants.checkSnapshot());
+		assertFalse(CommonConstants.animateNetwork);
+		assertEquals(0.5, CommonConstants.mmrRate, 0);
+		assertTrue(CommonConstants.staleParameters().isEmpty());
+		assertTrue(CommonConstants.checkSnapshot().isEmpty());
+	}
+}
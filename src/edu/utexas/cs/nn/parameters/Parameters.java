@@ -146,6 +146,16 @@ public class Parameters {
 	 * "saveTo", "log", and "runNumber" parameters
 	 */
 	public void saveParameters() {
+		this.saveParameters(parametersFile());
+	}
+
+	/**
+	 * Name of the file that saveParameters() writes to. Creates the directory
+	 * of the run if it does not exist yet.
+	 *
+	 * @return name of the parameter file of the current run
+	 */
+	public String parametersFile() {
 		String path = stringParameter("base") + "/" + stringParameter("saveTo") + integerParameter("runNumber");
 		File dir = new File(path);
 		if (!dir.exists()) {
@@ -153,7 +163,7 @@ public class Parameters {
 
 		}
 		String name = stringOptions.get("log") + integerParameter("runNumber") + "_parameters.txt";
-		this.saveParameters(path + "/" + name);
+		return path + "/" + name;
 	}
 
 	/**
@@ -165,18 +175,28 @@ public class Parameters {
 	public void saveParameters(String filename) {
 		// PrintStream will be cleaned up as part of the try
 		try (PrintStream stream = new PrintStream(new FileOutputStream(filename))) {
-			integerOptions.writeLabels(stream);
-			longOptions.writeLabels(stream);
-			booleanOptions.writeLabels(stream);
-			doubleOptions.writeLabels(stream);
-			stringOptions.writeLabels(stream);
-			classOptions.writeLabels(stream);
+			saveParameters(stream);
 		} catch (FileNotFoundException ex) {
 			System.out.println("Could not save parameters");
 			System.exit(1);
 		}
 	}
 
+	/**
+	 * Write parameters in the format of a parameter file
+	 *
+	 * @param stream
+	 *            where to write the parameters
+	 */
+	public void saveParameters(PrintStream stream) {
+		integerOptions.writeLabels(stream);
+		longOptions.writeLabels(stream);
+		booleanOptions.writeLabels(stream);
+		doubleOptions.writeLabels(stream);
+		stringOptions.writeLabels(stream);
+		classOptions.writeLabels(stream);
+	}
+
 	/**
 	 * Define all parameter labels, default values, and help text
 	 */
@@ -187,6 +207,9 @@ public class Parameters {
 		integerOptions.add("marioStuckTimeout", Integer.MAX_VALUE, "Sets the stuck timeout for Mario, default is no timeout");
 		integerOptions.add("marioJumpTimeout", Integer.MAX_VALUE, "Sets the jump timeout for Mario, default is no timeout");
 		integerOptions.add("HNTTetrisProcessDepth", 1, "The number of processing layers in HNT tetris substrate");
+		integerOptions.add("substrateCacheLinks", 1000000, "Max total links in cached HyperNEAT substrate networks (0 disables the cache)");
+		integerOptions.add("subnetworkCacheGenes", 1000000, "Max total genes in cached subnetwork genotypes and networks (0 disables the cache)");
+		integerOptions.add("substrateQueryThreads", 1, "Parallel groups of CPPN queries for substrate connections when batchedSubstrateQueries is used, run by the evaluation threads");
 		integerOptions.add("marioInputStartX", -1, "The x coordinate offset for Mario inputs grid");
 		integerOptions.add("marioInputStartY", -1, "The y coordinate offset for Mario inputs grid");
 		integerOptions.add("marioInputHeight", 3, "The height for a Mario input section");
@@ -221,6 +244,7 @@ public class Parameters {
 		integerOptions.add("maxModes", 1000, "Mode mutation cannot add more than this many modes");
 		integerOptions.add("numModesToPrefer", -1, "If non-negative, then a fitness function rewards even usage of this many modes");
 		integerOptions.add("bdArchiveSize", 0, "Maximum allowable size of archive for BD");
+		integerOptions.add("nicheSize", 15, "Number of nearest neighbors in behavior space that are in the niche of an individual for local competition");
 		integerOptions.add("initialPopulationSeed", -1, "Random seed used to determine the initial population");
 		integerOptions.add("randomSeed", -1, "Random seed used to control algorithmic randomness (not domain randomness)");
 		integerOptions.add("ftype", ActivationFunctions.FTYPE_TANH, "Integer designation of default activation function for networks");
@@ -237,6 +261,7 @@ public class Parameters {
 		integerOptions.add("lastSavedGeneration", 0, "Last generation where genotypes were saved");
 		integerOptions.add("runNumber", 0, "Number to designate this run of an experiment");
 		integerOptions.add("threads", 4, "Number of threads if evaluating in parallel");
+		integerOptions.add("saveQueueSize", 4, "Number of saves that can wait for the background writer before evolution waits for it");
 		integerOptions.add("multitaskModes", 1, "Number of multitask modes (1 if not multitask at all)");
 		integerOptions.add("pacmanLives", 1, "Lives that a pacman agent starts with");
 		integerOptions.add("hiddenMLPNeurons", 10, "Number of hidden neurons for MLPs");
@@ -398,6 +423,7 @@ public class Parameters {
 		booleanOptions.add("getRemainingPills", false, "CEC 2011 rule that Ms. Pac-Man gets the pills in the level when time runs out");
 		booleanOptions.add("evolveGhosts", false, "Evolve ghosts instead of pacman");
 		booleanOptions.add("timedPacman", false, "Pacman moves have time limit, even in non-visual mode");
+		booleanOptions.add("lockStepPacman", false, "Headless Pacman games run both controllers synchronously on the evaluating thread, without copies or sleeping");
 		booleanOptions.add("modePheremone", false, "Drop pheremone according to mode used");
 		booleanOptions.add("incrementallyDecreasingEdibleTime", false, "Edible time decreases as generations pass");
 		booleanOptions.add("incrementallyDecreasingLairTime", false, "Lair time decreases as generations pass");
@@ -531,7 +557,17 @@ public class Parameters {
 		booleanOptions.add("showSubnetAnalysis", false, "Show extra info about subnets in cooperative coevolution");
 		booleanOptions.add("absenceNegative", false, "Sense absence of input as -1 instead of 0");
 		booleanOptions.add("parallelEvaluations", false, "Perform evaluations in parallel");
+		booleanOptions.add("parallelTrials", false, "Run the trials of each noisy evaluation in parallel, for tasks that allow it");
+		booleanOptions.add("parallelReproduction", false, "Generate offspring in parallel, with results that depend on the seed but not the number of threads");
+		booleanOptions.add("fastRandom", false, "Use the fast RandomStream generator for the main random generator too, which changes the numbers drawn for a given seed");
+		booleanOptions.add("parallelDiversity", false, "Compute behavioral diversity scores of BDNSGA2 in parallel");
 		booleanOptions.add("parallelSave", false, "Perform file saving in parallel");
+		booleanOptions.add("warmSubnetworkPools", false, "Load every genotype of a subnetwork pool in parallel when the pool is created");
+		booleanOptions.add("binaryGenotypes", false, "Save genotypes and archetypes in a compact binary format instead of xml");
+		booleanOptions.add("checkpointGenerations", false, "Save each generation to a single checkpoint file instead of a directory of genotype files");
+		booleanOptions.add("binaryLineage", false, "Log lineage and mutations as buffered binary events instead of text lines");
+		booleanOptions.add("cacheLineage", true, "Save the lineage loaded for browsing so it can be reopened without parsing the logs");
+		booleanOptions.add("backgroundSaves", false, "Write saved generations, champions and parameter files on a background thread");
 		booleanOptions.add("cleanOldNetworks", true, "Delete old network xml files once new networks are saved");
 		booleanOptions.add("deterministic", false, "Make evaluations deterministic, if supported");
 		booleanOptions.add("deleteLeastUsed", false, "Delete least-used mode when doing mode deletion");
@@ -558,6 +594,9 @@ public class Parameters {
 		booleanOptions.add("minimalSubnetExecution", false, "Don't execute subnets whose results are not needed");
 		booleanOptions.add("limitedRecurrentMemory", false, "Reset subnet recurrent memory at the end of consecutive usage");
 		booleanOptions.add("recurrency", true, "Allow recurrent links");
+		booleanOptions.add("compiledTWEANNs", false, "TWEANN phenotypes are activated through flat primitive arrays instead of Node and Link objects");
+		booleanOptions.add("batchedSubstrateQueries", false, "Feedforward HyperNEAT CPPNs are queried for many substrate coordinate pairs at once when building substrate networks");
+		booleanOptions.add("sparseSubstrates", false, "HyperNEAT substrate networks are written straight into compiled sparse arrays, without creating a substrate genotype");
 		booleanOptions.add("trialsMatchGenerations", false, "Trials increase with generations");
 		booleanOptions.add("allowRandomGhostReversals", true, "Random ghost reversals happen in pacman");
 		booleanOptions.add("pacManTimeFitness", false, "Fitness based on survival and speedy level completion");
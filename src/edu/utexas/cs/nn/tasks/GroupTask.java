@@ -1,13 +1,16 @@
 package edu.utexas.cs.nn.tasks;
 
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
-import wox.serial.Easy;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.BackgroundWriter;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.evolution.lineage.Offspring;
@@ -20,8 +23,10 @@ import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.gridTorus.GroupTorusPredPreyTask;
 import edu.utexas.cs.nn.tasks.mspacman.CooperativeMsPacManTask;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.file.FileUtilities;
 import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.RandomStream;
 
 /**
  * Task involving multiple individuals taken from separate populations.
@@ -54,6 +59,7 @@ public abstract class GroupTask implements MultiplePopulationTask {
         // Logging team data
 	public MMNEATLog teamLog;
 	private final boolean bestTeamScore;
+	private final boolean parallel;
 
 	public GroupTask() {
 		this.teams = Parameters.parameters.integerParameter("teams");
@@ -62,6 +68,7 @@ public abstract class GroupTask implements MultiplePopulationTask {
 		}
 		TWEANN.NETWORK_VIEW_DIM = 800 / 5; // Why these magic numbers? Why not 160?
 		this.bestTeamScore = Parameters.parameters.booleanParameter("bestTeamScore");
+		this.parallel = Parameters.parameters.booleanParameter("parallelEvaluations");
 	}
 
 	/**
@@ -98,7 +105,7 @@ public abstract class GroupTask implements MultiplePopulationTask {
 
 		// Shuffling happens whether the order is new or not
 		for (int i = 0; i < pops; i++) {
-			Collections.shuffle(joinOrder.get(i), RandomNumbers.randomGenerator);
+			Collections.shuffle(joinOrder.get(i), RandomNumbers.generator());
 		}
 
 		return evaluateAllPopulations(populations, joinOrder);
@@ -152,13 +159,35 @@ public abstract class GroupTask implements MultiplePopulationTask {
 			bestScores[j] = new Score[bestObjectives[j].length]; 
 		}
 
+		// Teams are evaluated in parallel, but their results are used in order
+		ArrayList<Future<ArrayList<Score>>> futures = null;
+		if (evaluateTeamsInParallel()) {
+			futures = new ArrayList<Future<ArrayList<Score>>>(totalEvals);
+			for (int i = 0; i < totalEvals; i++) {
+				final Genotype[] team = getTeam(populations, teamOrder, i);
+				// Each team gets its own stream, split in evaluation order
+				final RandomStream random = RandomNumbers.newStream();
+				futures.add(EvaluationExecutor.submit(new Callable<ArrayList<Score>>() {
+					@Override
+					public ArrayList<Score> call() {
+						Random previous = RandomNumbers.setThreadGenerator(random);
+						try {
+							return evaluate(team);
+						} finally {
+							RandomNumbers.setThreadGenerator(previous);
+						}
+					}
+				}));
+			}
+		}
+
 		for (int i = 0; i < totalEvals; i++) {
 			// Create team
 			Genotype[] team = getTeam(populations, teamOrder, i);
 			// Visualize (conditional)
-			DrawingPanel[] panels = drawNetworks(team);
+			DrawingPanel[] panels = futures == null ? drawNetworks(team) : null;
 			// Evaluate
-			ArrayList<Score> scores = evaluate(team);
+			ArrayList<Score> scores = futures == null ? evaluate(team) : teamResult(futures.get(i));
 			// Track the best ms pacman team in each generation
 			if (trackBestPacManScore) {
 				Score firstScoreSet = scores.get(0);
@@ -203,17 +232,12 @@ public abstract class GroupTask implements MultiplePopulationTask {
 				String filePrefix = "gen" + currentGen + "_";
 				// Save best in each objective
 				String bestDir = FileUtilities.getSaveDirectory() + "/pop" + i + "_bestObjectives";
-				File dir = new File(bestDir);
 				// Delete old contents/team
-				if (dir.exists() && !Parameters.parameters.booleanParameter("saveAllChampions")) {
-					FileUtilities.deleteDirectoryContents(dir);
-				} else {
-					dir.mkdir();
-				}
+				BackgroundWriter.prepareDirectory(bestDir, !Parameters.parameters.booleanParameter("saveAllChampions"));
 				// save all of the best objectives for this population
 				for (int j = 0; j < bestObjectives[i].length; j++) {
-					Easy.save(bestGenotypes[i][j], bestDir + "/" + filePrefix + "bestIn" + j + ".xml");
-					FileUtilities.simpleFileWrite(bestDir + "/" + filePrefix + "score" + j + ".txt", bestScores[i][j].toString());
+					BackgroundWriter.save(bestGenotypes[i][j], bestDir + "/" + filePrefix + "bestIn" + j + ".xml");
+					BackgroundWriter.write(bestDir + "/" + filePrefix + "score" + j + ".txt", bestScores[i][j].toString());
 				}
 			}
 		}
@@ -221,24 +245,62 @@ public abstract class GroupTask implements MultiplePopulationTask {
 		if (bestPacManTeam != null) {
 			// Save best pacman team
 			String teamDir = FileUtilities.getSaveDirectory() + "/bestTeam";
-			File bestDir = new File(teamDir);
 			// Delete old contents/team 
 			// TODO: Modify this so that the best team from each generation is saved if desired
-			if (bestDir.exists()) {
-				FileUtilities.deleteDirectoryContents(bestDir);
-			} else {
-				bestDir.mkdir();
-			}
+			BackgroundWriter.prepareDirectory(teamDir, true);
 			for (int i = 0; i < bestPacManTeam.length; i++) {
-				Easy.save(bestPacManTeam[i], teamDir + "/teamMember" + i + ".xml");
+				BackgroundWriter.save(bestPacManTeam[i], teamDir + "/teamMember" + i + ".xml");
 			}
 			System.out.println("Saved best team with score of " + maxPacManScore);
-			FileUtilities.simpleFileWrite(teamDir + "/score.txt", bestScoreSet.toString());
+			BackgroundWriter.write(teamDir + "/score.txt", bestScoreSet.toString());
 		}
 		// re-package scores properly
 		return wrapUpScores(rawScores, populations, teamOrder);
 	}
 
+	/**
+	 * Whether the teams of the current generation should be evaluated at the
+	 * same time by the shared evaluation threads. Only done when
+	 * parallelEvaluations is set, the task allows it, and nothing is being
+	 * watched or drawn.
+	 *
+	 * @return whether to evaluate teams in parallel
+	 */
+	private boolean evaluateTeamsInParallel() {
+		return parallel && teamsCanBeEvaluatedInParallel() && !CommonConstants.watch && !CommonConstants.showNetworks && !CommonConstants.monitorInputs;
+	}
+
+	/**
+	 * Whether evaluate can be called for several teams at once. Only possible
+	 * if evaluate keeps everything that changes during an evaluation (games,
+	 * controllers, etc.) out of fields shared by the teams, and gives each
+	 * team member its own phenotype, since the same individual can belong to
+	 * several teams being evaluated at the same time. False by default.
+	 *
+	 * @return whether the parallelEvaluations parameter applies to this task
+	 */
+	public boolean teamsCanBeEvaluatedInParallel() {
+		return false;
+	}
+
+	/**
+	 * Wait for the scores of a team being evaluated in parallel
+	 *
+	 * @param future
+	 *            future result of evaluate
+	 * @return scores of the team members
+	 */
+	@SuppressWarnings("rawtypes")
+	private static ArrayList<Score> teamResult(Future<ArrayList<Score>> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException | ExecutionException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
 	/**
 	 * One genotype for each member of the team, and one score for each member
 	 * as well
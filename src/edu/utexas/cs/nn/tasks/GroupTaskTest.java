@@ -0,0 +1,185 @@
+package edu.utexas.cs.nn.tasks;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.RealValuedGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
+
+public class GroupTaskTest {
+
+	/**
+	 * Two populations whose members are scored by the genes of the whole team
+	 */
+	private static class SumTask extends GroupTask {
+		@SuppressWarnings({ "rawtypes", "unchecked" })
+		@Override
+		public ArrayList<Score> evaluate(Genotype[] team) {
+			double a = ((RealValuedGenotype) team[0]).getPhenotype().get(0);
+			double b = ((RealValuedGenotype) team[1]).getPhenotype().get(0);
+			ArrayList<Score> scores = new ArrayList<Score>();
+			scores.add(new Score(team[0], new double[] { a * b }, null, new double[] { a + b }));
+			scores.add(new Score(team[1], new double[] { a - b }, null, new double[] { b }));
+			return scores;
+		}
+
+		@Override
+		public boolean teamsCanBeEvaluatedInParallel() {
+			return true;
+		}
+
+		@Override
+		public int numberOfPopulations() {
+			return 2;
+		}
+
+		@Override
+		public int[] objectivesPerPopulation() {
+			return new int[] { 1, 1 };
+		}
+
+		@Override
+		public int[] otherStatsPerPopulation() {
+			return new int[] { 1, 1 };
+		}
+
+		@Override
+		public double getTimeStamp() {
+			return 0;
+		}
+
+		@Override
+		public void finalCleanup() {
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		EvaluationExecutor.shutdown();
+		MMNEAT.clearClasses();
+	}
+
+	@SuppressWarnings("rawtypes")
+	private ArrayList<ArrayList<Score>> evaluate(boolean parallel, ArrayList<ArrayList<Genotype>> populations, ArrayList<ArrayList<Integer>> order) {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "threads:4", "parallelEvaluations:" + parallel });
+		CommonConstants.load();
+		return new SumTask().evaluateAllPopulations(populations, order);
+	}
+
+	/**
+	 * Team order in which each of the given number of individuals in each
+	 * population is in three teams
+	 */
+	private static ArrayList<ArrayList<Integer>> teamOrder(int pops, int size) {
+		ArrayList<ArrayList<Integer>> order = new ArrayList<ArrayList<Integer>>();
+		for (int p = 0; p < pops; p++) {
+			ArrayList<Integer> o = new ArrayList<Integer>();
+			for (int i = 0; i < size; i++) {
+				for (int t = 0; t < 3; t++) {
+					o.add(i);
+				}
+			}
+			// Different order in each population
+			Collections.shuffle(o, new Random(p));
+			order.add(o);
+		}
+		return order;
+	}
+
+	@SuppressWarnings("rawtypes")
+	private static void assertSameScores(ArrayList<ArrayList<Score>> expected, ArrayList<ArrayList<Score>> actual) {
+		assertEquals(expected.size(), actual.size());
+		for (int p = 0; p < expected.size(); p++) {
+			assertEquals(expected.get(p).size(), actual.get(p).size());
+			for (int i = 0; i < expected.get(p).size(); i++) {
+				Score s = expected.get(p).get(i);
+				Score q = actual.get(p).get(i);
+				assertSame(s.individual, q.individual);
+				assertEquals(3, q.evals);
+				assertArrayEquals(s.scores, q.scores, 0.0);
+				assertArrayEquals(s.otherStats, q.otherStats, 0.0);
+			}
+		}
+	}
+
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testParallelTeamsMatchSequential() {
+		ArrayList<ArrayList<Genotype>> populations = new ArrayList<ArrayList<Genotype>>();
+		for (int p = 0; p < 2; p++) {
+			ArrayList<Genotype> pop = new ArrayList<Genotype>();
+			for (int i = 0; i < 20; i++) {
+				pop.add(new RealValuedGenotype(new double[] { (i + 1) * (p == 0 ? 0.5 : -0.25) }));
+			}
+			populations.add(pop);
+		}
+		ArrayList<ArrayList<Integer>> order = teamOrder(2, 20);
+		ArrayList<ArrayList<Score>> sequential = evaluate(false, populations, order);
+		ArrayList<ArrayList<Score>> parallel = evaluate(true, populations, order);
+		assertSameScores(sequential, parallel);
+	}
+
+	/**
+	 * Games of the torus group tasks draw random numbers, so the scores of
+	 * teams evaluated in parallel are compared across numbers of threads
+	 * rather than with sequential evaluation. Individuals belong to several
+	 * teams that are evaluated at the same time, and all teams share the
+	 * objectives of the task.
+	 */
+	@SuppressWarnings("rawtypes")
+	@Test
+	public void testParallelTorusTeamsIndependentOfThreads() {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "threads:1",
+				"parallelEvaluations:true", "torusTimeLimit:200", "torusPreys:2", "torusPredators:3",
+				"task:edu.utexas.cs.nn.tasks.gridTorus.competitive.CompetitiveHomogeneousPredatorsVsPreyTask",
+				"ea:edu.utexas.cs.nn.evolution.nsga2.CoevolutionNSGA2",
+				"experiment:edu.utexas.cs.nn.experiment.evolution.LimitedMultiplePopulationGenerationalEAExperiment" });
+		MMNEAT.loadClasses();
+		GroupTask task = (GroupTask) MMNEAT.task;
+		assertTrue(task.teamsCanBeEvaluatedInParallel());
+		RandomNumbers.reset(3);
+		ArrayList<ArrayList<Genotype>> populations = new ArrayList<ArrayList<Genotype>>();
+		for (int p = 0; p < 2; p++) {
+			ArrayList<Genotype> pop = new ArrayList<Genotype>();
+			for (int i = 0; i < 10; i++) {
+				pop.add(MMNEAT.genotypeExamples.get(p).newInstance());
+			}
+			populations.add(pop);
+		}
+		ArrayList<ArrayList<Integer>> order = teamOrder(2, 10);
+
+		RandomNumbers.reset(5);
+		ArrayList<ArrayList<Score>> oneThread = task.evaluateAllPopulations(populations, order);
+		EvaluationExecutor.shutdown();
+		Parameters.parameters.setInteger("threads", 4);
+		RandomNumbers.reset(5);
+		ArrayList<ArrayList<Score>> fourThreads = task.evaluateAllPopulations(populations, order);
+		assertSameScores(oneThread, fourThreads);
+
+		// The games were actually played
+		double[] predatorScores = new double[10];
+		for (int i = 0; i < 10; i++) {
+			predatorScores[i] = oneThread.get(0).get(i).scores[0];
+		}
+		assertTrue(StatisticsUtilities.minimum(predatorScores) < StatisticsUtilities.maximum(predatorScores));
+	}
+}
@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.tasks;
 
+import edu.utexas.cs.nn.data.BackgroundWriter;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.HyperNEATCPPNGenotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
@@ -20,10 +21,12 @@ import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.breve2D.Breve2DTask;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusPredPreyTask;
 import edu.utexas.cs.nn.tasks.mspacman.MsPacManTask;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.PopulationUtil;
 import edu.utexas.cs.nn.util.file.FileUtilities;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.RandomStream;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.CopyOption;
 import java.nio.file.Files;
@@ -32,8 +35,10 @@ import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.concurrent.*;
-import wox.serial.Easy;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * A task for which an individual's fitness depends only on itself. In other
@@ -58,6 +63,8 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 
 		private final Genotype<T> genotype;
 		private final LonerTask<T> task;
+		// Random stream of a parallel evaluation, or null to use the generator of the calling thread
+		private RandomStream random = null;
 
 		/**
 		 * a constructor for creating an evaluation thread
@@ -70,6 +77,26 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 			this.task = task;
 		}
 
+		/**
+		 * Finds the fitness score for the genotype, drawing random numbers
+		 * from the random stream of the evaluation if it has one
+		 * 
+		 * @return score the fitness score of the agent of this task based on
+		 *         evaluation
+		 */
+		@Override
+		public Score<T> call() {
+			if (random == null) {
+				return evaluateGenotype();
+			}
+			Random previous = RandomNumbers.setThreadGenerator(random);
+			try {
+				return evaluateGenotype();
+			} finally {
+				RandomNumbers.setThreadGenerator(previous);
+			}
+		}
+
 		/**
 		 * Creates a graphical representation of this task if requested and
 		 * finds the fitness score for the genotype
@@ -78,8 +105,7 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		 *         evaluation
 		 */
 		@SuppressWarnings("unchecked")
-		@Override
-		public Score<T> call() {//TODO 
+		private Score<T> evaluateGenotype() {//TODO 
 			DrawingPanel panel = null;
 			DrawingPanel cppnPanel = null;
 			@SuppressWarnings("unused")
@@ -180,15 +206,14 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 	}
 
 	private final boolean parallel;
-	private final int threads;
 
 	/**
 	 * constructor for a LonerTask based upon command line specified evaluation
-	 * and thread parameters
+	 * parameters. The number of threads used for parallel evaluation is set
+	 * by the "threads" parameter of the shared EvaluationExecutor.
 	 */
 	public LonerTask() {
 		this.parallel = Parameters.parameters.booleanParameter("parallelEvaluations");
-		this.threads = Parameters.parameters.integerParameter("threads");
 	}
 
 	/**
@@ -215,7 +240,6 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		// a list of the fitness scores of the population
 		ArrayList<Score<T>> scores = new ArrayList<Score<T>>(population.size());
 
-		ExecutorService poolExecutor = null;
 		ArrayList<Future<Score<T>>> futures = null;
 		ArrayList<EvaluationThread> calls = new ArrayList<EvaluationThread>(population.size());
 
@@ -228,10 +252,14 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		}
 
 		if (parallel) {
-			poolExecutor = Executors.newFixedThreadPool(threads);
+			// Each evaluation gets its own stream, split in population order
+			for (int i = 0; i < population.size(); i++) {
+				calls.get(i).random = RandomNumbers.newStream();
+			}
+			// Threads persist across generations
 			futures = new ArrayList<Future<Score<T>>>(population.size());
 			for (int i = 0; i < population.size(); i++) {
-				Future<Score<T>> future = poolExecutor.submit(calls.get(i));
+				Future<Score<T>> future = EvaluationExecutor.submit(calls.get(i));
 				futures.add(future);
 			}
 		}
@@ -282,27 +310,18 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 		if (bestPacMan != null) {
 			// Save best pacman
 			String bestPacManDir = FileUtilities.getSaveDirectory() + "/bestPacMan";
-			File bestDir = new File(bestPacManDir);
 			// Delete old contents/team
-			if (bestDir.exists()) {
-				FileUtilities.deleteDirectoryContents(bestDir);
-			} else {
-				bestDir.mkdir();
-			}
-			Easy.save(bestPacMan, bestPacManDir + "/bestPacMan.xml");
+			BackgroundWriter.prepareDirectory(bestPacManDir, true);
+			BackgroundWriter.save(bestPacMan, bestPacManDir + "/bestPacMan.xml");
 			// System.out.println("Saved best Ms. Pac-Man agent with score of "
 			// + maxPacManScore);
-			FileUtilities.simpleFileWrite(bestPacManDir + "/score.txt", bestScoreSet.toString());
+			BackgroundWriter.write(bestPacManDir + "/score.txt", bestScoreSet.toString());
 		}
 
 		if (CommonConstants.netio) {
 			PopulationUtil.saveBestOfCurrentGen(bestObjectives, bestGenotypes, bestScores);
 		}
 
-		if (parallel) {
-			poolExecutor.shutdown();
-		}
-
 		/**
 		 * If using UCB to decide who to give extra evals to, then by this point
 		 * every member of the population will have been evaluated (preferably
@@ -382,9 +401,11 @@ public abstract class LonerTask<T> implements SinglePopulationTask<T> {
 	}
 
 	/**
-	 * Default to empty
+	 * Stops the evaluation threads, which are kept for the whole experiment.
+	 * Subclasses doing their own cleanup should also call this.
 	 */
         @Override
 	public void finalCleanup() {
+		EvaluationExecutor.shutdown();
 	}
 }
@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks;
 
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.log.EvalLog;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
@@ -9,12 +10,21 @@ import edu.utexas.cs.nn.scores.MultiObjectiveScore;
 import edu.utexas.cs.nn.scores.Score;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.pacman.NNCheckEachDirectionPacManController;
 import edu.utexas.cs.nn.util.ClassCreation;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.datastructures.ArrayUtil;
 import edu.utexas.cs.nn.util.datastructures.Pair;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.random.RandomStream;
 import edu.utexas.cs.nn.util.stats.Average;
 import edu.utexas.cs.nn.util.stats.Statistic;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 /**
  * Any task in which multiple trials are needed because evaluations are noisy.
@@ -27,6 +37,9 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 
 	public Statistic stat;
 	public final boolean printFitness;
+	public final boolean parallelTrials;
+	// Seed of the trial running on each thread when trials run in parallel
+	private final ThreadLocal<Long> trialSeeds = new ThreadLocal<Long>();
 
 	/**
 	 * constructor for a noisy loner task. Assigns fitness according to
@@ -34,6 +47,7 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 	 */
 	public NoisyLonerTask() {
 		this.printFitness = Parameters.parameters.booleanParameter("printFitness");
+		this.parallelTrials = Parameters.parameters.booleanParameter("parallelTrials");
 		try {
 			stat = (Statistic) ClassCreation.createObject("noisyTaskStat");
 		} catch (NoSuchMethodException ex) {
@@ -91,24 +105,23 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 		double[][] objectiveScores = new double[numTrials][this.numObjectives()];
 		double[][] otherScores = new double[numTrials][this.numOtherScores()];
 		double evalTimeSum = 0;
-		for (int i = 0; i < numTrials; i++) {
-			long before = System.currentTimeMillis();
-			if (MMNEAT.evalReport != null) {
-				MMNEAT.evalReport.log("Eval " + i + ":");
-			}
-			Pair<double[], double[]> result = oneEval(individual, i);
-			if (printFitness) {
-				System.out.println(Arrays.toString(result.t1) + Arrays.toString(result.t2));
-				if (individual instanceof TWEANNGenotype) {
-					System.out.println(
-							"Module Usage: " + Arrays.toString(((TWEANNGenotype) individual).getModuleUsage()));
+		if (parallelTrials && trialsCanRunInParallel()) {
+			boolean parallel = numTrials > 1 && !CommonConstants.watch;
+			evalTimeSum = runTrials(individual, objectiveScores, otherScores, parallel);
+		} else {
+			for (int i = 0; i < numTrials; i++) {
+				long before = System.currentTimeMillis();
+				if (MMNEAT.evalReport != null) {
+					MMNEAT.evalReport.log("Eval " + i + ":");
 				}
+				Pair<double[], double[]> result = oneEval(individual, i);
+				printTrial(individual, result);
+				long after = System.currentTimeMillis();
+				evalTimeSum += (after - before);
+				objectiveScores[i] = result.t1; // fitness scores
+				// ScoreHistory.add(individual.getId(), result.t1);
+				otherScores[i] = result.t2; // other scores
 			}
-			long after = System.currentTimeMillis();
-			evalTimeSum += (after - before);
-			objectiveScores[i] = result.t1; // fitness scores
-			// ScoreHistory.add(individual.getId(), result.t1);
-			otherScores[i] = result.t2; // other scores
 		}
 		double averageEvalTime = evalTimeSum / numTrials;
 		double[] fitness = new double[this.numObjectives()];
@@ -194,6 +207,144 @@ public abstract class NoisyLonerTask<T> extends LonerTask<T> {
 		return s;
 	}
 
+	/**
+	 * Runs the trials of a task whose trials can run in parallel, when
+	 * parallelTrials is set. The trials run either all at once in the shared
+	 * evaluation threads (so parallel trials and
+	 * parallel evaluations share one thread budget), or one after another.
+	 * Either way, each trial builds its own phenotype in oneEval and gets its
+	 * own seed (see trialSeed), drawn in trial order, and draws all other
+	 * random numbers from a stream with that seed, so the results do not
+	 * depend on whether the trials ran in parallel. Eval report entries and
+	 * module usage of each trial are held back and handed over in trial order.
+	 *
+	 * @param individual
+	 *            genotype to be evaluated
+	 * @param objectiveScores
+	 *            filled with the fitness scores of each trial
+	 * @param otherScores
+	 *            filled with the other scores of each trial
+	 * @param parallel
+	 *            whether to run the trials in parallel
+	 * @return total time spent in trials
+	 */
+	private double runTrials(Genotype<T> individual, double[][] objectiveScores, double[][] otherScores, boolean parallel) {
+		EvalLog report = MMNEAT.evalReport;
+		ArrayList<Trial> trials = new ArrayList<Trial>(objectiveScores.length);
+		ArrayList<Future<Pair<double[], double[]>>> futures = new ArrayList<Future<Pair<double[], double[]>>>(objectiveScores.length);
+		for (int i = 0; i < objectiveScores.length; i++) {
+			Trial trial = new Trial(individual, i, RandomNumbers.generator().nextLong(), report);
+			trials.add(trial);
+			if (parallel) {
+				futures.add(EvaluationExecutor.submit(trial));
+			}
+		}
+		double evalTimeSum = 0;
+		for (int i = 0; i < trials.size(); i++) {
+			try {
+				Trial trial = trials.get(i);
+				Pair<double[], double[]> result = parallel ? futures.get(i).get() : trial.call();
+				if (report != null) {
+					report.write(trial.reportText);
+				}
+				TWEANNGenotype.assignTrialModuleUsage(trial.moduleUsage);
+				printTrial(individual, result);
+				evalTimeSum += trial.time;
+				objectiveScores[i] = result.t1;
+				otherScores[i] = result.t2;
+			} catch (InterruptedException | ExecutionException ex) {
+				ex.printStackTrace();
+				System.exit(1);
+			}
+		}
+		return evalTimeSum;
+	}
+
+	/**
+	 * A single trial of a task whose trials can run in parallel
+	 */
+	private class Trial implements Callable<Pair<double[], double[]>> {
+
+		private final Genotype<T> individual;
+		private final int num;
+		private final long seed;
+		private final EvalLog report;
+		long time;
+		String reportText;
+		Map<TWEANNGenotype, int[]> moduleUsage;
+
+		Trial(Genotype<T> individual, int num, long seed, EvalLog report) {
+			this.individual = individual;
+			this.num = num;
+			this.seed = seed;
+			this.report = report;
+		}
+
+		@Override
+		public Pair<double[], double[]> call() {
+			trialSeeds.set(seed);
+			Random previous = RandomNumbers.setThreadGenerator(new RandomStream(seed));
+			TWEANNGenotype.startTrialModuleUsage();
+			if (report != null) {
+				report.startBuffer();
+				report.log("Eval " + num + ":");
+			}
+			long before = System.currentTimeMillis();
+			try {
+				return oneEval(individual, num);
+			} finally {
+				time = System.currentTimeMillis() - before;
+				trialSeeds.remove();
+				RandomNumbers.setThreadGenerator(previous);
+				moduleUsage = TWEANNGenotype.endTrialModuleUsage();
+				if (report != null) {
+					reportText = report.endBuffer();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether oneEval can be called for several trials of the same individual
+	 * at once. Only possible if oneEval keeps everything that changes during a
+	 * trial (games, controllers, etc.) out of fields shared by the trials, so
+	 * false by default. With parallelTrials set, trials of tasks that allow it
+	 * are run as described in runTrials, even when they do not actually run in
+	 * parallel. Otherwise they run one after another like any other trials.
+	 *
+	 * @return whether the parallelTrials parameter applies to this task
+	 */
+	public boolean trialsCanRunInParallel() {
+		return false;
+	}
+
+	/**
+	 * Seed for randomness that determines the conditions of a trial, such as
+	 * a game seed. Trials run by runTrials (see parallelTrials) each get a
+	 * seed drawn in trial order before any trial starts, so they are not
+	 * affected by the order in which the threads run. Otherwise, this is
+	 * simply the next random long.
+	 *
+	 * @return seed for the current trial
+	 */
+	public long trialSeed() {
+		Long seed = trialSeeds.get();
+		return seed == null ? RandomNumbers.generator().nextLong() : seed;
+	}
+
+	/**
+	 * Print the scores of one trial if printFitness is set
+	 */
+	private void printTrial(Genotype<T> individual, Pair<double[], double[]> result) {
+		if (printFitness) {
+			System.out.println(Arrays.toString(result.t1) + Arrays.toString(result.t2));
+			if (individual instanceof TWEANNGenotype) {
+				System.out.println(
+						"Module Usage: " + Arrays.toString(((TWEANNGenotype) individual).getModuleUsage()));
+			}
+		}
+	}
+
 	public static String scoreSummary(double[][] objectiveScores, double[][] otherScores, double[] fitness, double[] other) {
 		return scoreSummary(objectiveScores, otherScores, fitness, other, 0);
 	}	
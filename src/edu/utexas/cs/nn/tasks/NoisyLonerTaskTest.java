@@ -0,0 +1,89 @@
+package edu.utexas.cs.nn.tasks;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.RealValuedGenotype;
+import edu.utexas.cs.nn.parameters.CommonConstants;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.datastructures.Pair;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+import edu.utexas.cs.nn.util.stats.Statistic;
+
+public class NoisyLonerTaskTest {
+
+	/**
+	 * Trials score the seed they were given and their trial number
+	 */
+	private static class SeedTask extends NoisyLonerTask<ArrayList<Double>> {
+		@Override
+		public Pair<double[], double[]> oneEval(Genotype<ArrayList<Double>> individual, int num) {
+			return new Pair<double[], double[]>(new double[] { trialSeed() % 1000 }, new double[] { num });
+		}
+
+		@Override
+		public boolean trialsCanRunInParallel() {
+			return true;
+		}
+
+		@Override
+		public int numObjectives() {
+			return 1;
+		}
+
+		@Override
+		public int numOtherScores() {
+			return 1;
+		}
+
+		@Override
+		public double getTimeStamp() {
+			return 0;
+		}
+	}
+
+	@Before
+	public void setUp() throws Exception {
+		MMNEAT.aggregationOverrides = new ArrayList<Statistic>();
+		MMNEAT.aggregationOverrides.add(null);
+		MMNEAT.aggregationOverrides.add(null);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		EvaluationExecutor.shutdown();
+		MMNEAT.aggregationOverrides = null;
+	}
+
+	private Score<ArrayList<Double>> evaluate(boolean parallel) {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "trials:6", "threads:3", "parallelTrials:" + parallel });
+		CommonConstants.load();
+		RandomNumbers.reset(7);
+		return new SeedTask().evaluate(new RealValuedGenotype(new double[] { 0 }));
+	}
+
+	@Test
+	public void testParallelTrialsMatchSequential() {
+		Random seeds = new Random(7);
+		double sum = 0;
+		for (int i = 0; i < 6; i++) {
+			sum += seeds.nextLong() % 1000;
+		}
+		Score<ArrayList<Double>> sequential = evaluate(false);
+		Score<ArrayList<Double>> parallel = evaluate(true);
+		assertEquals(sum / 6, sequential.scores[0], 0.0000001);
+		assertEquals(sequential.scores[0], parallel.scores[0], 0.0);
+		assertEquals(2.5, sequential.otherStats[0], 0.0);
+		assertEquals(2.5, parallel.otherStats[0], 0.0);
+	}
+}
@@ -144,6 +144,17 @@ public abstract class GroupTorusPredPreyTask<T extends Network> extends GroupTas
 		return scores;
 	}
 
+	/**
+	 * Each evaluation builds its own game and controllers, and each controller
+	 * gets its own network. The shared objectives are given the game to score
+	 * instead of storing it, so several teams can be evaluated at once
+	 * @return true
+	 */
+	@Override
+	public boolean teamsCanBeEvaluatedInParallel() {
+		return true;
+	}
+
 	/**
 	 * gets the prey agents
 	 * @param team
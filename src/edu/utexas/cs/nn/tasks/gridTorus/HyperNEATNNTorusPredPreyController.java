@@ -33,7 +33,7 @@ public class HyperNEATNNTorusPredPreyController extends NNTorusPredPreyControlle
 
 	@Override
 	public int[] getAction(TorusAgent me, TorusWorld world, TorusAgent[] preds, TorusAgent[] prey) {
-		double[] inputs = inputs();
+		double[] inputs = inputs(world, preds, prey);
 		double[] outputs = nn.process(inputs);
 		double[] modifiedOutputs = mapSubstrateOutputsToStandardOutputs(outputs);
 		// Assume one output for each direction
@@ -54,9 +54,9 @@ public class HyperNEATNNTorusPredPreyController extends NNTorusPredPreyControlle
 		return modifiedOutputs;
 	}
 
-	public double[] inputs() {
+	public double[] inputs(TorusWorld world, TorusAgent[] preds, TorusAgent[] prey) {
 		TorusPredPreyTask task = (TorusPredPreyTask) MMNEAT.task;
-		double[] inputs = task.getSubstrateInputs(task.getSubstrateInformation());
+		double[] inputs = task.getSubstrateInputs(world.width(), preds, prey);
 		return inputs;
 	}
 }
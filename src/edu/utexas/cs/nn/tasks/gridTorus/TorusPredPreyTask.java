@@ -105,7 +105,8 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 	// list of other scores, which don't effect evolution
 	public ArrayList<ArrayList<GridTorusObjective<T>>> otherScores = new ArrayList<ArrayList<GridTorusObjective<T>>>();
 
-	private TorusWorldExec exec;
+	// Most recent game, for time stamps. Evaluations keep their own exec
+	private volatile TorusWorldExec exec;
 
 	/**
 	 * ONLY FOR COMPETITIVE COEVOLUTION
@@ -217,7 +218,9 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 	}
 
 	public TorusPredPreyGame runEval(TorusPredPreyController[] predAgents, TorusPredPreyController[] preyAgents) {
-		exec = new TorusWorldExec();
+		// Local, since group tasks may run several evaluations at once
+		TorusWorldExec exec = new TorusWorldExec();
+		this.exec = exec;
 		TorusPredPreyGame game;
 		if (CommonConstants.watch) {
 			game = exec.runGameTimed(predAgents, preyAgents, true);
@@ -745,8 +748,9 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 		}
 	}
 
-	// These values will be defined before they are needed
-	private static List<Substrate> substrateInformation = null;
+	// These values will be defined before they are needed. The list is
+	// assigned last, so any thread that sees it also sees the other values
+	private static volatile List<Substrate> substrateInformation = null;
 	private static int numSubstrateInputs = -1;
 	private static boolean substrateForPredators = false;
 	private static boolean substrateForPrey = false;
@@ -781,7 +785,7 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 			Substrate predator = new Substrate(substrateDimension, Substrate.INPUT_SUBSTRATE, preyEvolve ? firstInputLocation : secondInputLocation, "input_predator");
 			Substrate prey = new Substrate(substrateDimension, Substrate.INPUT_SUBSTRATE, preyEvolve ? secondInputLocation : firstInputLocation, "input_prey");
 
-			substrateInformation = new LinkedList<Substrate>();
+			List<Substrate> substrates = new LinkedList<Substrate>();
 			// order of pred/prey substrate important, helps in sorting later on
 			// in get substrate inputs method
 			// Input layers
@@ -789,20 +793,21 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 			Substrate firstSubstrate = preyEvolve ? predator : prey;
 			numSubstrateInputs += firstSubstrate.size.t1 * firstSubstrate.size.t2;
 			secondSubstrateStartingIndex = numSubstrateInputs;
-			substrateInformation.add(firstSubstrate);
+			substrates.add(firstSubstrate);
 			if (senseTeammates) {
 				Substrate secondSubstrate = preyEvolve ? prey : predator;
 				numSubstrateInputs += secondSubstrate.size.t1 * secondSubstrate.size.t2;
-				substrateInformation.add(secondSubstrate);
+				substrates.add(secondSubstrate);
 			}
 
 			substrateForPredators = preyEvolve || senseTeammates;
 			substrateForPrey = !preyEvolve || senseTeammates;
 
 			// Processing layer
-			substrateInformation.add(new Substrate(substrateDimension, Substrate.PROCCESS_SUBSTRATE, processingLocation, "process_0"));
+			substrates.add(new Substrate(substrateDimension, Substrate.PROCCESS_SUBSTRATE, processingLocation, "process_0"));
 			// Output layer
-			substrateInformation.add(new Substrate(outputSubstrateDimension, Substrate.OUTPUT_SUBSTRATE, outputLocation, "output_0"));
+			substrates.add(new Substrate(outputSubstrateDimension, Substrate.OUTPUT_SUBSTRATE, outputLocation, "output_0"));
+			substrateInformation = substrates;
 		}
 		return substrateInformation;
 	}
@@ -835,11 +840,28 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 	 *         gridworld
 	 */
 	public double[] getSubstrateInputs(List<Substrate> subs) {
-		int torusWidth = this.exec.game.getWorld().width();
+		return getSubstrateInputs(exec.game.getWorld().width(), exec.game.getPredators(), exec.game.getPrey());
+	}
+
+	/**
+	 * gets the inputs for the cppn from the agents of a particular game.
+	 * Controllers use this rather than the current game of the task, since
+	 * group tasks may run several games at once
+	 *
+	 * @param torusWidth
+	 *            width of the torus world of the game
+	 * @param preds
+	 *            predators of the game
+	 * @param prey
+	 *            prey of the game
+	 * @return double[] double array containing all inputs to cppn from torus
+	 *         gridworld
+	 */
+	public double[] getSubstrateInputs(int torusWidth, TorusAgent[] preds, TorusAgent[] prey) {
+		getSubstrateInformation(); // Defines the values used below
 		double[] inputs = new double[numSubstrateInputs]; // defaults to 0.0
 
 		if (substrateForPredators) {
-			TorusAgent[] preds = exec.game.getPredators();
 			List<Tuple2D> predsCoord = getCoordinates(preds);
 			List<Integer> predsIndices = getIndices(predsCoord, torusWidth);
 			for (Integer index : predsIndices) {
@@ -847,7 +869,6 @@ public abstract class TorusPredPreyTask<T extends Network> extends NoisyLonerTas
 			}
 		}
 		if (substrateForPrey) {
-			TorusAgent[] prey = exec.game.getPrey();
 			List<Tuple2D> preyCoord = getCoordinates(prey);
 			List<Integer> preyIndices = getIndices(preyCoord, torusWidth);
 			for (Integer index : preyIndices) {
@@ -4,6 +4,7 @@ import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.gridTorus.controllers.TorusPredPreyController;
 import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusPredPreyTask;
 import edu.utexas.cs.nn.tasks.gridTorus.GroupTorusPredPreyTask;
@@ -47,10 +48,17 @@ public class CompetitiveHomogeneousPredatorsVsPreyTask<T extends Network> extend
 	 */
 	@Override
 	public TorusPredPreyController[] getPredAgents(Genotype<T>[] team) {
-		TorusPredPreyTask.getEvolvedControllers(task.evolved, team[TorusPredPreyGame.AGENT_TYPE_PRED], true, 0, Parameters.parameters.integerParameter("torusPredators"));
+		// Not filled directly, since several teams may be evaluated at once
+		TorusPredPreyController[] evolved = new TorusPredPreyController[task.evolved.length];
+		TorusPredPreyTask.getEvolvedControllers(evolved, team[TorusPredPreyGame.AGENT_TYPE_PRED], true, 0, Parameters.parameters.integerParameter("torusPredators"));
 		// Make smaller array to return just the preds
 		TorusPredPreyController[] predOnly = new TorusPredPreyController[Parameters.parameters.integerParameter("torusPredators")];
-		System.arraycopy(task.evolved, 0, predOnly, 0, Parameters.parameters.integerParameter("torusPredators"));
+		System.arraycopy(evolved, 0, predOnly, 0, Parameters.parameters.integerParameter("torusPredators"));
+		// Only needed to dispose of input panels, which are never shown
+		// while teams are evaluated in parallel
+		if (CommonConstants.monitorInputs) {
+			System.arraycopy(predOnly, 0, task.evolved, 0, predOnly.length);
+		}
 		return predOnly;
 	}
 
@@ -69,10 +77,17 @@ public class CompetitiveHomogeneousPredatorsVsPreyTask<T extends Network> extend
 	 *            (homogeneous team)
 	 */
 	public TorusPredPreyController[] getPreyAgents(Genotype<T>[] team) {
-		TorusPredPreyTask.getEvolvedControllers(task.evolved, team[TorusPredPreyGame.AGENT_TYPE_PREY], false, Parameters.parameters.integerParameter("torusPredators"), Parameters.parameters.integerParameter("torusPreys"));
+		// Not filled directly, since several teams may be evaluated at once
+		TorusPredPreyController[] evolved = new TorusPredPreyController[task.evolved.length];
+		TorusPredPreyTask.getEvolvedControllers(evolved, team[TorusPredPreyGame.AGENT_TYPE_PREY], false, Parameters.parameters.integerParameter("torusPredators"), Parameters.parameters.integerParameter("torusPreys"));
 		// Make smaller array to return just the preys
 		TorusPredPreyController[] preyOnly = new TorusPredPreyController[Parameters.parameters.integerParameter("torusPreys")];
-		System.arraycopy(task.evolved, Parameters.parameters.integerParameter("torusPredators"), preyOnly, 0, Parameters.parameters.integerParameter("torusPreys"));
+		System.arraycopy(evolved, Parameters.parameters.integerParameter("torusPredators"), preyOnly, 0, Parameters.parameters.integerParameter("torusPreys"));
+		// Only needed to dispose of input panels, which are never shown
+		// while teams are evaluated in parallel
+		if (CommonConstants.monitorInputs) {
+			System.arraycopy(preyOnly, 0, task.evolved, Parameters.parameters.integerParameter("torusPredators"), preyOnly.length);
+		}
 		return preyOnly; 
 	}
 
@@ -5,6 +5,7 @@ import edu.utexas.cs.nn.tasks.gridTorus.GroupTorusPredPreyTask;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.gridTorus.controllers.TorusPredPreyController;
 import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusEvolvedPredatorsVsStaticPreyTask;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusPredPreyTask;
@@ -54,9 +55,14 @@ public class CooperativePredatorsVsStaticPreyTask<T extends Network> extends Gro
 	 * @return pred agents
 	 */
 	public TorusPredPreyController[] getPredAgents(Genotype<T>[] team) {
-		task.evolved = new TorusPredPreyController[Parameters.parameters.integerParameter("torusPredators")];
-		TorusPredPreyTask.getEvolvedControllers(task.evolved, team, true);
-		return task.evolved; 
+		TorusPredPreyController[] evolved = new TorusPredPreyController[Parameters.parameters.integerParameter("torusPredators")];
+		TorusPredPreyTask.getEvolvedControllers(evolved, team, true);
+		// Only needed to dispose of input panels, which are never shown
+		// while teams are evaluated in parallel
+		if (CommonConstants.monitorInputs) {
+			task.evolved = evolved;
+		}
+		return evolved; 
 	}
 
 }
@@ -4,6 +4,7 @@ import edu.utexas.cs.nn.tasks.gridTorus.GroupTorusPredPreyTask;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.gridTorus.controllers.TorusPredPreyController;
 import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusEvolvedPreyVsStaticPredatorsTask;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusPredPreyTask;
@@ -42,9 +43,14 @@ public class CooperativePreyVsStaticPredatorsTask<T extends Network> extends Gro
 	 * @return prey agents
 	 */
 	public TorusPredPreyController[] getPreyAgents(Genotype<T>[] team) {
-		task.evolved = new TorusPredPreyController[Parameters.parameters.integerParameter("torusPreys")];
-		TorusPredPreyTask.getEvolvedControllers(task.evolved, team, false);
-		return task.evolved; 
+		TorusPredPreyController[] evolved = new TorusPredPreyController[Parameters.parameters.integerParameter("torusPreys")];
+		TorusPredPreyTask.getEvolvedControllers(evolved, team, false);
+		// Only needed to dispose of input panels, which are never shown
+		// while teams are evaluated in parallel
+		if (CommonConstants.monitorInputs) {
+			task.evolved = evolved;
+		}
+		return evolved; 
 	}
 
 	@Override
@@ -4,6 +4,7 @@ import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.gridTorus.controllers.TorusPredPreyController;
 import edu.utexas.cs.nn.networks.Network;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.gridTorus.TorusPredPreyTask;
 import edu.utexas.cs.nn.tasks.gridTorus.GroupTorusPredPreyTask;
@@ -47,10 +48,17 @@ public class CompetitiveAndCooperativePredatorsVsPreyTask<T extends Network> ext
 		Genotype[] predTeam = new Genotype[numPreds];
 		//NOTE: Assumes that predators were stored first in the "team" list
 		System.arraycopy(team, 0, predTeam, 0, numPreds);
-		TorusPredPreyTask.getEvolvedControllers(task.evolved, predTeam, true, 0);
+		// Not filled directly, since several teams may be evaluated at once
+		TorusPredPreyController[] evolved = new TorusPredPreyController[task.evolved.length];
+		TorusPredPreyTask.getEvolvedControllers(evolved, predTeam, true, 0);
 		// Make smaller array to return just the preds
 		TorusPredPreyController[] predOnly = new TorusPredPreyController[numPreds];
-		System.arraycopy(task.evolved, 0, predOnly, 0, numPreds);
+		System.arraycopy(evolved, 0, predOnly, 0, numPreds);
+		// Only needed to dispose of input panels, which are never shown
+		// while teams are evaluated in parallel
+		if (CommonConstants.monitorInputs) {
+			System.arraycopy(predOnly, 0, task.evolved, 0, numPreds);
+		}
 		return predOnly;
 	}
 
@@ -71,10 +79,17 @@ public class CompetitiveAndCooperativePredatorsVsPreyTask<T extends Network> ext
 		Genotype[] preyTeam = new Genotype[numPreys];
 		//NOTE: Assumes that predators were stored first in the "team" list, then prey
 		System.arraycopy(team, numPreds, preyTeam, 0, numPreys);
-		TorusPredPreyTask.getEvolvedControllers(task.evolved, preyTeam, false, numPreds);
+		// Not filled directly, since several teams may be evaluated at once
+		TorusPredPreyController[] evolved = new TorusPredPreyController[task.evolved.length];
+		TorusPredPreyTask.getEvolvedControllers(evolved, preyTeam, false, numPreds);
 		// Make smaller array to return just the preys
 		TorusPredPreyController[] preyOnly = new TorusPredPreyController[numPreys];
-		System.arraycopy(task.evolved, numPreds, preyOnly, 0, numPreys);
+		System.arraycopy(evolved, numPreds, preyOnly, 0, numPreys);
+		// Only needed to dispose of input panels, which are never shown
+		// while teams are evaluated in parallel
+		if (CommonConstants.monitorInputs) {
+			System.arraycopy(preyOnly, 0, task.evolved, numPreds, numPreys);
+		}
 		return preyOnly; 
 	}
 
@@ -1,7 +1,6 @@
 package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
-import edu.utexas.cs.nn.evolution.fitness.FitnessFunction;
 import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 
@@ -12,12 +11,7 @@ import edu.utexas.cs.nn.networks.Network;
  * @author rollinsa
  *
  */
-public abstract class GridTorusObjective<T extends Network> implements FitnessFunction<T> {
-
-	/**
-	 * the torus game
-	 */
-	protected TorusPredPreyGame game;
+public abstract class GridTorusObjective<T extends Network> {
 
 	/**
 	 * 
@@ -28,10 +22,21 @@ public abstract class GridTorusObjective<T extends Network> implements FitnessFu
 	 * @return the score/fitness of the individual
 	 */
 	public double score(TorusPredPreyGame game, Organism<T> individual) {
-		this.game = game;
-		return fitness(individual);
+		return fitness(individual, game);
 	}
 
+	/**
+	 * The game is passed in rather than stored, since the same objective
+	 * instances score every team, and teams can be evaluated in parallel.
+	 * 
+	 * @param individual
+	 *            organism to provide a fitness function for
+	 * @param game
+	 *            TorusPredPrey grid world game that the organism played
+	 * @return the score/fitness of the individual
+	 */
+	public abstract double fitness(Organism<T> individual, TorusPredPreyGame game);
+
 	/**
 	 * Default minimum value for a score is 0, though this could be overridden.
 	 * 
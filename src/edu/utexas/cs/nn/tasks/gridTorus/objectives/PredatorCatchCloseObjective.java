@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
@@ -26,7 +27,7 @@ public class PredatorCatchCloseObjective<T extends Network> extends GridTorusObj
 	 *         as many prey are caught as possible, and with minimized distance to
 	 *         any remaining prey
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 
 		TorusAgent[] prey = game.getPrey();
 		TorusAgent[] preds = game.getPredators();
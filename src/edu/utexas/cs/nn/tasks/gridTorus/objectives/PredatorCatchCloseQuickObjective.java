@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 
@@ -23,7 +24,7 @@ public class PredatorCatchCloseQuickObjective<T extends Network> extends GridTor
 	/**
 	 * Find the score of the predator based on if all prey died or not
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 
 		TorusAgent[] prey = game.getPrey();
 		TorusAgent[] preds = game.getPredators();
@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 
 /**
@@ -16,7 +17,7 @@ public class PredatorCatchObjective<T extends Network> extends GridTorusObjectiv
 	/**
 	 * Find the score of the predators based on how many prey died
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 
 		TorusAgent[] prey = game.getPrey();
 		double numCaught = 0;
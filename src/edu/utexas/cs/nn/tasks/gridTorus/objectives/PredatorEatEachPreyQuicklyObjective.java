@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 
@@ -16,7 +17,7 @@ public class PredatorEatEachPreyQuicklyObjective<T extends Network> extends Grid
 	 * reward the predators for each prey that gets eaten heavily encourages
 	 * that the prey are eaten as quickly as possible
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		int numPrey = Parameters.parameters.integerParameter("torusPreys");
 		double score = 0;
 		// get the death time of each prey and subtract that from the score so
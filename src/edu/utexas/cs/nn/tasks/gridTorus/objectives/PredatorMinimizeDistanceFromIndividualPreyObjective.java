@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
@@ -38,7 +39,7 @@ public class PredatorMinimizeDistanceFromIndividualPreyObjective<T extends Netwo
 	 *         the specific prey given (which will be minimized distance to all predators
 	 *         for each prey individually rather than as a whole)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		TorusAgent prey = game.getPrey()[preyIndex];
 		//if the prey is null, it was eaten, give max score of 0
 		if(prey == null)
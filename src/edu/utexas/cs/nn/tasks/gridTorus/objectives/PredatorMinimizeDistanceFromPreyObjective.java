@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
@@ -52,7 +53,7 @@ public class PredatorMinimizeDistanceFromPreyObjective<T extends Network> extend
 	 * (meaning that the predators are also inherently encouraged to eat the
 	 * prey)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		TorusAgent[] preds = game.getPredators();
 		TorusAgent[] prey = game.getPrey();
 		// want this to be as low as possible to minimize distance to prey for
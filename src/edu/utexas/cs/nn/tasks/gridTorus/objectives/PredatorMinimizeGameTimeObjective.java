@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 
@@ -16,7 +17,7 @@ public class PredatorMinimizeGameTimeObjective<T extends Network> extends GridTo
 	/**
 	 * minimize the total game time
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		return -game.getTime();
 	}
 
@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 
@@ -19,7 +20,7 @@ public class PreyLongSurvivalTimeObjective<T extends Network> extends GridTorusO
 	 * for having later death times if the prey does die (largest score given
 	 * per prey automatically if it survives)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		int numPrey = Parameters.parameters.integerParameter("torusPreys");
 		double score = 0;
 		// get the death time of each prey and add that from the score so that
@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 
 /**
@@ -15,7 +16,7 @@ public class PreyMaximizeGameTimeObjective<T extends Network> extends GridTorusO
 	/**
 	 * maximize the total game time
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		return game.getTime();
 	}
 
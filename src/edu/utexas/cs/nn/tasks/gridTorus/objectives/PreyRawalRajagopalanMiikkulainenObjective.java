@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 
 /**
@@ -29,7 +30,7 @@ public class PreyRawalRajagopalanMiikkulainenObjective<T extends Network> extend
 	 * Find the score of the prey based on if all prey died, if no prey died, or
 	 * if some prey died (generalized for variable number of prey/preds)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		TorusAgent[] prey = game.getPrey();
 		double numCaught = 0;
 		for (TorusAgent p : prey) {
@@ -1,6 +1,7 @@
 package edu.utexas.cs.nn.tasks.gridTorus.objectives.cooperative;
 
 import edu.utexas.cs.nn.evolution.Organism;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.tasks.gridTorus.objectives.GridTorusObjective;
 
@@ -28,7 +29,7 @@ public class IndividualPredatorCatchObjective<T extends Network> extends GridTor
 	/**
 	 * Find the score of the predator based on how many prey it killed
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		// return a score based on number of caught prey by this predator
 		return game.getPreyCatchesForThisPred(predIndex);
 	}
@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives.cooperative;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.tasks.gridTorus.objectives.GridTorusObjective;
 
@@ -34,7 +35,7 @@ public class IndividualPreyMaximizeDistanceFromIndividualPredatorObjective<T ext
 	 *         the end of the game. If the prey is dead then it receives the lowest 
 	 *         possible score (zero)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		TorusAgent pred = game.getPredators()[predIndex];
 		TorusAgent prey = game.getPrey()[preyIndex];
 
@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives.cooperative;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.tasks.gridTorus.objectives.GridTorusObjective;
 import edu.utexas.cs.nn.util.stats.StatisticsUtilities;
@@ -32,7 +33,7 @@ public class IndividualPreyMaximizeDistanceFromPredatorsObjective<T extends Netw
 	 *         the end of the game. If the prey is dead then it receives the lowest 
 	 *         possible score (zero)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		TorusAgent prey = game.getPrey()[preyIndex];
 		//if the prey is null, it was eaten, give min score of 0
 		if(prey == null)
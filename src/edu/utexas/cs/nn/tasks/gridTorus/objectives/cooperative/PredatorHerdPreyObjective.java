@@ -2,6 +2,7 @@ package edu.utexas.cs.nn.tasks.gridTorus.objectives.cooperative;
 
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.gridTorus.TorusAgent;
+import edu.utexas.cs.nn.gridTorus.TorusPredPreyGame;
 import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.gridTorus.objectives.GridTorusObjective;
@@ -26,7 +27,7 @@ public class PredatorHerdPreyObjective<T extends Network> extends GridTorusObjec
 	 *         If a prey is dead, the predator is rewarded the maximum scores for that prey
 	 *         (which would be zero since zero is the max score)
 	 */
-	public double fitness(Organism<T> individual) {
+	public double fitness(Organism<T> individual, TorusPredPreyGame game) {
 		TorusAgent[] prey = game.getPrey();
 		TorusAgent[] filteredPrey = ArrayUtil.filterNull(prey);
 		double score = 0;
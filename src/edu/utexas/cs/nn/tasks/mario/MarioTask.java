@@ -94,7 +94,7 @@ public class MarioTask<T extends Network> extends NoisyLonerTask<T>implements Ne
 		double marioMode = 0;
 		double timeSpent = 0;
 		options.setAgent(new NNMarioAgent<T>(individual));
-		options.setLevelRandSeed(RandomNumbers.randomGenerator.nextInt(Integer.MAX_VALUE));
+		options.setLevelRandSeed(RandomNumbers.generator().nextInt(Integer.MAX_VALUE));
 		Evaluator evaluator = new Evaluator(options);
 		List<EvaluationInfo> results = evaluator.evaluate();
 		for (EvaluationInfo result : results) {
@@ -69,4 +69,14 @@ public abstract class MsPacManIsolatedMultitask<T extends Network> extends MsPac
 		Pair<double[], double[]> combo = new Pair<double[], double[]>(combinedScores, combinedOthers);
 		return combo;
 	}
+
+	/**
+	 * Game settings of the task change between the games of each trial
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean trialsCanRunInParallel() {
+		return false;
+	}
 }
@@ -28,7 +28,7 @@ public class MsPacManOnlyPillScoreInFullVsEdibleFromCornersMultitask<T extends N
 	public static int NUM_GHOST_LOCATION_OPTIONS = 100;
 
 	public static int newGhostLocation(int mazeIndex, Ghost ghost) {
-		int randomChoice = RandomNumbers.randomGenerator.nextInt(NUM_GHOST_LOCATION_OPTIONS);
+		int randomChoice = RandomNumbers.generator().nextInt(NUM_GHOST_LOCATION_OPTIONS);
 		// System.out.println("mazeIndex:"+mazeIndex+",pacmanStartingPowerPillIndex:"+CommonConstants.pacmanStartingPowerPillIndex+",randomChoice:"+randomChoice+",ghostIndex:"+GameFacade.ghostToIndex(ghost.type));
 		return mazePowerPillGhostMap[mazeIndex][CommonConstants.pacmanStartingPowerPillIndex][randomChoice][GameFacade
 				.ghostToIndex(ghost.type)];
@@ -137,4 +137,14 @@ public class MsPacManOnlyPillScoreInFullVsEdibleFromCornersMultitask<T extends N
 		Pair<double[], double[]> combo = new Pair<double[], double[]>(combinedScores, combinedOthers);
 		return combo;
 	}
+
+	/**
+	 * Game settings of the task change between the games of each trial
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean trialsCanRunInParallel() {
+		return false;
+	}
 }
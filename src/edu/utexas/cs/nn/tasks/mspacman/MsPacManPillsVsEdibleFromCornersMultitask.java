@@ -85,4 +85,14 @@ public class MsPacManPillsVsEdibleFromCornersMultitask<T extends Network> extend
 		Pair<double[], double[]> combo = new Pair<double[], double[]>(combinedScores, combinedOthers);
 		return combo;
 	}
+
+	/**
+	 * Game settings of the task change between the games of each trial
+	 *
+	 * @return false
+	 */
+	@Override
+	public boolean trialsCanRunInParallel() {
+		return false;
+	}
 }
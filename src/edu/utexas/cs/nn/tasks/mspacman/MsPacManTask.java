@@ -8,6 +8,7 @@ import java.util.List;
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import edu.utexas.cs.nn.evolution.Organism;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
+import edu.utexas.cs.nn.evolution.genotypes.HierarchicalTWEANNGenotype;
 import edu.utexas.cs.nn.evolution.genotypes.NetworkGenotype;
 import edu.utexas.cs.nn.evolution.nsga2.tug.TUGTask;
 import edu.utexas.cs.nn.networks.Network;
@@ -55,10 +56,13 @@ import edu.utexas.cs.nn.tasks.mspacman.objectives.SurvivalAndSpeedTimeScore;
 import edu.utexas.cs.nn.tasks.mspacman.objectives.TimeFramesGhostScore;
 import edu.utexas.cs.nn.tasks.mspacman.objectives.TimeFramesPillScore;
 import edu.utexas.cs.nn.tasks.mspacman.objectives.TimeToEatAllGhostsScore;
+import edu.utexas.cs.nn.tasks.mspacman.sensors.ActionBlockLoadedInputOutputMediator;
+import edu.utexas.cs.nn.tasks.mspacman.sensors.MsPacManControllerInputOutputMediator;
+import edu.utexas.cs.nn.tasks.mspacman.sensors.VariableDirectionBlockLoadedInputOutputMediator;
 import edu.utexas.cs.nn.util.ClassCreation;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
 import edu.utexas.cs.nn.util.datastructures.Pair;
 import edu.utexas.cs.nn.util.datastructures.Triple;
-import edu.utexas.cs.nn.util.random.RandomNumbers;
 import edu.utexas.cs.nn.util.stats.Average;
 import edu.utexas.cs.nn.util.stats.Max;
 import edu.utexas.cs.nn.util.stats.Mode;
@@ -141,6 +145,9 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 	private final boolean eachComponentTracksScoreToo;
 	private final boolean plainGhostScore;
 	private final TrainingCampManager tcManager;
+	private final boolean plainControllers;
+	// Mediator given to controllers made by the current thread during a trial
+	private static final ThreadLocal<MsPacManControllerInputOutputMediator> trialMediators = new ThreadLocal<MsPacManControllerInputOutputMediator>();
 
 	/**
 	 * Default constructor
@@ -181,6 +188,12 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 		boolean avgGhostsPerPowerPill = Parameters.parameters.booleanParameter("avgGhostsPerPowerPill");
 		boolean punishDeadSpace = Parameters.parameters.booleanParameter("punishDeadSpace");
 		boolean randomSelection = Parameters.parameters.booleanParameter("randomSelection");
+		// Controllers that only use state of their own game (see
+		// trialsCanRunInParallel). Scent paths are shared by all controllers,
+		// but only change if scent is personal.
+		plainControllers = !Parameters.parameters.booleanParameter("evolveNetworkSelector")
+				&& !Parameters.parameters.booleanParameter("afterStates")
+				&& !Parameters.parameters.booleanParameter("personalScent");
 
 		objectives = new ArrayList<MsPacManObjective<T>>(17);//why 17? TODO
 		otherScores = new ArrayList<MsPacManObjective<T>>(17);//why 17? TODO
@@ -416,17 +429,55 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 	 */
 	public void loadGhosts() {
 		if (ghosts == null) {
-			try {
-				this.ghosts = new GhostControllerFacade((NewGhostController) ClassCreation.createObject("ghostTeam"));
-			} catch (NoSuchMethodException ex) {
-				ex.printStackTrace();
-				System.exit(1);
-			}
+			this.ghosts = newGhostTeam();
 		} else {
 			ghosts.reset();
 		}
 	}
 
+	/**
+	 * New instance of the ghost team to evolve against
+	 *
+	 * @return the ghost team
+	 */
+	private static GhostControllerFacade newGhostTeam() {
+		try {
+			return new GhostControllerFacade((NewGhostController) ClassCreation.createObject("ghostTeam"));
+		} catch (NoSuchMethodException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * New instance of the mediator for Ms. Pac-Man controllers
+	 *
+	 * @return the mediator
+	 */
+	private static MsPacManControllerInputOutputMediator newInputOutputMediator() {
+		try {
+			return (MsPacManControllerInputOutputMediator) ClassCreation.createObject("pacmanInputOutputMediator");
+		} catch (NoSuchMethodException ex) {
+			ex.printStackTrace();
+			System.exit(1);
+			return null;
+		}
+	}
+
+	/**
+	 * Mediator for a new Ms. Pac-Man controller. Controllers made during a
+	 * trial that can run in parallel with other trials get the mediator of
+	 * their evaluation worker, since mediators keep track of the game being
+	 * played. All other controllers share MMNEAT.pacmanInputOutputMediator.
+	 *
+	 * @return mediator for the controller
+	 */
+	public static MsPacManControllerInputOutputMediator inputOutputMediator() {
+		MsPacManControllerInputOutputMediator mediator = trialMediators.get();
+		return mediator == null ? MMNEAT.pacmanInputOutputMediator : mediator;
+	}
+
 	/**
 	 * If a static pacman is being used against evolving ghosts, then this
 	 * method loads it.
@@ -466,41 +517,101 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 	@SuppressWarnings("rawtypes")
 	@Override
 	public Pair<double[], double[]> oneEval(Genotype<T> individual, int num) {
-		Organism<T> organism = evolveGhosts ? new SharedNNGhosts<T>(individual) : new NNMsPacMan<T>(individual);
+		Organism<T> organism;
+		NewPacManController controller;
+		GameFacade game;
 		if (evolveGhosts) {
+			organism = new SharedNNGhosts<T>(individual);
 			loadPacMan();
 			ghosts = new GhostControllerFacade((NewGhostController) ((SharedNNGhosts<T>) organism).controller);
+			controller = mspacman.newP;
+			game = agentEval(mspacman, ghosts, num);
+		} else if (parallelTrials && trialsCanRunInParallel()) {
+			// Nothing that changes during the game is shared with other
+			// trials. The mediator and ghost team belong to the evaluation
+			// worker running the trial, and are reset for each game.
+			trialMediators.set(EvaluationExecutor.workerState(MsPacManControllerInputOutputMediator.class, MsPacManTask::newInputOutputMediator));
+			try {
+				organism = new NNMsPacMan<T>(individual);
+			} finally {
+				trialMediators.remove();
+			}
+			controller = ((NNMsPacMan<T>) organism).controller;
+			GhostControllerFacade ghostTeam = EvaluationExecutor.workerState(GhostControllerFacade.class, MsPacManTask::newGhostTeam);
+			ghostTeam.reset();
+			game = agentEval(new PacManControllerFacade(controller), ghostTeam, num);
 		} else {
-			mspacman = new PacManControllerFacade((NewPacManController) ((NNMsPacMan<T>) organism).controller);
+			organism = new NNMsPacMan<T>(individual);
+			controller = ((NNMsPacMan<T>) organism).controller;
+			mspacman = new PacManControllerFacade(controller);
+			game = agentEval(mspacman, num);
 		}
-
-		// Side-effects to "game"
-		agentEval(mspacman, num);
-		if (mspacman.newP instanceof MultinetworkMsPacManController && individual instanceof NetworkGenotype) {
+		if (controller instanceof MultinetworkMsPacManController && individual instanceof NetworkGenotype) {
 			// Track subnet selections as if they were modes
-			((NetworkGenotype<T>) individual).setModuleUsage(((MultinetworkMsPacManController) mspacman.newP).fullUsage);
+			((NetworkGenotype<T>) individual).setModuleUsage(((MultinetworkMsPacManController) controller).fullUsage);
 		}
 
 		double[] fitnesses = new double[this.numObjectives()];
 		double[] scores = new double[this.numOtherScores()];
-		// When evolving ghosts, all fitness scores are flipped to negative,
-		// because the ghosts are in direct opposition to pacman
-		for (int j = 0; j < objectives.size(); j++) {
-			fitnesses[j] = (evolveGhosts ? -1 : 1) * objectives.get(j).score(game, organism);
-		}
-		for (int j = 0; j < otherScores.size(); j++) {
-			scores[j] = otherScores.get(j).score(game, organism);
+		// Objectives hold on to the game they are scoring, so trials running
+		// in parallel take turns
+		synchronized (objectives) {
+			// When evolving ghosts, all fitness scores are flipped to negative,
+			// because the ghosts are in direct opposition to pacman
+			for (int j = 0; j < objectives.size(); j++) {
+				fitnesses[j] = (evolveGhosts ? -1 : 1) * objectives.get(j).score(game, organism);
+			}
+			for (int j = 0; j < otherScores.size(); j++) {
+				scores[j] = otherScores.get(j).score(game, organism);
+			}
 		}
 		return new Pair<double[], double[]>(fitnesses, scores);
 	}
 
+	/**
+	 * Trials can run in parallel when all controllers and games involved can
+	 * be made per trial, and the controller (ReactiveNNPacManController, see
+	 * NNMsPacMan) only uses state of its own game. Excluded are evolved
+	 * ghosts, HyperNEAT, multitask schemes, mediators that share networks or
+	 * were modified after creation, training camps, and recorded or timed
+	 * games. Subclasses that change the game settings between the games of a
+	 * trial can not run trials in parallel either.
+	 *
+	 * @return whether the parallelTrials parameter applies
+	 */
+	@Override
+	public boolean trialsCanRunInParallel() {
+		MsPacManControllerInputOutputMediator mediator = MMNEAT.pacmanInputOutputMediator;
+		return plainControllers && !evolveGhosts && !CommonConstants.hyperNEAT
+				&& !CommonConstants.recordPacman && !CommonConstants.timedPacman && !tcManager.usesCamps()
+				&& MMNEAT.pacmanMultitaskScheme == null && !(MMNEAT.genotype instanceof HierarchicalTWEANNGenotype)
+				&& mediator != null && mediator.getClass() == Parameters.parameters.classParameter("pacmanInputOutputMediator")
+				&& !(mediator instanceof ActionBlockLoadedInputOutputMediator)
+				&& !(mediator instanceof VariableDirectionBlockLoadedInputOutputMediator);
+	}
+
 	public GameFacade agentEval(PacManControllerFacade mspacman, int num) {
 		// System.out.println("Agent Eval");
 		if (!evolveGhosts) {
 			loadGhosts();
 		}
+		return agentEval(mspacman, ghosts, num);
+	}
+
+	/**
+	 * Play one game of Ms. Pac-Man
+	 *
+	 * @param mspacman
+	 *            Ms. Pac-Man controller
+	 * @param ghosts
+	 *            ghost team, already reset
+	 * @param num
+	 *            number of the trial
+	 * @return the game after it ends
+	 */
+	public GameFacade agentEval(PacManControllerFacade mspacman, GhostControllerFacade ghosts, int num) {
 		tcManager.preEval();
-		game = new GameFacade(new Game(deterministic ? num : RandomNumbers.randomGenerator.nextLong()));
+		GameFacade game = new GameFacade(new Game(deterministic ? num : trialSeed()));
 		game.setExitLairEdible(exitLairEdible);
 		game.setEndOnlyOnTimeLimit(endOnlyOnTimeLimit);
 		game.setRandomLairExit(randomLairExit);
@@ -535,7 +646,9 @@ public class MsPacManTask<T extends Network> extends NoisyLonerTask<T>implements
 		if (MMNEAT.evalReport != null) {
 			mspacman.logEvaluationDetails();
 		}
-
+		// Only read for the time stamp of drawn networks, which are never
+		// drawn while trials run in parallel
+		this.game = game;
 		return game;
 	}
 
@@ -0,0 +1,98 @@
+package edu.utexas.cs.nn.tasks.mspacman;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
+import edu.utexas.cs.nn.log.EvalLog;
+import edu.utexas.cs.nn.networks.TWEANN;
+import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.scores.Score;
+import edu.utexas.cs.nn.util.EvaluationExecutor;
+import edu.utexas.cs.nn.util.random.RandomNumbers;
+
+public class MsPacManTaskTest {
+
+	private File base;
+
+	@After
+	public void tearDown() {
+		EvaluationExecutor.shutdown();
+		MMNEAT.evalReport = null;
+		MMNEAT.clearClasses();
+		delete(base);
+	}
+
+	private static void delete(File f) {
+		if (f.isDirectory()) {
+			for (File child : f.listFiles()) {
+				delete(child);
+			}
+		}
+		f.delete();
+	}
+
+	private void load(int threads) throws IOException {
+		if (base == null) {
+			base = Files.createTempDirectory("mspacman").toFile();
+		}
+		Parameters.initializeParameterCollections(new String[] { "runNumber:0", "io:false", "netio:false",
+				"base:" + base.getPath(), "saveTo:Test", "log:Test", "trials:4", "threads:" + threads,
+				"parallelTrials:true", "pacManLevelTimeLimit:1000",
+				"task:edu.utexas.cs.nn.tasks.mspacman.MsPacManTask",
+				"pacmanInputOutputMediator:edu.utexas.cs.nn.tasks.mspacman.sensors.mediators.FullTaskMediator" });
+		MMNEAT.loadClasses();
+	}
+
+	/**
+	 * Evaluate the genotype, and return the eval report
+	 */
+	@SuppressWarnings("unchecked")
+	private String evaluate(TWEANNGenotype genotype, List<Score<TWEANN>> scores) throws IOException {
+		RandomNumbers.reset(5);
+		MMNEAT.evalReport = new EvalLog("Eval-Test" + scores.size());
+		scores.add(((MsPacManTask<TWEANN>) MMNEAT.task).evaluate(genotype));
+		MMNEAT.evalReport.close();
+		return new String(Files.readAllBytes(MMNEAT.evalReport.getFile().toPath()));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void testParallelTrialsIndependentOfThreads() throws IOException {
+		// One thread runs the trials one after another
+		load(1);
+		assertTrue(((MsPacManTask<TWEANN>) MMNEAT.task).trialsCanRunInParallel());
+		RandomNumbers.reset(3);
+		TWEANNGenotype genotype = (TWEANNGenotype) MMNEAT.genotype.newInstance();
+		List<Score<TWEANN>> scores = new ArrayList<Score<TWEANN>>(2);
+		String sequentialReport = evaluate(genotype, scores);
+		int[] sequentialUsage = genotype.getModuleUsage();
+		MMNEAT.clearClasses();
+
+		load(4);
+		String parallelReport = evaluate(genotype, scores);
+
+		assertArrayEquals(scores.get(0).scores, scores.get(1).scores, 0.0);
+		assertArrayEquals(scores.get(0).otherStats, scores.get(1).otherStats, 0.0);
+		assertArrayEquals(sequentialUsage, genotype.getModuleUsage());
+		// Trials are logged in order, with the same details
+		assertEquals(sequentialReport, parallelReport);
+		int last = -1;
+		for (int i = 0; i < 4; i++) {
+			int start = parallelReport.indexOf("Eval " + i + ":");
+			assertTrue(start > last);
+			last = start;
+		}
+		assertFalse(Arrays.equals(new double[scores.get(0).otherStats.length], scores.get(0).otherStats));
+	}
+}
@@ -77,18 +77,18 @@ public class NNMsPacMan<T extends Network> extends Organism<T> {
 					}
 				} else if (genotype instanceof HierarchicalTWEANNGenotype) {
 					HierarchicalTWEANN ht = (HierarchicalTWEANN) net;
-					Genotype<TWEANN> ghostNet = ht.getSubNetGenotype(GhostEatingNetworkBlock.GHOST_POOL);
-					Genotype<TWEANN> pillNet = ht.getSubNetGenotype(PillEatingNetworkBlock.PILL_POOL);
 					if (MMNEAT.pacmanInputOutputMediator instanceof CombiningInputOutputMediator) {
 						// Evolve combining net with population of possible subnets
 						((SubNetworkBlock) ((CombiningInputOutputMediator) MMNEAT.pacmanInputOutputMediator).blocks
-								.get(GhostEatingNetworkBlock.GHOST_POOL)).changeNetwork(ghostNet.getPhenotype());
+								.get(GhostEatingNetworkBlock.GHOST_POOL)).changeNetwork(ht.getSubNetPhenotype(GhostEatingNetworkBlock.GHOST_POOL));
 						((SubNetworkBlock) ((CombiningInputOutputMediator) MMNEAT.pacmanInputOutputMediator).blocks
-								.get(PillEatingNetworkBlock.PILL_POOL)).changeNetwork(pillNet.getPhenotype());
+								.get(PillEatingNetworkBlock.PILL_POOL)).changeNetwork(ht.getSubNetPhenotype(PillEatingNetworkBlock.PILL_POOL));
 						controller = new ReactiveNNPacManController(net);
 					} else if (evolveNetworkSelector) {
 						// Evolving a selector with a population of possible subnets
 						// Assumes network is a TWEANN
+						Genotype<TWEANN> ghostNet = ht.getSubNetGenotype(GhostEatingNetworkBlock.GHOST_POOL);
+						Genotype<TWEANN> pillNet = ht.getSubNetGenotype(PillEatingNetworkBlock.PILL_POOL);
 						Genotype[] genotypes = new Genotype[] { ghostNet, pillNet };
 						controller = new MultinetworkSelectorNetworkMsPacManController(ht, genotypes);
 					}
@@ -5,6 +5,7 @@ import edu.utexas.cs.nn.networks.Network;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.tasks.mspacman.MsPacManTask;
 import edu.utexas.cs.nn.tasks.mspacman.data.ScentPath;
 import edu.utexas.cs.nn.tasks.mspacman.facades.GameFacade;
 import edu.utexas.cs.nn.tasks.mspacman.multitask.MsPacManModeSelector;
@@ -34,12 +35,27 @@ public abstract class NNPacManController extends NewPacManController {
 	 * Called once a generation by Performance log resets the data for the times
 	 * all levels are beaten, times the time limit is reached, and times died
 	 */
-	public static void resetTimes() {
+	public static synchronized void resetTimes() {
 		timesAllLevelsBeaten = 0;
 		timesTimeLimitReached = 0;
 		timesDied = 0;
 	}
 
+	/**
+	 * Count a game lost with all lives. Games of trials that run in parallel
+	 * can end at the same time.
+	 */
+	public static synchronized void countDeath() {
+		timesDied++;
+	}
+
+	/**
+	 * Count a game that reached the level time limit
+	 */
+	public static synchronized void countTimeLimitReached() {
+		timesTimeLimitReached++;
+	}
+
 	/**
 	 * constructs a pacman controller for the evolved pacman based on parameters
 	 * 
@@ -50,7 +66,7 @@ public abstract class NNPacManController extends NewPacManController {
 		nn = n;
 		maxLevel = Parameters.parameters.integerParameter("pacmanMaxLevel");
 
-		inputMediator = MMNEAT.pacmanInputOutputMediator;
+		inputMediator = MsPacManTask.inputOutputMediator();
 		if (inputMediator != null) {
 			inputMediator.reset();
 		}
@@ -112,7 +128,7 @@ public abstract class NNPacManController extends NewPacManController {
 		inputMediator.mediatorStateUpdate(gs);
 		int levelTime = gs.getCurrentLevelTime();
 		if (CommonConstants.pacmanFatalTimeLimit && levelTime >= CommonConstants.pacManLevelTimeLimit) {
-			timesTimeLimitReached++;
+			countTimeLimitReached();
 			if (MMNEAT.evalReport != null) {
 				MMNEAT.evalReport.log("Level Time Limit Reached");
 				MMNEAT.evalReport.log("");
@@ -182,7 +182,7 @@ public class StaticPacManController extends NNDirectionalPacManController {
 						// preference += inputs[i + edibleGhost] * 10; //
 						// Nearest Edible Ghost
 					} else if (!gf.anyActiveGhostInLair() && !gf.anyIsEdible()
-							&& (inputs[allNear] == 1 || RandomNumbers.randomGenerator.nextDouble() < 0.2 || eatAll)) {
+							&& (inputs[allNear] == 1 || RandomNumbers.generator().nextDouble() < 0.2 || eatAll)) {
 						causes[i] += "(Power Pill Bias " + rewards + ")";
 						preference += inputs[i + nearestPill] * 10; // Nearest
 																	// Power
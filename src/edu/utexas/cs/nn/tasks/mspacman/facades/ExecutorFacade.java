@@ -1,5 +1,6 @@
 package edu.utexas.cs.nn.tasks.mspacman.facades;
 
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
 import pacman.Executor;
 
@@ -45,7 +46,11 @@ public class ExecutorFacade {
 	 * @param game facade containing game
 	 */
 	public void runExperiment(PacManControllerFacade mspacman, GhostControllerFacade ghosts, GameFacade game) {
-		newE.runExperiment(mspacman.newP, ghosts.newG, game.newG);
+		if (CommonConstants.lockStepPacman) {
+			newE.runGameLockStep(mspacman.newP, ghosts.newG, game.newG);
+		} else {
+			newE.runExperiment(mspacman.newP, ghosts.newG, game.newG);
+		}
 	}
 
 	/**
@@ -71,12 +76,18 @@ public class ExecutorFacade {
 	}
 
 	/**
-	 * runs a timed game with visuals off
+	 * runs a timed game with visuals off. If lockStepPacman is set,
+	 * the game is instead run synchronously on the calling thread
+	 * without controller threads, game copies or sleeping.
 	 * @param game facade of game
 	 * @param mspacman facade of controller
 	 * @param ghosts facade of ghosts
 	 */
 	public void runGameTimedNonVisual(GameFacade game, PacManControllerFacade mspacman, GhostControllerFacade ghosts) {
-		newE.runGameTimedSpeedOptimised(mspacman.newP, ghosts.newG, false, false, game.newG);
+		if (CommonConstants.lockStepPacman) {
+			newE.runGameLockStep(mspacman.newP, ghosts.newG, game.newG);
+		} else {
+			newE.runGameTimedSpeedOptimised(mspacman.newP, ghosts.newG, false, false, game.newG);
+		}
 	}
 }
@@ -5,6 +5,7 @@ import java.util.ArrayList;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
 import static edu.utexas.cs.nn.MMNEAT.MMNEAT.pacmanInputOutputMediator;
+import edu.utexas.cs.nn.evolution.Archetype;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
 import edu.utexas.cs.nn.evolution.crossover.network.CombiningTWEANNCrossover;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
@@ -276,8 +277,8 @@ public class MsPacManInitialization {
 				GameFacade.NUM_DIRS, false, false, -1);
 		TWEANNGenotype pillArchetypeNet = new TWEANNGenotype(pillArchetype, new ArrayList<TWEANNGenotype.LinkGene>(),
 				GameFacade.NUM_DIRS, false, false, -1);
-		EvolutionaryHistory.archetypes[0] = ((TWEANNGenotype) cross.crossover(ghostArchetypeNet,
-				pillArchetypeNet)).nodes;
+		EvolutionaryHistory.archetypes[0] = new Archetype(((TWEANNGenotype) cross.crossover(ghostArchetypeNet,
+				pillArchetypeNet)).nodes);
 
 		// Load component populations, create multitask network combinations,
 		// and save them all to an initial population dir
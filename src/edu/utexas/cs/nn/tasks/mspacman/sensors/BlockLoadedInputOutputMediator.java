@@ -81,6 +81,7 @@ public class BlockLoadedInputOutputMediator extends MsPacManControllerInputOutpu
 	public void reset() {
 		super.reset();
 		for (MsPacManSensorBlock b : blocks) {
+			b.forgetSensors();
 			b.reset();
 		}
 	}
@@ -16,7 +16,11 @@ import edu.utexas.cs.nn.util.ClassCreation;
 public abstract class MsPacManControllerInputOutputMediator {
 
 	protected final int absence;
-	public static NodeCollection escapeNodes = null;
+	// Mediators made by the same thread share escape nodes, so the parts of a
+	// combined mediator see the updates of the whole. Mediators made by
+	// different threads, e.g. for trials running in parallel, do not.
+	private static final ThreadLocal<NodeCollection> threadEscapeNodes = new ThreadLocal<NodeCollection>();
+	public final NodeCollection escapeNodes;
 	private final boolean evolveNetworkSelector;
 	private final boolean externalPreferenceNeurons;
 
@@ -24,14 +28,17 @@ public abstract class MsPacManControllerInputOutputMediator {
 	 * Constructor to set some global variables based on command line parameters
 	 */
 	public MsPacManControllerInputOutputMediator() {
-		if (escapeNodes == null) {
+		NodeCollection nodes = threadEscapeNodes.get();
+		if (nodes == null) {
 			try {
-				escapeNodes = (NodeCollection) ClassCreation.createObject("pacmanEscapeNodeCollection");
+				nodes = (NodeCollection) ClassCreation.createObject("pacmanEscapeNodeCollection");
+				threadEscapeNodes.set(nodes);
 			} catch (NoSuchMethodException ex) {
 				System.out.println("Cannot initialize escape nodes");
 				System.exit(1);
 			}
 		}
+		escapeNodes = nodes;
 		externalPreferenceNeurons = Parameters.parameters.booleanParameter("externalPreferenceNeurons");
 		absence = Parameters.parameters.booleanParameter("absenceNegative") ? -1 : 0;
 		evolveNetworkSelector = Parameters.parameters.booleanParameter("evolveNetworkSelector");
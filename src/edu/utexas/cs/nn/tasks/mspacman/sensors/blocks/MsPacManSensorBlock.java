@@ -2,7 +2,6 @@ package edu.utexas.cs.nn.tasks.mspacman.sensors.blocks;
 
 import edu.utexas.cs.nn.tasks.mspacman.facades.GameFacade;
 import edu.utexas.cs.nn.util.datastructures.Pair;
-import java.util.HashMap;
 
 /**
  *
@@ -10,8 +9,8 @@ import java.util.HashMap;
  */
 public abstract class MsPacManSensorBlock {
 
-	// Key is Block hash code, pair of level time and sensor values
-	private static HashMap<MsPacManSensorBlock, Pair<Integer, double[]>> sensorRecord = new HashMap<MsPacManSensorBlock, Pair<Integer, double[]>>();
+	// Level time and sensor values of the last calculation by this block
+	private Pair<Integer, double[]> sensorRecord = null;
 
 	/**
 	 * Takes a set of input values under construction, and from the index of
@@ -32,7 +31,7 @@ public abstract class MsPacManSensorBlock {
 
 	/**
 	 * Performs the same action as incorporateSensors, but stores the result
-	 * statically, so that it can be retrieved by other calls that want to
+	 * in the block, so that it can be retrieved by other calls that want to
 	 * access it on the same
 	 * 
 	 * @param inputs
@@ -42,14 +41,14 @@ public abstract class MsPacManSensorBlock {
 	 * @return
 	 */
 	public int retrieveSensors(double[] inputs, int in, GameFacade gf, int lastDirection) {
-		Pair<Integer, double[]> previousCalculation = sensorRecord.get(this);
+		Pair<Integer, double[]> previousCalculation = sensorRecord;
 		int currentTime = gf.getCurrentLevelTime();
 		int toAdd = numberAdded();
 		if (previousCalculation == null || previousCalculation.t1 != currentTime) {
 			int result = incorporateSensors(inputs, in, gf, lastDirection);
 			double[] store = new double[toAdd];
 			System.arraycopy(inputs, in, store, 0, toAdd);
-			sensorRecord.put(this, new Pair<Integer, double[]>(currentTime, store));
+			sensorRecord = new Pair<Integer, double[]>(currentTime, store);
 			return result;
 		} else {
 			// System.out.println("Retrieved cached sensor result: " +
@@ -59,6 +58,14 @@ public abstract class MsPacManSensorBlock {
 		}
 	}
 
+	/**
+	 * Forget the sensor values stored by retrieveSensors, which belong to
+	 * the previous game once a new one starts
+	 */
+	public void forgetSensors() {
+		sensorRecord = null;
+	}
+
 	public abstract int incorporateLabels(String[] labels, int in);
 
 	public abstract int numberAdded();
@@ -1,6 +1,6 @@
 package edu.utexas.cs.nn.tasks.mspacman.sensors.blocks.hyperneat;
 
-import edu.utexas.cs.nn.parameters.Parameters;
+import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.pacman.NNHyperNEATPacManController;
 import edu.utexas.cs.nn.tasks.mspacman.facades.GameFacade;
 
@@ -27,7 +27,7 @@ public class SubstrateEdibleSensorBlock extends FullScreenSubstrateSensorBlock{
 	 */
 	public int incorporateSensors(double[] inputs, int startPoint, GameFacade gf, int lastDirection) {
 		for(Integer node: gf.getEdibleGhostLocations()) {
-			if(Parameters.parameters.booleanParameter("senseHyperNEATGhostPath")) {
+			if(CommonConstants.senseHyperNEATGhostPath) {
 				// index 0 gets the first ghost at that location. There could be a problem if there are two
 				// ghosts going in opposite directions, but this should be rare enough to not be worth
 				// worrying about.
@@ -1,7 +1,6 @@
 package edu.utexas.cs.nn.tasks.mspacman.sensors.blocks.hyperneat;
 
 import edu.utexas.cs.nn.parameters.CommonConstants;
-import edu.utexas.cs.nn.parameters.Parameters;
 import edu.utexas.cs.nn.tasks.mspacman.agentcontroller.pacman.NNHyperNEATPacManController;
 import edu.utexas.cs.nn.tasks.mspacman.facades.GameFacade;
 /**
@@ -31,7 +30,7 @@ public class SubstrateGhostSensorBlock  extends FullScreenSubstrateSensorBlock{
 	 */
 	public int incorporateSensors(double[] inputs, int startPoint, GameFacade gf, int lastDirection) {
 		for(int i = 0; i < CommonConstants.numActiveGhosts; i++) {
-			if(Parameters.parameters.booleanParameter("senseHyperNEATGhostPath")) {
+			if(CommonConstants.senseHyperNEATGhostPath) {
 				int[] trail = gf.getGhostPath(i, gf.getPacmanCurrentNodeIndex());
 				for(int j = 0; j < trail.length; j++) {
 					int node2 = trail[j];
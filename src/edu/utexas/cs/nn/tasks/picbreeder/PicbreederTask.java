@@ -741,7 +741,6 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 
 			try {
 				Offspring.reset();
-				Offspring.lineage = new ArrayList<Offspring>();
 				PopulationUtil.loadLineage();
 				System.out.println("Lineage loaded from file");
 				// Also adds networks
@@ -800,7 +799,7 @@ public class PicbreederTask<T extends Network> implements SinglePopulationTask<T
 	 */
 	@SuppressWarnings("unchecked")
 	public static <T extends Network> void drawLineage(long id, long childId, int x, int y, int depth) {
-		Offspring o = Offspring.lineage.get((int) id);
+		Offspring o = Offspring.get(id);
 		if(o != null && !drawnOffspring.contains(id)) { // Don't draw if already drawn
 			Genotype<T> g = (Genotype<T>) Offspring.getGenotype(o.xmlNetwork);
 			BufferedImage bi = GraphicsUtil.imageFromCPPN(g.getPhenotype(), PIC_SIZE/2, PIC_SIZE/2);
@@ -56,6 +56,19 @@ public class RLGlueAgent<T extends Network> extends Organism<T>implements AgentI
 		return policy.process(inputs);
 	}
 
+	/**
+	 * Gets the outputs of the policy for several inputs at once
+	 * 
+	 * @param inputs
+	 *            one array of inputs per row
+	 * @param flushEachInput
+	 *            whether recurrent activation is removed before each input
+	 * @return outputs from network, one row per row of inputs
+	 */
+	public double[][] consultPolicy(double[][] inputs, boolean flushEachInput) {
+		return policy.processBatch(inputs, flushEachInput);
+	}
+
 	/**
 	 * Not really needed because TaskSpec is already extracted in MMNEAT
 	 * 
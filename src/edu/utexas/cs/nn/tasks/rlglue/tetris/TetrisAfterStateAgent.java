@@ -90,27 +90,28 @@ public class TetrisAfterStateAgent<T extends Network> extends RLGlueAgent<T> {
 			// arraylist to hold the actions and outputs for later
 			ArrayList<Pair<Double, List<Integer>>> outputPairs = new ArrayList<Pair<Double, List<Integer>>>(); 
 
-			double[] outputs;
-			// for(pairs in the set){
-			for (TetrisStateActionPair i : tetrisStateHolder) {
+			// Fixed order for the after states, so they line up with the outputs
+			ArrayList<TetrisStateActionPair> afterStates = new ArrayList<TetrisStateActionPair>(tetrisStateHolder);
+			double[][] inputs = new double[afterStates.size()][];
+			for (int i = 0; i < inputs.length; i++) {
 				// Basic features
-				double[] inputs = MMNEAT.rlGlueExtractor.extract(i.t1.get_observation(false));
+				double[] features = MMNEAT.rlGlueExtractor.extract(afterStates.get(i).t1.get_observation(false));
 				// Scaled to range [0,1] for the neural network
-				double[] inputsScaled = MMNEAT.rlGlueExtractor.scaleInputs(inputs);
+				inputs[i] = MMNEAT.rlGlueExtractor.scaleInputs(features);
+			}
+			// Every after state is evaluated without recurrent activation.
+			// outputs[i] is an array of 1
+			double[][] outputs = this.consultPolicy(inputs, true);
 
-				policy.flush(); // remove recurrent activation
-				// outputs = constultPolicy(features) REMEMBER outputs is an
-				// array of 1
-				outputs = this.consultPolicy(inputsScaled);
-				
+			for (int i = 0; i < outputs.length; i++) {
 				if(Parameters.parameters.booleanParameter("stepByStep")){
-					System.out.println("Utility:" + outputs[0]);
+					System.out.println("Utility:" + outputs[i][0]);
 					System.out.print("Press enter to continue");
 					MiscUtil.waitForReadStringAndEnterKeyPress();
 				}
 				// Associate the policy's score for the after state with the
 				// list of actions leading to it
-				Pair<Double, List<Integer>> tempPair = new Pair<Double, List<Integer>>(outputs[0], i.t2);
+				Pair<Double, List<Integer>> tempPair = new Pair<Double, List<Integer>>(outputs[i][0], afterStates.get(i).t2);
 				outputPairs.add(tempPair);
 				// forDebugging.add(i);
 			}
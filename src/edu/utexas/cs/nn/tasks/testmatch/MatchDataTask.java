@@ -53,13 +53,17 @@ public abstract class MatchDataTask<T extends Network> extends LonerTask<T>imple
 		ArrayList<ArrayList<Pair<Double, Double>>> samples = new ArrayList<ArrayList<Pair<Double, Double>>>(
 				trainingSet.size());
 		Network n = individual.getPhenotype();
+		// find the actual outputs based on the inputs of every pattern
+		double[][] inputs = new double[trainingSet.size()][];
+		for (int p = 0; p < inputs.length; p++) {
+			inputs[p] = trainingSet.get(p).t1;
+		}
+		double[][] allOutputs = n.processBatch(inputs, false);
 		// loop that runs for each "pattern" in the trainingSet, which is a pair
 		// of double arrays of inputs/outputs
-		for (Pair<double[], double[]> pattern : trainingSet) {
-			double[] inputs = pattern.t1;
-			double[] desiredOutputs = pattern.t2;
-			// find the actual outputs based on the given inputs
-			double[] actualOutputs = n.process(inputs);
+		for (int p = 0; p < inputs.length; p++) {
+			double[] desiredOutputs = trainingSet.get(p).t2;
+			double[] actualOutputs = allOutputs[p];
 			if (CommonConstants.watch) {
 				System.out.println(
 						"Desired: " + Arrays.toString(desiredOutputs) + ", Actual: " + Arrays.toString(actualOutputs));
@@ -239,6 +239,7 @@ public abstract class VizDoomTask<T extends Network> extends NoisyLonerTask<T>im
 	 */
 	@Override
 	public void finalCleanup() {
+		super.finalCleanup();
 		game.close();
 	}
 
@@ -0,0 +1,191 @@
+package edu.utexas.cs.nn.util;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+
+/**
+ * Pool of worker threads that lasts for a whole experiment, used for parallel
+ * evaluations and saves instead of creating and shutting down a new pool
+ * every generation. It is created on first use with the number of threads
+ * given by the "threads" parameter, and is shut down when the experiment
+ * finishes (or the task is cleaned up). Using it again after that simply
+ * creates a new pool.
+ *
+ * The pool is a work stealing ForkJoinPool, so idle workers take queued
+ * evaluations from busy ones, and a worker waiting on the result of a task it
+ * submitted itself helps execute queued tasks instead of just blocking.
+ *
+ * Each worker can also hold state that is expensive to create and can be
+ * reused from one evaluation to the next, such as games, mediators or
+ * buffers (see workerState). This state is never shared between threads, and
+ * state implementing AutoCloseable is closed when its worker terminates.
+ */
+public class EvaluationExecutor {
+
+	private static ForkJoinPool pool = null;
+	// Used by threads outside the pool, e.g. when evaluating sequentially
+	private static final ThreadLocal<HashMap<Object, Object>> callerState = new ThreadLocal<HashMap<Object, Object>>() {
+		@Override
+		protected HashMap<Object, Object> initialValue() {
+			return new HashMap<Object, Object>();
+		}
+	};
+
+	/**
+	 * Worker thread with its own reusable state
+	 */
+	private static class Worker extends ForkJoinWorkerThread {
+		private final HashMap<Object, Object> state = new HashMap<Object, Object>();
+
+		Worker(ForkJoinPool pool) {
+			super(pool);
+		}
+
+		@Override
+		protected void onStart() {
+			super.onStart();
+			setName("EvaluationWorker-" + getPoolIndex());
+		}
+
+		@Override
+		protected void onTermination(Throwable exception) {
+			closeAll(state);
+			super.onTermination(exception);
+		}
+	}
+
+	/**
+	 * @return the pool shared by the current experiment, which is created if
+	 *         needed
+	 */
+	public static synchronized ForkJoinPool pool() {
+		if (pool == null) {
+			int threads = Parameters.parameters == null ? Runtime.getRuntime().availableProcessors() : Parameters.parameters.integerParameter("threads");
+			pool = new ForkJoinPool(Math.max(1, threads), new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+				@Override
+				public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+					return new Worker(pool);
+				}
+			}, null, false);
+		}
+		return pool;
+	}
+
+	/**
+	 * Queue a task to be executed by the pool
+	 *
+	 * @param <V>
+	 *            type of result
+	 * @param task
+	 *            evaluation, save, etc.
+	 * @return future result of the task
+	 */
+	public static <V> Future<V> submit(Callable<V> task) {
+		return pool().submit(task);
+	}
+
+	/**
+	 * Runs several pieces of one computation in the pool, and waits for all of
+	 * them. When called from a worker, e.g. during a parallel evaluation, the
+	 * pieces are queued on that worker, which runs them itself unless idle
+	 * workers steal them. So the pieces never run on more threads than the
+	 * pool has, however many evaluations split their work this way.
+	 *
+	 * @param <V>
+	 *            type of result
+	 * @param tasks
+	 *            pieces of the computation
+	 * @return results of the tasks, in the same order
+	 */
+	public static <V> List<V> invokeAll(List<? extends Callable<V>> tasks) {
+		ForkJoinPool pool = pool();
+		boolean worker = ForkJoinTask.getPool() == pool;
+		ArrayList<ForkJoinTask<V>> forked = new ArrayList<ForkJoinTask<V>>(tasks.size());
+		for (Callable<V> task : tasks) {
+			ForkJoinTask<V> f = ForkJoinTask.adapt(task);
+			if (worker) {
+				f.fork();
+			} else {
+				pool.execute(f);
+			}
+			forked.add(f);
+		}
+		ArrayList<V> results = new ArrayList<V>(tasks.size());
+		for (ForkJoinTask<V> f : forked) {
+			results.add(f.join());
+		}
+		return results;
+	}
+
+	/**
+	 * State belonging to the current thread that is created the first time
+	 * it is requested and reused afterwards. Evaluations that run in the pool
+	 * get state belonging to their worker, and other threads get their own.
+	 *
+	 * @param <S>
+	 *            type of state
+	 * @param key
+	 *            identifies the state, e.g. the class that uses it
+	 * @param factory
+	 *            creates the state if this thread does not have it yet
+	 * @return state for the current thread
+	 */
+	@SuppressWarnings("unchecked")
+	public static <S> S workerState(Object key, Supplier<S> factory) {
+		Thread current = Thread.currentThread();
+		HashMap<Object, Object> state = current instanceof Worker ? ((Worker) current).state : callerState.get();
+		Object result = state.get(key);
+		if (result == null) {
+			result = factory.get();
+			state.put(key, result);
+		}
+		return (S) result;
+	}
+
+	/**
+	 * Lets queued and running tasks finish, then stops the workers and
+	 * releases their state. The state of the calling thread is released as
+	 * well.
+	 */
+	public static synchronized void shutdown() {
+		if (pool != null) {
+			pool.shutdown();
+			try {
+				if (!pool.awaitTermination(1, TimeUnit.MINUTES)) {
+					System.out.println("Evaluation threads did not finish, so they were interrupted");
+					pool.shutdownNow();
+				}
+			} catch (InterruptedException ex) {
+				pool.shutdownNow();
+				Thread.currentThread().interrupt();
+			}
+			pool = null;
+		}
+		closeAll(callerState.get());
+		callerState.remove();
+	}
+
+	private static void closeAll(HashMap<Object, Object> state) {
+		for (Object o : state.values()) {
+			if (o instanceof AutoCloseable) {
+				try {
+					((AutoCloseable) o).close();
+				} catch (Exception ex) {
+					System.out.println("Could not close worker state " + o);
+					ex.printStackTrace();
+				}
+			}
+		}
+		state.clear();
+	}
+}
@@ -0,0 +1,130 @@
+package edu.utexas.cs.nn.util;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+
+public class EvaluationExecutorTest {
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false", "threads:3" });
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		EvaluationExecutor.shutdown();
+	}
+
+	@Test
+	public void testSubmit() throws Exception {
+		assertEquals(3, EvaluationExecutor.pool().getParallelism());
+		ArrayList<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+		for (int i = 0; i < 50; i++) {
+			final int x = i;
+			futures.add(EvaluationExecutor.submit(new Callable<Integer>() {
+				@Override
+				public Integer call() {
+					return x * x;
+				}
+			}));
+		}
+		for (int i = 0; i < futures.size(); i++) {
+			assertEquals(i * i, futures.get(i).get().intValue());
+		}
+		// Same pool until the experiment is shut down
+		assertSame(EvaluationExecutor.pool(), EvaluationExecutor.pool());
+	}
+
+	@Test
+	public void testWorkerStateReusedAndClosed() throws Exception {
+		final AtomicInteger created = new AtomicInteger();
+		final AtomicInteger closed = new AtomicInteger();
+		Callable<Object> task = new Callable<Object>() {
+			@Override
+			public Object call() {
+				return EvaluationExecutor.workerState(EvaluationExecutorTest.class, () -> {
+					created.incrementAndGet();
+					return (AutoCloseable) () -> closed.incrementAndGet();
+				});
+			}
+		};
+		ArrayList<Future<Object>> futures = new ArrayList<Future<Object>>();
+		for (int i = 0; i < 100; i++) {
+			futures.add(EvaluationExecutor.submit(task));
+		}
+		for (Future<Object> f : futures) {
+			assertNotNull(f.get());
+		}
+		// At most one state per worker, plus one for this thread
+		Object mine = task.call();
+		assertSame(mine, task.call());
+		assertTrue(created.get() <= 4);
+		EvaluationExecutor.shutdown();
+		assertEquals(created.get(), closed.get());
+		// A new pool is created if needed after shutdown
+		assertNotNull(EvaluationExecutor.submit(task).get());
+	}
+
+	/**
+	 * Work split up by evaluations that already run in the pool runs on the
+	 * workers of the pool, and the results come back in order
+	 */
+	@Test
+	public void testInvokeAllWithinEvaluations() throws Exception {
+		final Set<Thread> threads = Collections.synchronizedSet(new HashSet<Thread>());
+		ArrayList<Future<List<Integer>>> futures = new ArrayList<Future<List<Integer>>>();
+		for (int i = 0; i < 10; i++) {
+			futures.add(EvaluationExecutor.submit(new Callable<List<Integer>>() {
+				@Override
+				public List<Integer> call() {
+					ArrayList<Callable<Integer>> pieces = new ArrayList<Callable<Integer>>();
+					for (int j = 0; j < 20; j++) {
+						final int x = j;
+						pieces.add(new Callable<Integer>() {
+							@Override
+							public Integer call() throws InterruptedException {
+								threads.add(Thread.currentThread());
+								Thread.sleep(1);
+								return x * x;
+							}
+						});
+					}
+					return EvaluationExecutor.invokeAll(pieces);
+				}
+			}));
+		}
+		for (Future<List<Integer>> f : futures) {
+			List<Integer> result = f.get();
+			assertEquals(20, result.size());
+			for (int j = 0; j < result.size(); j++) {
+				assertEquals(j * j, result.get(j).intValue());
+			}
+		}
+		// No other pool is started for the pieces
+		for (Thread t : threads) {
+			assertTrue(t.getName(), t.getName().startsWith("EvaluationWorker"));
+		}
+		// Also usable from outside the pool
+		ArrayList<Callable<Integer>> pieces = new ArrayList<Callable<Integer>>();
+		for (int j = 0; j < 5; j++) {
+			final int x = j;
+			pieces.add(() -> x + 1);
+		}
+		assertEquals(Arrays.asList(1, 2, 3, 4, 5), EvaluationExecutor.invokeAll(pieces));
+	}
+}
@@ -31,9 +31,18 @@ public class GraphicsUtil {
 	 */
 	public static BufferedImage imageFromCPPN(Network n, int imageWidth, int imageHeight) {
 		BufferedImage image = new BufferedImage(imageWidth, imageHeight, BufferedImage.TYPE_INT_RGB);
+		// Whole image at once, one column after another. Each pixel is
+		// processed by a flushed network, as in getHSBFromCPPN
+		double[][] inputs = new double[imageWidth * imageHeight][];
 		for (int x = 0; x < imageWidth; x++) {// scans across whole image
 			for (int y = 0; y < imageHeight; y++) {
-				float[] hsb = getHSBFromCPPN(n, x, y, imageWidth, imageHeight);
+				inputs[x * imageHeight + y] = getCPPNInputs(x, y, imageWidth, imageHeight);
+			}
+		}
+		double[][] outputs = n.processBatch(inputs, true);
+		for (int x = 0; x < imageWidth; x++) {
+			for (int y = 0; y < imageHeight; y++) {
+				float[] hsb = rangeRestrictHSB(outputs[x * imageHeight + y]);
 				// network outputs computed on hsb, not rgb scale because
 				// creates better images
 				Color childColor = Color.getHSBColor(hsb[HUE_INDEX], hsb[SATURATION_INDEX], hsb[BRIGHTNESS_INDEX]);
@@ -1,8 +1,12 @@
 package edu.utexas.cs.nn.util;
 
 import edu.utexas.cs.nn.MMNEAT.MMNEAT;
+import edu.utexas.cs.nn.data.BackgroundWriter;
+import edu.utexas.cs.nn.data.GenerationCheckpoint;
+import edu.utexas.cs.nn.data.GenotypeFiles;
 import edu.utexas.cs.nn.data.SaveThread;
 import edu.utexas.cs.nn.evolution.EvolutionaryHistory;
+import edu.utexas.cs.nn.evolution.ParallelReproduction;
 import edu.utexas.cs.nn.evolution.genotypes.Genotype;
 import edu.utexas.cs.nn.evolution.genotypes.TWEANNGenotype;
 import edu.utexas.cs.nn.evolution.lineage.Offspring;
@@ -11,6 +15,7 @@ import edu.utexas.cs.nn.evolution.mutation.tweann.CauchyDeltaCodeMutation;
 import edu.utexas.cs.nn.evolution.mutation.tweann.WeightRandomReplacement;
 import edu.utexas.cs.nn.evolution.nsga2.NSGA2;
 import edu.utexas.cs.nn.evolution.nsga2.NSGA2Score;
+import edu.utexas.cs.nn.log.LineageEventLog;
 import edu.utexas.cs.nn.networks.TWEANN;
 import edu.utexas.cs.nn.parameters.CommonConstants;
 import edu.utexas.cs.nn.parameters.Parameters;
@@ -24,15 +29,13 @@ import edu.utexas.cs.nn.util.random.RandomNumbers;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FilenameFilter;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Scanner;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import wox.serial.Easy;
 
 /**
  * Several utility classes dealing with the creation
@@ -68,6 +71,10 @@ public class PopulationUtil {
 	 */
 	public static int loadLineage(String filename) throws FileNotFoundException {
 		System.out.println("Load lineage from: " + filename);
+		File binary = LineageEventLog.binaryFile(filename);
+		if (!new File(filename).exists() && binary != null && binary.exists()) {
+			return (int) loadLineageEvents(binary)[0];
+		}
 		Scanner s = new Scanner(new File(filename));
 		int generation = 0;
 		while (s.hasNextLine()) {
@@ -85,7 +92,7 @@ public class PopulationUtil {
 				}
 				if (symbol.equals("->")) {
 					long offspringId = pattern.nextLong();
-					Offspring.addOffspring(new Offspring(offspringId, parentId1, parentId2, generation));
+					Offspring.addOffspring(offspringId, parentId1, parentId2, generation);
 				} else {
 					System.out.println("WTF: " + symbol);
 					System.out.println("Format error");
@@ -115,6 +122,10 @@ public class PopulationUtil {
         // Does this method work? Looks like it was added by Lauren at some point,
         // perhaps to explore the lineage in Picbreeder.
         public static long loadID(String filename) throws FileNotFoundException {
+		File binary = LineageEventLog.binaryFile(filename);
+		if (!new File(filename).exists() && binary != null && binary.exists()) {
+			return loadLineageEvents(binary)[1];
+		}
 		Scanner s = new Scanner(new File(filename));
 		int generation = 0;
 		long offspringId = -1;
@@ -133,7 +144,7 @@ public class PopulationUtil {
 				}
 				if (symbol.equals("->")) {
 					offspringId = pattern.nextLong();
-					Offspring.addOffspring(new Offspring(offspringId, parentId1, parentId2, generation));
+					Offspring.addOffspring(offspringId, parentId1, parentId2, generation);
 				} else {
 					System.out.println("WTF: " + symbol);
 					System.out.println("Format error");
@@ -145,6 +156,48 @@ public class PopulationUtil {
 		s.close();
 		return offspringId;
 	}
+
+	/**
+	 * Load offspring's lineage from a binary lineage event log, which
+	 * replaces the text lineage log when binaryLineage is set
+	 *
+	 * @param file binary lineage event log
+	 * @return number of generations logged in file, and id of the last offspring
+	 */
+	private static long[] loadLineageEvents(File file) {
+		System.out.println("Load lineage events from: " + file);
+		// Number of generations so far, and id of the last offspring
+		final long[] result = new long[] { 0, -1 };
+		try {
+			LineageEventLog.read(file, new LineageEventLog.Events() {
+				@Override
+				public void child(long parent1, long parent2, long child) {
+					Offspring.addOffspring(child, parent1, parent2, (int) result[0]);
+					result[1] = child;
+				}
+
+				@Override
+				public void generation(int generation) {
+					result[0]++;
+				}
+
+				@Override
+				public void lineageText(String line) {
+					if (!line.startsWith("--")) {
+						System.out.println("Line: " + line);
+						System.out.println("Format error");
+						System.exit(1);
+					}
+					result[0]++;
+				}
+			});
+		} catch (IOException ex) {
+			ex.printStackTrace();
+			System.out.println("Could not load lineage from " + file);
+			System.exit(1);
+		}
+		return result;
+	}
         
         /**
          * Given the best scoring individuals in each objective from the
@@ -163,17 +216,12 @@ public class PopulationUtil {
 		String filePrefix = "gen" + currentGen + "_";
 		// Save best in each objective
 		String bestDir = FileUtilities.getSaveDirectory() + "/bestObjectives";
-		File dir = new File(bestDir);
 		// Delete old contents/team
-		if (dir.exists() && !Parameters.parameters.booleanParameter("saveAllChampions")) {
-			FileUtilities.deleteDirectoryContents(dir);
-		} else {
-			dir.mkdir();
-		}
+		BackgroundWriter.prepareDirectory(bestDir, !Parameters.parameters.booleanParameter("saveAllChampions"));
 		// save all of the best objectives
 		for (int j = 0; j < bestScores.size(); j++) {
-			Easy.save(bestScores.get(j), bestDir + "/" + filePrefix + "keptGenotypesIn" + j + ".xml");
-			FileUtilities.simpleFileWrite(bestDir + "/" + filePrefix + "genotypes" + j + ".txt", bestScores.get(j).individual.toString());
+			BackgroundWriter.save(bestScores.get(j), bestDir + "/" + filePrefix + "keptGenotypesIn" + j + ".xml");
+			BackgroundWriter.write(bestDir + "/" + filePrefix + "genotypes" + j + ".txt", bestScores.get(j).individual.toString());
 		}
 	}
         
@@ -191,17 +239,12 @@ public class PopulationUtil {
 		String filePrefix = "gen" + currentGen + "_";
 		// Save best in each objective
 		String bestDir = FileUtilities.getSaveDirectory() + "/bestObjectives";
-		File dir = new File(bestDir);
 		// Delete old contents/team
-		if (dir.exists() && !Parameters.parameters.booleanParameter("saveAllChampions")) {
-			FileUtilities.deleteDirectoryContents(dir);
-		} else {
-			dir.mkdir();
-		}
+		BackgroundWriter.prepareDirectory(bestDir, !Parameters.parameters.booleanParameter("saveAllChampions"));
 		// save all of the best objectives
 		for (int j = 0; j < bestObjectives.length; j++) {
-			Easy.save(bestGenotypes[j], bestDir + "/" + filePrefix + "bestIn" + j + ".xml");
-			FileUtilities.simpleFileWrite(bestDir + "/" + filePrefix + "score" + j + ".txt", bestScores[j].toString());
+			BackgroundWriter.save(bestGenotypes[j], bestDir + "/" + filePrefix + "bestIn" + j + ".xml");
+			BackgroundWriter.write(bestDir + "/" + filePrefix + "score" + j + ".txt", bestScores[j].toString());
 		}
 	}
 	/**
@@ -302,20 +345,39 @@ public class PopulationUtil {
 	 */
 	@SuppressWarnings({ "rawtypes", "unchecked" })
 	public static ArrayList<Genotype> childrenFromTournamentSelection(int numChildren, ArrayList<Score> parentScores, Better<Score> judge, boolean mating, double crossoverRate) {
+		if (ParallelReproduction.enabled()) {
+			// All parents are chosen first, then offspring are generated in parallel
+			ArrayList matings = new ArrayList(numChildren);
+			for (int i = 0; i < numChildren; i++) {
+				int e1 = RandomNumbers.generator().nextInt(parentScores.size());
+				int e2 = RandomNumbers.generator().nextInt(parentScores.size());
+				Genotype source = judge.better(parentScores.get(e1), parentScores.get(e2)).individual;
+				Genotype otherSource = null;
+				if (mating && RandomNumbers.generator().nextDouble() < crossoverRate) {
+					e1 = RandomNumbers.generator().nextInt(parentScores.size());
+					e2 = RandomNumbers.generator().nextInt(parentScores.size());
+					otherSource = judge.better(parentScores.get(e1), parentScores.get(e2)).individual;
+					i++;
+				}
+				matings.add(new ParallelReproduction.Mating(source, otherSource, i < numChildren, true));
+			}
+			return ParallelReproduction.offspring(matings);
+		}
+
 		ArrayList<Genotype> offspring = new ArrayList<Genotype>(numChildren);
 
 		for (int i = 0; i < numChildren; i++) {
-			int e1 = RandomNumbers.randomGenerator.nextInt(parentScores.size());
-			int e2 = RandomNumbers.randomGenerator.nextInt(parentScores.size());
+			int e1 = RandomNumbers.generator().nextInt(parentScores.size());
+			int e2 = RandomNumbers.generator().nextInt(parentScores.size());
 
 			Genotype source = judge.better(parentScores.get(e1), parentScores.get(e2)).individual;
 			long parentId1 = source.getId();
 			long parentId2 = -1;
 			Genotype e = source.copy();
 
-			if (mating && RandomNumbers.randomGenerator.nextDouble() < crossoverRate) {
-				e1 = RandomNumbers.randomGenerator.nextInt(parentScores.size());
-				e2 = RandomNumbers.randomGenerator.nextInt(parentScores.size());
+			if (mating && RandomNumbers.generator().nextDouble() < crossoverRate) {
+				e1 = RandomNumbers.generator().nextInt(parentScores.size());
+				e2 = RandomNumbers.generator().nextInt(parentScores.size());
 
 				Genotype otherSource = judge.better(parentScores.get(e1), parentScores.get(e2)).individual;
 				parentId2 = otherSource.getId();
@@ -333,16 +395,16 @@ public class PopulationUtil {
 					// System.out.println(i + ":Mutate Child");
 					otherOffspring.mutate();
 					offspring.add(otherOffspring);
-					EvolutionaryHistory.logLineageData(parentId1 + " X " + parentId2 + " -> " + otherOffspring.getId());
+					EvolutionaryHistory.logLineage(parentId1, parentId2, otherOffspring.getId());
 				}
 			}
 
 			e.mutate();
 			offspring.add(e);
 			if (parentId2 == -1) {
-				EvolutionaryHistory.logLineageData(parentId1 + " -> " + e.getId());
+				EvolutionaryHistory.logLineage(parentId1, -1, e.getId());
 			} else {
-				EvolutionaryHistory.logLineageData(parentId1 + " X " + parentId2 + " -> " + e.getId());
+				EvolutionaryHistory.logLineage(parentId1, parentId2, e.getId());
 			}
 		}
 		return offspring;
@@ -399,7 +461,8 @@ public class PopulationUtil {
 	}
 
 	/**
-	 * Load all genotypes that are xml files in the given directory
+	 * Load all genotypes that are xml files in the given directory, or the
+	 * population of the last generation in a checkpoint file
 	 *
 	 * @param <T>
 	 *            Phenotype
@@ -410,6 +473,16 @@ public class PopulationUtil {
 	public static <T> ArrayList<Genotype<T>> load(String directory) {
 		System.out.println("Attempting to load from: " + directory);
 
+		if (GenerationCheckpoint.isCheckpoint(directory)) {
+			try {
+				return GenerationCheckpoint.<T>load(directory).population;
+			} catch (IOException ex) {
+				ex.printStackTrace();
+				System.out.println("Could not load checkpoint " + directory);
+				System.exit(1);
+			}
+		}
+
 		FilenameFilter filter = new XMLFilter();
 
 		ArrayList<Genotype<T>> population = new ArrayList<Genotype<T>>(Parameters.parameters.integerParameter("mu"));
@@ -432,7 +505,7 @@ public class PopulationUtil {
 	@SuppressWarnings("unchecked")
 	public static <T> Genotype<T> extractGenotype(String file) {
 		System.out.print("Load File: \"" + file + "\"");
-		Object loaded = Easy.load(file);
+		Object loaded = GenotypeFiles.load(file);
 		Genotype<T> individual = null;
 		if (loaded instanceof Genotype) {
 			individual = (Genotype<T>) loaded;
@@ -621,7 +694,11 @@ public class PopulationUtil {
 		new File(fullSaveDir).mkdir();
 		System.out.println("Saving to \"" + fullSaveDir + "\" with prefix \"" + prefix + "\"");
 
-		ExecutorService poolExecutor = null;
+		if (BackgroundWriter.enabled()) {
+			BackgroundWriter.saveAll(population, fullSaveDir + "/" + prefix);
+			return;
+		}
+
 		ArrayList<Future<Boolean>> futures = null;
 		ArrayList<SaveThread<Genotype<T>>> saves = new ArrayList<SaveThread<Genotype<T>>>(population.size());
 
@@ -635,10 +712,9 @@ public class PopulationUtil {
 		}
 
 		if (parallel) {
-			poolExecutor = Executors.newCachedThreadPool();
 			futures = new ArrayList<Future<Boolean>>(population.size());
 			for (int i = 0; i < population.size(); i++) {
-				futures.add(poolExecutor.submit(saves.get(i)));
+				futures.add(EvaluationExecutor.submit(saves.get(i)));
 			}
 		}
 
@@ -655,10 +731,6 @@ public class PopulationUtil {
 				System.exit(1);
 			}
 		}
-
-		if (parallel) {
-			poolExecutor.shutdown();
-		}
 	}
 
 	/**
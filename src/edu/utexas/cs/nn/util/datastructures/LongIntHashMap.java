@@ -0,0 +1,151 @@
+package edu.utexas.cs.nn.util.datastructures;
+
+import java.util.Arrays;
+
+/**
+ * Hash map from primitive long keys to primitive int values, using open
+ * addressing with linear probing. Unlike HashMap<Long,Integer>, neither keys
+ * nor values are boxed, and there are no entry objects, so filling and
+ * querying the map does not allocate. Used to map innovation numbers to
+ * positions in lists of nodes when constructing networks.
+ *
+ * Entries cannot be removed.
+ */
+public class LongIntHashMap {
+
+	private static final int MIN_CAPACITY = 4;
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size;
+	private int mask;
+	// Returned by get when the key is absent
+	private final int missingValue;
+
+	/**
+	 * Map with enough space for the expected number of entries without
+	 * resizing, that returns -1 for missing keys.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 */
+	public LongIntHashMap(int expectedSize) {
+		this(expectedSize, -1);
+	}
+
+	/**
+	 * Map with enough space for the expected number of entries without
+	 * resizing.
+	 *
+	 * @param expectedSize
+	 *            expected number of entries
+	 * @param missingValue
+	 *            value returned by get for keys that are not in the map
+	 */
+	public LongIntHashMap(int expectedSize, int missingValue) {
+		this.missingValue = missingValue;
+		int capacity = MIN_CAPACITY;
+		while (capacity < 2 * expectedSize) {
+			capacity <<= 1;
+		}
+		allocate(capacity);
+	}
+
+	private void allocate(int capacity) {
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+	}
+
+	/**
+	 * Spreads the bits of the key so that consecutive innovation numbers do
+	 * not end up in long runs of adjacent slots
+	 */
+	private static int hash(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+	/**
+	 * Position of key in the table, or of the empty slot where it belongs
+	 */
+	private int slot(long key) {
+		int i = hash(key) & mask;
+		while (used[i] && keys[i] != key) {
+			i = (i + 1) & mask;
+		}
+		return i;
+	}
+
+	/**
+	 * Associates the value with the key, replacing any previous value
+	 *
+	 * @param key
+	 *            long key
+	 * @param value
+	 *            int value
+	 */
+	public void put(long key, int value) {
+		int i = slot(key);
+		if (!used[i]) {
+			// Table is never more than half full
+			if (2 * (size + 1) > keys.length) {
+				grow();
+				i = slot(key);
+			}
+			used[i] = true;
+			keys[i] = key;
+			size++;
+		}
+		values[i] = value;
+	}
+
+	/**
+	 * @param key
+	 *            long key
+	 * @return associated value, or the missing value if key is absent
+	 */
+	public int get(long key) {
+		int i = slot(key);
+		return used[i] ? values[i] : missingValue;
+	}
+
+	/**
+	 * @param key
+	 *            long key
+	 * @return whether the key has a value in the map
+	 */
+	public boolean containsKey(long key) {
+		return used[slot(key)];
+	}
+
+	/**
+	 * @return number of keys in the map
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Empties the map without giving up its space
+	 */
+	public void clear() {
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+	private void grow() {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+		allocate(keys.length << 1);
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldUsed[i]) {
+				put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
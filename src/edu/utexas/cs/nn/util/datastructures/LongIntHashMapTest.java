@@ -0,0 +1,55 @@
+package edu.utexas.cs.nn.util.datastructures;
+
+import static org.junit.Assert.*;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class LongIntHashMapTest {
+
+	@Test
+	public void testPutAndGet() {
+		LongIntHashMap map = new LongIntHashMap(2);
+		assertEquals(0, map.size());
+		assertEquals(-1, map.get(5));
+		map.put(5, 0);
+		map.put(-1, 1);
+		map.put(-7, 2);
+		assertEquals(3, map.size());
+		assertEquals(0, map.get(5));
+		assertEquals(1, map.get(-1));
+		assertEquals(2, map.get(-7));
+		assertFalse(map.containsKey(6));
+		map.put(5, 10);
+		assertEquals(3, map.size());
+		assertEquals(10, map.get(5));
+		map.clear();
+		assertEquals(0, map.size());
+		assertFalse(map.containsKey(5));
+	}
+
+	@Test
+	public void testMissingValue() {
+		LongIntHashMap map = new LongIntHashMap(10, Integer.MIN_VALUE);
+		assertEquals(Integer.MIN_VALUE, map.get(3));
+	}
+
+	@Test
+	public void testAgainstHashMap() {
+		Random r = new Random(0);
+		LongIntHashMap map = new LongIntHashMap(1);
+		HashMap<Long, Integer> check = new HashMap<Long, Integer>();
+		for (int i = 0; i < 10000; i++) {
+			long key = r.nextInt(5000) - 2500;
+			map.put(key, i);
+			check.put(key, i);
+		}
+		assertEquals(check.size(), map.size());
+		for (long key = -3000; key < 3000; key++) {
+			Integer expected = check.get(key);
+			assertEquals(expected == null ? -1 : expected.intValue(), map.get(key));
+		}
+	}
+}
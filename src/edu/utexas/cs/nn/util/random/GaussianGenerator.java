@@ -9,7 +9,7 @@ public class GaussianGenerator implements RandomGenerator {
 
 	@Override
 	public double randomOutput() {
-		return RandomNumbers.randomGenerator.nextGaussian();
+		return RandomNumbers.generator().nextGaussian();
 	}
 
 }
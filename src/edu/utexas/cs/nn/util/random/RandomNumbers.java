@@ -13,6 +13,55 @@ import java.util.Random;
 public class RandomNumbers {
 
 	public static Random randomGenerator = new Random();
+	// Generators of work running on other threads, such as parallel reproduction
+	private static final ThreadLocal<Random> threadGenerator = new ThreadLocal<Random>();
+
+	/**
+	 * Generator used by the current thread: its own generator if one was set
+	 * with setThreadGenerator, and randomGenerator otherwise.
+	 *
+	 * @return random generator for the current thread
+	 */
+	public static Random generator() {
+		Random result = threadGenerator.get();
+		return result == null ? randomGenerator : result;
+	}
+
+	/**
+	 * Give the current thread its own generator, so that the random numbers it
+	 * draws do not depend on what other threads are doing.
+	 *
+	 * @param random
+	 *            generator for this thread, or null to go back to using
+	 *            randomGenerator
+	 * @return generator the thread had before, or null if it had none. Work
+	 *         that may run inside other work on the same thread (a thread of
+	 *         the EvaluationExecutor can run other tasks while it waits)
+	 *         should restore it when done.
+	 */
+	public static Random setThreadGenerator(Random random) {
+		Random previous = threadGenerator.get();
+		if (random == null) {
+			threadGenerator.remove();
+		} else {
+			threadGenerator.set(random);
+		}
+		return previous;
+	}
+
+	/**
+	 * Stream for work that will run on another thread, split from the
+	 * generator of the current thread. Streams for parallel work must be
+	 * created in a fixed order (for example, population order) before the
+	 * work is submitted, so that each piece of work gets the same stream for
+	 * a given seed no matter how many threads there are.
+	 *
+	 * @return new independent stream
+	 */
+	public static RandomStream newStream() {
+		Random random = generator();
+		return random instanceof RandomStream ? ((RandomStream) random).split() : new RandomStream(random.nextLong());
+	}
 
 	/*
 	 * Reset random generator based on seed from parameter file
@@ -22,7 +71,7 @@ public class RandomNumbers {
 		if (seed != -1) { // Control algorithmic randomness
 			reset(seed);
 		} else {
-			randomGenerator = new Random();
+			randomGenerator = Parameters.parameters.booleanParameter("fastRandom") ? new RandomStream() : new Random();
 		}
 	}
 
@@ -34,14 +83,14 @@ public class RandomNumbers {
 	 */
 	public static void reset(int seed) {
 		System.out.println("Reset random seed to: " + seed);
-		randomGenerator = new Random(seed);
+		randomGenerator = Parameters.parameters != null && Parameters.parameters.booleanParameter("fastRandom") ? new RandomStream(seed) : new Random(seed);
 	}
 
 	/**
 	 * Returns random number in range [-1,1]
 	 */
 	public static double fullSmallRand() {
-		return (randomGenerator.nextDouble() * 2.0) - 1.0;
+		return (generator().nextDouble() * 2.0) - 1.0;
 	}
 
 	/**
@@ -54,7 +103,7 @@ public class RandomNumbers {
 	 * @return random number in range
 	 */
 	public static double boundedRandom(double lower, double upper) {
-		double rand = randomGenerator.nextDouble();
+		double rand = generator().nextDouble();
 		rand *= (upper - lower);
 		rand += lower;
 		return rand;
@@ -106,7 +155,7 @@ public class RandomNumbers {
 	public static Integer[] randomIntArray(int size, int[] ceilings) {
 		Integer[] result = new Integer[size];
 		for (int i = 0; i < result.length; i++) {
-			result[i] = randomGenerator.nextInt(ceilings[i]);
+			result[i] = generator().nextInt(ceilings[i]);
 		}
 		return result;
 	}
@@ -120,7 +169,7 @@ public class RandomNumbers {
 	 * @return probabilistically selected index
 	 */
 	public static int probabilisticSelection(double[] probs) {
-		double randomValue = randomGenerator.nextDouble();
+		double randomValue = generator().nextDouble();
 		double sum = 0;
 		int selection = -1;
 		// Extra case needed because floating point arithmetic may add to
@@ -149,7 +198,7 @@ public class RandomNumbers {
 		for (int i = 0; i < ceiling; i++) {
 			all.add(i);
 		}
-		Collections.shuffle(all, randomGenerator);
+		Collections.shuffle(all, generator());
 		int[] result = new int[num];
 		for (int i = 0; i < num; i++) {
 			result[i] = all.get(i);
@@ -158,7 +207,7 @@ public class RandomNumbers {
 	}
 
 	public static double randomSign() {
-		return randomGenerator.nextBoolean() ? 1 : -1;
+		return generator().nextBoolean() ? 1 : -1;
 	}
 
 	/**
@@ -179,7 +228,7 @@ public class RandomNumbers {
 		for (int i = 0; i < y; i++) {
 			source.add(i);
 		}
-		Collections.shuffle(source, randomGenerator);
+		Collections.shuffle(source, generator());
 
 		int[] result = new int[x];
 		for (int i = 0; i < x; i++) {
@@ -216,7 +265,7 @@ public class RandomNumbers {
 		double u = 0.5, Cauchy_cut = 10.0;
 
 		while (u == 0.5) {
-			u = randomGenerator.nextDouble();
+			u = generator().nextDouble();
 		}
 		u = wtrange * Math.tan(u * Math.PI);
 		if (Math.abs(u) > Cauchy_cut) { // disallows extreme ends of tails
@@ -235,7 +284,7 @@ public class RandomNumbers {
 	 * @return random T of <T>
 	 */
 	public static <T> T randomElement(ArrayList<T> list) {
-		int index = randomGenerator.nextInt(list.size());
+		int index = generator().nextInt(list.size());
 		return list.get(index);
 	}
 
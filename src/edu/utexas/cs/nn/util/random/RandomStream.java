@@ -0,0 +1,146 @@
+package edu.utexas.cs.nn.util.random;
+
+import java.util.Random;
+
+/**
+ * Fast random generator for a single thread, based on SplitMix64. The whole
+ * state is one long that is not shared with other threads, so drawing numbers
+ * needs no synchronization, unlike java.util.Random, whose seed is an
+ * AtomicLong updated on every draw.
+ *
+ * A stream can be split into a new stream that is independent of it. Work
+ * done in parallel is given streams split from one generator in a fixed
+ * order, so the numbers each piece of work draws only depend on the seed of
+ * that generator, and not on how the work is spread over threads.
+ *
+ * Like ResumableRandom, the state can be read with getSeed and restored with
+ * hardSetSeed.
+ */
+public class RandomStream extends Random {
+
+	private static final long serialVersionUID = 4170216543826150375L;
+
+	// Odd constant added to the state on each draw
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	// Not initialized here, since Random's constructor sets it with setSeed
+	private long state;
+	private double nextNextGaussian;
+	private boolean haveNextNextGaussian;
+
+	/**
+	 * @param seed
+	 *            initial state
+	 */
+	public RandomStream(long seed) {
+		super(seed);
+	}
+
+	/**
+	 * Stream seeded from the time, as with new Random()
+	 */
+	public RandomStream() {
+		this(mix64(System.nanoTime()) ^ Thread.currentThread().getId());
+	}
+
+	/**
+	 * Bijective scramble of all 64 bits of z
+	 *
+	 * @param z
+	 *            value to mix
+	 * @return mixed value
+	 */
+	static long mix64(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+
+	/**
+	 * New stream whose numbers are independent of this one. Advances this
+	 * stream by one draw.
+	 *
+	 * @return split stream
+	 */
+	public RandomStream split() {
+		// Mix again so the new state is not simply an output of this stream
+		return new RandomStream(mix64(nextLong() ^ GOLDEN_GAMMA));
+	}
+
+	@Override
+	public void setSeed(long seed) {
+		state = seed;
+		haveNextNextGaussian = false;
+	}
+
+	/**
+	 * Current state, from which the stream can be resumed with hardSetSeed
+	 *
+	 * @return state of the stream
+	 */
+	public long getSeed() {
+		return state;
+	}
+
+	/**
+	 * Restore a state returned by getSeed
+	 *
+	 * @param newSeed
+	 *            state to continue from
+	 */
+	public void hardSetSeed(long newSeed) {
+		setSeed(newSeed);
+	}
+
+	@Override
+	public long nextLong() {
+		state += GOLDEN_GAMMA;
+		return mix64(state);
+	}
+
+	@Override
+	protected int next(int bits) {
+		return (int) (nextLong() >>> (64 - bits));
+	}
+
+	@Override
+	public int nextInt() {
+		return (int) (nextLong() >>> 32);
+	}
+
+	@Override
+	public double nextDouble() {
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+
+	@Override
+	public float nextFloat() {
+		return (nextLong() >>> 40) * 0x1.0p-24f;
+	}
+
+	@Override
+	public boolean nextBoolean() {
+		return nextLong() < 0;
+	}
+
+	/**
+	 * Same polar method as java.util.Random, but without synchronization
+	 */
+	@Override
+	public double nextGaussian() {
+		if (haveNextNextGaussian) {
+			haveNextNextGaussian = false;
+			return nextNextGaussian;
+		}
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		double multiplier = StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+		nextNextGaussian = v2 * multiplier;
+		haveNextNextGaussian = true;
+		return v1 * multiplier;
+	}
+}
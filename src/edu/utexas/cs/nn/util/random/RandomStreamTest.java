@@ -0,0 +1,136 @@
+package edu.utexas.cs.nn.util.random;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Test;
+
+public class RandomStreamTest {
+
+	static final int SIZE = 100;
+
+	@After
+	public void tearDown() {
+		RandomNumbers.setThreadGenerator(null);
+	}
+
+	private static long[] draw(Random random) {
+		long[] result = new long[SIZE];
+		for (int i = 0; i < SIZE; i++) {
+			result[i] = random.nextLong();
+		}
+		return result;
+	}
+
+	@Test
+	public void testResume() {
+		RandomStream random = new RandomStream(10);
+		random.nextGaussian();
+		long seed = random.getSeed();
+		long[] first = draw(random);
+		random.hardSetSeed(seed);
+		assertArrayEquals(first, draw(random));
+		assertArrayEquals(draw(new RandomStream(10)), draw(new RandomStream(10)));
+	}
+
+	@Test
+	public void testSplit() {
+		RandomStream a = new RandomStream(3);
+		RandomStream b = new RandomStream(3);
+		RandomStream splitA = a.split();
+		RandomStream splitB = b.split();
+		assertArrayEquals(draw(splitA), draw(splitB));
+		// The split stream is neither the parent nor the next split
+		long[] parent = draw(a);
+		long[] split = draw(a.split());
+		long[] other = draw(new RandomStream(3).split());
+		assertFalse(parent[0] == split[0] || split[0] == other[0]);
+	}
+
+	@Test
+	public void testRanges() {
+		RandomStream random = new RandomStream(0);
+		double sum = 0, squares = 0;
+		int n = 100000;
+		for (int i = 0; i < n; i++) {
+			double d = random.nextDouble();
+			assertTrue(d >= 0 && d < 1);
+			float f = random.nextFloat();
+			assertTrue(f >= 0 && f < 1);
+			int x = random.nextInt(7);
+			assertTrue(x >= 0 && x < 7);
+			double g = random.nextGaussian();
+			sum += g;
+			squares += g * g;
+		}
+		assertEquals(0, sum / n, 0.02);
+		assertEquals(1, squares / n, 0.02);
+	}
+
+	@Test
+	public void testSerializable() throws Exception {
+		RandomStream random = new RandomStream(8);
+		random.nextLong();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		ObjectOutputStream out = new ObjectOutputStream(bytes);
+		out.writeObject(random);
+		out.close();
+		RandomStream copy = (RandomStream) new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+		assertArrayEquals(draw(random), draw(copy));
+	}
+
+	/**
+	 * Work given streams split in order draws the same numbers however many
+	 * threads run it
+	 */
+	@Test
+	public void testThreadStreams() throws Exception {
+		assertArrayEquals(work(1), work(4), 0);
+		Random mine = new RandomStream(1);
+		assertNull(RandomNumbers.setThreadGenerator(mine));
+		assertSame(mine, RandomNumbers.generator());
+		assertSame(mine, RandomNumbers.setThreadGenerator(null));
+		assertSame(RandomNumbers.randomGenerator, RandomNumbers.generator());
+	}
+
+	private static double[] work(int threads) throws Exception {
+		RandomNumbers.randomGenerator = new Random(5);
+		ExecutorService pool = Executors.newFixedThreadPool(threads);
+		ArrayList<Future<Double>> futures = new ArrayList<Future<Double>>();
+		for (int i = 0; i < 20; i++) {
+			final RandomStream random = RandomNumbers.newStream();
+			futures.add(pool.submit(new Callable<Double>() {
+				@Override
+				public Double call() {
+					Random previous = RandomNumbers.setThreadGenerator(random);
+					try {
+						double sum = 0;
+						for (double x : RandomNumbers.randomArray(SIZE)) {
+							sum += x;
+						}
+						return sum + RandomNumbers.boundedRandom(0, 1);
+					} finally {
+						RandomNumbers.setThreadGenerator(previous);
+					}
+				}
+			}));
+		}
+		double[] result = new double[futures.size()];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = futures.get(i).get();
+		}
+		pool.shutdown();
+		return result;
+	}
+}
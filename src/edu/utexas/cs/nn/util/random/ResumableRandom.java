@@ -55,6 +55,33 @@ public class ResumableRandom extends Random {
 	// System.out.println("Random double " + result);
 	// return result;
 	// }
+	/**
+	 * Reflective handle on the private seed of java.util.Random. Looking the
+	 * field up is far more expensive than reading it, and the seed is saved
+	 * and restored every time step in some Ms. Pac-Man execution modes, so
+	 * the field is only looked up once.
+	 */
+	private static Field seedField = null;
+
+	/**
+	 * Gets the seed field of java.util.Random, made accessible, looking it up
+	 * on first use.
+	 * 
+	 * @return accessible seed field
+	 * @throws NoSuchFieldException
+	 *             should never happen
+	 */
+	private static Field seedField() throws NoSuchFieldException {
+		if (seedField == null) {
+			// gets seed field from the resumable random
+			Field field = Random.class.getDeclaredField("seed");
+			// hardcodes field so the seed value is always accessible
+			field.setAccessible(true);
+			seedField = field;
+		}
+		return seedField;
+	}
+
 	/**
 	 * Accesses and hard sets the seed of the resumable random number generator
 	 * 
@@ -63,12 +90,8 @@ public class ResumableRandom extends Random {
 	 */
 	public void hardSetSeed(long newSeed) {
 		try {
-			// gets seed field from the resumable random
-			Field field = this.getClass().getSuperclass().getDeclaredField("seed");
-			// hardcodes field so the seed value is always accessible
-			field.setAccessible(true);
 			// casts the seed of the resumable random to an Atomiclong
-			AtomicLong seed = (AtomicLong) field.get(this);
+			AtomicLong seed = (AtomicLong) seedField().get(this);
 			// resets seed of resumable random number generator to the long
 			// parameter newSeed
 			seed.set(newSeed);
@@ -98,9 +121,7 @@ public class ResumableRandom extends Random {
 	 */
 	public long getSeed() {
 		try {
-			Field field = this.getClass().getSuperclass().getDeclaredField("seed");
-			field.setAccessible(true);
-			AtomicLong seed = (AtomicLong) field.get(this);
+			AtomicLong seed = (AtomicLong) seedField().get(this);
 			return seed.get();
 			// these exceptions should not occur and if so, they crash the
 			// program
@@ -184,6 +184,40 @@ public class Executor {
 		// StatisticsUtilities.average(ArrayUtil.doubleArrayFromArrayList(actionTimes)));
 	}
 
+	/**
+	 * Run a game in lock-step on the calling thread. Both controllers are
+	 * queried directly each tick, so no controller threads are started, the
+	 * game is never copied, and there is no sleeping between ticks. Intended
+	 * for headless evolution, where the time limit of the timed modes only
+	 * slows evaluation down.
+	 *
+	 * Controllers receive the actual game instead of a copy, so they must not
+	 * modify it. The only game state that controllers commonly change is the
+	 * random number generator (e.g. Legacy ghosts), so its seed is restored
+	 * before each controller is queried. This gives each controller the same
+	 * view it would have had of a fresh copy, and the resulting game is
+	 * identical to the one produced by runExperiment for the same seed.
+	 *
+	 * @param pacManController
+	 *            The Pac-Man controller
+	 * @param ghostController
+	 *            The Ghosts controller
+	 * @param game
+	 *            instance of pacman game to use
+	 */
+	public void runGameLockStep(Controller<MOVE> pacManController, Controller<EnumMap<GHOST, MOVE>> ghostController,
+			Game game) {
+		while (!game.gameOver()) {
+			long due = System.currentTimeMillis() + DELAY;
+			long seed = game.rnd.getSeed();
+			MOVE pacManMove = pacManController.getMove(game, due);
+			game.rnd.hardSetSeed(seed);
+			EnumMap<GHOST, MOVE> ghostMoves = ghostController.getMove(game, due);
+			game.rnd.hardSetSeed(seed);
+			game.advanceGame(pacManMove, ghostMoves);
+		}
+	}
+
 	/**
 	 * Run a game in asynchronous mode: the game waits until a move is returned.
 	 * In order to slow thing down in case the controllers return very quickly,
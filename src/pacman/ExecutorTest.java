@@ -0,0 +1,36 @@
+package pacman;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Game;
+
+public class ExecutorTest {
+
+	Executor exec;
+
+	@Before
+	public void setUp() throws Exception {
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		exec = new Executor();
+	}
+
+	@Test
+	public void testLockStepMatchesSynchronousGames() {
+		for (int seed = 0; seed < 5; seed++) {
+			Game copying = new Game(seed);
+			exec.runExperiment(new StarterPacMan(), new Legacy(), copying);
+			Game lockStep = new Game(seed);
+			exec.runGameLockStep(new StarterPacMan(), new Legacy(), lockStep);
+			assertTrue(lockStep.gameOver());
+			assertEquals(copying.getScore(), lockStep.getScore());
+			assertEquals(copying.getTotalTime(), lockStep.getTotalTime());
+			assertEquals(copying.getGameState(), lockStep.getGameState());
+		}
+	}
+}
@@ -0,0 +1,79 @@
+package pacman;
+
+import edu.utexas.cs.nn.parameters.Parameters;
+import pacman.controllers.examples.Legacy;
+import pacman.controllers.examples.StarterPacMan;
+import pacman.game.Game;
+
+/**
+ * Compares the game ticks per second achieved by the threaded, speed
+ * optimised executor that headless timed evaluation used to go through with
+ * those achieved by the synchronous lock-step executor. Also confirms that
+ * the lock-step executor plays exactly the same games as the synchronous
+ * runExperiment mode for the same seeds.
+ *
+ * Usage: java pacman.LockStepExecutorBenchmark [games] [timedGames]
+ */
+public class LockStepExecutorBenchmark {
+
+	public static void main(String[] args) {
+		int games = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		// The threaded mode spends at least a millisecond on every tick
+		int timedGames = args.length > 1 ? Integer.parseInt(args[1]) : 3;
+		Parameters.initializeParameterCollections(new String[] { "io:false", "netio:false" });
+		Executor exec = new Executor();
+
+		// Warm up the JIT so neither mode pays for it
+		for (int i = 0; i < 5; i++) {
+			exec.runGameLockStep(new StarterPacMan(), new Legacy(), new Game(i));
+		}
+
+		long ticks = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < timedGames; i++) {
+			Game game = new Game(i);
+			exec.runGameTimedSpeedOptimised(new StarterPacMan(), new Legacy(), false, false, game);
+			ticks += game.getTotalTime();
+		}
+		double timedRate = ticksPerSecond(ticks, System.nanoTime() - start);
+		System.out.println("Threaded timed executor:      " + timedRate + " ticks/sec (" + timedGames + " games)");
+
+		ticks = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < games; i++) {
+			Game game = new Game(i);
+			exec.runExperiment(new StarterPacMan(), new Legacy(), game);
+			ticks += game.getTotalTime();
+		}
+		double copyRate = ticksPerSecond(ticks, System.nanoTime() - start);
+		System.out.println("Synchronous copying executor: " + copyRate + " ticks/sec (" + games + " games)");
+
+		ticks = 0;
+		start = System.nanoTime();
+		for (int i = 0; i < games; i++) {
+			Game game = new Game(i);
+			exec.runGameLockStep(new StarterPacMan(), new Legacy(), game);
+			ticks += game.getTotalTime();
+		}
+		double lockStepRate = ticksPerSecond(ticks, System.nanoTime() - start);
+		System.out.println("Lock-step executor:           " + lockStepRate + " ticks/sec (" + games + " games)");
+		System.out.println("Speed-up over threaded executor: " + (lockStepRate / timedRate));
+
+		for (int i = 0; i < games; i++) {
+			Game copying = new Game(i);
+			exec.runExperiment(new StarterPacMan(), new Legacy(), copying);
+			Game lockStep = new Game(i);
+			exec.runGameLockStep(new StarterPacMan(), new Legacy(), lockStep);
+			if (!copying.getGameState().equals(lockStep.getGameState())) {
+				System.out.println("Game " + i + " differs between synchronous modes!");
+				System.exit(1);
+			}
+		}
+		System.out.println("Lock-step games identical to synchronous games for all " + games + " seeds");
+		System.exit(0);
+	}
+
+	private static double ticksPerSecond(long ticks, long nanos) {
+		return ticks / (nanos / 1000000000.0);
+	}
+}